@@ -27,6 +27,7 @@ import hudson.PluginWrapper.Dependency;
 import hudson.model.Hudson;
 import hudson.util.IOException2;
 import hudson.util.MaskingClassLoader;
+import hudson.util.TextFile;
 import hudson.util.VersionNumber;
 import hudson.Plugin.DummyImpl;
 
@@ -79,6 +80,8 @@ public class ClassicPluginStrategy implements PluginStrategy {
     public PluginWrapper createPluginWrapper(File archive) throws IOException {
         final Manifest manifest;
         URL baseResourceURL;
+        long extraction = 0;
+        String digest = null;
 
         File expandDir = null;
         // if .hpi, this is the directory where war is expanded
@@ -108,7 +111,9 @@ public class ClassicPluginStrategy implements PluginStrategy {
                 expandDir = archive;
             } else {
                 expandDir = new File(archive.getParentFile(), PluginWrapper.getBaseName(archive));
-                explode(archive, expandDir);
+                long start = System.currentTimeMillis();
+                digest = explode(archive, expandDir);
+                extraction = System.currentTimeMillis()-start;
             }
 
             File manifestFile = new File(expandDir, "META-INF/MANIFEST.MF");
@@ -169,10 +174,17 @@ public class ClassicPluginStrategy implements PluginStrategy {
         for (DetachedPlugin detached : DETACHED_LIST)
             detached.fix(atts,optionalDependencies);
 
+        long start = System.currentTimeMillis();
         ClassLoader dependencyLoader = new DependencyClassLoader(getBaseClassLoader(atts), archive, Util.join(dependencies,optionalDependencies));
-
-        return new PluginWrapper(pluginManager, archive, manifest, baseResourceURL,
-                createClassLoader(paths, dependencyLoader, atts), disableFile, dependencies, optionalDependencies);
+        ClassLoader classLoader = createClassLoader(paths, dependencyLoader, atts);
+        long classLoading = System.currentTimeMillis()-start;
+
+        PluginWrapper p = new PluginWrapper(pluginManager, archive, manifest, baseResourceURL,
+                classLoader, disableFile, dependencies, optionalDependencies);
+        p.archiveDigest = digest;
+        p.getStartupTimes().extraction = extraction;
+        p.getStartupTimes().classLoading = classLoading;
+        return p;
     }
     
     @Deprecated
@@ -302,8 +314,13 @@ public class ClassicPluginStrategy implements PluginStrategy {
                 wrapper.setPlugin(new DummyImpl());
             } else {
                 try {
+                    long start = System.currentTimeMillis();
                     Class clazz = wrapper.classLoader.loadClass(className);
+                    wrapper.getStartupTimes().classLoading += System.currentTimeMillis()-start;
+
+                    start = System.currentTimeMillis();
                     Object o = clazz.newInstance();
+                    wrapper.getStartupTimes().injection = System.currentTimeMillis()-start;
                     if(!(o instanceof Plugin)) {
                         throw new IOException(className+" doesn't extend from hudson.Plugin");
                     }
@@ -334,7 +351,9 @@ public class ClassicPluginStrategy implements PluginStrategy {
     }
 
     public void startPlugin(PluginWrapper plugin) throws Exception {
+        long start = System.currentTimeMillis();
         plugin.getPlugin().start();
+        plugin.getStartupTimes().start = System.currentTimeMillis()-start;
     }
 
     private static File resolve(File base, String relative) {
@@ -369,15 +388,24 @@ public class ClassicPluginStrategy implements PluginStrategy {
 
     /**
      * Explodes the plugin into a directory, if necessary.
+     *
+     * <p>
+     * The expanded copy is reused when the digest of the archive matches the one recorded in the directory.
+     * The contents decide, rather than the timestamp that used to be compared, since copying archives around
+     * can keep the timestamp of a different archive, or touch an identical one.
+     *
+     * @return
+     *      the digest of the archive.
      */
-    private static void explode(File archive, File destDir) throws IOException {
+    static String explode(File archive, File destDir) throws IOException {
         if(!destDir.exists())
             destDir.mkdirs();
 
-        // timestamp check
         File explodeTime = new File(destDir,".timestamp");
-        if(explodeTime.exists() && explodeTime.lastModified()==archive.lastModified())
-            return; // no need to expand
+        TextFile stamp = new TextFile(new File(destDir,".digest"));
+        String digest = Util.getDigestOf(new FileInputStream(archive));
+        if(stamp.exists() && digest.equals(stamp.readTrim()))
+            return digest; // no need to expand
 
         // delete the contents so that old files won't interfere with new files
         Util.deleteContentsRecursive(destDir);
@@ -394,10 +422,14 @@ public class ClassicPluginStrategy implements PluginStrategy {
         }
 
         try {
+            // the timestamp is still written for older versions of Hudson that may run on this directory
             new FilePath(explodeTime).touch(archive.lastModified());
         } catch (InterruptedException e) {
             throw new AssertionError(e); // impossible
         }
+        // written last, so that an interrupted expansion is redone on the next start
+        stamp.write(digest);
+        return digest;
     }
 
     /**
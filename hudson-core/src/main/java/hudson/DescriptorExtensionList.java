@@ -101,10 +101,7 @@ public class DescriptorExtensionList<T extends Describable<T>, D extends Descrip
      * That is, if this method returns d, {@code d.clazz==type}
      */
     public D find(Class<? extends T> type) {
-        for (D d : this)
-            if (d.clazz==type)
-                return d;
-        return null;
+        return getDescriptorOf(type);
     }
 
     /**
@@ -129,10 +126,7 @@ public class DescriptorExtensionList<T extends Describable<T>, D extends Descrip
      * If none is found, null is returned.
      */
     public Descriptor<T> findByName(String id) {
-        for (Descriptor<T> d : this)
-            if(d.getId().equals(id))
-                return d;
-        return null;
+        return getDescriptorById(id, false);
     }
 
     /**
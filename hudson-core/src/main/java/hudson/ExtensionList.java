@@ -24,6 +24,8 @@
 package hudson;
 
 import hudson.init.InitMilestone;
+import hudson.model.Describable;
+import hudson.model.Descriptor;
 import hudson.model.Hudson;
 import hudson.util.AdaptedIterator;
 import hudson.util.DescriptorList;
@@ -35,8 +37,10 @@ import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
@@ -74,6 +78,11 @@ public class ExtensionList<T> extends AbstractList<T> {
     @CopyOnWrite
     private volatile List<ExtensionComponent<T>> extensions;
 
+    /**
+     * Lookup tables for {@link #extensions}. Rebuilt whenever {@link #extensions} is replaced.
+     */
+    private volatile Index<T> index;
+
     /**
      * Place to store manually registered instances with the per-Hudson scope.
      * {@link CopyOnWriteArrayList} is used here to support concurrent iterations and mutation.
@@ -102,6 +111,10 @@ public class ExtensionList<T> extends AbstractList<T> {
      * or return null.
      */
     public <U extends T> U get(Class<U> type) {
+        Index<T> idx = getIndex();
+        if (idx!=null)
+            return type.cast(idx.byType.get(type));
+
         for (T ext : this)
             if(ext.getClass()==type)
                 return type.cast(ext);
@@ -139,7 +152,7 @@ public class ExtensionList<T> extends AbstractList<T> {
         if(extensions!=null) {
             List<ExtensionComponent<T>> r = new ArrayList<ExtensionComponent<T>>(extensions);
             removeComponent(r,o);
-            extensions = sort(r);
+            setExtensions(sort(r));
         }
         return true;
     }
@@ -174,7 +187,7 @@ public class ExtensionList<T> extends AbstractList<T> {
         if(extensions!=null) {
             List<ExtensionComponent<T>> r = new ArrayList<ExtensionComponent<T>>(extensions);
             r.add(new ExtensionComponent<T>(t));
-            extensions = sort(r);
+            setExtensions(sort(r));
         }
         return true;
     }
@@ -190,12 +203,58 @@ public class ExtensionList<T> extends AbstractList<T> {
      * @since 1.349
      */
     public T getDynamic(String className) {
+        Index<T> idx = getIndex();
+        if (idx!=null)
+            return idx.byClassName.get(className);
+
         for (T t : this)
             if (t.getClass().getName().equals(className))
                 return t;
         return null;
     }
 
+    /**
+     * For a list of {@link Descriptor}s, finds the one whose {@link Descriptor#clazz} is the given type.
+     *
+     * @since 2.2.2
+     */
+    public T getDescriptorOf(Class<? extends Describable> type) {
+        Index<T> idx = getIndex();
+        if (idx!=null)
+            return idx.byDescribableType.get(type);
+
+        for (T t : this)
+            if (t instanceof Descriptor && ((Descriptor)t).clazz==type)
+                return t;
+        return null;
+    }
+
+    /**
+     * For a list of {@link Descriptor}s, finds the one with the given {@link Descriptor#getId()}.
+     *
+     * @param allowShortName
+     *      if true, the part of the ID after the last '.' matches, too.
+     *      The first descriptor that matches either way wins.
+     * @since 2.2.2
+     */
+    public T getDescriptorById(String id, boolean allowShortName) {
+        Index<T> idx = getIndex();
+        if (idx!=null)
+            return (allowShortName ? idx.byIdOrShortName : idx.byId).get(id);
+
+        for (T t : this) {
+            if (!(t instanceof Descriptor))     continue;
+            String name = ((Descriptor)t).getId();
+            if (name.equals(id) || (allowShortName && shortName(name).equals(id)))
+                return t;
+        }
+        return null;
+    }
+
+    private static String shortName(String id) {
+        return id.substring(id.lastIndexOf('.')+1);
+    }
+
     public Hudson getHudson() {
         return hudson;
     }
@@ -214,12 +273,71 @@ public class ExtensionList<T> extends AbstractList<T> {
             if(extensions==null) {
                 List<ExtensionComponent<T>> r = load();
                 r.addAll(legacyInstances);
-                extensions = sort(r);
+                setExtensions(sort(r));
             }
             return extensions;
         }
     }
 
+    /**
+     * Replaces the loaded extensions together with their index.
+     * The index is built first, so the readers that see the new list find a matching index.
+     */
+    private void setExtensions(List<ExtensionComponent<T>> r) {
+        index = new Index<T>(r);
+        extensions = r;
+    }
+
+    /**
+     * Gets the index of the loaded extensions without locking,
+     * or null if the extensions aren't loaded yet and the lookups need to scan the legacy instances.
+     */
+    private Index<T> getIndex() {
+        List<ExtensionComponent<T>> l = ensureLoaded();
+        if (l!=extensions)
+            return null;
+        Index<T> idx = index;
+        if (idx==null || idx.source!=l)
+            // lost a race with an update. the next read will see the index that goes with the update.
+            idx = new Index<T>(l);
+        return idx;
+    }
+
+    /**
+     * Hash lookups of the extensions, so that finding a descriptor doesn't scan through thousands of extensions.
+     * When several extensions have the same key, the first one in the list wins, as with a linear scan.
+     */
+    private static final class Index<T> {
+        final List<ExtensionComponent<T>> source;
+        final Map<Class,T> byType = new HashMap<Class,T>();
+        final Map<String,T> byClassName = new HashMap<String,T>();
+        final Map<Class,T> byDescribableType = new HashMap<Class,T>();
+        final Map<String,T> byId = new HashMap<String,T>();
+        final Map<String,T> byIdOrShortName = new HashMap<String,T>();
+
+        Index(List<ExtensionComponent<T>> source) {
+            this.source = source;
+            for (ExtensionComponent<T> c : source) {
+                T t = c.getInstance();
+                putIfAbsent(byType, t.getClass(), t);
+                putIfAbsent(byClassName, t.getClass().getName(), t);
+                if (t instanceof Descriptor) {
+                    Descriptor d = (Descriptor) t;
+                    putIfAbsent(byDescribableType, d.clazz, t);
+                    String id = d.getId();
+                    putIfAbsent(byId, id, t);
+                    putIfAbsent(byIdOrShortName, id, t);
+                    putIfAbsent(byIdOrShortName, shortName(id), t);
+                }
+            }
+        }
+
+        private static <K,V> void putIfAbsent(Map<K,V> m, K k, V v) {
+            if (!m.containsKey(k))
+                m.put(k,v);
+        }
+    }
+
     /**
      * Chooses the object that locks the loading of the extension instances.
      */
@@ -49,6 +49,7 @@ import hudson.util.IOException2;
 import hudson.util.IOUtils;
 import hudson.util.io.Archiver;
 import hudson.util.io.ArchiverFactory;
+import hudson.util.io.ParallelDeleter;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -822,8 +823,28 @@ public final class FilePath implements Serializable {
      */
     public void deleteRecursive() throws IOException, InterruptedException {
         act(new FileCallable<Void>() {
-            public Void invoke(File f, VirtualChannel channel) throws IOException {
-                Util.deleteRecursive(f);
+            public Void invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+                ParallelDeleter.get().deleteRecursive(f);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Moves this directory out of the way and deletes it, including all its contents,
+     * in the background on the node where it resides.
+     *
+     * <p>
+     * When this method returns, this path no longer exists, but the disk space may not be
+     * reclaimed yet. Use this for large trees where the caller does not need to wait.
+     *
+     * @see ParallelDeleter#deleteInBackground(File)
+     * @since 2.2.2
+     */
+    public void deleteRecursiveInBackground() throws IOException, InterruptedException {
+        act(new FileCallable<Void>() {
+            public Void invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+                ParallelDeleter.get().deleteInBackground(f);
                 return null;
             }
         });
@@ -834,8 +855,8 @@ public final class FilePath implements Serializable {
      */
     public void deleteContents() throws IOException, InterruptedException {
         act(new FileCallable<Void>() {
-            public Void invoke(File f, VirtualChannel channel) throws IOException {
-                Util.deleteContentsRecursive(f);
+            public Void invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+                ParallelDeleter.get().deleteContentsRecursive(f);
                 return null;
             }
         });
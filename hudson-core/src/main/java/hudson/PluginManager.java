@@ -66,9 +66,11 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
@@ -95,7 +97,7 @@ public abstract class PluginManager extends AbstractModelObject {
      */
     protected final List<PluginWrapper> activePlugins = new CopyOnWriteArrayList<PluginWrapper> ();
 
-    protected final List<FailedPlugin> failedPlugins = new ArrayList<FailedPlugin>();
+    protected final List<FailedPlugin> failedPlugins = new CopyOnWriteArrayList<FailedPlugin>();
 
     /**
      * Plug-in root directory.
@@ -141,6 +143,13 @@ public abstract class PluginManager extends AbstractModelObject {
      */
     private final PluginStrategy strategy;
 
+    /**
+     * Held while a plugin is loaded and started. Plugins register their XStream aliases and converters
+     * from {@link Plugin#start()} and static initializers, while other plugins read their configuration,
+     * and XStream doesn't support reading while the mappings change.
+     */
+    private final Object loadLock = new Object();
+
     public PluginManager(ServletContext context, File rootDir) {
         this.context = context;
 
@@ -199,39 +208,56 @@ public abstract class PluginManager extends AbstractModelObject {
 
                             final Map<String,File> inspectedShortNames = new HashMap<String,File>();
 
-                            for( final File arc : archives ) {
-                                g.followedBy().notFatal().attains(PLUGINS_LISTED).add("Inspecting plugin " + arc, new Executable() {
+                            // archives are expanded and their class loaders created independently of each other,
+                            // then registered in the order they were listed so that the handling of duplicates stays the same
+                            final PluginWrapper[] inspected = new PluginWrapper[archives.size()];
+                            Handle[] inspections = new Handle[archives.size()];
+
+                            for (int i=0; i<archives.size(); i++) {
+                                final File arc = archives.get(i);
+                                final int index = i;
+                                if (!PARALLEL_START)
+                                    g.followedBy();
+                                inspections[i] = g.notFatal().attains(PLUGINS_LISTED).add("Inspecting plugin " + arc, new Executable() {
                                     public void run(Reactor session1) throws Exception {
                                         try {
-                                            PluginWrapper p = strategy.createPluginWrapper(arc);
-                                            if (isDuplicate(p)) return;
-
-                                            p.isBundled = bundledPlugins.contains(arc.getName());
-                                            plugins.add(p);
-                                            if(p.isActive())
-                                                activePlugins.add(p);
+                                            inspected[index] = strategy.createPluginWrapper(arc);
                                         } catch (IOException e) {
                                             failedPlugins.add(new FailedPlugin(arc.getName(),e));
                                             throw e;
                                         }
                                     }
+                                });
+                            }
 
-                                    /**
-                                     * Inspects duplication. this happens when you run hpi:run on a bundled plugin,
-                                     * as well as putting numbered hpi files, like "cobertura-1.0.hpi" and "cobertura-1.1.hpi"
-                                     */
-                                    private boolean isDuplicate(PluginWrapper p) {
-                                        String shortName = p.getShortName();
-                                        if (inspectedShortNames.containsKey(shortName)) {
-                                            LOGGER.info("Ignoring "+arc+" because "+inspectedShortNames.get(shortName)+" is already loaded");
-                                            return true;
-                                        }
+                            g.requires(inspections).attains(PLUGINS_LISTED).add("Registering plugins", new Executable() {
+                                public void run(Reactor session1) throws Exception {
+                                    for (int i=0; i<inspected.length; i++) {
+                                        PluginWrapper p = inspected[i];
+                                        if (p==null || isDuplicate(archives.get(i),p)) continue;
 
-                                        inspectedShortNames.put(shortName,arc);
-                                        return false;
+                                        p.isBundled = bundledPlugins.contains(archives.get(i).getName());
+                                        plugins.add(p);
+                                        if(p.isActive())
+                                            activePlugins.add(p);
                                     }
-                                });
-                            }
+                                }
+
+                                /**
+                                 * Inspects duplication. this happens when you run hpi:run on a bundled plugin,
+                                 * as well as putting numbered hpi files, like "cobertura-1.0.hpi" and "cobertura-1.1.hpi"
+                                 */
+                                private boolean isDuplicate(File arc, PluginWrapper p) {
+                                    String shortName = p.getShortName();
+                                    if (inspectedShortNames.containsKey(shortName)) {
+                                        LOGGER.info("Ignoring "+arc+" because "+inspectedShortNames.get(shortName)+" is already loaded");
+                                        return true;
+                                    }
+
+                                    inspectedShortNames.put(shortName,arc);
+                                    return false;
+                                }
+                            });
 
                             g.requires(PLUGINS_PREPARED).add("Checking cyclic dependencies",new Executable() {
                                 /**
@@ -288,24 +314,54 @@ public abstract class PluginManager extends AbstractModelObject {
                     Hudson.getInstance().lookup.set(PluginInstanceStore.class,new PluginInstanceStore());
                     TaskGraphBuilder g = new TaskGraphBuilder();
 
-                    // schedule execution of loading plugins
-                    for (final PluginWrapper p : activePlugins.toArray(new PluginWrapper[activePlugins.size()])) {
-                        g.followedBy().notFatal().attains(PLUGINS_PREPARED).add("Loading plugin " + p.getShortName(), new Executable() {
+                    // schedule execution of loading plugins.
+                    // a plugin is loaded after the plugins it depends on, and only one plugin is loaded at a time.
+                    // the ones that fail are only removed from the plugin list once all the loading is done,
+                    // since other plugins are reading the list at the same time.
+                    final Set<String> failedToLoad = Collections.synchronizedSet(new HashSet<String>());
+                    List<PluginWrapper> loadOrder = getLoadOrder();
+                    final Map<String,Handle> loadings = new HashMap<String,Handle>();
+                    for (final PluginWrapper p : loadOrder) {
+                        if (loadOrder==activePlugins) {
+                            g.followedBy();
+                        } else {
+                            for (Dependency d : Util.join(p.getDependencies(),p.getOptionalDependencies())) {
+                                Handle h = loadings.get(d.shortName);
+                                if (h!=null)    g.requires(h);
+                            }
+                        }
+                        loadings.put(p.getShortName(), g.notFatal().attains(PLUGINS_PREPARED).add("Loading plugin " + p.getShortName(), new Executable() {
                             public void run(Reactor session) throws Exception {
                                 try {
+                                    for (Dependency d : p.getDependencies()) {
+                                        if (failedToLoad.contains(d.shortName))
+                                            throw new IOException("Dependency "+d+" failed to load");
+                                    }
                                     p.resolvePluginDependencies();
-                                    strategy.load(p);
+                                    synchronized (loadLock) {
+                                        strategy.load(p);
+                                    }
                                 } catch (IOException e) {
                                     failedPlugins.add(new FailedPlugin(p.getShortName(), e));
+                                    failedToLoad.add(p.getShortName());
                                     activePlugins.remove(p);
-                                    plugins.remove(p);
                                     throw e;
                                 }
                             }
-                        });
+                        }));
                     }
 
+                    g.requires(loadings.values().toArray(new Handle[loadings.size()])).attains(PLUGINS_PREPARED).add("Removing plugins that failed to load", new Executable() {
+                        public void run(Reactor session) throws Exception {
+                            for (Iterator<PluginWrapper> itr = plugins.iterator(); itr.hasNext();) {
+                                if (failedToLoad.contains(itr.next().getShortName()))
+                                    itr.remove();
+                            }
+                        }
+                    });
+
                     // schedule execution of initializing plugins
+                    g.requires(PLUGINS_PREPARED);
                     for (final PluginWrapper p : activePlugins.toArray(new PluginWrapper[activePlugins.size()])) {
                         g.followedBy().notFatal().attains(PLUGINS_STARTED).add("Initializing plugin " + p.getShortName(), new Executable() {
                             public void run(Reactor session) throws Exception {
@@ -323,6 +379,7 @@ public abstract class PluginManager extends AbstractModelObject {
 
                     g.followedBy().attains(PLUGINS_STARTED).add("Discovering plugin initialization tasks", new Executable() {
                         public void run(Reactor reactor) throws Exception {
+                            reportStartupTimes();
                             // rescan to find plugin-contributed @Initializer
                             reactor.addAll(initializerFinder.discoverTasks(reactor));
                         }
@@ -335,6 +392,63 @@ public abstract class PluginManager extends AbstractModelObject {
         }});
     }
 
+    /**
+     * Orders the active plugins so that every plugin comes after the plugins it depends on.
+     *
+     * @return
+     *      {@link #activePlugins} itself if the plugins are to be loaded one by one in the listed order,
+     *      either because {@link #PARALLEL_START} is off or the dependencies have a cycle,
+     *      which is reported later by the cycle check.
+     */
+    private List<PluginWrapper> getLoadOrder() {
+        if (!PARALLEL_START)
+            return activePlugins;
+
+        final Map<String,PluginWrapper> byName = new HashMap<String,PluginWrapper>();
+        for (PluginWrapper p : activePlugins)
+            byName.put(p.getShortName(),p);
+
+        CyclicGraphDetector<PluginWrapper> detector = new CyclicGraphDetector<PluginWrapper>() {
+            @Override
+            protected List<PluginWrapper> getEdges(PluginWrapper p) {
+                List<PluginWrapper> next = new ArrayList<PluginWrapper>();
+                for (Dependency d : Util.join(p.getDependencies(),p.getOptionalDependencies())) {
+                    PluginWrapper q = byName.get(d.shortName);
+                    if (q!=null)
+                        next.add(q);
+                }
+                return next;
+            }
+        };
+        try {
+            detector.run(activePlugins);
+        } catch (CycleDetectedException e) {
+            return activePlugins;
+        }
+        return detector.getSorted();
+    }
+
+    /**
+     * Logs how long each plugin took to come up, slowest first.
+     */
+    private void reportStartupTimes() {
+        Level level = Hudson.LOG_STARTUP_PERFORMANCE ? Level.INFO : Level.FINE;
+        if (!LOGGER.isLoggable(level))  return;
+
+        List<PluginWrapper> all = new ArrayList<PluginWrapper>(activePlugins);
+        Collections.sort(all,new Comparator<PluginWrapper>() {
+            public int compare(PluginWrapper o1, PluginWrapper o2) {
+                long t1 = o1.getStartupTimes().getTotal(), t2 = o2.getStartupTimes().getTotal();
+                return t1<t2 ? 1 : t1>t2 ? -1 : 0;
+            }
+        });
+
+        StringBuilder buf = new StringBuilder("Plugin startup times:");
+        for (PluginWrapper p : all)
+            buf.append("\n  ").append(p.getShortName()).append(": ").append(p.getStartupTimes());
+        LOGGER.log(level,buf.toString());
+    }
+
     /**
      * If the war file has any "/WEB-INF/plugins/*.hpi", extract them into the plugin directory.
      *
@@ -702,6 +816,14 @@ public abstract class PluginManager extends AbstractModelObject {
         }
     }
 
+    /**
+     * Whether plugins are inspected in parallel, and loaded along their dependencies rather than in the listed order.
+     * Set to false to go back to inspecting and loading them one by one, in the order they are listed.
+     *
+     * @since 2.2.2
+     */
+    public static boolean PARALLEL_START = !"false".equals(System.getProperty(PluginManager.class.getName()+".parallelStart"));
+
     private static final Logger LOGGER = Logger.getLogger(PluginManager.class.getName());
 
     /**
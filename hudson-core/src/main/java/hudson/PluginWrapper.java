@@ -136,6 +136,48 @@ public class PluginWrapper implements Comparable<PluginWrapper> {
      */
     /*package*/ boolean isBundled;
 
+    /**
+     * MD5 digest of the archive this plugin was expanded from. Null if it wasn't expanded from an archive.
+     */
+    /*package*/ String archiveDigest;
+
+    private final StartupTimes startupTimes = new StartupTimes();
+
+    /**
+     * How long the phases of bringing up a plugin took, in milliseconds.
+     * Filled in by the {@link PluginStrategy} as the plugin goes through them.
+     *
+     * @since 2.2.2
+     */
+    public static final class StartupTimes {
+        /**
+         * Expanding the archive, or only checking its digest when the expanded copy was up to date.
+         */
+        public volatile long extraction;
+        /**
+         * Creating the class loader and loading the plugin class.
+         */
+        public volatile long classLoading;
+        /**
+         * Creating the {@link Plugin} instance and injecting its dependencies.
+         */
+        public volatile long injection;
+        /**
+         * {@link Plugin#start()}.
+         */
+        public volatile long start;
+
+        public long getTotal() {
+            return extraction+classLoading+injection+start;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("extraction %dms, classloading %dms, injection %dms, start %dms",
+                    extraction, classLoading, injection, start);
+        }
+    }
+
     public static final class Dependency {
         //TODO: review and check whether we can do it private
         public final String shortName;
@@ -211,6 +253,25 @@ public class PluginWrapper implements Comparable<PluginWrapper> {
         return parent;
     }
 
+    /**
+     * Gets the MD5 digest of the archive the plugin was expanded from, which identifies the contents
+     * of {@link #baseResourceURL}.
+     *
+     * @return
+     *      null if the plugin wasn't expanded from an archive, like a .hpl file or an already expanded directory.
+     * @since 2.2.2
+     */
+    public String getArchiveDigest() {
+        return archiveDigest;
+    }
+
+    /**
+     * @since 2.2.2
+     */
+    public StartupTimes getStartupTimes() {
+        return startupTimes;
+    }
+
     public ClassLoader getClassLoader() {
         return classLoader;
     }
@@ -500,11 +500,6 @@ public class Util {
         else                return s;
     }
 
-    /**
-     * Write-only buffer.
-     */
-    private static final byte[] garbage = new byte[8192];
-
     /**
      * Computes MD5 digest of the given input stream.
      *
@@ -518,8 +513,10 @@ public class Util {
             MessageDigest md5 = MessageDigest.getInstance("MD5");
 
             DigestInputStream in =new DigestInputStream(source,md5);
+            // not shared, since the digest is computed from what is read into the buffer
+            byte[] buf = new byte[8192];
             try {
-                while(in.read(garbage)>0)
+                while(in.read(buf)>0)
                     ; // simply discard the input
             } finally {
                 in.close();
@@ -27,6 +27,7 @@ import hudson.Util;
 import hudson.security.ACL;
 import hudson.util.DescribableList;
 import hudson.model.AbstractBuild;
+import hudson.model.BuildingProjects;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
 import hudson.model.DependencyGraph;
@@ -181,6 +182,7 @@ public class MatrixConfiguration extends Project<MatrixConfiguration,MatrixRun>
         lastBuild.number = lb.getNumber();
 
         builds.put(lastBuild);
+        BuildingProjects.get().add(this);
         return lastBuild;
     }
 
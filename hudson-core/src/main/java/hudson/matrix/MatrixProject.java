@@ -441,6 +441,12 @@ public class MatrixProject extends BaseBuildableProject<MatrixProject, MatrixBui
             }
         }
         this.activeConfigurations = active;
+
+        // configurations are items too, so let the item index know
+        Hudson h = Hudson.getInstance();
+        if (h != null) {
+            h.getItemIndex().invalidate();
+        }
     }
 
     private File getConfigurationsDir() {
@@ -661,6 +667,7 @@ public class MatrixProject extends BaseBuildableProject<MatrixProject, MatrixBui
      */
     void setCascadingProject(MatrixProject cascadingProject) {
         this.cascadingProject = cascadingProject;
+        CascadingUtil.invalidateCascadingValues();
     }
 
     @Override
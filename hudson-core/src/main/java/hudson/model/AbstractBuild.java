@@ -408,10 +408,12 @@ public abstract class AbstractBuild<P extends AbstractProject<P,R>,R extends Abs
             if (!Hudson.getInstance().getNodes().isEmpty())
                 listener.getLogger().println(node instanceof Hudson ? Messages.AbstractBuild_BuildingOnMaster() : Messages.AbstractBuild_BuildingRemotely(builtOn));
 
-            final Lease lease = decideWorkspace(node,Computer.currentComputer().getWorkspaceList());
+            final WorkspaceList wsl = Computer.currentComputer().getWorkspaceList();
+            final Lease lease = decideWorkspace(node,wsl);
 
             try {
                 workspace = lease.path.getRemote();
+                wsl.getIndex().recordBuild(lease.path,AbstractBuild.this);
                 node.getFileSystemProvisioner().prepareWorkspace(AbstractBuild.this,lease.path,listener);
 
                 if (project.isCleanWorkspaceRequired()) {
@@ -683,6 +685,26 @@ public abstract class AbstractBuild<P extends AbstractProject<P,R>,R extends Abs
         return changeSet;
     }
 
+    /**
+     * Gets the IDs of the authors of the changes in this build.
+     *
+     * <p>
+     * Unlike going through {@link #getChangeSet()}, this doesn't keep the parsed change log
+     * in memory if it wasn't loaded already.
+     */
+    /*package*/ Set<String> getParticipantIds() {
+        ChangeLogSet<? extends Entry> cs = changeSet;
+        if (cs==null)
+            cs = scm!=null ? calcChangeSet() : getChangeSet();
+
+        Set<String> r = new HashSet<String>();
+        for (Entry e : cs) {
+            User u = e.getAuthor();
+            if (u!=null)    r.add(u.getId());
+        }
+        return r;
+    }
+
     /**
      * Returns true if the changelog is already computed.
      */
@@ -47,6 +47,7 @@ import org.kohsuke.stapler.export.ExportedBean;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -431,7 +432,10 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
             // ignore
         }
 
-        Hudson.getInstance().rebuildDependencyGraph();
+        if (this instanceof AbstractProject)
+            Hudson.getInstance().rebuildDependencyGraph(Collections.singleton((AbstractProject)this));
+        else
+            Hudson.getInstance().rebuildDependencyGraph();
     }
 
     /**
@@ -911,7 +911,11 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
         }
 
         // dependency setting might have been changed by the user, so rebuild.
-        Hudson.getInstance().rebuildDependencyGraph();
+        Hudson.getInstance().rebuildDependencyGraph(Collections.singleton(this));
+
+        // projects whose BuildTrigger we touch below
+        Set<AbstractProject> modified = new HashSet<AbstractProject>();
+        modified.add(this);
 
         // reflect the submission of the pseudo 'upstream build trriger'.
         // this needs to be done after we release the lock on 'this',
@@ -934,6 +938,8 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
                 }
 
                 if(newChildProjects.isEmpty()) {
+                    if(trigger!=null)
+                        modified.add(p);
                     pl.remove(BuildTrigger.class);
                 } else {
                     // here, we just need to replace the old one with the new one,
@@ -963,6 +969,7 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
                         continue;   // no need to touch
                     pl.replace(new BuildTrigger(newChildProjects,
                         existing==null?Result.SUCCESS:existing.getThreshold()));
+                    modified.add(p);
                 }
                 BuildTrigger buildTrigger = pl.get(BuildTrigger.class);
                 CascadingUtil.getExternalProjectProperty(p, BUILD_TRIGGER_PROPERTY_NAME).setValue(buildTrigger);
@@ -973,7 +980,7 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
         Hudson.getInstance().getQueue().scheduleMaintenance();
 
         // this is to reflect the upstream build adjustments done above
-        Hudson.getInstance().rebuildDependencyGraph();
+        Hudson.getInstance().rebuildDependencyGraph(modified);
     }
 
 	/**
@@ -1193,6 +1200,7 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
         try {
             R lastBuild = getBuildClass().getConstructor(getClass()).newInstance(this);
             builds.put(lastBuild);
+            BuildingProjects.get().add(this);
             return lastBuild;
         } catch (InstantiationException e) {
             throw new Error(e);
@@ -1378,13 +1386,7 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
      */
     protected AbstractProject getBuildingDownstream() {
     	DependencyGraph graph = Hudson.getInstance().getDependencyGraph();
-        Set<AbstractProject> tups = graph.getTransitiveDownstream(this);
-        tups.add(this);
-        for (AbstractProject tup : tups) {
-            if(tup!=this && (tup.isBuilding() || tup.isInUnblockedQueue()))
-                return tup;
-        }
-        return null;
+        return graph.findTransitiveDownstream(this, getActiveProjects());
     }
 
     /**
@@ -1396,17 +1398,20 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
      */
     protected AbstractProject getBuildingUpstream() {
     	DependencyGraph graph = Hudson.getInstance().getDependencyGraph();
-        Set<AbstractProject> tups = graph.getTransitiveUpstream(this);
-        tups.add(this);
-        for (AbstractProject tup : tups) {
-            if(tup!=this && (tup.isBuilding() || tup.isInUnblockedQueue()))
-                return tup;
-        }
-        return null;
+        return graph.findTransitiveUpstream(this, getActiveProjects());
     }
-    
-    private boolean isInUnblockedQueue() {
-        return Hudson.getInstance().getQueue().getUnblockedQueuedTasks().contains(this);
+
+    /**
+     * Projects that are building or in the unblocked queue, other than this one.
+     * Computed once per check, then intersected with the reachability of the dependency graph.
+     */
+    private Set<AbstractProject> getActiveProjects() {
+        Set<AbstractProject> r = new HashSet<AbstractProject>(BuildingProjects.get().getProjects());
+        for (Task t : Hudson.getInstance().getQueue().getUnblockedQueuedTasks())
+            if (t instanceof AbstractProject)
+                r.add((AbstractProject)t);
+        r.remove(this);
+        return r;
     }
 
     public List<SubTask> getSubTasks() {
@@ -2062,7 +2067,7 @@ public abstract class AbstractProject<P extends AbstractProject<P, R>, R extends
         R b = getSomeBuildWithWorkspace();
         FilePath ws = b != null ? b.getWorkspace() : null;
         if (ws != null && getScm().processWorkspaceBeforeDeletion(this, ws, b.getBuiltOn())) {
-            ws.deleteRecursive();
+            ws.deleteRecursiveInBackground();
             return true;
         } else{
             // If we get here, that means the SCM blocked the workspace deletion.
@@ -30,7 +30,9 @@ import org.kohsuke.stapler.StaplerResponse;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import hudson.model.Descriptor.FormException;
 import hudson.Extension;
@@ -67,6 +69,16 @@ public class AllView extends View {
         return true;
     }
 
+    @Override
+    protected List<TopLevelItem> retainItems(List<TopLevelItem> candidates) {
+        // everything is in this view, as long as it's readable
+        List<TopLevelItem> r = new ArrayList<TopLevelItem>();
+        for (TopLevelItem item : candidates)
+            if (item.hasPermission(Item.READ))
+                r.add(item);
+        return r;
+    }
+
     @Override
     public Item doCreateItem(StaplerRequest req, StaplerResponse rsp)
             throws IOException, ServletException {
@@ -0,0 +1,481 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import hudson.Extension;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.util.RunList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Logger;
+
+/**
+ * Index of all the completed builds across all the jobs, for queries that would otherwise
+ * have to go through the history of every job and merge-sort the result.
+ *
+ * <p>
+ * Each build is represented by a small {@link Entry} that records its timestamp, job, number,
+ * result, node and participants. Entries are kept sorted by timestamp (newest first), with
+ * secondary sets per user, node and result, so that queries take O(log n + matches).
+ * Builds are resolved back to {@link Run}s only for the matches, and the usual permission
+ * checks apply when they are.
+ *
+ * <p>
+ * The index is built lazily on the first query from the builds that are already in memory,
+ * regardless of who makes that query, and from then on it's maintained incrementally by
+ * {@link RunListener} and {@link ItemListener}. Builds in progress are tracked separately
+ * and evaluated live, since their result, node and change set are still being determined.
+ *
+ * <p>
+ * Participants come from the change logs, which are expensive to parse. They are only
+ * collected on the first query by user, and without keeping the parsed change logs in memory.
+ *
+ * @since 2.2.2
+ */
+public final class BuildIndex {
+    /**
+     * Compact record of a completed build.
+     */
+    public static final class Entry {
+        public final long timestamp;
+        public final String job;
+        public final int number;
+        public final Result result;
+        /**
+         * {@link Node#getNodeName()} of the node it was built on, or null if not an {@link AbstractBuild}.
+         */
+        public final String node;
+        /**
+         * IDs of the users who participated in this build, or null if not collected yet.
+         */
+        private volatile String[] users;
+
+        /*package*/ Entry(long timestamp, String job, int number, Result result, String node, String[] users) {
+            this.timestamp = timestamp;
+            this.job = job;
+            this.number = number;
+            this.result = result;
+            this.node = node;
+            this.users = users;
+        }
+
+        public String[] getUsers() {
+            return users;
+        }
+
+        /**
+         * Resolves this entry to the actual build.
+         *
+         * @return null if the build is no longer available.
+         */
+        public Run<?,?> getBuild() {
+            Item item = Hudson.getInstance().getItemByFullName(job);
+            if (!(item instanceof Job))     return null;
+            return ((Job<?,?>)item).getBuildByNumber(number);
+        }
+
+        @Override
+        public String toString() {
+            return job+" #"+number;
+        }
+    }
+
+    /**
+     * Newest first, then by the job name and the number to make entries unique.
+     * Range sentinels have a null job and sort before all the real entries of the same timestamp.
+     */
+    private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            if (e1.timestamp!=e2.timestamp)
+                return e1.timestamp > e2.timestamp ? -1 : 1;
+            if (e1.job==null || e2.job==null)
+                return e1.job==e2.job ? 0 : (e1.job==null ? -1 : 1);
+            int r = e1.job.compareTo(e2.job);
+            if (r!=0)   return r;
+            return e2.number-e1.number;
+        }
+    };
+
+    private final ConcurrentSkipListSet<Entry> byTime = new ConcurrentSkipListSet<Entry>(ORDER);
+    private final Map<String,ConcurrentSkipListSet<Entry>> byUser = new ConcurrentHashMap<String,ConcurrentSkipListSet<Entry>>();
+    private final Map<String,ConcurrentSkipListSet<Entry>> byNode = new ConcurrentHashMap<String,ConcurrentSkipListSet<Entry>>();
+    private final Map<Result,ConcurrentSkipListSet<Entry>> byResult = new ConcurrentHashMap<Result,ConcurrentSkipListSet<Entry>>();
+    /**
+     * Entries by job full name and build number, to handle deletions and renames.
+     */
+    private final Map<String,Map<Integer,Entry>> byJob = new ConcurrentHashMap<String,Map<Integer,Entry>>();
+    /**
+     * Builds in progress.
+     */
+    private final Set<Run<?,?>> building = Collections.newSetFromMap(new ConcurrentHashMap<Run<?,?>,Boolean>());
+
+    private volatile boolean loaded;
+
+    /**
+     * Whether the participants of all the entries have been collected into {@link #byUser}.
+     */
+    private volatile boolean usersIndexed;
+
+    /**
+     * Gets the index of the current Hudson instance.
+     */
+    public static BuildIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the builds that started in the given time range {@code [start,end)}, newest first.
+     */
+    public RunList<Run> getBuilds(long start, long end) {
+        if (start>=end)
+            return new RunList<Run>();
+        ensureLoaded();
+        RunList<Run> r = resolve(entriesBetween(start,end));
+        for (Run<?,?> b : building)
+            if (start<=b.getTimeInMillis() && b.getTimeInMillis()<end)
+                r.add(b);
+        return sort(r);
+    }
+
+    /**
+     * Gets the builds the given user participated in, newest first.
+     *
+     * @see AbstractBuild#hasParticipant(User)
+     */
+    public RunList<Run> getBuildsByUser(User user) {
+        ensureLoaded();
+        ensureUsersIndexed();
+        RunList<Run> r = resolve(byUser.get(user.getId()));
+        for (Run<?,?> b : building)
+            if (b instanceof AbstractBuild && ((AbstractBuild<?,?>)b).hasParticipant(user))
+                r.add(b);
+        return sort(r);
+    }
+
+    /**
+     * Gets the builds that were built on the given node, newest first.
+     */
+    public RunList<Run> getBuildsOn(Node node) {
+        ensureLoaded();
+        String name = node.getNodeName();
+        RunList<Run> r = resolve(byNode.get(name));
+        for (Run<?,?> b : building)
+            if (name.equals(nodeOf(b)))
+                r.add(b);
+        return sort(r);
+    }
+
+    /**
+     * Gets the completed builds with the given result, newest first.
+     */
+    public RunList<Run> getBuildsByResult(Result result) {
+        ensureLoaded();
+        return resolve(byResult.get(result));
+    }
+
+    /**
+     * Entries that started in {@code [start,end)}, newest first.
+     */
+    /*package*/ Set<Entry> entriesBetween(long start, long end) {
+        if (start>=end)
+            return Collections.emptySet();
+        return byTime.subSet(sentinel(end-1), true, sentinel(start-1), false);
+    }
+
+    /*package*/ Set<Entry> entriesByResult(Result result) {
+        return byResult.get(result);
+    }
+
+    /*package*/ Set<Entry> entriesOn(String node) {
+        return byNode.get(node);
+    }
+
+    /*package*/ Set<Entry> entriesByUser(String id) {
+        return byUser.get(id);
+    }
+
+    private RunList<Run> resolve(Collection<Entry> entries) {
+        List<Run> r = new ArrayList<Run>();
+        if (entries!=null) {
+            for (Entry e : entries) {
+                Run<?,?> b = e.getBuild();
+                if (b!=null)
+                    r.add(b);
+            }
+        }
+        return RunList.fromRuns(r);
+    }
+
+    private RunList<Run> sort(RunList<Run> r) {
+        if (!building.isEmpty())
+            Collections.sort(r,Run.ORDER_BY_DATE);
+        return r;
+    }
+
+    private static Entry sentinel(long timestamp) {
+        return new Entry(timestamp,null,0,null,null,null);
+    }
+
+    private static String nodeOf(Run<?,?> r) {
+        if (!(r instanceof AbstractBuild))  return null;
+        String n = ((AbstractBuild<?,?>)r).getBuiltOnStr();
+        return n==null ? "" : n;
+    }
+
+//
+// maintenance
+//
+    /**
+     * Builds the index from the builds in memory, if that hasn't been done yet.
+     */
+    private void ensureLoaded() {
+        if (loaded)     return;
+        synchronized (this) {
+            if (loaded)     return;
+            long start = System.currentTimeMillis();
+            // all the jobs, not just those the current user can see, since the index is shared
+            for (Job<?,?> j : Hudson.getInstance().getItemIndex().getSnapshot().getAll(Job.class))
+                addAll(j);
+            loaded = true;
+            LOGGER.fine("Indexed "+byTime.size()+" builds in "+(System.currentTimeMillis()-start)+"ms");
+        }
+    }
+
+    private synchronized void addAll(Job<?,?> j) {
+        for (Run<?,?> r : j.getBuilds()) {
+            if (r.isBuilding())
+                building.add(r);
+            else
+                add(r);
+        }
+    }
+
+    private synchronized void add(Run<?,?> r) {
+        // once the participants are indexed, keep them up to date; the change log of a build
+        // that just completed is normally still in memory anyway
+        String[] users = usersIndexed ? participantsOf(r) : null;
+        add(new Entry(r.getTimeInMillis(), r.getParent().getFullName(), r.getNumber(),
+                r.getResult(), nodeOf(r), users));
+    }
+
+    /*package*/ synchronized void add(Entry e) {
+        remove(e.job,e.number);
+
+        byTime.add(e);
+        if (e.result!=null)
+            setOf(byResult,e.result).add(e);
+        if (e.node!=null)
+            setOf(byNode,e.node).add(e);
+        if (e.users!=null)
+            for (String u : e.users)
+                setOf(byUser,u).add(e);
+        Map<Integer,Entry> m = byJob.get(e.job);
+        if (m==null)
+            byJob.put(e.job, m=new ConcurrentHashMap<Integer,Entry>());
+        m.put(e.number,e);
+    }
+
+    /**
+     * Collects the participants of the entries that don't have them yet, if that hasn't been done yet.
+     */
+    private void ensureUsersIndexed() {
+        if (usersIndexed)   return;
+        synchronized (this) {
+            if (usersIndexed)   return;
+            long start = System.currentTimeMillis();
+            for (Entry e : byTime) {
+                if (e.users!=null)  continue;
+                Run<?,?> r = resolveUnchecked(e);
+                setUsers(e, r!=null ? participantsOf(r) : new String[0]);
+            }
+            usersIndexed = true;
+            LOGGER.fine("Indexed the participants of "+byTime.size()+" builds in "+(System.currentTimeMillis()-start)+"ms");
+        }
+    }
+
+    /*package*/ synchronized void setUsers(Entry e, String[] users) {
+        e.users = users;
+        // the entry may have been replaced or removed meanwhile
+        Map<Integer,Entry> m = byJob.get(e.job);
+        if (m==null || m.get(e.number)!=e)  return;
+        for (String u : users)
+            setOf(byUser,u).add(e);
+    }
+
+    /**
+     * Resolves the entry without any permission check, since the participants are shared by all users.
+     */
+    private static Run<?,?> resolveUnchecked(Entry e) {
+        Item item = Hudson.getInstance().getItemIndex().getSnapshot().get(e.job);
+        if (!(item instanceof Job))     return null;
+        return ((Job<?,?>)item).getBuildByNumber(e.number);
+    }
+
+    private static String[] participantsOf(Run<?,?> r) {
+        if (!(r instanceof AbstractBuild))  return new String[0];
+        Set<String> users = ((AbstractBuild<?,?>)r).getParticipantIds();
+        return users.toArray(new String[users.size()]);
+    }
+
+    /*package*/ synchronized void remove(String job, int number) {
+        Map<Integer,Entry> m = byJob.get(job);
+        if (m==null)    return;
+        Entry e = m.remove(number);
+        if (e!=null)
+            unindex(e);
+    }
+
+    /*package*/ synchronized void removeJob(String job) {
+        Map<Integer,Entry> m = byJob.remove(job);
+        if (m==null)    return;
+        for (Entry e : m.values())
+            unindex(e);
+    }
+
+    private void unindex(Entry e) {
+        byTime.remove(e);
+        if (e.result!=null)
+            setOf(byResult,e.result).remove(e);
+        if (e.node!=null)
+            setOf(byNode,e.node).remove(e);
+        String[] users = e.users;
+        if (users!=null)
+            for (String u : users)
+                setOf(byUser,u).remove(e);
+    }
+
+    private <K> ConcurrentSkipListSet<Entry> setOf(Map<K,ConcurrentSkipListSet<Entry>> indices, K key) {
+        ConcurrentSkipListSet<Entry> s = indices.get(key);
+        if (s==null)
+            indices.put(key, s=new ConcurrentSkipListSet<Entry>(ORDER));
+        return s;
+    }
+
+    /**
+     * Discards the index, so that it'll be rebuilt on the next query.
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        usersIndexed = false;
+        byTime.clear();
+        byUser.clear();
+        byNode.clear();
+        byResult.clear();
+        byJob.clear();
+        building.clear();
+    }
+
+    /*
+     * The listeners take the lock, so that they wait for a load in progress instead of missing
+     * a build that was seen building by the load and completes before the load is done.
+     */
+
+    private synchronized void onStarted(Run<?,?> r) {
+        if (loaded)
+            building.add(r);
+    }
+
+    private synchronized void onCompleted(Run<?,?> r) {
+        if (loaded) {
+            add(r);
+            building.remove(r);
+        }
+    }
+
+    private synchronized void onDeleted(Run<?,?> r) {
+        if (loaded) {
+            building.remove(r);
+            remove(r.getParent().getFullName(),r.getNumber());
+        }
+    }
+
+    private synchronized void onRenamed(Job<?,?> job, String oldFullName) {
+        if (loaded) {
+            removeJob(oldFullName);
+            addAll(job);
+        }
+    }
+
+    /*package*/ BuildIndex() {
+    }
+
+    private static final BuildIndex INSTANCE = new BuildIndex();
+
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run> {
+        @Override
+        public void onStarted(Run r, TaskListener listener) {
+            INSTANCE.onStarted(r);
+        }
+
+        @Override
+        public void onCompleted(Run r, TaskListener listener) {
+            INSTANCE.onCompleted(r);
+        }
+
+        @Override
+        public void onDeleted(Run r) {
+            INSTANCE.onDeleted(r);
+        }
+    }
+
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            INSTANCE.invalidate();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (!INSTANCE.loaded)   return;
+            if (item instanceof Job)
+                INSTANCE.removeJob(item.getFullName());
+            else
+                INSTANCE.invalidate();  // a group, possibly containing many jobs
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            if (!INSTANCE.loaded)   return;
+            if (item instanceof Job) {
+                String parent = item.getParent().getFullName();
+                INSTANCE.onRenamed((Job<?,?>)item, parent.length()==0 ? oldName : parent+'/'+oldName);
+            } else {
+                INSTANCE.invalidate();
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(BuildIndex.class.getName());
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import hudson.Extension;
+import hudson.model.listeners.RunListener;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of the {@link AbstractProject}s that have a build in progress, so that
+ * {@link AbstractProject#getBuildingUpstream()} and {@link AbstractProject#getBuildingDownstream()}
+ * only look at those instead of asking every project in the dependency graph.
+ *
+ * <p>
+ * A project is added when {@link AbstractProject#newBuild()} creates a build, or at the latest when
+ * the build starts, and removed once {@link AbstractProject#isBuilding()} turns false.
+ *
+ * @since 2.2.2
+ */
+public final class BuildingProjects {
+    private static final BuildingProjects INSTANCE = new BuildingProjects();
+
+    public static BuildingProjects get() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<AbstractProject<?,?>,Boolean> projects = new ConcurrentHashMap<AbstractProject<?,?>,Boolean>();
+
+    private BuildingProjects() {
+    }
+
+    /**
+     * Called right after a new build of the project is created and added to its build records.
+     * Builds of projects that override {@link AbstractProject#newBuild()} without calling this
+     * are registered when they start.
+     */
+    public void add(AbstractProject<?,?> p) {
+        projects.put(p,Boolean.TRUE);
+    }
+
+    /**
+     * Gets the projects that have a build in progress.
+     *
+     * @return
+     *      a new set that the caller can modify.
+     */
+    public Set<AbstractProject<?,?>> getProjects() {
+        Set<AbstractProject<?,?>> r = new HashSet<AbstractProject<?,?>>();
+        for (Iterator<AbstractProject<?,?>> itr = projects.keySet().iterator(); itr.hasNext();) {
+            AbstractProject<?,?> p = itr.next();
+            if (p.isBuilding())
+                r.add(p);
+            else
+                prune(p);
+        }
+        return r;
+    }
+
+    public boolean contains(AbstractProject<?,?> p) {
+        return projects.containsKey(p) && p.isBuilding();
+    }
+
+    /**
+     * Drops a project that no longer builds.
+     */
+    private void prune(AbstractProject<?,?> p) {
+        projects.remove(p);
+        // a new build may have been created while we were removing it.
+        // since add() happens after the build is in place, checking again afterward closes the race.
+        if (p.isBuilding())
+            projects.put(p,Boolean.TRUE);
+    }
+
+    @Extension
+    public static final class RunListenerImpl extends RunListener<AbstractBuild> {
+        @Override
+        public void onStarted(AbstractBuild r, TaskListener listener) {
+            INSTANCE.add(r.getProject());
+        }
+
+        @Override
+        public void onFinalized(AbstractBuild r) {
+            AbstractProject<?,?> p = r.getProject();
+            if (!p.isBuilding())
+                INSTANCE.prune(p);
+        }
+
+        @Override
+        public void onDeleted(AbstractBuild r) {
+            onFinalized(r);
+        }
+    }
+}
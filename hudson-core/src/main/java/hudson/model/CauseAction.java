@@ -27,9 +27,14 @@ import hudson.diagnosis.OldDataMonitor;
 import hudson.model.Queue.Task;
 import hudson.model.queue.FoldableAction;
 import hudson.util.XStream2;
+import hudson.util.xstream.StreamingConverter;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
+import com.thoughtworks.xstream.converters.MarshallingContext;
 import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -59,6 +64,12 @@ public class CauseAction implements FoldableAction, RunAction {
 	public CauseAction(CauseAction ca) {
 		this.causes.addAll(ca.causes);
 	}
+
+    /**
+     * For {@link StreamingConverterImpl}.
+     */
+    private CauseAction() {
+    }
 	
 	public String getDisplayName() {
 		return "Cause";
@@ -128,12 +139,51 @@ public class CauseAction implements FoldableAction, RunAction {
     public static class ConverterImpl extends XStream2.PassthruConverter<CauseAction> {
         public ConverterImpl(XStream2 xstream) { super(xstream); }
         @Override protected void callback(CauseAction ca, UnmarshallingContext context) {
-            // if we are being read in from an older version
-            if (ca.cause != null) {
-                if (ca.causes == null) ca.causes = new ArrayList<Cause>();
-                ca.causes.add(ca.cause);
-                OldDataMonitor.report(context, "1.288");
+            upgrade(ca, context);
+        }
+    }
+
+    private static void upgrade(CauseAction ca, UnmarshallingContext context) {
+        // if we are being read in from an older version
+        if (ca.cause != null) {
+            if (ca.causes == null) ca.causes = new ArrayList<Cause>();
+            ca.causes.add(ca.cause);
+            OldDataMonitor.report(context, "1.288");
+        }
+    }
+
+    /**
+     * Reads and writes the same XML as {@link ConverterImpl}, without going through reflection.
+     * Registered in {@link XStream2}, since every build record has one.
+     *
+     * @since 2.2.2
+     */
+    public static class StreamingConverterImpl extends StreamingConverter<CauseAction> {
+        public StreamingConverterImpl(Mapper mapper) {
+            super(mapper, CauseAction.class);
+        }
+
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            writeField(writer, context, "causes", List.class, ((CauseAction) source).causes);
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            CauseAction ca = new CauseAction();
+            ca.causes = null;   // absent unless present in the XML, as with the reflection based converter
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                String name = reader.getNodeName();
+                if (name.equals("causes"))
+                    ca.causes = (List<Cause>) readField(reader, context, ca, List.class);
+                else if (name.equals("cause"))
+                    ca.cause = (Cause) readField(reader, context, ca, Cause.class);
+                else
+                    skipUnknownField(reader, context);
+                reader.moveUp();
             }
+            upgrade(ca, context);
+            return ca;
         }
     }
 }
@@ -559,7 +559,10 @@ public /*transient*/ abstract class Computer extends Actionable implements Acces
     }
 
     public RunList getBuilds() {
-    	return new RunList(Hudson.getInstance().getAllItems(Job.class)).node(getNode());
+        Node node = getNode();
+        if (node==null)
+            return new RunList(Hudson.getInstance().getAllItems(Job.class)).node(null);
+        return BuildIndex.get().getBuildsOn(node);
     }
 
     /**
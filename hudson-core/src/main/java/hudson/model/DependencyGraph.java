@@ -37,6 +37,8 @@ import org.kohsuke.graph_layouter.Direction;
 import javax.servlet.ServletOutputStream;
 import javax.imageio.ImageIO;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -79,6 +81,17 @@ import java.awt.image.BufferedImage;
  * there's a change (which is relatively rare), a new instance
  * will be created. This eliminates the need of synchronization.
  *
+ * <p>
+ * The graph remembers which project declared which edges, so that when the configuration
+ * of a few projects changes, {@link #update(Collection)} only asks those projects for their
+ * dependencies again, and reuses the edges declared by all the others.
+ *
+ * <p>
+ * Reachability between projects is computed once per instance, when first needed. Projects
+ * are numbered, the strongly connected components are collapsed, and every component gets a
+ * {@link BitSet} of the projects reachable from it in each direction. Transitive queries and
+ * {@link #compare(AbstractProject, AbstractProject)} then become bit tests.
+ *
  * @see Hudson#getDependencyGraph() 
  * @author Kohsuke Kawaguchi
  */
@@ -89,6 +102,22 @@ public final class DependencyGraph implements Comparator<AbstractProject> {
 
     private boolean built;
 
+    /**
+     * Edges keyed by the project that declared them in {@link AbstractProject#buildDependencyGraph(DependencyGraph)}.
+     * Null if this graph can't be {@linkplain #update(Collection) updated}.
+     */
+    private Map<AbstractProject, List<Dependency>> declared;
+
+    /**
+     * The project whose {@link AbstractProject#buildDependencyGraph(DependencyGraph)} is running.
+     */
+    private AbstractProject declarer;
+
+    /**
+     * Lazily computed by {@link #reachability()}.
+     */
+    private volatile Reachability reachability;
+
     /**
      * A unique set that holds the list of projects that have already computed its dependency graph
      */
@@ -105,8 +134,9 @@ public final class DependencyGraph implements Comparator<AbstractProject> {
             NotSerilizableSecurityContext system = new NotSerilizableSecurityContext();
             system.setAuthentication(ACL.SYSTEM);
             SecurityContextHolder.setContext(system);
+            declared = new HashMap<AbstractProject, List<Dependency>>();
             for( AbstractProject p : Hudson.getInstance().getAllItems(AbstractProject.class) )
-                p.buildDependencyGraph(this);
+                declare(p);
 
             forward = finalize(forward);
             backward = finalize(backward);
@@ -118,6 +148,100 @@ public final class DependencyGraph implements Comparator<AbstractProject> {
         }
     }
 
+    /**
+     * Builds a graph from the given one, by asking only the given projects for their dependencies again.
+     */
+    private DependencyGraph(DependencyGraph base, Collection<? extends AbstractProject> changed) {
+        SecurityContext saveCtx = SecurityContextHolder.getContext();
+        try {
+            NotSerilizableSecurityContext system = new NotSerilizableSecurityContext();
+            system.setAuthentication(ACL.SYSTEM);
+            SecurityContextHolder.setContext(system);
+
+            Set<AbstractProject> live = new HashSet<AbstractProject>(Hudson.getInstance().getAllItems(AbstractProject.class));
+            Set<AbstractProject> redo = expand(changed);
+
+            declared = new HashMap<AbstractProject, List<Dependency>>();
+            for (Entry<AbstractProject, List<Dependency>> e : base.declared.entrySet()) {
+                AbstractProject p = e.getKey();
+                if (redo.contains(p) || !live.contains(p))
+                    continue;
+                List<Dependency> kept = new ArrayList<Dependency>(e.getValue().size());
+                for (Dependency d : e.getValue()) {
+                    // drop the edges to projects that are gone
+                    if (live.contains(d.getUpstreamProject()) && live.contains(d.getDownstreamProject())) {
+                        kept.add(d);
+                        add(forward,d.getUpstreamProject(),d);
+                        add(backward,d.getDownstreamProject(),d);
+                    }
+                }
+                declared.put(p,kept);
+            }
+
+            for (AbstractProject p : redo)
+                if (live.contains(p))
+                    declare(p);
+
+            forward = finalize(forward);
+            backward = finalize(backward);
+
+            built = true;
+        } finally {
+            SecurityContextHolder.setContext(saveCtx);
+        }
+    }
+
+    /**
+     * Creates a new graph that reflects the configuration changes of the given projects, including
+     * their deletion. Only these projects, their children and their cascading children are asked
+     * for their dependencies again.
+     *
+     * <p>
+     * Changes that can affect the dependencies declared by other projects, such as creating or
+     * renaming a project that others refer to by name, need a {@linkplain #DependencyGraph() full rebuild}.
+     *
+     * @since 2.2.2
+     */
+    public DependencyGraph update(Collection<? extends AbstractProject> changed) {
+        if (declared==null)
+            return new DependencyGraph();
+        return new DependencyGraph(this,changed);
+    }
+
+    /**
+     * Adds the given projects, the projects nested in them, and their cascading children.
+     */
+    private static Set<AbstractProject> expand(Collection<? extends AbstractProject> projects) {
+        Set<AbstractProject> r = new HashSet<AbstractProject>();
+        Stack<AbstractProject> q = new Stack<AbstractProject>();
+        q.addAll(projects);
+        while (!q.isEmpty()) {
+            AbstractProject<?,?> p = q.pop();
+            if (!r.add(p))  continue;
+            if (p instanceof ItemGroup)
+                for (Object i : ((ItemGroup<?>)p).getItems())
+                    if (i instanceof AbstractProject)
+                        q.push((AbstractProject)i);
+            Set<String> children = p.getCascadingChildrenNames();
+            if (children!=null)
+                for (String name : children) {
+                    Item i = Hudson.getInstance().getItem(name);
+                    if (i instanceof AbstractProject)
+                        q.push((AbstractProject)i);
+                }
+        }
+        return r;
+    }
+
+    private void declare(AbstractProject p) {
+        declarer = p;
+        try {
+            p.buildDependencyGraph(this);
+        } finally {
+            declarer = null;
+        }
+    }
+
     /**
      * Special constructor for creating an empty graph
      */
@@ -207,6 +331,18 @@ public final class DependencyGraph implements Comparator<AbstractProject> {
             throw new IllegalStateException();
         add(forward,dep.getUpstreamProject(),dep);
         add(backward,dep.getDownstreamProject(),dep);
+
+        if (declared!=null) {
+            if (declarer==null) {
+                // an edge we can't attribute to a project. we can't tell when to recompute it.
+                declared = null;
+            } else {
+                List<Dependency> l = declared.get(declarer);
+                if (l==null)
+                    declared.put(declarer, l=new ArrayList<Dependency>());
+                l.add(dep);
+            }
+        }
     }
 
     /**
@@ -246,53 +382,205 @@ public final class DependencyGraph implements Comparator<AbstractProject> {
      * where the length is greater than 1.
      */
     public boolean hasIndirectDependencies(AbstractProject src, AbstractProject dst) {
-        Set<AbstractProject> visited = new HashSet<AbstractProject>();
-        Stack<AbstractProject> queue = new Stack<AbstractProject>();
-
-        queue.addAll(getDownstream(src));
-        queue.remove(dst);
-
-        while(!queue.isEmpty()) {
-            AbstractProject p = queue.pop();
-            if(p==dst)
+        Reachability r = reachability();
+        Integer d = r.index.get(dst);
+        if (d==null)    return false;
+        for (AbstractProject p : getDownstream(src)) {
+            if (p==dst)     continue;
+            if (r.downstream[r.index.get(p)].get(d))
                 return true;
-            if(visited.add(p))
-                queue.addAll(getDownstream(p));
         }
-
         return false;
     }
 
+    /**
+     * Returns true if there's a path of one or more dependency edges from the source to the destination.
+     *
+     * @since 2.2.2
+     */
+    public boolean isTransitiveDownstream(AbstractProject src, AbstractProject dst) {
+        Reachability r = reachability();
+        Integer s = r.index.get(src), d = r.index.get(dst);
+        return s!=null && d!=null && r.downstream[s].get(d);
+    }
+
     /**
      * Gets all the direct and indirect upstream dependencies of the given project.
+     *
+     * @return
+     *      a new set that the caller can modify.
      */
     public Set<AbstractProject> getTransitiveUpstream(AbstractProject src) {
-        return getTransitive(backward,src,true);
+        return reachability().toSet(src,true);
     }
 
     /**
      * Gets all the direct and indirect downstream dependencies of the given project.
+     *
+     * @return
+     *      a new set that the caller can modify.
      */
     public Set<AbstractProject> getTransitiveDownstream(AbstractProject src) {
-        return getTransitive(forward,src,false);
+        return reachability().toSet(src,false);
+    }
+
+    /**
+     * Finds one of the candidates that is a direct or indirect upstream of the given project.
+     * This takes time proportional to the number of candidates, not to the size of the graph.
+     *
+     * @return
+     *      null if none of the candidates is.
+     * @since 2.2.2
+     */
+    public AbstractProject findTransitiveUpstream(AbstractProject src, Collection<? extends AbstractProject> candidates) {
+        return reachability().find(src,candidates,true);
+    }
+
+    /**
+     * Finds one of the candidates that is a direct or indirect downstream of the given project.
+     * This takes time proportional to the number of candidates, not to the size of the graph.
+     *
+     * @return
+     *      null if none of the candidates is.
+     * @since 2.2.2
+     */
+    public AbstractProject findTransitiveDownstream(AbstractProject src, Collection<? extends AbstractProject> candidates) {
+        return reachability().find(src,candidates,false);
     }
 
-    private Set<AbstractProject> getTransitive(Map<AbstractProject, List<DependencyGroup>> direction, AbstractProject src, boolean up) {
-        Set<AbstractProject> visited = new HashSet<AbstractProject>();
-        Stack<AbstractProject> queue = new Stack<AbstractProject>();
+    private Reachability reachability() {
+        Reachability r = reachability;
+        if (r==null)
+            reachability = r = new Reachability();
+        return r;
+    }
 
-        queue.add(src);
+    /**
+     * Transitive closure of the graph in both directions.
+     */
+    private final class Reachability {
+        final AbstractProject[] projects;
+        final Map<AbstractProject,Integer> index = new HashMap<AbstractProject,Integer>();
+        /**
+         * Projects reachable from each project, by its index. Members of the same strongly
+         * connected component share the same {@link BitSet}. A project is reachable from
+         * itself only if it's on a cycle.
+         */
+        final BitSet[] downstream, upstream;
+
+        Reachability() {
+            Set<AbstractProject> all = new LinkedHashSet<AbstractProject>(forward.keySet());
+            all.addAll(backward.keySet());
+            projects = all.toArray(new AbstractProject[all.size()]);
+            for (int i=0; i<projects.length; i++)
+                index.put(projects[i],i);
+            downstream = close(forward,false);
+            upstream = close(backward,true);
+        }
 
-        while(!queue.isEmpty()) {
-            AbstractProject p = queue.pop();
+        Set<AbstractProject> toSet(AbstractProject src, boolean up) {
+            Integer i = index.get(src);
+            if (i==null)    return new HashSet<AbstractProject>();
+            BitSet b = (up ? upstream : downstream)[i];
+            Set<AbstractProject> r = new HashSet<AbstractProject>(b.cardinality()*4/3+1);
+            for (int j=b.nextSetBit(0); j>=0; j=b.nextSetBit(j+1))
+                r.add(projects[j]);
+            return r;
+        }
 
-            for (AbstractProject child : get(direction,p,up)) {
-                if(visited.add(child))
-                    queue.add(child);
+        AbstractProject find(AbstractProject src, Collection<? extends AbstractProject> candidates, boolean up) {
+            Integer i = index.get(src);
+            if (i==null)    return null;
+            BitSet b = (up ? upstream : downstream)[i];
+            for (AbstractProject p : candidates) {
+                Integer j = index.get(p);
+                if (j!=null && b.get(j))
+                    return p;
             }
+            return null;
         }
 
-        return visited;
+        /**
+         * Computes the closure along the given edges with Tarjan's algorithm, without recursion
+         * so that long dependency chains don't overflow the stack.
+         */
+        private BitSet[] close(Map<AbstractProject, List<DependencyGroup>> direction, boolean up) {
+            final int n = projects.length;
+            int[][] adj = new int[n][];
+            for (int i=0; i<n; i++) {
+                List<AbstractProject> l = get(direction,projects[i],up);
+                adj[i] = new int[l.size()];
+                for (int j=0; j<adj[i].length; j++)
+                    adj[i][j] = index.get(l.get(j));
+            }
+
+            BitSet[] reach = new BitSet[n];
+            int[] order = new int[n], low = new int[n], comp = new int[n];
+            Arrays.fill(order,-1);
+            boolean[] onStack = new boolean[n];
+            int[] stack = new int[n];
+            int sp = 0;
+            int[] calls = new int[n], edge = new int[n];
+            int counter = 0, components = 0;
+
+            for (int s=0; s<n; s++) {
+                if (order[s]>=0)    continue;
+                int cp = 0;
+                calls[cp] = s; edge[cp] = 0; cp++;
+                order[s] = low[s] = counter++;
+                stack[sp++] = s; onStack[s] = true;
+
+                while (cp>0) {
+                    int v = calls[cp-1];
+                    if (edge[cp-1]<adj[v].length) {
+                        int w = adj[v][edge[cp-1]++];
+                        if (order[w]<0) {
+                            order[w] = low[w] = counter++;
+                            stack[sp++] = w; onStack[w] = true;
+                            calls[cp] = w; edge[cp] = 0; cp++;
+                        } else if (onStack[w]) {
+                            low[v] = Math.min(low[v],order[w]);
+                        }
+                        continue;
+                    }
+
+                    cp--;
+                    if (cp>0) {
+                        int u = calls[cp-1];
+                        low[u] = Math.min(low[u],low[v]);
+                    }
+                    if (low[v]!=order[v])   continue;
+
+                    // v is the root of a component. the components it points to are already done.
+                    int c = components++;
+                    int bottom = sp;
+                    do {
+                        int w = stack[--bottom];
+                        onStack[w] = false;
+                        comp[w] = c;
+                    } while (stack[bottom]!=v);
+
+                    BitSet b = new BitSet(n);
+                    boolean cyclic = sp-bottom>1;
+                    for (int k=bottom; k<sp; k++) {
+                        for (int w : adj[stack[k]]) {
+                            if (comp[w]==c) {
+                                cyclic = true;
+                                continue;
+                            }
+                            b.or(reach[w]);
+                            b.set(w);
+                        }
+                    }
+                    for (int k=bottom; k<sp; k++) {
+                        if (cyclic)     b.set(stack[k]);
+                        reach[stack[k]] = b;
+                    }
+                    sp = bottom;
+                }
+            }
+            return reach;
+        }
     }
 
     private void add(Map<AbstractProject, List<DependencyGroup>> map, AbstractProject key, Dependency dep) {
@@ -427,13 +715,13 @@ public final class DependencyGraph implements Comparator<AbstractProject> {
      * Compare to Projects based on the topological order defined by this Dependency Graph
      */
     public int compare(AbstractProject o1, AbstractProject o2) {
-        Set<AbstractProject> o1sdownstreams = getTransitiveDownstream(o1);
-        Set<AbstractProject> o2sdownstreams = getTransitiveDownstream(o2);
-        if (o1sdownstreams.contains(o2)) {
-            if (o2sdownstreams.contains(o1)) return 0; else return 1;                       
+        boolean o1to2 = isTransitiveDownstream(o1,o2);
+        boolean o2to1 = isTransitiveDownstream(o2,o1);
+        if (o1to2) {
+            if (o2to1) return 0; else return 1;
         } else {
-            if (o2sdownstreams.contains(o1)) return -1; else return 0; 
-        }               
+            if (o2to1) return -1; else return 0;
+        }
     }
 
     /**
@@ -23,6 +23,7 @@
  */
 package hudson.model;
 
+import hudson.ExtensionList;
 import hudson.RelativePath;
 import hudson.XmlFile;
 import hudson.BulkChange;
@@ -817,6 +818,9 @@ public abstract class Descriptor<T extends Describable<T>> implements Saveable {
      * Finds a descriptor from a collection by its class name.
      */
     public static <T extends Descriptor> T find(Collection<? extends T> list, String className) {
+        if (list instanceof ExtensionList) {
+            return ((ExtensionList<? extends T>) list).getDynamic(className);
+        }
         for (T d : list) {
             if(d.getClass().getName().equals(className))
                 return d;
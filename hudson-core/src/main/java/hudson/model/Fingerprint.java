@@ -664,6 +664,12 @@ public class Fingerprint implements ModelObject, Saveable {
 
     /**
      * Records that a build of a job has used this file.
+     *
+     * <p>
+     * The record is saved in the background through {@link PersistenceService}, so this method no longer
+     * fails when saving does. Callers that need the record on disk, or need to know whether it could be saved,
+     * call {@link PersistenceService#await(Saveable)} afterward, as {@link hudson.tasks.Fingerprinter} does
+     * at the end of the step.
      */
     public synchronized void add(String jobFullName, int n) throws IOException {
         synchronized(usages) {
@@ -674,7 +680,8 @@ public class Fingerprint implements ModelObject, Saveable {
             }
             r.add(n);
         }
-        save();
+        // a build records many fingerprints, and the same ones over and over
+        PersistenceService.get().saveLater(this);
     }
 
     /**
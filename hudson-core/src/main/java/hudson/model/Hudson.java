@@ -75,6 +75,7 @@ import hudson.remoting.VirtualChannel;
 import hudson.scm.RepositoryBrowser;
 import hudson.scm.SCM;
 import hudson.search.CollectionSearchIndex;
+import hudson.search.NGramIndex;
 import hudson.search.SearchIndexBuilder;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
@@ -158,7 +159,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
-import java.util.Stack;
 import java.util.StringTokenizer;
 import java.util.Timer;
 import java.util.TreeSet;
@@ -322,6 +322,16 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      * All {@link Item}s keyed by their {@link Item#getName() name}s.
      */
     /*package*/ transient final Map<String, TopLevelItem> items = new CopyOnWriteMap.Tree<String, TopLevelItem>(CaseInsensitiveComparator.INSTANCE);
+
+    /**
+     * Snapshot index of all the items in the tree. Must be invalidated whenever {@link #items} changes.
+     */
+    private transient final ItemIndex itemIndex = new ItemIndex(this);
+
+    /**
+     * Names of {@link #items} for the search box suggestions. Must be updated along with {@link #items}.
+     */
+    private transient final NGramIndex<TopLevelItem> itemSearchIndex = new NGramIndex<TopLevelItem>();
     /**
      * The sole instance.
      */
@@ -330,6 +340,12 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
     private transient volatile boolean terminating;
     private List<JDK> jdks = new ArrayList<JDK>();
     private transient volatile DependencyGraph dependencyGraph;
+
+    /**
+     * Serializes the updates of {@link #dependencyGraph}, so that an update isn't lost by
+     * a concurrent one that started from an older graph.
+     */
+    private transient final Object dependencyGraphLock = new Object();
     /**
      * Currently active Views tab bar.
      */
@@ -505,6 +521,8 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
         @Override
         protected void add(TopLevelItem item) {
             items.put(item.getName(), item);
+            itemIndex.invalidate();
+            itemSearchIndex.put(item.getName(), item);
         }
 
         @Override
@@ -919,8 +937,12 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      *      Either {@link Descriptor#getId()} (recommended) or the short name of a {@link Describable} subtype (for compatibility)
      */
     public Descriptor getDescriptor(String id) {
+        Descriptor r = getExtensionList(Descriptor.class).getDescriptorById(id, true);
+        if (r != null) {
+            return r;
+        }
         // legacy descriptors that are reigstered manually doesn't show up in getExtensionList, so check them explicitly.
-        for (Descriptor d : Iterators.sequence(getExtensionList(Descriptor.class), DescriptorExtensionList.listLegacyInstances())) {
+        for (Descriptor d : DescriptorExtensionList.listLegacyInstances()) {
             String name = d.getId();
             if (name.equals(id)) {
                 return d;
@@ -946,12 +968,7 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      * you'll get the same instance that this method returns.
      */
     public Descriptor getDescriptor(Class<? extends Describable> type) {
-        for (Descriptor d : getExtensionList(Descriptor.class)) {
-            if (d.clazz == type) {
-                return d;
-            }
-        }
-        return null;
+        return getExtensionList(Descriptor.class).getDescriptorOf(type);
     }
 
     /**
@@ -973,12 +990,7 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      * Gets the {@link Descriptor} instance in the current Hudson by its type.
      */
     public <T extends Descriptor> T getDescriptorByType(Class<T> type) {
-        for (Descriptor d : getExtensionList(Descriptor.class)) {
-            if (d.getClass() == type) {
-                return type.cast(d);
-            }
-        }
-        return null;
+        return getExtensionList(Descriptor.class).get(type);
     }
 
     /**
@@ -1290,28 +1302,35 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      * and filter them by the given type.
      */
     public <T extends Item> List<T> getAllItems(Class<T> type) {
-        List<T> r = new ArrayList<T>();
-
-        Stack<ItemGroup> q = new Stack<ItemGroup>();
-        q.push(this);
-
-        while (!q.isEmpty()) {
-            ItemGroup<?> parent = q.pop();
-            for (Item i : parent.getItems()) {
-                if (type.isInstance(i)) {
-                    if (i.hasPermission(Item.READ)) {
-                        r.add(type.cast(i));
-                    }
-                }
-                if (i instanceof ItemGroup) {
-                    q.push((ItemGroup) i);
-                }
+        List<T> all = itemIndex.getSnapshot().getAll(type);
+        List<T> r = new ArrayList<T>(all.size());
+        for (T i : all) {
+            if (i.hasPermission(Item.READ)) {
+                r.add(i);
             }
         }
-
         return r;
     }
 
+    /**
+     * Gets the snapshot index of all the {@link Item}s in the {@link ItemGroup} tree.
+     *
+     * @since 2.2.2
+     */
+    public ItemIndex getItemIndex() {
+        return itemIndex;
+    }
+
+    /**
+     * Gets the index of the top-level items by their names, used for the search box suggestions.
+     * It doesn't check any permission.
+     *
+     * @since 2.2.2
+     */
+    public NGramIndex<TopLevelItem> getItemSearchIndex() {
+        return itemSearchIndex;
+    }
+
     /**
      * Gets the list of all the projects.
      *
@@ -2150,6 +2169,19 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      *      or it exists but it's no an instance of the given type.
      */
     public <T extends Item> T getItemByFullName(String fullName, Class<T> type) {
+        Item indexed = itemIndex.getSnapshot().get(fullName);
+        if (indexed != null) {
+            Item top = getTopLevelItemOf(indexed);
+            if (top != null && items.get(top.getName()) == top) {
+                // the snapshot is current for this item. apply the same check as getItem(String)
+                if (!top.hasPermission(Item.READ) || !type.isInstance(indexed)) {
+                    return null;
+                }
+                return type.cast(indexed);
+            }
+        }
+
+        // not in the snapshot (for example because of the case-insensitive look up), so walk the tree
         StringTokenizer tokens = new StringTokenizer(fullName, "/");
         ItemGroup parent = this;
 
@@ -2177,6 +2209,22 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
         return getItemByFullName(fullName, Item.class);
     }
 
+    /**
+     * Follows the parents of the given item up to the one directly under {@link Hudson}.
+     *
+     * @return null if the item isn't attached to this {@link Hudson}.
+     */
+    private Item getTopLevelItemOf(Item item) {
+        while (item.getParent() != this) {
+            ItemGroup parent = item.getParent();
+            if (!(parent instanceof Item)) {
+                return null;
+            }
+            item = (Item) parent;
+        }
+        return item;
+    }
+
     /**
      * Gets the user of the given name.
      *
@@ -2226,6 +2274,8 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
             old.delete();
         }
         items.put(name, item);
+        itemIndex.invalidate();
+        itemSearchIndex.put(name, item);
         ItemListener.fireOnCreated(item);
     }
 
@@ -2249,6 +2299,9 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
     public void onRenamed(TopLevelItem job, String oldName, String newName) throws IOException {
         items.remove(oldName);
         items.put(newName, job);
+        itemIndex.invalidate();
+        itemSearchIndex.remove(oldName);
+        itemSearchIndex.put(newName, job);
 
         for (View v : views) {
             v.onJobRenamed(job, oldName, newName);
@@ -2265,6 +2318,8 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
         }
 
         items.remove(item.getName());
+        itemIndex.invalidate();
+        itemSearchIndex.remove(item.getName());
         for (View v : views) {
             v.onJobRenamed(item, item.getName(), null);
         }
@@ -2358,6 +2413,8 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
 
                 clouds.setOwner(Hudson.this);
                 items.clear();
+                itemIndex.invalidate();
+                itemSearchIndex.clear();
             }
         });
 
@@ -2367,6 +2424,8 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
                 public void run(Reactor session) throws Exception {
                     TopLevelItem item = (TopLevelItem) Items.load(Hudson.this, subdir);
                     items.put(item.getName(), item);
+                    itemIndex.invalidate();
+                    itemSearchIndex.put(item.getName(), item);
                 }
             });
         }
@@ -2478,6 +2537,7 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
         if (getRootDir().exists()) // if we are aborting because we failed to create HUDSON_HOME,
         // don't try to save. Issue #536
         {
+            PersistenceService.get().flushAll();
             getQueue().save();
         }
 
@@ -2775,6 +2835,8 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
     public TopLevelItem reloadProjectFromDisk(File jobDir) throws IOException {
         TopLevelItem item = (TopLevelItem) Items.load(this, jobDir);
         items.put(item.getName(), item);
+        itemIndex.invalidate();
+        itemSearchIndex.put(item.getName(), item);
         rebuildDependencyGraph();
         return item;
     }
@@ -3539,7 +3601,22 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
      * Rebuilds the dependency map.
      */
     public void rebuildDependencyGraph() {
-        dependencyGraph = new DependencyGraph();
+        synchronized (dependencyGraphLock) {
+            dependencyGraph = new DependencyGraph();
+        }
+    }
+
+    /**
+     * Updates the dependency map after the configuration of the given projects has changed,
+     * or they have been deleted, by recomputing only the dependencies they declare.
+     *
+     * @see DependencyGraph#update(Collection)
+     * @since 2.2.2
+     */
+    public void rebuildDependencyGraph(Collection<? extends AbstractProject> changed) {
+        synchronized (dependencyGraphLock) {
+            dependencyGraph = dependencyGraph.update(changed);
+        }
     }
 
     public DependencyGraph getDependencyGraph() {
@@ -3708,6 +3785,25 @@ public final class Hudson extends Node implements ItemGroup<TopLevelItem>, Stapl
         public static final LocalChannel localChannel = new LocalChannel(threadPoolForRemoting);
     }
 
+    /**
+     * Puts a top-level item back into the search index when it's saved,
+     * as its display name may have been changed by the new configuration.
+     */
+    @Extension
+    public static final class SearchIndexUpdater extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (!(o instanceof TopLevelItem))   return;
+            Hudson h = Hudson.getInstance();
+            if (h==null)    return;
+            TopLevelItem item = (TopLevelItem)o;
+            // only the items that are already indexed, under the name they are indexed by
+            String name = item.getName();
+            if (h.itemSearchIndex.get(name)==item)
+                h.itemSearchIndex.put(name,item);
+        }
+    }
+
     /**
      * Shortcut for {@code Hudson.getInstance().lookup.get(type)}
      */
@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import hudson.Extension;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import hudson.security.NotSerilizableSecurityContext;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable snapshot of all the {@link Item}s in the {@link ItemGroup} tree of {@link Hudson},
+ * indexed by their full names and by their types.
+ *
+ * <p>
+ * {@link Hudson#getAllItems(Class)} and {@link Hudson#getItemByFullName(String, Class)} used to
+ * walk the tree on every call. Instead, they now consult the current {@link Snapshot}, which is
+ * computed once and then replaced as a whole whenever items are created, renamed, or deleted.
+ * Readers never lock; a reader that races with a change sees either the old or the new snapshot.
+ *
+ * <p>
+ * The snapshot doesn't apply any permission check. Callers filter the matches afterward, which
+ * keeps the snapshot shareable among all the users.
+ *
+ * <p>
+ * {@link ItemGroup}s that add or remove children without going through {@link Hudson} or
+ * {@link ItemListener} need to call {@link #invalidate()}.
+ *
+ * @since 2.2.2
+ */
+public class ItemIndex {
+    private final Hudson hudson;
+
+    /**
+     * The current snapshot along with the version it was computed for. Both are replaced together,
+     * so that a snapshot computed concurrently with a change is never installed.
+     */
+    private final AtomicReference<State> state = new AtomicReference<State>(new State(0,null));
+
+    private static final class State {
+        /**
+         * Incremented on every {@link ItemIndex#invalidate()}.
+         */
+        final int version;
+        /**
+         * Null until computed for this version.
+         */
+        final Snapshot snapshot;
+
+        State(int version, Snapshot snapshot) {
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+    }
+
+    /*package*/ ItemIndex(Hudson hudson) {
+        this.hudson = hudson;
+    }
+
+    /**
+     * Discards the current snapshot. The next lookup recomputes it.
+     */
+    public void invalidate() {
+        while (true) {
+            State s = state.get();
+            if (state.compareAndSet(s,new State(s.version+1,null)))
+                return;
+        }
+    }
+
+    /**
+     * Gets a number that changes whenever the index is invalidated, for callers that cache
+     * something derived from the items.
+     */
+    public int getVersion() {
+        return state.get().version;
+    }
+
+    /**
+     * Gets the current snapshot, computing it if necessary.
+     */
+    public Snapshot getSnapshot() {
+        State s = state.get();
+        if (s.snapshot!=null)   return s.snapshot;
+
+        Snapshot snapshot = compute();
+        // fails if invalidated meanwhile, in which case the next lookup computes it again
+        state.compareAndSet(s,new State(s.version,snapshot));
+        return snapshot;
+    }
+
+    /*package*/ Snapshot compute() {
+        return new Snapshot(hudson);
+    }
+
+    /**
+     * All the items at the time of the snapshot.
+     */
+    public static final class Snapshot {
+        private final List<Item> all;
+        private final Map<String,Item> byFullName;
+        /**
+         * Memoized results of {@link #getAll(Class)}.
+         */
+        private final Map<Class<?>,List<?>> byType = new ConcurrentHashMap<Class<?>,List<?>>();
+
+        private Snapshot(Hudson hudson) {
+            this(walk(hudson));
+        }
+
+        /*package*/ Snapshot(List<Item> all) {
+            Map<String,Item> byFullName = new HashMap<String,Item>();
+            for (Item i : all)
+                byFullName.put(i.getFullName(),i);
+            this.all = Collections.unmodifiableList(all);
+            this.byFullName = byFullName;
+        }
+
+        private static List<Item> walk(Hudson hudson) {
+            // the snapshot is shared by all users, so it can't depend on what the current one may read.
+            // use setContext (NOT getContext().setAuthentication()) so we don't affect concurrent threads for same HttpSession.
+            SecurityContext saveCtx = SecurityContextHolder.getContext();
+            try {
+                NotSerilizableSecurityContext system = new NotSerilizableSecurityContext();
+                system.setAuthentication(ACL.SYSTEM);
+                SecurityContextHolder.setContext(system);
+
+                List<Item> all = new ArrayList<Item>();
+                // same traversal order as the original Hudson.getAllItems
+                Stack<ItemGroup> q = new Stack<ItemGroup>();
+                q.push(hudson);
+                while (!q.isEmpty()) {
+                    ItemGroup<?> parent = q.pop();
+                    for (Item i : parent.getItems()) {
+                        all.add(i);
+                        if (i instanceof ItemGroup)
+                            q.push((ItemGroup)i);
+                    }
+                }
+                return all;
+            } finally {
+                SecurityContextHolder.setContext(saveCtx);
+            }
+        }
+
+        /**
+         * Gets all the items, without any permission check.
+         */
+        public List<Item> getAll() {
+            return all;
+        }
+
+        /**
+         * Gets all the items of the given type, without any permission check.
+         * The result is computed once per type and snapshot.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> List<T> getAll(Class<T> type) {
+            List<T> r = (List<T>)byType.get(type);
+            if (r==null) {
+                List<T> l = new ArrayList<T>();
+                for (Item i : all)
+                    if (type.isInstance(i))
+                        l.add(type.cast(i));
+                r = Collections.unmodifiableList(l);
+                byType.put(type,r);
+            }
+            return r;
+        }
+
+        /**
+         * Looks up an item by its exact full name, without any permission check.
+         */
+        public Item get(String fullName) {
+            return byFullName.get(fullName);
+        }
+
+        public int size() {
+            return all.size();
+        }
+    }
+
+    /**
+     * Keeps the index in sync with items managed outside {@link Hudson}, such as by plugins.
+     */
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        private void invalidate() {
+            Hudson h = Hudson.getInstance();
+            if (h!=null)
+                h.getItemIndex().invalidate();
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onLoaded() {
+            invalidate();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            invalidate();
+        }
+    }
+}
@@ -249,6 +249,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
     public void putProjectProperty(String key, IProjectProperty property) {
         if (null != key && null != property) {
             jobProperties.put(key, property);
+            CascadingUtil.invalidateCascadingValues();
         }
     }
 
@@ -265,6 +266,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
      */
     public void removeProjectProperty(String key){
         jobProperties.remove(key);
+        CascadingUtil.invalidateCascadingValues();
     }
 
     /**
@@ -280,6 +282,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
                 jobProperties.clear();
             }
             jobProperties.putAll(projectProperties);
+            CascadingUtil.invalidateCascadingValues();
         }
     }
 
@@ -339,6 +342,8 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
 
     @Override
     public synchronized void save() throws IOException {
+        // lists held by the properties may have been modified in place
+        CascadingUtil.invalidateCascadingValues();
         if (null == allowSave) {
            initAllowSave();
         }
@@ -355,6 +360,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
         super.onLoad(parent, name);
         cascadingProject = (JobT) Functions.getItemByName(Hudson.getInstance().getAllItems(this.getClass()),
             cascadingProjectName);
+        CascadingUtil.invalidateCascadingValues();
         initAllowSave();
         TextFile f = getNextBuildNumberFile();
         if (f.exists()) {
@@ -946,6 +952,42 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
         return RunList.fromRuns(_getRuns().values());
     }
 
+    /**
+     * Gets the builds that did not succeed, including those in progress.
+     *
+     * <p>
+     * Equivalent to {@code getBuilds().failureOnly()}, but uses the index kept by {@link RunMap}
+     * where available instead of going through the entire history.
+     *
+     * @return never null. The first entry is the latest build.
+     * @since 2.2.2
+     */
+    @SuppressWarnings("unchecked")
+    public RunList<RunT> getFailedBuilds() {
+        SortedMap<Integer, ? extends RunT> runs = _getRuns();
+        if (runs instanceof RunMap)
+            return RunList.fromRuns(((RunMap<RunT>)runs).getFailures().values());
+        return getBuilds().failureOnly();
+    }
+
+    /**
+     * Gets the builds that were built on the given node.
+     *
+     * <p>
+     * Equivalent to {@code getBuilds().node(node)}, but uses the index kept by {@link RunMap}
+     * where available instead of going through the entire history.
+     *
+     * @return never null. The first entry is the latest build.
+     * @since 2.2.2
+     */
+    @SuppressWarnings("unchecked")
+    public RunList<RunT> getBuildsOn(Node node) {
+        SortedMap<Integer, ? extends RunT> runs = _getRuns();
+        if (runs instanceof RunMap)
+            return RunList.fromRuns(((RunMap<RunT>)runs).getByNode(node.getNodeName()).values());
+        return getBuilds().node(node);
+    }
+
     /**
      * Obtains all the {@link Run}s whose build numbers matches the given {@link RangeSet}.
      */
@@ -1674,7 +1716,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
 
     public void doRssFailed(StaplerRequest req, StaplerResponse rsp)
             throws IOException, ServletException {
-        rss(req, rsp, " failed builds", getBuilds().failureOnly());
+        rss(req, rsp, " failed builds", getFailedBuilds());
     }
 
     private void rss(StaplerRequest req, StaplerResponse rsp, String suffix,
@@ -1787,6 +1829,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
      */
     public void renameCascadingProjectNameTo(String cascadingProjectName) {
         this.cascadingProjectName = cascadingProjectName;
+        CascadingUtil.invalidateCascadingValues();
     }
 
     /**
@@ -1799,6 +1842,9 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
         if (StringUtils.isNotBlank(cascadingProjectName) && cascadingProject == null) {
             cascadingProject = (JobT) Functions.getItemByName(Hudson.getInstance().getAllItems(this.getClass()),
                 cascadingProjectName);
+            if (cascadingProject != null) {
+                CascadingUtil.invalidateCascadingValues();
+            }
         }
         return cascadingProject;
     }
@@ -1820,6 +1866,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
         CascadingUtil.unlinkProjectFromCascadingParents(cascadingProject, name);
         this.cascadingProject = null;
         this.cascadingProjectName = null;
+        CascadingUtil.invalidateCascadingValues();
         for (IProjectProperty property : jobProperties.values()) {
             property.onCascadingProjectChanged();
         }
@@ -26,7 +26,10 @@ package hudson.model;
 
 import hudson.Extension;
 import hudson.Util;
+import hudson.XmlFile;
 import hudson.model.Descriptor.FormException;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
 import hudson.util.CaseInsensitiveComparator;
 import hudson.util.DescribableList;
 import hudson.util.FormValidation;
@@ -40,10 +43,15 @@ import org.kohsuke.stapler.StaplerResponse;
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -79,6 +87,12 @@ public class ListView extends View implements Saveable {
      */
     private Boolean statusFilter;
 
+    /**
+     * Items of this view as last computed, or null if the configuration of the view changed since.
+     * Only used when all the job filters are {@link ViewJobFilter#isCacheable() cacheable}.
+     */
+    private transient volatile Membership membership;
+
     @DataBoundConstructor
     public ListView(String name) {
         super(name);
@@ -138,11 +152,73 @@ public class ListView extends View implements Saveable {
      * This method returns a separate copy each time to avoid
      * concurrent modification issue.
      */
-    public synchronized List<TopLevelItem> getItems() {
+    public List<TopLevelItem> getItems() {
+        if (!isCacheable())
+            return new ArrayList<TopLevelItem>(computeItems(false));
+
+        List<TopLevelItem> items = new ArrayList<TopLevelItem>();
+        for (TopLevelItem item : getMembership().items)
+            if (item.hasPermission(Item.READ))
+                items.add(item);
+        return items;
+    }
+
+    @Override
+    protected List<TopLevelItem> retainItems(List<TopLevelItem> candidates) {
+        Set<TopLevelItem> members = isCacheable() ? getMembership().set : new HashSet<TopLevelItem>(computeItems(false));
+        List<TopLevelItem> r = new ArrayList<TopLevelItem>();
+        for (TopLevelItem item : candidates)
+            if (members.contains(item) && item.hasPermission(Item.READ))
+                r.add(item);
+        return r;
+    }
+
+    /**
+     * Whether the items of this view can be computed once for all users, which is when
+     * all the job filters say so.
+     */
+    private boolean isCacheable() {
+        for (ViewJobFilter jobFilter : getJobFilters())
+            if (!jobFilter.isCacheable())
+                return false;
+        return true;
+    }
+
+    /**
+     * Gets the items of this view, recomputing them if anything they depend on has changed.
+     */
+    private Membership getMembership() {
+        Membership m = membership;
+        // read before computing, so that a change made during the computation causes another one
+        int items = Hudson.getInstance().getItemIndex().getVersion();
+        int configs = CONFIG_VERSION.get();
+        int builds = BUILD_VERSION.get();
+        if (m!=null && m.isCurrent(items,configs,builds))
+            return m;
+
+        synchronized (this) {
+            boolean filtered = !jobFilters.isEmpty();
+            // the status filter looks at the job configuration, and the job filters can look at builds too
+            m = new Membership(computeItems(true),items,configs,builds,statusFilter!=null || filtered,filtered);
+            membership = m;
+            return m;
+        }
+    }
+
+    /**
+     * Evaluates the job names, the include regex, the status filter and the {@link ViewJobFilter}s.
+     *
+     * @param all
+     *      true to evaluate over all the items without any permission check,
+     *      false to only consider the items the current user can read.
+     */
+    private List<TopLevelItem> computeItems(boolean all) {
+        Hudson h = Hudson.getInstance();
+        Collection<TopLevelItem> candidates = all ? h.items.values() : h.getItems();
         SortedSet<String> names = new TreeSet<String>(jobNames);
 
         if (includePattern != null) {
-            for (TopLevelItem item : Hudson.getInstance().getItems()) {
+            for (TopLevelItem item : candidates) {
                 String itemName = item.getName();
                 if (includePattern.matcher(itemName).matches()) {
                     names.add(itemName);
@@ -152,7 +228,7 @@ public class ListView extends View implements Saveable {
 
         List<TopLevelItem> items = new ArrayList<TopLevelItem>(names.size());
         for (String n : names) {
-            TopLevelItem item = Hudson.getInstance().getItem(n);
+            TopLevelItem item = all ? h.items.get(n) : h.getItem(n);
             // Add if no status filter or filter matches enabled/disabled status:
             if(item!=null && (statusFilter == null || !(item instanceof AbstractProject)
                               || ((AbstractProject)item).isDisabled() ^ statusFilter))
@@ -161,14 +237,45 @@ public class ListView extends View implements Saveable {
 
         // check the filters
         Iterable<ViewJobFilter> jobFilters = getJobFilters();
-        List<TopLevelItem> allItems = Hudson.getInstance().getItems();
+        List<TopLevelItem> allItems = new ArrayList<TopLevelItem>(candidates);
     	for (ViewJobFilter jobFilter: jobFilters) {
     		items = jobFilter.filter(items, allItems, this);
     	}
         // for sanity, trim off duplicates
         items = new ArrayList<TopLevelItem>(new LinkedHashSet<TopLevelItem>(items));
-        
-        return items;
+
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Items of the view, along with the versions of what they were computed from.
+     */
+    /*package*/ static final class Membership {
+        final List<TopLevelItem> items;
+        final Set<TopLevelItem> set;
+        final int itemsVersion;
+        final int configVersion;
+        final int buildVersion;
+        final boolean dependsOnConfig;
+        final boolean dependsOnBuilds;
+
+        Membership(List<TopLevelItem> items, int itemsVersion, int configVersion, int buildVersion,
+                   boolean dependsOnConfig, boolean dependsOnBuilds) {
+            this.items = items;
+            this.set = new HashSet<TopLevelItem>(items);
+            this.itemsVersion = itemsVersion;
+            this.configVersion = configVersion;
+            this.buildVersion = buildVersion;
+            this.dependsOnConfig = dependsOnConfig;
+            this.dependsOnBuilds = dependsOnBuilds;
+        }
+
+        boolean isCurrent(int items, int configs, int builds) {
+            if (itemsVersion!=items)    return false;
+            if (dependsOnConfig && configVersion!=configs)    return false;
+            if (dependsOnBuilds && buildVersion!=builds)   return false;
+            return true;
+        }
     }
 
     public boolean contains(TopLevelItem item) {
@@ -182,6 +289,7 @@ public class ListView extends View implements Saveable {
      */
     public void add(TopLevelItem item) throws IOException {
         jobNames.add(item.getName());
+        membership = null;
         save();
     }
 
@@ -201,6 +309,7 @@ public class ListView extends View implements Saveable {
         Item item = Hudson.getInstance().doCreateItem(req, rsp);
         if(item!=null) {
             jobNames.add(item.getName());
+            membership = null;
             owner.save();
         }
         return item;
@@ -210,6 +319,7 @@ public class ListView extends View implements Saveable {
     public synchronized void onJobRenamed(Item item, String oldName, String newName) {
         if(jobNames.remove(oldName) && newName!=null)
             jobNames.add(newName);
+        membership = null;
     }
 
     /**
@@ -248,6 +358,7 @@ public class ListView extends View implements Saveable {
 
         String filter = Util.fixEmpty(req.getParameter("statusFilter"));
         statusFilter = filter != null ? "1".equals(filter) : null;
+        membership = null;
     }
 
     @Extension
@@ -272,6 +383,45 @@ public class ListView extends View implements Saveable {
         }
     }
 
+    /**
+     * Incremented whenever a top-level item is saved, which is when it can start or stop matching
+     * the status filter or a {@link ViewJobFilter}.
+     */
+    /*package*/ static final AtomicInteger CONFIG_VERSION = new AtomicInteger();
+
+    /**
+     * Incremented whenever a build starts, completes or is deleted, which only matters to the views
+     * with {@link ViewJobFilter}s.
+     */
+    /*package*/ static final AtomicInteger BUILD_VERSION = new AtomicInteger();
+
+    @Extension
+    public static final class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof TopLevelItem)
+                CONFIG_VERSION.incrementAndGet();
+        }
+    }
+
+    @Extension
+    public static final class RunListenerImpl extends RunListener<Run> {
+        @Override
+        public void onStarted(Run r, TaskListener listener) {
+            BUILD_VERSION.incrementAndGet();
+        }
+
+        @Override
+        public void onCompleted(Run r, TaskListener listener) {
+            BUILD_VERSION.incrementAndGet();
+        }
+
+        @Override
+        public void onDeleted(Run r) {
+            BUILD_VERSION.incrementAndGet();
+        }
+    }
+
     /**
      * @deprecated as of 1.391
      *  Use {@link ListViewColumn#createDefaultInitialColumnList()}
@@ -30,6 +30,13 @@ import hudson.model.Queue.QueueAction;
 import hudson.tasks.BuildStep;
 import hudson.tasks.BuildWrapper;
 import hudson.util.VariableResolver;
+import hudson.util.XStream2;
+import hudson.util.xstream.StreamingConverter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
@@ -153,4 +160,42 @@ public class ParametersAction implements Action, Iterable<ParameterValue>, Queue
             OldDataMonitor.report(build, "1.283");
         return this;
     }
+
+    /**
+     * Reads and writes the same XML as the reflection based converter, without going through reflection.
+     * Registered in {@link XStream2}, since every parameterized build record has one.
+     *
+     * @since 2.2.2
+     */
+    public static class StreamingConverterImpl extends StreamingConverter<ParametersAction> {
+        public StreamingConverterImpl(Mapper mapper) {
+            super(mapper, ParametersAction.class);
+        }
+
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            writeField(writer, context, "parameters", List.class, ((ParametersAction) source).parameters);
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            // the action itself only exists once its final field is read, so it can't be handed down as the parent.
+            // nothing inside refers back to it anyway.
+            List<ParameterValue> parameters = null;
+            AbstractBuild<?,?> build = null;
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                String name = reader.getNodeName();
+                if (name.equals("parameters"))
+                    parameters = (List<ParameterValue>) readField(reader, context, null, List.class);
+                else if (name.equals("build"))
+                    build = (AbstractBuild<?,?>) readField(reader, context, null, AbstractBuild.class);
+                else
+                    skipUnknownField(reader, context);
+                reader.moveUp();
+            }
+            ParametersAction pa = new ParametersAction(parameters);
+            pa.build = build;
+            return pa.readResolve();
+        }
+    }
 }
@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import hudson.BulkChange;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.IOException2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Saves {@link Saveable}s in the background, so that the XML serialization and the disk I/O
+ * happen neither on the request or build thread nor while the caller holds its locks.
+ *
+ * <p>
+ * {@link #saveLater(Saveable)} marks an object dirty, and it gets saved {@link #DELAY} milliseconds later.
+ * Repeated requests for an object that is already dirty are coalesced into that single save.
+ * The actual saving is done by {@link Saveable#save()} on a small thread pool, so the data is still written
+ * through {@link hudson.util.AtomicFileWriter} and a crash never leaves a half-written file behind.
+ * At worst the changes of the last {@link #DELAY} milliseconds are lost.
+ *
+ * <p>
+ * A background save that fails is logged, and remembered until the object is saved successfully.
+ * Callers that need the data on disk before they proceed, or need to know whether saving failed,
+ * use {@link #await(Saveable)}, which waits for the background save and throws its failure,
+ * or {@link #flush(Saveable)}, which saves the object right away, and again if the last save failed.
+ * {@link Hudson#cleanUp()} flushes everything that is still pending.
+ *
+ * @since 2.2.2
+ */
+public final class PersistenceService {
+    /**
+     * How long a dirty object waits for further changes before it is saved, in milliseconds.
+     * 0 or less disables the write-behind, and {@link #saveLater(Saveable)} saves right away.
+     */
+    public static long DELAY = Long.getLong(PersistenceService.class.getName()+".delay",1000);
+
+    /**
+     * Number of threads that save the objects.
+     */
+    public static final int THREADS = Integer.getInteger(PersistenceService.class.getName()+".threads",2);
+
+    /**
+     * Number of dirty objects beyond which the callers save synchronously, so that the backlog stays bounded
+     * when the disk can't keep up.
+     */
+    public static int MAX_PENDING = Integer.getInteger(PersistenceService.class.getName()+".maxPending",1000);
+
+    private static final PersistenceService INSTANCE = new PersistenceService();
+
+    public static PersistenceService get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Dirty objects. Keyed by identity since {@link Saveable}s may define equality in terms of their data.
+     */
+    // guarded by this
+    private final Map<Saveable,Boolean> pending = new IdentityHashMap<Saveable,Boolean>();
+
+    /**
+     * Objects being saved, with the number of saves in progress.
+     */
+    // guarded by this
+    private final Map<Saveable,Integer> inProgress = new IdentityHashMap<Saveable,Integer>();
+
+    /**
+     * Objects whose last save failed, with the failure, until they are saved successfully.
+     */
+    // guarded by this
+    private final Map<Saveable,Exception> failed = new IdentityHashMap<Saveable,Exception>();
+
+    private final ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(THREADS,
+            new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private PersistenceService() {
+    }
+
+    /**
+     * Schedules the object to be saved.
+     *
+     * <p>
+     * Failures to save are logged, since there's nobody to report them to by then,
+     * and reported by the next {@link #flush(Saveable)} or {@link #await(Saveable)} of the object.
+     * Does nothing if the calling thread has a {@link BulkChange} in progress for the object,
+     * as {@link BulkChange#commit()} will save it.
+     */
+    public void saveLater(Saveable s) {
+        if (BulkChange.contains(s))     return;
+        requests.incrementAndGet();
+
+        boolean now;
+        synchronized (this) {
+            if (pending.containsKey(s))     return;     // coalesced
+            now = DELAY<=0 || pending.size()>=MAX_PENDING;
+            if (now)
+                begin(s);
+            else
+                pending.put(s,Boolean.TRUE);
+        }
+
+        if (now)
+            write(s);
+        else
+            pool.schedule(new Writer(s),DELAY,TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * If the object has a pending save, or its last save failed, saves it right away on the calling thread.
+     * A background save that is already in progress is waited for first.
+     *
+     * @throws IOException
+     *      if saving fails.
+     */
+    public void flush(Saveable s) throws IOException {
+        synchronized (this) {
+            try {
+                while (inProgress.containsKey(s))
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for "+s+" to be saved");
+            }
+            boolean dirty = pending.remove(s)!=null;
+            dirty |= failed.containsKey(s);
+            if (!dirty)     return;
+            begin(s);
+        }
+        save(s);
+    }
+
+    /**
+     * Waits until the pending and in-progress saves of the object are done, without hurrying them,
+     * so that the saves requested by other threads in the meantime are still coalesced.
+     *
+     * @throws IOException
+     *      if the last save of the object failed.
+     */
+    public void await(Saveable s) throws IOException, InterruptedException {
+        Exception e;
+        synchronized (this) {
+            while (pending.containsKey(s) || inProgress.containsKey(s))
+                wait();
+            e = failed.get(s);
+        }
+        if (e!=null)
+            throw new IOException2("Failed to save "+s,e);
+    }
+
+    /**
+     * Saves all the objects that have a pending save, or whose last save failed, on the calling thread.
+     */
+    public void flushAll() {
+        List<Saveable> all;
+        synchronized (this) {
+            all = new ArrayList<Saveable>(pending.keySet());
+            pending.clear();
+            all.addAll(failed.keySet());
+            for (Saveable s : all)
+                begin(s);
+        }
+        for (Saveable s : all)
+            write(s);
+    }
+
+    /**
+     * Number of objects that are waiting to be saved.
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Number of {@link #saveLater(Saveable)} calls so far.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of actual saves so far. The difference to {@link #getRequestCount()} is what coalescing saved.
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Average time an actual save took, in milliseconds.
+     */
+    public double getAverageWriteLatency() {
+        long n = writes.get();
+        return n==0 ? 0 : writeNanos.get()/1000000.0/n;
+    }
+
+    /**
+     * Marks the start of a save. Called while holding the lock, together with taking the object out of {@link #pending},
+     * so that the object never looks clean while its changes aren't on disk yet.
+     */
+    private void begin(Saveable s) {
+        Integer n = inProgress.get(s);
+        inProgress.put(s,n==null ? 1 : n+1);
+    }
+
+    private void end(Saveable s) {
+        Integer n = inProgress.remove(s);
+        if (n!=null && n>1)
+            inProgress.put(s,n-1);
+        notifyAll();
+    }
+
+    /**
+     * Saves the object after {@link #begin(Saveable)}, and records the outcome.
+     */
+    private void save(Saveable s) throws IOException {
+        long start = System.nanoTime();
+        Exception failure = null;
+        try {
+            s.save();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            record(start);
+            synchronized (this) {
+                if (failure!=null)
+                    failed.put(s,failure);
+                else
+                    failed.remove(s);
+                end(s);
+            }
+            if (failure!=null)
+                failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * {@link #save(Saveable)} for callers that have nobody to report the failure to.
+     */
+    private void write(Saveable s) {
+        try {
+            save(s);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save "+s, e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to save "+s, e);
+        }
+    }
+
+    private void record(long start) {
+        writeNanos.addAndGet(System.nanoTime()-start);
+        writes.incrementAndGet();
+    }
+
+    private final class Writer implements Runnable {
+        private final Saveable s;
+
+        Writer(Saveable s) {
+            this.s = s;
+        }
+
+        public void run() {
+            synchronized (PersistenceService.this) {
+                // already flushed.
+                // otherwise, changes made from now on schedule another save
+                if (pending.remove(s)==null)    return;
+                begin(s);
+            }
+            write(s);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PersistenceService.class.getName());
+}
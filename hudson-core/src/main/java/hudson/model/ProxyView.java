@@ -29,6 +29,7 @@ import hudson.model.Descriptor.FormException;
 import hudson.util.FormValidation;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import javax.servlet.ServletException;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
@@ -87,6 +88,11 @@ public class ProxyView extends View implements StaplerFallback {
         return getProxiedView().contains(item);
     }
 
+    @Override
+    protected List<TopLevelItem> retainItems(List<TopLevelItem> candidates) {
+        return getProxiedView().retainItems(candidates);
+    }
+
     @Override
     public void onJobRenamed(Item item, String oldName, String newName) {
         if (oldName.equals(proxiedViewName)) {
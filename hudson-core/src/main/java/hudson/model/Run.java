@@ -57,6 +57,7 @@ import hudson.util.FlushProofOutputStream;
 import hudson.util.IOException2;
 import hudson.util.LogTaskListener;
 import hudson.util.XStream2;
+import hudson.util.io.ParallelDeleter;
 import hudson.util.ProcessTree;
 
 import java.io.BufferedReader;
@@ -1184,14 +1185,13 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
         File tmp = new File(rootDir.getParentFile(),'.'+rootDir.getName());
         
         boolean renamingSucceeded = rootDir.renameTo(tmp);
-        Util.deleteRecursive(tmp);
-        // some user reported that they see some left-over .xyz files in the workspace,
-        // so just to make sure we've really deleted it, schedule the deletion on VM exit, too.
-        if(tmp.exists())
-            tmp.deleteOnExit();
-
-        if(!renamingSucceeded)
+        if(!renamingSucceeded) {
+            Util.deleteRecursive(tmp);
             throw new IOException(rootDir+" is in use");
+        }
+
+        // the build is already gone from the user's point of view, so reclaim the disk space in the background
+        ParallelDeleter.get().deleteTrash(tmp);
 
         removeRunFromParent();
     }
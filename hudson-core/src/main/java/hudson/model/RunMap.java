@@ -29,11 +29,12 @@ import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.logging.Logger;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
@@ -42,69 +43,115 @@ import java.text.ParseException;
  * {@link Map} from build number to {@link Run}.
  *
  * <p>
- * This class is multi-thread safe by using copy-on-write technique,
- * and it also updates the bi-directional links within {@link Run}
- * accordingly.
+ * This class is multi-thread safe. Reads are lock-free over a concurrent skip list,
+ * and updates are serialized so that they can also update the bi-directional links
+ * within {@link Run} accordingly. Unlike the earlier copy-on-write implementation,
+ * adding a build costs O(log n) instead of copying the whole history, and the
+ * views returned from this map are weakly consistent rather than snapshots.
+ *
+ * <p>
+ * In addition, this map maintains secondary indexes of completed builds by their
+ * {@link Result} and by the node they were built on, so that filtered views
+ * (see {@link #getByResult(Result)}, {@link #getByNode(String)}) don't need to scan
+ * the entire history. Builds still in progress are kept aside and moved into
+ * the indexes lazily once they complete.
  *
  * @author Kohsuke Kawaguchi
  */
 public final class RunMap<R extends Run<?,R>> extends AbstractMap<Integer,R> implements SortedMap<Integer,R> {
-    // copy-on-write map
-    private transient volatile SortedMap<Integer,R> builds;
+    private transient volatile ConcurrentSkipListMap<Integer,R> builds;
+
+    /**
+     * Number of entries in {@link #builds}, since {@link ConcurrentSkipListMap#size()} is O(n).
+     */
+    private transient volatile int size;
 
     /**
      * Read-only view of this map.
      */
     private final SortedMap<Integer,R> view = Collections.unmodifiableSortedMap(this);
 
-    private transient volatile Map<Integer, Long> buildsTimeMap = new HashMap<Integer, Long>();
+    private transient final Map<Integer, Long> buildsTimeMap = new ConcurrentHashMap<Integer, Long>();
+
+    /**
+     * Completed builds by their result.
+     */
+    private transient final Map<Result,ConcurrentSkipListMap<Integer,R>> byResult = new ConcurrentHashMap<Result,ConcurrentSkipListMap<Integer,R>>();
+
+    /**
+     * Completed builds by the name of the node they were built on ("" for the master).
+     */
+    private transient final Map<String,ConcurrentSkipListMap<Integer,R>> byNode = new ConcurrentHashMap<String,ConcurrentSkipListMap<Integer,R>>();
+
+    /**
+     * Builds that were still in progress when they were added, and hence not indexed yet.
+     */
+    private transient final Map<Integer,R> inProgress = new ConcurrentHashMap<Integer,R>();
 
     public RunMap() {
-        builds = new TreeMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        builds = new ConcurrentSkipListMap<Integer,R>(BUILD_TIME_COMPARATOR);
     }
 
     public Set<Entry<Integer,R>> entrySet() {
-        // since the map is copy-on-write, make sure no one modifies it
+        // updates to the map go through put/remove, so make sure no one modifies it
         return Collections.unmodifiableSet(builds.entrySet());
     }
 
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size==0;
+    }
+
+    @Override
+    public R get(Object key) {
+        if (!(key instanceof Integer))    return null;
+        return builds.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && builds.containsKey(key);
+    }
+
     public synchronized R put(R value) {
         return put(value.getNumber(),value);
     }
 
     @Override
     public synchronized R put(Integer key, R value) {
-        // copy-on-write update
-        TreeMap<Integer,R> m = new TreeMap<Integer,R>(builds);
-
-        buildsTimeMap.put(key, value.getTimeInMillis());
-        R r = update(m, key, value);
-
-        this.builds = m;
-        return r;
+        return update(key, value);
     }
 
     @Override
     public synchronized void putAll(Map<? extends Integer,? extends R> rhs) {
-        // copy-on-write update
-        TreeMap<Integer,R> m = new TreeMap<Integer,R>(builds);
+        for (Map.Entry<? extends Integer,? extends R> e : rhs.entrySet())
+            update(e.getKey(), e.getValue());
+    }
 
-        for (Map.Entry<? extends Integer,? extends R> e : rhs.entrySet()) {
-            buildsTimeMap.put(e.getKey(), e.getValue().getTimeInMillis());
-            update(m, e.getKey(), e.getValue());
+    private R update(Integer key, R value) {
+        ConcurrentSkipListMap<Integer,R> m = builds;
+        // the comparator locates entries by the recorded timestamp, so the entries of a replaced build
+        // have to go before the timestamp of the new one is recorded
+        R r = m.remove(key);
+        if (r!=null) {
+            unlink(r);
+            unindex(r);
         }
+        buildsTimeMap.put(key, value.getTimeInMillis());
 
-        this.builds = m;
-    }
-
-    private R update(TreeMap<Integer, R> m, Integer key, R value) {
         // things are bit tricky because this map is order so that the newest one comes first,
         // yet 'nextBuild' refers to the newer build.
-        R first = m.isEmpty() ? null : m.get(m.firstKey());
-        R r = m.put(key, value);
-        SortedMap<Integer,R> head = m.headMap(key);
-        if(!head.isEmpty()) {
-            R prev = m.get(head.lastKey());
+        R first = m.isEmpty() ? null : m.firstEntry().getValue();
+        m.put(key, value);
+        if (r==null)    size++;
+        Map.Entry<Integer,R> headEntry = m.lowerEntry(key);
+        if(headEntry!=null) {
+            R prev = headEntry.getValue();
             value.previousBuild = prev.previousBuild;
             value.nextBuild = prev;
             if(value.previousBuild!=null)
@@ -116,26 +163,37 @@ public final class RunMap<R extends Run<?,R>> extends AbstractMap<Integer,R> imp
             if(first!=null)
                 first.nextBuild = value;
         }
+        index(value);
         return r;
     }
 
     public synchronized boolean remove(R run) {
-        if(run.nextBuild!=null)
-            run.nextBuild.previousBuild = run.previousBuild;
-        if(run.previousBuild!=null)
-            run.previousBuild.nextBuild = run.nextBuild; 
+        unlink(run);
 
-        // copy-on-write update
-        TreeMap<Integer,R> m = new TreeMap<Integer,R>(builds);
+        // the comparator needs the timestamp to locate the entries
+        R r = builds.remove(run.getNumber());
+        if (r!=null) {
+            size--;
+            unindex(r);
+        }
         buildsTimeMap.remove(run.getNumber());
-        R r = m.remove(run.getNumber());
-        this.builds = m;
 
         return r!=null;
     }
 
+    private void unlink(R run) {
+        if(run.nextBuild!=null)
+            run.nextBuild.previousBuild = run.previousBuild;
+        if(run.previousBuild!=null)
+            run.previousBuild.nextBuild = run.nextBuild;
+    }
+
     public synchronized void reset(TreeMap<Integer,R> builds) {
-        this.builds = new TreeMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        this.builds = new ConcurrentSkipListMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        this.size = 0;
+        byResult.clear();
+        byNode.clear();
+        inProgress.clear();
         putAll(builds);
     }
 
@@ -146,6 +204,120 @@ public final class RunMap<R extends Run<?,R>> extends AbstractMap<Integer,R> imp
         return view;
     }
 
+//
+// secondary indexes
+//
+    private void index(R r) {
+        if (r.isLogUpdated()) {
+            // the result and the node may still change
+            inProgress.put(r.getNumber(),r);
+            return;
+        }
+        if (r.getResult()!=null)
+            indexOf(byResult,r.getResult()).put(r.getNumber(),r);
+        String node = nodeOf(r);
+        if (node!=null)
+            indexOf(byNode,node).put(r.getNumber(),r);
+    }
+
+    private void unindex(R r) {
+        Integer n = r.getNumber();
+        inProgress.remove(n);
+        for (Map<Integer,R> m : byResult.values())
+            m.remove(n);
+        for (Map<Integer,R> m : byNode.values())
+            m.remove(n);
+    }
+
+    private <K> ConcurrentSkipListMap<Integer,R> indexOf(Map<K,ConcurrentSkipListMap<Integer,R>> indices, K key) {
+        ConcurrentSkipListMap<Integer,R> m = indices.get(key);
+        if (m==null) {
+            m = new ConcurrentSkipListMap<Integer,R>(BUILD_TIME_COMPARATOR);
+            indices.put(key,m);
+        }
+        return m;
+    }
+
+    private static String nodeOf(Run<?,?> r) {
+        if (!(r instanceof AbstractBuild))  return null;
+        String n = ((AbstractBuild)r).getBuiltOnStr();
+        return n==null ? "" : n;
+    }
+
+    /**
+     * Moves builds that have completed since they were added into the indexes.
+     */
+    private void reconcile() {
+        for (R r : inProgress.values()) {
+            if (!r.isLogUpdated()) {
+                synchronized (this) {
+                    if (inProgress.remove(r.getNumber())==r)
+                        index(r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the completed builds that ended with the given result, newest first.
+     *
+     * @since 2.2.2
+     */
+    public SortedMap<Integer,R> getByResult(Result result) {
+        reconcile();
+        SortedMap<Integer,R> m = byResult.get(result);
+        if (m==null)
+            m = new TreeMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        return Collections.unmodifiableSortedMap(m);
+    }
+
+    /**
+     * Gets the builds that are still in progress, newest first.
+     *
+     * @since 2.2.2
+     */
+    public SortedMap<Integer,R> getInProgress() {
+        reconcile();
+        SortedMap<Integer,R> r = new TreeMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        r.putAll(inProgress);
+        return Collections.unmodifiableSortedMap(r);
+    }
+
+    /**
+     * Gets the builds that did not succeed, including those still in progress, newest first.
+     * This is the indexed equivalent of {@link hudson.util.RunList#failureOnly()}.
+     *
+     * @since 2.2.2
+     */
+    public SortedMap<Integer,R> getFailures() {
+        reconcile();
+        SortedMap<Integer,R> r = new TreeMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        r.putAll(inProgress);
+        for (Map.Entry<Result,ConcurrentSkipListMap<Integer,R>> e : byResult.entrySet())
+            if (e.getKey()!=Result.SUCCESS)
+                r.putAll(e.getValue());
+        return Collections.unmodifiableSortedMap(r);
+    }
+
+    /**
+     * Gets the builds that were built on the given node, newest first.
+     *
+     * @param nodeName
+     *      {@link Node#getNodeName()}, which is "" for the master.
+     * @since 2.2.2
+     */
+    public SortedMap<Integer,R> getByNode(String nodeName) {
+        reconcile();
+        SortedMap<Integer,R> r = new TreeMap<Integer,R>(BUILD_TIME_COMPARATOR);
+        SortedMap<Integer,R> m = byNode.get(nodeName);
+        if (m!=null)
+            r.putAll(m);
+        for (R b : inProgress.values())
+            if (nodeName.equals(nodeOf(b)))
+                r.put(b.getNumber(),b);
+        return Collections.unmodifiableSortedMap(r);
+    }
+
 //
 // SortedMap delegation
 //
@@ -180,7 +352,7 @@ public final class RunMap<R extends Run<?,R>> extends AbstractMap<Integer,R> imp
     };
 
     /**
-     * Compare Build by timestamp
+     * Compare Build by timestamp, and by number among builds that started in the same millisecond.
      */
     private Comparator<Integer> BUILD_TIME_COMPARATOR = new Comparator<Integer>() {
         public int compare(Integer i1, Integer i2) {
@@ -189,7 +361,8 @@ public final class RunMap<R extends Run<?,R>> extends AbstractMap<Integer,R> imp
             if (null == date1 || null == date2) {
                 return COMPARATOR.compare(i1, i2);
             }
-            return -date1.compareTo(date2);
+            int r = -date1.compareTo(date2);
+            return r!=0 ? r : COMPARATOR.compare(i1, i2);
         }
     };
 
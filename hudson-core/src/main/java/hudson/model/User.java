@@ -362,12 +362,7 @@ public class User extends AbstractModelObject implements AccessControlled, Savea
      */
     @WithBridgeMethods(List.class)
     public RunList getBuilds() {
-        List<AbstractBuild> r = new ArrayList<AbstractBuild>();
-        for (AbstractProject<?,?> p : Hudson.getInstance().getAllItems(AbstractProject.class))
-            for (AbstractBuild<?,?> b : p.getBuilds())
-                if(b.hasParticipant(this))
-                    r.add(b);
-        return RunList.fromRuns(r);
+        return BuildIndex.get().getBuildsByUser(this);
     }
 
     /**
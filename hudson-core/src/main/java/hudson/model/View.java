@@ -31,8 +31,9 @@ import hudson.Util;
 import hudson.model.Descriptor.FormException;
 import hudson.model.Node.Mode;
 import hudson.scm.ChangeLogSet.Entry;
-import hudson.search.CollectionSearchIndex;
+import hudson.search.SearchIndex;
 import hudson.search.SearchIndexBuilder;
+import hudson.search.SearchItem;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
 import hudson.security.Permission;
@@ -53,6 +54,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.ServletException;
 
@@ -145,6 +147,26 @@ public abstract class View extends AbstractModelObject implements AccessControll
      */
     public abstract boolean contains(TopLevelItem item);
 
+    /**
+     * Narrows the given items down to the ones in {@link #getItems()}, keeping their order.
+     *
+     * <p>
+     * The default implementation computes {@link #getItems()} once. Views that can tell membership
+     * cheaper should override this, and are then responsible for checking {@link Item#READ}.
+     *
+     * @since 2.2.2
+     */
+    protected List<TopLevelItem> retainItems(List<TopLevelItem> candidates) {
+        if (candidates.isEmpty())   return candidates;
+
+        Set<TopLevelItem> items = new HashSet<TopLevelItem>(getItems());
+        List<TopLevelItem> r = new ArrayList<TopLevelItem>();
+        for (TopLevelItem item : candidates)
+            if (items.contains(item))
+                r.add(item);
+        return r;
+    }
+
     /**
      * Gets the name of all this collection.
      *
@@ -555,9 +577,17 @@ public abstract class View extends AbstractModelObject implements AccessControll
     @Override
     public SearchIndexBuilder makeSearchIndex() {
         return super.makeSearchIndex()
-            .add(new CollectionSearchIndex() {// for jobs in the view
-                protected TopLevelItem get(String key) { return getItem(key); }
-                protected Collection<TopLevelItem> all() { return getItems(); }
+            .add(new SearchIndex() {// for jobs in the view
+                public void find(String token, List<SearchItem> result) {
+                    TopLevelItem item = getItem(token);
+                    if (item!=null)
+                        result.add(item);
+                }
+
+                public void suggest(String token, List<SearchItem> result) {
+                    // match against the name index first, so that only the matches are checked against the view
+                    result.addAll(retainItems(Hudson.getInstance().getItemSearchIndex().match(token)));
+                }
             });
     }
 
@@ -626,11 +656,40 @@ public abstract class View extends AbstractModelObject implements AccessControll
     public abstract Item doCreateItem( StaplerRequest req, StaplerResponse rsp ) throws IOException, ServletException;
 
     public void doRssAll( StaplerRequest req, StaplerResponse rsp ) throws IOException, ServletException {
-        rss(req, rsp, " all builds", getBuilds());
+        rss(req, rsp, " all builds", getNewBuilds(false));
     }
 
     public void doRssFailed( StaplerRequest req, StaplerResponse rsp ) throws IOException, ServletException {
-        rss(req, rsp, " failed builds", getBuilds().failureOnly());
+        rss(req, rsp, " failed builds", getNewBuilds(true));
+    }
+
+    /**
+     * Computes {@link RunList#newBuilds()} of {@link #getBuilds()} from the builds of the last 7 days
+     * in the {@link BuildIndex}, and only goes through all the builds of the view if that gives less
+     * than the 10 builds the feed always shows.
+     */
+    private RunList getNewBuilds(boolean failureOnly) {
+        final Set<Job> jobs = new HashSet<Job>();
+        for (TopLevelItem item : getItems())
+            jobs.addAll(item.getAllJobs());
+
+        // same threshold as newBuilds(), computed earlier so that the range covers it
+        GregorianCalendar threshold = new GregorianCalendar();
+        threshold.add(Calendar.DAY_OF_YEAR,-7);
+        long since = threshold.getTimeInMillis();
+        List<Run> recent = new ArrayList<Run>();
+        for (Run r : BuildIndex.get().getBuilds(since, Long.MAX_VALUE))
+            if (jobs.contains(r.getParent()))
+                recent.add(r);
+        RunList runs = RunList.fromRuns(recent);
+        if (failureOnly)    runs = runs.failureOnly();
+        runs = runs.newBuilds();
+        if (runs.size()>=10)
+            return runs;
+
+        runs = getBuilds();
+        if (failureOnly)    runs = runs.failureOnly();
+        return runs.newBuilds();
     }
     
     public RunList getBuilds() {
@@ -643,7 +702,7 @@ public abstract class View extends AbstractModelObject implements AccessControll
 
     private void rss(StaplerRequest req, StaplerResponse rsp, String suffix, RunList runs) throws IOException, ServletException {
         RSS.forwardToRss(getDisplayName()+ suffix, getUrl(),
-            runs.newBuilds(), Run.FEED_ADAPTER, req, rsp );
+            runs, Run.FEED_ADAPTER, req, rsp );
     }
 
     public void doRssLatest( StaplerRequest req, StaplerResponse rsp ) throws IOException, ServletException {
@@ -26,13 +26,17 @@ package hudson.model;
 import hudson.FilePath;
 import hudson.Util;
 import hudson.Extension;
+import hudson.slaves.WorkspaceIndex;
+import hudson.slaves.WorkspaceList;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -85,29 +89,25 @@ public class WorkspaceCleanupThread extends AsyncPeriodicWork {
         if(dirs==null)      return;
         for (File dir : dirs) {
             FilePath ws = new FilePath(new File(dir, "workspace"));
-            if(shouldBeDeleted(dir.getName(),ws,h)) {
+            if(!ws.exists())
+                continue;
+            if(shouldBeDeleted(h.getItem(dir.getName()),ws,ws.lastModified(),h)) {
                 delete(ws);
             }
         }
     }
 
-    private boolean shouldBeDeleted(String jobName, FilePath dir, Node n) throws IOException, InterruptedException {
-        // TODO: the use of remoting is not optimal.
-        // One remoting can execute "exists", "lastModified", and "delete" all at once.
-        TopLevelItem item = Hudson.getInstance().getItem(jobName);
+    private boolean shouldBeDeleted(Item item, FilePath dir, long lastUsed, Node n) throws IOException, InterruptedException {
         if(item==null) {
             // no such project anymore
             LOGGER.fine("Directory "+dir+" is not owned by any project");
             return true;
         }
 
-        if(!dir.exists())
-            return false;
-
         // if younger than a month, keep it
         long now = new Date().getTime();
-        if(dir.lastModified() + 30 * DAY > now) {
-            LOGGER.fine("Directory "+dir+" is only "+ Util.getTimeSpanString(now-dir.lastModified())+" old, so not deleting");
+        if(lastUsed + 30 * DAY > now) {
+            LOGGER.fine("Directory "+dir+" is only "+ Util.getTimeSpanString(now-lastUsed)+" old, so not deleting");
             return false;
         }
 
@@ -131,28 +131,65 @@ public class WorkspaceCleanupThread extends AsyncPeriodicWork {
         return true;
     }
 
+    /**
+     * Decides what to delete from the {@link WorkspaceIndex} of the slave, instead of
+     * checking each directory over the channel, then deletes them all in one call.
+     */
     private void process(Slave s) throws InterruptedException {
         listener.getLogger().println("Scanning "+s.getNodeName());
 
         try {
             FilePath path = s.getWorkspaceRoot();
             if(path==null)  return;
+            Computer c = s.toComputer();
+            if(c==null)     return;
+
+            WorkspaceList wsl = c.getWorkspaceList();
+            WorkspaceIndex index = wsl.getIndex();
+            List<String> toDelete = new ArrayList<String>();
+            if(!index.isSeeded())
+                toDelete.addAll(index.seed(path));   // left-over trash from earlier deletions
 
-            List<FilePath> dirs = path.list(DIR_FILTER);
-            if(dirs ==null) return;
-            for (FilePath dir : dirs) {
-                if(shouldBeDeleted(dir.getName(),dir,s))
-                    delete(dir);
+            Hudson h = Hudson.getInstance();
+            // only the workspaces under the root; custom workspaces elsewhere are left alone
+            for (Map.Entry<String,WorkspaceIndex.Record> e : index.getRecords(path).entrySet()) {
+                String rel = e.getKey();
+                WorkspaceIndex.Record r = e.getValue();
+                if(isInside(rel,toDelete))
+                    continue;   // goes away with its parent
+                FilePath dir = path.child(rel);
+                if(wsl.isInUseWithin(dir))
+                    continue;
+                Item item = r.getJob()!=null ? h.getItemByFullName(r.getJob()) : h.getItem(rel.split("/")[0]);
+                if(shouldBeDeleted(item,dir,r.getLastUsed(),s))
+                    toDelete.add(rel);
             }
+            if(toDelete.isEmpty())
+                return;
+
+            listener.getLogger().println("Deleting "+toDelete+" from "+path);
+            Map<String,String> failures = index.delete(path,toDelete);
+            for (Map.Entry<String,String> e : failures.entrySet())
+                listener.error("Failed to delete "+path.child(e.getKey())+": "+e.getValue());
         } catch (IOException e) {
             e.printStackTrace(listener.error("Failed on "+s.getNodeName()));
         }
     }
 
+    /**
+     * Whether the relative path is inside one of the given ones. Relies on parents being sorted first.
+     */
+    private static boolean isInside(String rel, List<String> parents) {
+        for (String p : parents)
+            if (rel.startsWith(p+'/'))
+                return true;
+        return false;
+    }
+
     private void delete(FilePath dir) throws InterruptedException {
         try {
             listener.getLogger().println("Deleting "+dir);
-            dir.deleteRecursive();
+            dir.deleteRecursiveInBackground();
         } catch (IOException e) {
             e.printStackTrace(listener.error("Failed to delete "+dir));
         }
@@ -38,6 +38,18 @@ import antlr.TokenStreamException;
 abstract class BaseParser extends LLkParser {
     private static final int[] LOWER_BOUNDS = new int[] {0,0,1,0,0};
     private static final int[] UPPER_BOUNDS = new int[] {59,23,31,12,7};
+    /**
+     * Bounds used when "H" is written without a range. Only the days present in every month
+     * are picked for the day of month, months start from 1, and Sunday is picked only as 0
+     * for the day of week.
+     */
+    private static final int[] HASH_LOWER_BOUNDS = new int[] {0,0,1,1,0};
+    private static final int[] HASH_UPPER_BOUNDS = new int[] {59,23,28,12,6};
+
+    /**
+     * Used to pick the values of the "H" token.
+     */
+    private Hash hash = Hash.zero();
 
     protected BaseParser(int i) {
         super(i);
@@ -55,6 +67,15 @@ abstract class BaseParser extends LLkParser {
         super(tokenStream, i);
     }
 
+    public void setHash(Hash hash) {
+        if (hash==null)     hash = Hash.zero();
+        this.hash = hash;
+    }
+
+    protected Hash getHashForTokens() {
+        return hash;
+    }
+
     protected long doRange(int start, int end, int step, int field) throws ANTLRException {
         rangeCheck(start, field);
         rangeCheck(end, field);
@@ -74,6 +95,35 @@ abstract class BaseParser extends LLkParser {
         return doRange( LOWER_BOUNDS[field], UPPER_BOUNDS[field], step, field );
     }
 
+    /**
+     * Picks values in the range from the hash. Without a step, "H" stands for a single value.
+     * With a step, it stands for every step-th value starting from a hashed offset, such as
+     * "H/15" for four times an hour.
+     */
+    protected long doHash(int start, int end, int step, int field) throws ANTLRException {
+        rangeCheck(start, field);
+        rangeCheck(end, field);
+        if (step <= 0)
+            error(Messages.BaseParser_MustBePositive(step));
+        if (start>end)
+            error(Messages.BaseParser_StartEndReversed(end,start));
+        if (step > end-start+1)
+            error(Messages.BaseParser_OutOfRange(step,1,end-start+1));
+
+        if (step==1)
+            return 1L << (start+hash.next(end-start+1));
+
+        long bits = 0;
+        for (int i = start+hash.next(step); i <= end; i += step) {
+            bits |= 1L << i;
+        }
+        return bits;
+    }
+
+    protected long doHash(int step, int field) throws ANTLRException {
+        return doHash( HASH_LOWER_BOUNDS[field], HASH_UPPER_BOUNDS[field], step, field );
+    }
+
     protected void rangeCheck(int value, int field) throws ANTLRException {
         if( value<LOWER_BOUNDS[field] || UPPER_BOUNDS[field]<value ) {
             error(Messages.BaseParser_OutOfRange(value,LOWER_BOUNDS[field],UPPER_BOUNDS[field]));
@@ -60,13 +60,24 @@ public final class CronTab {
     }
 
     public CronTab(String format, int line) throws ANTLRException {
-        set(format, line);
+        this(format,line,null);
     }
 
-    private void set(String format, int line) throws ANTLRException {
+    /**
+     * @param hash
+     *      Used to pick the values of the "H" token, typically {@link Hash#from(String)} of the job name.
+     *      If null, "H" picks the lowest value.
+     * @since 2.2.2
+     */
+    public CronTab(String format, int line, Hash hash) throws ANTLRException {
+        set(format, line, hash);
+    }
+
+    private void set(String format, int line, Hash hash) throws ANTLRException {
         CrontabLexer lexer = new CrontabLexer(new StringReader(format));
         lexer.setLine(line);
         CrontabParser parser = new CrontabParser(lexer);
+        parser.setHash(hash);
         spec = format;
 
         parser.startRule(this);
@@ -252,6 +263,9 @@ public final class CronTab {
      *
      * <p>
      * Note that if t already matches this cron, it's returned as is.
+     *
+     * @throws IllegalStateException
+     *      if no time ever matches this cron tab, such as "0 0 30 2 *".
      */
     public Calendar ceil(long t) {
         Calendar cal = new GregorianCalendar(Locale.US);
@@ -265,8 +279,11 @@ public final class CronTab {
      * This method modifies the given calendar and returns the same object.
      */
     public Calendar ceil(Calendar cal) {
+        final int limit = cal.get(Calendar.YEAR)+HORIZON_YEARS;
         OUTER:
         while (true) {
+            if (cal.get(Calendar.YEAR)>limit)
+                throw new IllegalStateException("No time matches "+spec);
             for (CalendarField f : CalendarField.ADJUST_ORDER) {
                 int cur = f.valueOf(cal);
                 int next = f.ceil(this,cur);
@@ -353,8 +370,8 @@ public final class CronTab {
         }
     }
 
-    void set(String format) throws ANTLRException {
-        set(format,1);
+    void set(String format, Hash hash) throws ANTLRException {
+        set(format,1,hash);
     }
 
     /**
@@ -384,7 +401,7 @@ public final class CronTab {
      * <p>
      * The point of this method is to catch syntactically correct
      * but semantically suspicious combinations, like
-     * "* 0 * * *"
+     * "* 0 * * *", or many jobs polling at the top of every hour.
      */
     public String checkSanity() {
         for( int i=0; i<5; i++ ) {
@@ -395,8 +412,11 @@ public final class CronTab {
                     // if we have a sparse rank, one of them better be the left-most.
                     if(i>0)
                         return "Do you really mean \"every minute\" when you say \""+spec+"\"? "+
-                                "Perhaps you meant \"0 "+spec.substring(spec.indexOf(' ')+1)+"\"";
+                                "Perhaps you meant \"H "+spec.substring(spec.indexOf(' ')+1)+"\"";
                     // once we find a sparse rank, upper ranks don't matter
+                    if(i==0 && bits[0]==1L && bits[1]==FULL_HOURS && spec.startsWith("0 "))
+                        return "Every job scheduled at \""+spec+"\" fires at the same minute. "+
+                                "To spread the load, use \"H "+spec.substring(2)+"\" to pick a stable minute per job.";
                     return null;
                 }
             }
@@ -405,6 +425,14 @@ public final class CronTab {
         return null;
     }
 
+    /**
+     * {@link #ceil(Calendar)} gives up after searching this many years ahead. Any valid combination
+     * of day of month, month and day of week recurs well within this period.
+     */
+    private static final int HORIZON_YEARS = 30;
+
+    private static final long FULL_HOURS = (1L<<24)-1;
+
     // lower/uppser bounds of fields
     private static final int[] LOWER_BOUNDS = new int[] {0,0,1,0,0};
     private static final int[] UPPER_BOUNDS = new int[] {59,23,31,12,7};
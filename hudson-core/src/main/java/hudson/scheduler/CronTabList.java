@@ -52,6 +52,29 @@ public final class CronTabList {
         return false;
     }
 
+    /**
+     * Computes the nearest future time, inclusive, that matches any of the cron tabs in this list.
+     *
+     * @return
+     *      null if this list is empty or none of its entries can ever match.
+     * @see CronTab#ceil(long)
+     * @since 2.2.2
+     */
+    public synchronized Calendar ceil(long t) {
+        Calendar r = null;
+        for (CronTab tab : tabs) {
+            Calendar c;
+            try {
+                c = tab.ceil(t);
+            } catch (IllegalStateException e) {
+                continue;   // this entry never fires
+            }
+            if (r==null || c.before(r))
+                r = c;
+        }
+        return r;
+    }
+
     /**
      * Checks if this crontab entry looks reasonable,
      * and if not, return an warning message.
@@ -70,6 +93,15 @@ public final class CronTabList {
     }
 
     public static CronTabList create(String format) throws ANTLRException {
+        return create(format,null);
+    }
+
+    /**
+     * @param hash
+     *      Used to pick the values of the "H" token. See {@link CronTab#CronTab(String, int, Hash)}.
+     * @since 2.2.2
+     */
+    public static CronTabList create(String format, Hash hash) throws ANTLRException {
         Vector<CronTab> r = new Vector<CronTab>();
         int lineNumber = 0;
         for (String line : format.split("\\r?\\n")) {
@@ -78,7 +110,7 @@ public final class CronTabList {
             if(line.length()==0 || line.startsWith("#"))
                 continue;   // ignorable line
             try {
-                r.add(new CronTab(line,lineNumber));
+                r.add(new CronTab(line,lineNumber,hash));
             } catch (ANTLRException e) {
                 throw new ANTLRException(Messages.CronTabList_InvalidInput(line,e.toString()),e);
             }
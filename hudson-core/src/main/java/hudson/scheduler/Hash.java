@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scheduler;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+/**
+ * Generates a pseudo-random sequence of integers from a seed, such as a job name.
+ *
+ * <p>
+ * Used to resolve the "H" token of {@link CronTab}, so that jobs with the same schedule
+ * fire at different, but stable, times.
+ *
+ * @since 2.2.2
+ */
+public abstract class Hash {
+    /*package*/ Hash() {
+    }
+
+    /**
+     * Produces an integer in [0,n).
+     */
+    public abstract int next(int n);
+
+    /**
+     * Creates a sequence determined by the given seed.
+     * The same seed always produces the same sequence.
+     */
+    public static Hash from(String seed) {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            byte[] digest = md5.digest(seed.getBytes("UTF-8"));
+            long l = 0;
+            for (int i=0; i<8; i++)
+                l = (l<<8)|(digest[i]&0xFF);
+
+            final Random rnd = new Random(l);
+            return new Hash() {
+                public int next(int n) {
+                    return rnd.nextInt(n);
+                }
+            };
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);    // MD5 is always there
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);    // so is UTF-8
+        }
+    }
+
+    /**
+     * The sequence used when there's no seed, which always picks the lowest value.
+     * With this, "H" behaves as if the lower bound was written.
+     */
+    public static Hash zero() {
+        return ZERO;
+    }
+
+    private static final Hash ZERO = new Hash() {
+        public int next(int n) {
+            return 0;
+        }
+    };
+}
@@ -0,0 +1,221 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm;
+
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.util.IOException2;
+import hudson.util.TimeUnit2;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares {@link PollingResult}s among jobs that poll the same repository from the same baseline.
+ *
+ * <p>
+ * The results are keyed by {@link SCM#getRepositoryKey()} and {@link SCMRevisionState#getNormalizedForm()}.
+ * When several jobs poll with the same key at the same time, only the first one talks to the repository
+ * and the others wait for its result. The result is then reused by the jobs that poll with the same key
+ * within {@link #TTL}.
+ *
+ * <p>
+ * Failures aren't cached, so the next polling tries again. A job waits for the polling of another job
+ * for at most {@link #WAIT_TIMEOUT}, and polls the repository itself if the other polling takes longer
+ * or is interrupted, as the other job may have been aborted.
+ *
+ * @since 2.2.2
+ * @see SCM#poll(hudson.model.AbstractProject, hudson.Launcher, hudson.FilePath, TaskListener, SCMRevisionState)
+ */
+public final class PollingResultCache {
+    private static final PollingResultCache INSTANCE = new PollingResultCache();
+
+    public static PollingResultCache get() {
+        return INSTANCE;
+    }
+
+    private static final class Entry {
+        final FutureTask<PollingResult> task;
+        /**
+         * When the result became available, or 0 while the polling is in progress.
+         */
+        volatile long completed;
+
+        Entry(Callable<PollingResult> c) {
+            task = new FutureTask<PollingResult>(c);
+        }
+
+        boolean isExpired(long now) {
+            long c = completed;
+            return c!=0 && now-c>TTL;
+        }
+    }
+
+    private final ConcurrentMap<String,Entry> entries = new ConcurrentHashMap<String,Entry>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Computes the cache key of a polling, or null if its result can't be shared.
+     */
+    public static String keyOf(SCM scm, SCMRevisionState baseline) {
+        if (TTL<=0 || baseline==null || baseline==SCMRevisionState.NONE)
+            return null;
+        // polling that compares against a workspace depends on the job
+        if (scm.requiresWorkspaceForPolling())
+            return null;
+        String repository = scm.getRepositoryKey();
+        String revision = baseline.getNormalizedForm();
+        if (repository==null || revision==null)
+            return null;
+        return scm.getClass().getName()+'\n'+repository+'\n'+revision;
+    }
+
+    /**
+     * Gets the polling result for the given key, either from the cache, from a polling in progress
+     * for the same key, or by running the given polling.
+     */
+    public PollingResult poll(String key, TaskListener listener, Callable<PollingResult> polling) throws IOException, InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry e = entries.get(key);
+            if (e!=null && e.isExpired(now)) {
+                entries.remove(key,e);
+                e = null;
+            }
+
+            boolean owner = false;
+            if (e==null) {
+                Entry n = new Entry(polling);
+                e = entries.putIfAbsent(key,n);
+                if (e==null) {
+                    e = n;
+                    owner = true;
+                }
+            }
+
+            if (owner) {
+                misses.incrementAndGet();
+                purge(now);
+                e.task.run();
+            } else {
+                long c = e.completed;
+                if (c!=0)
+                    listener.getLogger().println("Using the polling result of another job, obtained "+Util.getTimeSpanString(now-c)+" ago");
+                else
+                    listener.getLogger().println("Waiting for another job polling the same repository");
+            }
+
+            try {
+                PollingResult r;
+                if (owner) {
+                    r = e.task.get();
+                    e.completed = System.currentTimeMillis();
+                } else {
+                    r = e.task.get(WAIT_TIMEOUT,TimeUnit.MILLISECONDS);
+                    hits.incrementAndGet();
+                }
+                return r;
+            } catch (TimeoutException x) {
+                // leave the entry to its owner, and don't share a result obtained this late
+                listener.getLogger().println("Gave up waiting for the other job after "+Util.getTimeSpanString(WAIT_TIMEOUT));
+                misses.incrementAndGet();
+                try {
+                    return polling.call();
+                } catch (Exception t) {
+                    throw rethrow(t);
+                }
+            } catch (ExecutionException x) {
+                entries.remove(key,e);
+                Throwable t = x.getCause();
+                if (!owner && t instanceof InterruptedException) {
+                    // the other job was aborted, which says nothing about this one
+                    listener.getLogger().println("The polling of the other job was interrupted");
+                    continue;
+                }
+                throw rethrow(t);
+            }
+        }
+    }
+
+    /**
+     * Rethrows the failure of a polling as is if possible.
+     */
+    private static IOException rethrow(Throwable t) throws IOException, InterruptedException {
+        if (t instanceof IOException)           throw (IOException)t;
+        if (t instanceof InterruptedException)  throw (InterruptedException)t;
+        if (t instanceof RuntimeException)      throw (RuntimeException)t;
+        if (t instanceof Error)                 throw (Error)t;
+        return new IOException2("Polling failed",t);
+    }
+
+    /**
+     * Drops all the cached results.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Number of pollings answered by another job's polling.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of pollings that went to the repository.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void purge(long now) {
+        for (Iterator<Entry> itr = entries.values().iterator(); itr.hasNext();)
+            if (itr.next().isExpired(now))
+                itr.remove();
+    }
+
+    /**
+     * How long a polling result is reused, in milliseconds. 0 disables sharing.
+     */
+    public static long TTL = Long.getLong(PollingResultCache.class.getName()+".ttl", TimeUnit2.MINUTES.toMillis(1));
+
+    /**
+     * How long a job waits for the polling of another job, in milliseconds, before polling the repository itself.
+     */
+    public static long WAIT_TIMEOUT = Long.getLong(PollingResultCache.class.getName()+".waitTimeout", TimeUnit2.MINUTES.toMillis(5));
+}
@@ -48,9 +48,12 @@ import hudson.model.AbstractProject.AbstractProjectDescriptor;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
@@ -169,6 +172,45 @@ public abstract class SCM implements Describable<SCM>, ExtensionPoint {
     	return true;
     }
 
+    /**
+     * Identifies the remote repository, and the part of it such as a branch, that this SCM
+     * checks out, typically as a URL.
+     *
+     * <p>
+     * Jobs whose SCMs return the same key are assumed to see the same changes, so their polling
+     * is scheduled together instead of hitting the same repository independently. If the
+     * {@link SCMRevisionState} also supports {@link SCMRevisionState#getNormalizedForm()}, the
+     * polling result itself is shared. So the key needs to cover any configuration that
+     * affects the polling result, such as excluded paths.
+     *
+     * @return
+     *      null if unknown, which is the default. Such jobs are polled on their own.
+     * @since 2.2.2
+     */
+    public String getRepositoryKey() {
+        return null;
+    }
+
+    /**
+     * Host of the remote repository, used to limit the number of concurrent polling against one server.
+     *
+     * <p>
+     * The default implementation returns the host of {@link #getRepositoryKey()} if it is a URL.
+     *
+     * @return
+     *      null if unknown.
+     * @since 2.2.2
+     */
+    public String getRepositoryHost() {
+        String key = getRepositoryKey();
+        if (key==null)  return null;
+        try {
+            return new URI(key).getHost();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
     /**
      * Called before a workspace is deleted on the given node, to provide SCM an opportunity to perform clean up.
      *
@@ -357,17 +399,28 @@ public abstract class SCM implements Describable<SCM>, ExtensionPoint {
     /**
      * Convenience method for the caller to handle the backward compatibility between pre 1.345 SCMs.
      */
-    public final PollingResult poll(AbstractProject<?,?> project, Launcher launcher, FilePath workspace, TaskListener listener, SCMRevisionState baseline) throws IOException, InterruptedException {
+    public final PollingResult poll(final AbstractProject<?,?> project, final Launcher launcher, final FilePath workspace, final TaskListener listener, SCMRevisionState baseline) throws IOException, InterruptedException {
         if (is1_346OrLater()) {
             // This is to work around HUDSON-5827 in a general way.
             // don't let the SCM.compareRemoteRevisionWith(...) see SCMRevisionState that it didn't produce.
-            SCMRevisionState baseline2;
+            final SCMRevisionState baseline2;
             if (baseline!=SCMRevisionState.NONE) {
                 baseline2 = baseline;
             } else {
                 baseline2 = _calcRevisionsFromBuild(project.getLastBuild(), launcher, listener);
             }
 
+            // share the result with other jobs polling the same repository from the same baseline
+            String key = PollingResultCache.keyOf(this, baseline2);
+            if (key!=null) {
+                PollingResult r = PollingResultCache.get().poll(key, listener, new Callable<PollingResult>() {
+                    public PollingResult call() throws IOException, InterruptedException {
+                        return _compareRemoteRevisionWith(project, launcher, workspace, listener, baseline2);
+                    }
+                });
+                return new PollingResult(baseline2, r.remote, r.change);
+            }
+
             return _compareRemoteRevisionWith(project, launcher, workspace, listener, baseline2);
         } else {
             return pollChanges(project,launcher,workspace,listener) ? PollingResult.SIGNIFICANT : PollingResult.NO_CHANGES;
@@ -31,6 +31,24 @@ public abstract class SCMRevisionState implements Action {
         return null;
     }
 
+    /**
+     * Returns a canonical string form of this state, such as a revision number or a commit ID,
+     * which is equal for two states that point to the same state of the same repository, even if
+     * they were computed by different jobs.
+     *
+     * <p>
+     * This allows jobs that poll the same repository from the same baseline to share the polling
+     * result. See {@link PollingResultCache}.
+     *
+     * @return
+     *      null if this state can't be normalized, which is the default. Polling from such
+     *      a baseline is never shared.
+     * @since 2.2.2
+     */
+    public String getNormalizedForm() {
+        return null;
+    }
+
     /*
       I can't really make this comparable because comparing two revision states often requires
       non-trivial computation and conversations with the repository (mainly to figure out
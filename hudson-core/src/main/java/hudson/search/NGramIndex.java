@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link SearchIndex} that keeps the names and display names of its items in a trigram index,
+ * so that suggestions don't require looking at every item.
+ *
+ * <p>
+ * Unlike {@link CollectionSearchIndex}, the index is maintained incrementally by the owner of the items
+ * through {@link #put(String, SearchableModelObject)} and {@link #remove(String)}.
+ * The display name is captured when the item is put, so the owner needs to put the item again
+ * if it changes. {@link hudson.model.Hudson} does so whenever one of its items is saved.
+ *
+ * <p>
+ * A token matches an item if it occurs in the name or the display name, ignoring case.
+ * {@link Search#suggest(SearchIndex, String)} then ranks the matches by how close they are.
+ *
+ * @since 2.2.2
+ */
+public class NGramIndex<T extends SearchableModelObject> implements SearchIndex {
+    private static final int N = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Items by name. Sorted so that suggestions come in a stable order.
+     */
+    private final Map<String,Entry<T>> entries = new TreeMap<String,Entry<T>>();
+
+    /**
+     * Names of the items whose text contain the trigram.
+     */
+    private final Map<String,Set<String>> grams = new HashMap<String,Set<String>>();
+
+    private static final class Entry<T extends SearchableModelObject> {
+        final T item;
+        /**
+         * Lower-cased name and display name, separated by a character that tokens don't contain.
+         */
+        final String text;
+
+        Entry(String name, T item) {
+            this.item = item;
+            this.text = (name+'\u0000'+item.getDisplayName()).toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * Adds the item, replacing the one of the same name.
+     */
+    public void put(String name, T item) {
+        Entry<T> e = new Entry<T>(name,item);
+        lock.writeLock().lock();
+        try {
+            removeEntry(name);
+            entries.put(name,e);
+            for (String g : gramsOf(e.text)) {
+                Set<String> names = grams.get(g);
+                if (names==null)
+                    grams.put(g,names=new HashSet<String>());
+                names.add(name);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            grams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeEntry(String name) {
+        Entry<T> old = entries.remove(name);
+        if (old==null)  return;
+        for (String g : gramsOf(old.text)) {
+            Set<String> names = grams.get(g);
+            if (names!=null && names.remove(name) && names.isEmpty())
+                grams.remove(g);
+        }
+    }
+
+    public T get(String name) {
+        lock.readLock().lock();
+        try {
+            Entry<T> e = entries.get(name);
+            return e!=null ? e.item : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the items whose name or display name contains the token, ignoring case, ordered by name.
+     * No permission check is done.
+     */
+    public List<T> match(String token) {
+        String t = token.toLowerCase(Locale.ENGLISH);
+        List<T> r = new ArrayList<T>();
+
+        lock.readLock().lock();
+        try {
+            if (t.length()<N) {
+                // too short for the trigrams to narrow it down
+                for (Entry<T> e : entries.values())
+                    if (e.text.contains(t))
+                        r.add(e.item);
+                return r;
+            }
+
+            // the items having all the trigrams of the token are the candidates
+            Set<String> smallest = null;
+            List<Set<String>> sets = new ArrayList<Set<String>>();
+            for (String g : gramsOf(t)) {
+                Set<String> names = grams.get(g);
+                if (names==null)    return r;
+                sets.add(names);
+                if (smallest==null || names.size()<smallest.size())
+                    smallest = names;
+            }
+
+            List<String> candidates = new ArrayList<String>();
+            OUTER:
+            for (String name : smallest) {
+                for (Set<String> names : sets)
+                    if (!names.contains(name))
+                        continue OUTER;
+                candidates.add(name);
+            }
+            Collections.sort(candidates);
+
+            for (String name : candidates) {
+                Entry<T> e = entries.get(name);
+                // the trigrams can all be there without being in sequence
+                if (e.text.contains(t))
+                    r.add(e.item);
+            }
+            return r;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Called for each match, so that permissions are only checked for the items that are suggested.
+     */
+    protected boolean isVisible(T item) {
+        return true;
+    }
+
+    public void find(String token, List<SearchItem> result) {
+        T item = get(token);
+        if (item!=null && isVisible(item))
+            result.add(item);
+    }
+
+    public void suggest(String token, List<SearchItem> result) {
+        for (T item : match(token))
+            if (isVisible(item))
+                result.add(item);
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> r = new HashSet<String>();
+        for (int i=0; i+N<=text.length(); i++)
+            r.add(text.substring(i,i+N));
+        return r;
+    }
+}
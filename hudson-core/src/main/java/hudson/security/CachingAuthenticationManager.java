@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.security;
+
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.TimeUnit2;
+import hudson.util.TimedCache;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.AuthenticationException;
+import org.acegisecurity.AuthenticationManager;
+import org.acegisecurity.AuthenticationServiceException;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * {@link AuthenticationManager} for the HTTP basic authentication of scripted clients, which tend to
+ * send the same credentials over and over, often without keeping a session.
+ *
+ * <p>
+ * Successful authentications of user name and password are remembered for {@link #TTL}, keyed by a
+ * salted hash of the credentials. The credentials themselves are never kept.
+ *
+ * <p>
+ * Calls to the {@link SecurityRealm} run on a small dedicated thread pool and are abandoned after
+ * {@link #TIMEOUT}, so that a slow or unreachable directory makes the clients fail quickly instead of
+ * tying up all the request threads of the container.
+ *
+ * @since 2.2.2
+ */
+public class CachingAuthenticationManager implements AuthenticationManager {
+    private final AuthenticationManager delegate;
+
+    /**
+     * Runs the calls to the delegate.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Null if caching is disabled.
+     */
+    private final TimedCache<String,Authentication> cache;
+
+    /**
+     * Random per instance, so that the hashes can't be precomputed and don't outlive the realm.
+     */
+    private final byte[] salt = new byte[16];
+
+    public CachingAuthenticationManager(AuthenticationManager delegate) {
+        this(delegate,POOL);
+    }
+
+    /*package*/ CachingAuthenticationManager(AuthenticationManager delegate, ExecutorService pool) {
+        this.delegate = delegate;
+        this.pool = pool;
+        this.cache = TTL>0 && CACHE_SIZE>0 ? new TimedCache<String,Authentication>(CACHE_SIZE,TTL) : null;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    public Authentication authenticate(Authentication a) throws AuthenticationException {
+        String key = cache!=null ? keyOf(a) : null;
+        if (key!=null) {
+            Authentication r = cache.get(key);
+            if (r!=null)    return r;
+        }
+
+        Authentication r = call(a);
+        if (key!=null)
+            cache.put(key,r);
+        return r;
+    }
+
+    /**
+     * Drops all the remembered authentications.
+     */
+    public void clear() {
+        if (cache!=null)
+            cache.clear();
+    }
+
+    /**
+     * Gets the cache of successful authentications, or null if caching is disabled.
+     */
+    public TimedCache<String,Authentication> getCache() {
+        return cache;
+    }
+
+    /**
+     * Computes the salted hash of user name and password, or null for other kinds of credentials.
+     */
+    private String keyOf(Authentication a) {
+        if (!(a instanceof UsernamePasswordAuthenticationToken))
+            return null;
+        Object principal = a.getPrincipal(), credentials = a.getCredentials();
+        if (principal==null || credentials==null)
+            return null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(salt);
+            md.update(principal.toString().getBytes("UTF-8"));
+            md.update((byte)0);
+            md.update(credentials.toString().getBytes("UTF-8"));
+            return Util.toHexString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);     // impossible
+        } catch (UnsupportedEncodingException e) {
+            throw new Error(e);     // impossible
+        }
+    }
+
+    /**
+     * Asks the delegate on the authentication thread pool, waiting up to {@link #TIMEOUT}.
+     */
+    private Authentication call(final Authentication a) throws AuthenticationException {
+        Future<Authentication> f;
+        try {
+            f = pool.submit(new Callable<Authentication>() {
+                public Authentication call() throws Exception {
+                    return delegate.authenticate(a);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Rejecting the authentication of "+a.getName()+" because too many authentications are in progress");
+            throw new AuthenticationServiceException("Too many authentications in progress",e);
+        }
+
+        try {
+            return f.get(TIMEOUT,TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            LOGGER.warning("Authentication of "+a.getName()+" timed out after "+TIMEOUT+"ms");
+            throw new AuthenticationServiceException("Authentication timed out",e);
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while authenticating",e);
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof AuthenticationException)   throw (AuthenticationException)t;
+            if (t instanceof RuntimeException)          throw (RuntimeException)t;
+            if (t instanceof Error)                     throw (Error)t;
+            throw new AuthenticationServiceException(t.getMessage(),t);
+        }
+    }
+
+    /**
+     * How long a successful authentication is remembered, in milliseconds. 0 disables the cache.
+     */
+    public static long TTL = Long.getLong(CachingAuthenticationManager.class.getName()+".ttl", TimeUnit2.SECONDS.toMillis(30));
+
+    /**
+     * Maximum number of remembered authentications.
+     */
+    public static int CACHE_SIZE = Integer.getInteger(CachingAuthenticationManager.class.getName()+".cacheSize",1000);
+
+    /**
+     * How long to wait for the {@link SecurityRealm}, in milliseconds.
+     */
+    public static long TIMEOUT = Long.getLong(CachingAuthenticationManager.class.getName()+".timeout", TimeUnit2.SECONDS.toMillis(30));
+
+    /**
+     * Number of threads that talk to the {@link SecurityRealm}.
+     */
+    public static final int THREADS = Integer.getInteger(CachingAuthenticationManager.class.getName()+".threads",8);
+
+    /**
+     * Number of authentications that can wait for a thread before new ones are rejected.
+     */
+    public static final int QUEUE_SIZE = Integer.getInteger(CachingAuthenticationManager.class.getName()+".queueSize",64);
+
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+
+    static {
+        POOL.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(CachingAuthenticationManager.class.getName());
+}
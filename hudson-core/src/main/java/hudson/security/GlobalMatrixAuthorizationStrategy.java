@@ -94,6 +94,7 @@ public class GlobalMatrixAuthorizationStrategy extends AuthorizationStrategy {
             grantedPermissions.put(p,set = new HashSet<String>());
         set.add(sid);
         sids.add(sid);
+        SidACL.invalidateDecisions();
     }
 
     /**
@@ -144,9 +145,10 @@ public class GlobalMatrixAuthorizationStrategy extends AuthorizationStrategy {
      * Checks if the given SID has the given permission.
      */
     public boolean hasPermission(String sid, Permission p) {
-        for(; p!=null; p=p.impliedBy) {
-            Set<String> set = grantedPermissions.get(p);
-            if(set!=null && set.contains(sid) && p.getEnabled())
+        if (p==null)    return false;
+        for (Permission q : p.getImpliedByClosure()) {
+            Set<String> set = grantedPermissions.get(q);
+            if(set!=null && set.contains(sid) && q.getEnabled())
                 return true;
         }
         return false;
@@ -183,6 +185,11 @@ public class GlobalMatrixAuthorizationStrategy extends AuthorizationStrategy {
                 return true;
             return null;
         }
+
+        @Override
+        protected boolean isDecisionCacheable() {
+            return true;
+        }
     }
 
     @Extension
@@ -34,6 +34,8 @@ import hudson.model.User;
 import hudson.tasks.MailAddressResolver;
 import hudson.util.FormValidation;
 import hudson.util.Scrambler;
+import hudson.util.TimedCache;
+import hudson.util.TimeUnit2;
 import hudson.util.spring.BeanBuilder;
 import org.acegisecurity.AuthenticationManager;
 import org.acegisecurity.GrantedAuthority;
@@ -71,6 +73,7 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Set;
 import java.util.logging.Level;
@@ -278,8 +281,26 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
      */
     private transient LdapTemplate ldapTemplate;
 
-    @DataBoundConstructor
+    /**
+     * How user and group lookups are cached, or null to always ask the directory.
+     *
+     * @since 2.2.2
+     */
+    private final CacheConfiguration cache;
+
+    /**
+     * Caches created in {@link #createSecurityComponents()} according to {@link #cache}. Null if caching is off.
+     */
+    private transient TimedCache<String,LdapUserDetails> userCache;
+    private transient TimedCache<String,Set> membershipCache;
+    private transient TimedCache<String,GroupDetails> groupCache;
+
     public LDAPSecurityRealm(String server, String rootDN, String userSearchBase, String userSearch, String groupSearchBase, String managerDN, String managerPassword) {
+        this(server, rootDN, userSearchBase, userSearch, groupSearchBase, managerDN, managerPassword, null);
+    }
+
+    @DataBoundConstructor
+    public LDAPSecurityRealm(String server, String rootDN, String userSearchBase, String userSearch, String groupSearchBase, String managerDN, String managerPassword, CacheConfiguration cache) {
         this.server = server.trim();
         this.managerDN = fixEmpty(managerDN);
         this.managerPassword = Scrambler.scramble(fixEmpty(managerPassword));
@@ -289,6 +310,38 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
         userSearch = fixEmptyAndTrim(userSearch);
         this.userSearch = userSearch!=null ? userSearch : "uid={0}";
         this.groupSearchBase = fixEmptyAndTrim(groupSearchBase);
+        this.cache = cache;
+    }
+
+    public CacheConfiguration getCache() {
+        return cache;
+    }
+
+    /**
+     * Cache of {@link #loadUserByUsername(String)}, including the group memberships. Null if caching is off.
+     *
+     * @since 2.2.2
+     */
+    public TimedCache<String,LdapUserDetails> getUserCache() {
+        return userCache;
+    }
+
+    /**
+     * Cache of the group memberships looked up by user DN, shared with the authentication. Null if caching is off.
+     *
+     * @since 2.2.2
+     */
+    public TimedCache<String,Set> getMembershipCache() {
+        return membershipCache;
+    }
+
+    /**
+     * Cache of {@link #loadGroupByGroupname(String)}. Null if caching is off.
+     *
+     * @since 2.2.2
+     */
+    public TimedCache<String,GroupDetails> getGroupCache() {
+        return groupCache;
     }
 
     public String getServerUrl() {
@@ -344,11 +397,33 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
         builder.parse(Hudson.getInstance().servletContext.getResourceAsStream("/WEB-INF/security/LDAPBindSecurityRealm.groovy"),binding);
         WebApplicationContext appContext = builder.createApplicationContext();
 
-        ldapTemplate = new LdapTemplate(findBean(InitialDirContextFactory.class, appContext));
+        initialize(new LdapTemplate(findBean(InitialDirContextFactory.class, appContext)));
+
+        LDAPUserDetailsService userDetails = new LDAPUserDetailsService(appContext, userCache);
+        if (userDetails.authoritiesPopulator instanceof AuthoritiesPopulatorImpl)
+            ((AuthoritiesPopulatorImpl)userDetails.authoritiesPopulator).setCache(membershipCache);
 
         return new SecurityComponents(
             findBean(AuthenticationManager.class, appContext),
-            new LDAPUserDetailsService(appContext));
+            userDetails);
+    }
+
+    /**
+     * Sets the connection used to look up groups, and creates the caches according to {@link #cache}.
+     */
+    /*package*/ void initialize(LdapTemplate ldapTemplate) {
+        this.ldapTemplate = ldapTemplate;
+
+        if (cache!=null) {
+            long ttl = TimeUnit2.SECONDS.toMillis(cache.ttl);
+            userCache = new TimedCache<String,LdapUserDetails>(cache.size, ttl);
+            membershipCache = new TimedCache<String,Set>(cache.size, ttl);
+            groupCache = new TimedCache<String,GroupDetails>(cache.size, ttl);
+        } else {
+            userCache = null;
+            membershipCache = null;
+            groupCache = null;
+        }
     }
 
     /**
@@ -376,6 +451,16 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
      */
     @Override
     public GroupDetails loadGroupByGroupname(String groupname) throws UsernameNotFoundException, DataAccessException {
+        TimedCache<String,GroupDetails> c = getGroupCache();
+        if (c==null)
+            return searchGroup(groupname);
+        GroupDetails g = c.get(groupname);
+        if (g==null)
+            c.put(groupname, g=searchGroup(groupname));
+        return g;
+    }
+
+    private GroupDetails searchGroup(String groupname) throws UsernameNotFoundException, DataAccessException {
         // Check proper syntax based on acegi configuration
         String prefix = "";
         boolean onlyUpperCase = false;
@@ -399,13 +484,44 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
         if(groups.isEmpty())
             throw new UsernameNotFoundException(groupname);
 
+        final String name = groups.iterator().next();
         return new GroupDetails() {
             public String getName() {
-                return groups.iterator().next();
+                return name;
             }
         };
     }
 
+    /**
+     * Configures the caching of user and group lookups.
+     *
+     * @since 2.2.2
+     */
+    public static final class CacheConfiguration {
+        /**
+         * Maximum number of entries in each of the caches.
+         */
+        public final int size;
+        /**
+         * How long an entry is used, in seconds.
+         */
+        public final int ttl;
+
+        @DataBoundConstructor
+        public CacheConfiguration(int size, int ttl) {
+            this.size = Math.max(1,size);
+            this.ttl = Math.max(1,ttl);
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getTtl() {
+            return ttl;
+        }
+    }
+
     public static class LDAPUserDetailsService implements UserDetailsService {
         //TODO: review and check whether we can do it private
         public final LdapUserSearch ldapSearch;
@@ -416,15 +532,27 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
          * reuse a session, this helps keeping the memory consumption low.
          */
         private final LRUMap attributesCache = new LRUMap(32);
+        /**
+         * Users found so far, or null if caching is off.
+         */
+        private final TimedCache<String,LdapUserDetails> userCache;
 
         LDAPUserDetailsService(WebApplicationContext appContext) {
-            ldapSearch = findBean(LdapUserSearch.class, appContext);
-            authoritiesPopulator = findBean(LdapAuthoritiesPopulator.class, appContext);
+            this(appContext, null);
+        }
+
+        LDAPUserDetailsService(WebApplicationContext appContext, TimedCache<String,LdapUserDetails> userCache) {
+            this(findBean(LdapUserSearch.class, appContext), findBean(LdapAuthoritiesPopulator.class, appContext), userCache);
         }
 
         LDAPUserDetailsService(LdapUserSearch ldapSearch, LdapAuthoritiesPopulator authoritiesPopulator) {
+            this(ldapSearch, authoritiesPopulator, null);
+        }
+
+        LDAPUserDetailsService(LdapUserSearch ldapSearch, LdapAuthoritiesPopulator authoritiesPopulator, TimedCache<String,LdapUserDetails> userCache) {
             this.ldapSearch = ldapSearch;
             this.authoritiesPopulator = authoritiesPopulator;
+            this.userCache = userCache;
         }
 
         public LdapUserSearch getLdapSearch() {
@@ -436,6 +564,15 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
         }
 
         public LdapUserDetails loadUserByUsername(String username) throws UsernameNotFoundException, DataAccessException {
+            if (userCache==null)
+                return searchForUser(username);
+            LdapUserDetails u = userCache.get(username);
+            if (u==null)
+                userCache.put(username, u=searchForUser(username));
+            return u;
+        }
+
+        private LdapUserDetails searchForUser(String username) throws UsernameNotFoundException, DataAccessException {
             try {
                 LdapUserDetails ldapUser = ldapSearch.searchForUser(username);
                 // LdapUserSearch does not populate granted authorities (group search).
@@ -503,6 +640,10 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
         // Make these available (private in parent class and no get methods!)
         String rolePrefix;
         boolean convertToUpperCase;
+        /**
+         * Group memberships by user DN, or null if caching is off.
+         */
+        private volatile TimedCache<String,Set> cache;
         public AuthoritiesPopulatorImpl(InitialDirContextFactory initialDirContextFactory, String groupSearchBase) {
             super(initialDirContextFactory, fixNull(groupSearchBase));
             // These match the defaults in acegi 1.0.5; set again to store in non-private fields:
@@ -510,6 +651,30 @@ public class LDAPSecurityRealm extends AbstractPasswordBasedSecurityRealm {
             setConvertToUpperCase(true);
         }
 
+        /**
+         * Sets the cache of group memberships, or null to disable caching.
+         *
+         * @since 2.2.2
+         */
+        public void setCache(TimedCache<String,Set> cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Consults the cache before searching the directory for the groups of the user.
+         */
+        @Override
+        public Set getGroupMembershipRoles(String userDn, String username) {
+            TimedCache<String,Set> c = cache;
+            if (c==null)
+                return super.getGroupMembershipRoles(userDn, username);
+            Set roles = c.get(userDn);
+            if (roles==null)
+                c.put(userDn, roles=new HashSet(super.getGroupMembershipRoles(userDn, username)));
+            // the caller adds more roles to the returned set
+            return new HashSet(roles);
+        }
+
         @Override
         protected Set getAdditionalRoles(LdapUserDetails ldapUser) {
             return Collections.singleton(AUTHENTICATED_AUTHORITY);
@@ -26,6 +26,7 @@ package hudson.security;
 import hudson.model.*;
 import net.sf.json.util.JSONUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -104,6 +105,11 @@ public final class Permission {
     //TODO: review and check whether we can do it private
     public final Permission impliedBy;
 
+    /**
+     * This permission, followed by {@link #impliedBy}, its {@link #impliedBy}, and so on.
+     */
+    private final List<Permission> impliedByClosure;
+
     /**
      * Whether this permission is available for use.
      *
@@ -151,6 +157,12 @@ public final class Permission {
         this.impliedBy = impliedBy;
         this.enabled = enable;
 
+        List<Permission> closure = new ArrayList<Permission>();
+        closure.add(this);
+        if (impliedBy!=null)
+            closure.addAll(impliedBy.impliedByClosure);
+        this.impliedByClosure = Collections.unmodifiableList(closure);
+
         group.add(this);
         ALL.add(this);
     }
@@ -205,6 +217,18 @@ public final class Permission {
         return impliedBy;
     }
 
+    /**
+     * Gets this permission and all the permissions that imply it, directly or indirectly,
+     * from the narrowest to the broadest. Computed once when the permission is defined.
+     *
+     * @return
+     *      read-only, never empty.
+     * @since 2.2.2
+     */
+    public List<Permission> getImpliedByClosure() {
+        return impliedByClosure;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -238,6 +262,7 @@ public final class Permission {
 
     public void setEnabled(boolean enable) {
         enabled = enable;
+        SidACL.invalidateDecisions();
     }
 
     public boolean getEnabled() {
@@ -29,6 +29,11 @@ import org.acegisecurity.acls.sid.PrincipalSid;
 import org.acegisecurity.acls.sid.GrantedAuthoritySid;
 import org.acegisecurity.acls.sid.Sid;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.FINER;
@@ -37,10 +42,20 @@ import static java.util.logging.Level.FINER;
  * {@link ACL} that checks permissions based on {@link GrantedAuthority}
  * of the {@link Authentication}.
  *
+ * <p>
+ * Subtypes whose decisions only depend on the {@link Authentication} and the {@link Permission}
+ * can opt into {@linkplain #isDecisionCacheable() caching} them. The cached decisions are dropped
+ * whenever {@link #invalidateDecisions()} is called.
+ *
  * @author Kohsuke Kawaguchi
  */
 public abstract class SidACL extends ACL {
 
+    /**
+     * Decisions of this ACL, keyed by {@link #keyOf(Authentication)}. See {@link #isDecisionCacheable()}.
+     */
+    private final ConcurrentMap<List<String>,Decisions> decisions = new ConcurrentHashMap<List<String>,Decisions>();
+
     @Override
     public boolean hasPermission(Authentication a, Permission permission) {
         if(a==SYSTEM) {
@@ -48,15 +63,96 @@ public abstract class SidACL extends ACL {
                 LOGGER.fine("hasPermission("+a+","+permission+")=>SYSTEM user has full access");
             return true;
         }
+
+        Decisions d = isDecisionCacheable() ? getDecisions(a) : null;
+        if (d!=null) {
+            Boolean b = d.map.get(permission);
+            if (b!=null)    return b;
+        }
+
         Boolean b = _hasPermission(a,permission);
 
         if(LOGGER.isLoggable(FINE))
             LOGGER.fine("hasPermission("+a+","+permission+")=>"+(b==null?"null, thus false":b));
 
         if(b==null) b=false;    // default to rejection
+        if (d!=null)    d.map.put(permission,b);
         return b;
     }
 
+    /**
+     * Whether the decisions of this ACL can be cached.
+     *
+     * <p>
+     * Return true only if {@link #_hasPermission(Authentication, Permission)} depends on nothing but
+     * its parameters and state that calls {@link #invalidateDecisions()} when it changes.
+     *
+     * @since 2.2.2
+     */
+    protected boolean isDecisionCacheable() {
+        return false;
+    }
+
+    /**
+     * What the decisions depend on: the principal and the granted authorities.
+     * Two authentication objects of the same user, such as those of two HTTP requests, share the key.
+     */
+    private static List<String> keyOf(Authentication a) {
+        GrantedAuthority[] authorities = a.getAuthorities();
+        List<String> key = new ArrayList<String>(authorities.length+1);
+        key.add(new PrincipalSid(a).getPrincipal());
+        for (GrantedAuthority ga : authorities)
+            key.add(ga.getAuthority());
+        return key;
+    }
+
+    private Decisions getDecisions(Authentication auth) {
+        List<String> a = keyOf(auth);
+        int g = GENERATION.get();
+        Decisions d = decisions.get(a);
+        if (d!=null && d.generation==g)
+            return d;
+
+        if (d==null && decisions.size()>=MAX_CACHED_AUTHENTICATIONS)
+            decisions.clear();  // crude, but the cache refills quickly
+        Decisions n = new Decisions(g);
+        if (d==null) {
+            d = decisions.putIfAbsent(a,n);
+            return d!=null && d.generation==g ? d : n;
+        }
+        decisions.replace(a,d,n);
+        return n;
+    }
+
+    /**
+     * Drops the cached decisions of all the {@link SidACL}s. Called when the authorization
+     * strategy, the permissions granted by it, or the {@linkplain Permission#setEnabled(boolean) enabled permissions} change.
+     *
+     * @since 2.2.2
+     */
+    public static void invalidateDecisions() {
+        GENERATION.incrementAndGet();
+    }
+
+    private static final class Decisions {
+        /**
+         * Value of {@link SidACL#GENERATION} when this was created. Stale instances are replaced lazily.
+         */
+        final int generation;
+        final ConcurrentMap<Permission,Boolean> map = new ConcurrentHashMap<Permission,Boolean>();
+
+        Decisions(int generation) {
+            this.generation = generation;
+        }
+    }
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    /**
+     * Number of authentications whose decisions are kept per ACL.
+     */
+    public static int MAX_CACHED_AUTHENTICATIONS = Integer.getInteger(SidACL.class.getName()+".maxCachedAuthentications",256);
+
     /**
      * Implementation that backs up {@link #hasPermission(Authentication, Permission)}.
      *
@@ -145,6 +241,11 @@ public abstract class SidACL extends ACL {
                 if(b!=null) return b;
                 return parent.hasPermission(p,permission);
             }
+
+            @Override
+            protected boolean isDecisionCacheable() {
+                return child.isDecisionCacheable() && parent.isDecisionCacheable();
+            }
         };
     }
 
@@ -0,0 +1,294 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.slaves;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.model.AbstractBuild;
+import hudson.model.Computer;
+import hudson.remoting.VirtualChannel;
+import hudson.util.io.ParallelDeleter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers which workspaces exist on a {@link Computer}, when they were last used, and by which build.
+ *
+ * <p>
+ * The index is kept up to date by {@link WorkspaceList} as builds acquire and release workspaces,
+ * so that {@link hudson.model.WorkspaceCleanupThread} can decide what to delete without visiting
+ * every directory over the channel. Since the index lives in memory, it is seeded once per
+ * connection with a single listing of the workspace root (see {@link #seed(FilePath)}).
+ *
+ * <p>
+ * Workspaces are recorded by their full path, since builds can lease custom workspaces
+ * outside the workspace root as well as nested ones inside it, such as those of matrix configurations.
+ * {@link #getRecords(FilePath)} tells which of them lie under a given root.
+ *
+ * <p>
+ * SUBJECT TO CHANGE! Do not use this from plugins directly.
+ *
+ * @since 2.2.2
+ * @see WorkspaceList#getIndex()
+ */
+public final class WorkspaceIndex {
+    /**
+     * What we know about one workspace directory.
+     */
+    public static final class Record {
+        private final String path;
+        private volatile long lastUsed;
+        private volatile String job;
+        private volatile int build;
+
+        private Record(String path, long lastUsed) {
+            this.path = path;
+            this.lastUsed = lastUsed;
+        }
+
+        /**
+         * Full path of the workspace directory, with '/' as the separator.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * When the workspace was last released by a build, or the directory timestamp
+         * if no build has used it since the index was seeded.
+         */
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        /**
+         * Full name of the job that last used this workspace, or null if unknown.
+         */
+        public String getJob() {
+            return job;
+        }
+
+        /**
+         * Number of the build that last used this workspace, or 0 if unknown.
+         */
+        public int getBuild() {
+            return build;
+        }
+
+        @Override
+        public String toString() {
+            return path+(job!=null ? " used by "+job+" #"+build : "");
+        }
+    }
+
+    private final Map<String,Record> records = new ConcurrentHashMap<String,Record>();
+    private volatile boolean seeded;
+
+    /**
+     * Called when a build starts using the given workspace.
+     */
+    public void recordBuild(FilePath ws, AbstractBuild<?,?> build) {
+        Record r = getOrCreate(ws);
+        r.job = build.getProject().getFullName();
+        r.build = build.getNumber();
+        r.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Called by {@link WorkspaceList} whenever a lease is acquired or released.
+     */
+    /*package*/ void touch(FilePath ws) {
+        getOrCreate(ws).lastUsed = System.currentTimeMillis();
+    }
+
+    private Record getOrCreate(FilePath ws) {
+        String path = normalize(ws.getRemote());
+        Record r = records.get(path);
+        if (r==null) {
+            r = new Record(path,System.currentTimeMillis());
+            records.put(path,r);
+        }
+        return r;
+    }
+
+    public Record get(FilePath ws) {
+        return records.get(normalize(ws.getRemote()));
+    }
+
+    public Collection<Record> getRecords() {
+        return new ArrayList<Record>(records.values());
+    }
+
+    /**
+     * Gets the records of the workspaces under the given root, keyed by their paths relative to it
+     * (like "job" or "job/label/linux"). Workspaces outside the root are left out.
+     */
+    public Map<String,Record> getRecords(FilePath root) {
+        Map<String,Record> r = new TreeMap<String,Record>();
+        for (Record rec : records.values()) {
+            String rel = relativize(root,rec.path);
+            if (rel!=null)
+                r.put(rel,rec);
+        }
+        return r;
+    }
+
+    /**
+     * Uses '/' as the separator and drops the trailing one, so that paths leased through different
+     * {@link FilePath}s compare equal.
+     */
+    /*package*/ static String normalize(String path) {
+        String p = path.replace('\\','/');
+        while (p.length()>1 && p.endsWith("/"))
+            p = p.substring(0,p.length()-1);
+        return p;
+    }
+
+    /**
+     * Gets the path relative to the root, or null if it isn't strictly under the root.
+     */
+    /*package*/ static String relativize(FilePath root, String path) {
+        String prefix = normalize(root.getRemote())+'/';
+        if (!path.startsWith(prefix) || path.length()==prefix.length())
+            return null;
+        return path.substring(prefix.length());
+    }
+
+    /**
+     * Whether {@link #seed(FilePath)} has been run since this index was created.
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Populates the index with the directories that exist under the given workspace root,
+     * in a single remote call. Existing records are kept as they are more accurate than
+     * the directory timestamps.
+     *
+     * @return
+     *      the names of left-over trash directories found under the root, which should be deleted.
+     */
+    public List<String> seed(FilePath root) throws IOException, InterruptedException {
+        Map<String,Long> dirs = root.act(new ListWorkspaces());
+        List<String> trash = new ArrayList<String>();
+        if (dirs!=null) {
+            for (Map.Entry<String,Long> e : dirs.entrySet()) {
+                if (ParallelDeleter.isTrash(e.getKey())) {
+                    trash.add(e.getKey());
+                    continue;
+                }
+                String path = normalize(root.child(e.getKey()).getRemote());
+                if (!records.containsKey(path))
+                    records.put(path,new Record(path,e.getValue()));
+            }
+        }
+        seeded = true;
+        return trash;
+    }
+
+    /**
+     * Deletes the given workspaces under the root in a single remote call, and drops them,
+     * along with the workspaces nested inside them, from the index.
+     *
+     * @param names
+     *      paths relative to the root, as keyed by {@link #getRecords(FilePath)}.
+     * @return
+     *      map from the names that failed to be deleted to the error message.
+     */
+    public Map<String,String> delete(FilePath root, List<String> names) throws IOException, InterruptedException {
+        if (names.isEmpty())
+            return new HashMap<String,String>();
+        Map<String,String> failures = root.act(new DeleteWorkspaces(names));
+        for (String n : names) {
+            if (failures.containsKey(n))
+                continue;
+            String path = normalize(root.child(n).getRemote());
+            for (Iterator<String> itr = records.keySet().iterator(); itr.hasNext();) {
+                String p = itr.next();
+                if (p.equals(path) || p.startsWith(path+'/'))
+                    itr.remove();
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Lists the sub-directories of the workspace root along with their timestamps.
+     */
+    private static final class ListWorkspaces implements FileCallable<Map<String,Long>> {
+        public Map<String,Long> invoke(File root, VirtualChannel channel) throws IOException {
+            File[] dirs = root.listFiles();
+            if (dirs==null)     return null;
+            Map<String,Long> r = new HashMap<String,Long>();
+            for (File d : dirs)
+                if (d.isDirectory())
+                    r.put(d.getName(),d.lastModified());
+            return r;
+        }
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Moves the given workspaces out of the way and deletes them in the background.
+     */
+    private static final class DeleteWorkspaces implements FileCallable<Map<String,String>> {
+        private final List<String> names;
+
+        DeleteWorkspaces(List<String> names) {
+            this.names = new ArrayList<String>(names);
+        }
+
+        public Map<String,String> invoke(File root, VirtualChannel channel) throws IOException, InterruptedException {
+            Map<String,String> failures = new HashMap<String,String>();
+            for (String n : names) {
+                File d = new File(root,n);
+                try {
+                    if (ParallelDeleter.isTrash(n))
+                        ParallelDeleter.get().deleteRecursive(d);
+                    else
+                        ParallelDeleter.get().deleteInBackground(d);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to delete "+d, e);
+                    failures.put(n,e.toString());
+                }
+            }
+            return failures;
+        }
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceIndex.class.getName());
+}
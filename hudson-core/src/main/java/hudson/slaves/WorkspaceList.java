@@ -146,9 +146,44 @@ public final class WorkspaceList {
 
     private final Map<FilePath,Entry> inUse = new HashMap<FilePath,Entry>();
 
+    private final WorkspaceIndex index = new WorkspaceIndex();
+
     public WorkspaceList() {
     }
 
+    /**
+     * Gets the index of all the workspaces known on this computer, including those not in use.
+     *
+     * @since 2.2.2
+     */
+    public WorkspaceIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Checks if the given workspace is currently leased.
+     *
+     * @since 2.2.2
+     */
+    public synchronized boolean isInUse(FilePath p) {
+        return inUse.containsKey(p);
+    }
+
+    /**
+     * Checks if the given directory, a directory inside it, or a directory containing it is currently leased.
+     *
+     * @since 2.2.2
+     */
+    public synchronized boolean isInUseWithin(FilePath dir) {
+        String path = WorkspaceIndex.normalize(dir.getRemote());
+        for (FilePath p : inUse.keySet()) {
+            String leased = WorkspaceIndex.normalize(p.getRemote());
+            if (leased.equals(path) || leased.startsWith(path+'/') || path.startsWith(leased+'/'))
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Allocates a workspace by adding some variation to the given base to make it unique.
      */
@@ -172,6 +207,7 @@ public final class WorkspaceList {
         Entry old = inUse.put(p, new Entry(p, false));
         if (old!=null)
             throw new AssertionError("Tried to record a workspace already owned: "+old);
+        index.touch(p);
         return lease(p);
     }
 
@@ -182,6 +218,7 @@ public final class WorkspaceList {
         Entry old = inUse.remove(p);
         if (old==null)
             throw new AssertionError("Releasing unallocated workspace "+p);
+        index.touch(p);
         notifyAll();
     }
 
@@ -207,6 +244,7 @@ public final class WorkspaceList {
             wait();
         log("acquired "+p);
         inUse.put(p,new Entry(p,quick));
+        index.touch(p);
         return lease(p);
     }
 
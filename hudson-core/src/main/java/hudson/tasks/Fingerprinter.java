@@ -37,6 +37,7 @@ import hudson.model.Fingerprint;
 import hudson.model.Fingerprint.BuildPtr;
 import hudson.model.FingerprintMap;
 import hudson.model.Hudson;
+import hudson.model.PersistenceService;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.RunAction;
@@ -194,6 +195,7 @@ public class Fingerprinter extends Recorder implements Serializable {
             }
         });
 
+        List<Fingerprint> added = new ArrayList<Fingerprint>(records.size());
         for (Record r : records) {
             Fingerprint fp = r.addRecord(build);
             if(fp==null) {
@@ -201,8 +203,14 @@ public class Fingerprinter extends Recorder implements Serializable {
                 continue;
             }
             fp.add(build);
+            added.add(fp);
             record.put(r.relativePath,fp.getHashString());
         }
+
+        // Fingerprint.add() saves in the background, coalesced with the other builds recording the same files.
+        // wait for those saves so that their failures are reported with the build
+        for (Fingerprint fp : added)
+            PersistenceService.get().await(fp);
     }
 
     @Extension
@@ -0,0 +1,442 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.triggers;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.SCMedItem;
+import hudson.model.listeners.ItemListener;
+import hudson.scm.SCM;
+import hudson.triggers.SCMTrigger.Runner;
+import hudson.util.TimeUnit2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides the order in which {@link SCMTrigger}s poll.
+ *
+ * <p>
+ * Like {@link hudson.util.SequentialExecutionQueue}, which it replaces for polling, no job is
+ * polled twice at once and repeated requests for a job waiting in the queue are merged.
+ * In addition:
+ * <ul>
+ * <li>Pending polls of jobs that share a repository (see {@link SCM#getRepositoryKey()}) are
+ *     merged into one task, which polls the jobs one after another on a single thread.
+ * <li>Instead of first-come first-served, the task with the lowest rank goes first. The rank is
+ *     the submission time, delayed by the average polling time of its jobs so that cheap polls
+ *     get ahead of expensive ones, and advanced if one of its jobs found changes recently.
+ * <li>The number of tasks running against the same host (see {@link SCM#getRepositoryHost()})
+ *     can be limited, so that one slow server doesn't take up all the threads.
+ * </ul>
+ *
+ * <p>
+ * The polling time of each job is recorded in {@link PollingStatistics}.
+ *
+ * @since 2.2.2
+ */
+public final class PollingScheduler {
+    private ExecutorService executors;
+    /**
+     * 0 for unbounded.
+     */
+    private int maximumThreads;
+    /**
+     * 0 for unbounded.
+     */
+    private int maximumPerHost;
+
+    // guarded by this
+    private final Map<String,Task> pending = new HashMap<String,Task>();
+    private final Map<String,Task> running = new HashMap<String,Task>();
+    private final Map<String,Integer> hostLoad = new HashMap<String,Integer>();
+
+    /**
+     * Keyed by the full name of the job.
+     */
+    private final Map<String,PollingStatistics> statistics = new ConcurrentHashMap<String,PollingStatistics>();
+
+    public PollingScheduler() {
+        executors = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Gets the underlying executors.
+     */
+    public synchronized ExecutorService getExecutors() {
+        return executors;
+    }
+
+    /**
+     * Sets the number of concurrent polling, in total and per host.
+     *
+     * <p>
+     * When the total changes, the older {@link ExecutorService} is shut down,
+     * but it still completes what it's already doing.
+     *
+     * @param maximumThreads
+     *      0 for unbounded.
+     * @param maximumPerHost
+     *      0 for unbounded.
+     */
+    public synchronized void setLimits(int maximumThreads, int maximumPerHost) {
+        if (this.maximumThreads!=maximumThreads) {
+            ExecutorService old = executors;
+            executors = maximumThreads==0 ? Executors.newCachedThreadPool() : Executors.newFixedThreadPool(maximumThreads);
+            old.shutdown();
+        }
+        this.maximumThreads = maximumThreads;
+        this.maximumPerHost = maximumPerHost;
+        dispatch();
+    }
+
+    /**
+     * Schedules a polling.
+     */
+    public synchronized void execute(Runner runner) {
+        String key = keyOf(runner);
+        Task t = pending.get(key);
+        if (t==null) {
+            t = new Task(key,hostOf(runner));
+            pending.put(key,t);
+        }
+        t.runners.add(runner);     // merged with a pending request for the same job
+        dispatch();
+    }
+
+    /**
+     * Returns true if a polling waited for more than the given time in the queue,
+     * or has been running for that long.
+     */
+    public synchronized boolean isStarving(long threshold) {
+        long now = System.currentTimeMillis();
+        for (Task t : pending.values())
+            if (now-t.submissionTime > threshold)
+                return true;
+        for (Task t : running.values())
+            if (now-t.submissionTime > threshold)
+                return true;
+        return false;
+    }
+
+    /**
+     * Gets the {@link Runner}s that are currently polling.
+     */
+    public synchronized List<Runner> getInProgress() {
+        List<Runner> r = new ArrayList<Runner>();
+        for (Task t : running.values())
+            if (t.current!=null)
+                r.add(t.current);
+        return r;
+    }
+
+    /**
+     * Number of jobs waiting to be polled.
+     */
+    public synchronized int getPendingCount() {
+        int n = 0;
+        for (Task t : pending.values())
+            n += t.runners.size();
+        return n;
+    }
+
+    /**
+     * Gets the polling statistics of all the jobs, sorted by their names.
+     */
+    public SortedMap<String,PollingStatistics> getStatistics() {
+        return new TreeMap<String,PollingStatistics>(statistics);
+    }
+
+    /**
+     * Labels of the histogram buckets of {@link PollingStatistics#getHistogram()}.
+     */
+    public List<String> getBucketLabels() {
+        return PollingStatistics.getBucketLabels();
+    }
+
+    public PollingStatistics getStatistics(SCMedItem job) {
+        return statistics.get(job.getFullName());
+    }
+
+    /**
+     * Records the outcome of a polling.
+     */
+    public void record(SCMedItem job, long duration, boolean changed) {
+        String name = job.getFullName();
+        PollingStatistics s = statistics.get(name);
+        if (s==null) {
+            s = new PollingStatistics();
+            statistics.put(name,s);
+        }
+        s.record(duration,changed);
+    }
+
+    /**
+     * Drops the statistics of a job, such as when it's deleted.
+     */
+    public void forget(String fullName) {
+        statistics.remove(fullName);
+    }
+
+    /**
+     * Starts the best pending tasks as long as threads are available. Caller must have a lock.
+     */
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        while (maximumThreads==0 || running.size()<maximumThreads) {
+            Task best = null;
+            long bestRank = 0;
+            for (Task t : pending.values()) {
+                if (running.containsKey(t.key))
+                    continue;   // this repository is being polled. wait for it to finish
+                if (maximumPerHost>0 && t.host!=null && load(t.host)>=maximumPerHost)
+                    continue;
+                long r = rank(t,now);
+                if (best==null || r<bestRank) {
+                    best = t;
+                    bestRank = r;
+                }
+            }
+            if (best==null)     return;
+
+            pending.remove(best.key);
+            running.put(best.key,best);
+            if (best.host!=null)
+                hostLoad.put(best.host,load(best.host)+1);
+            executors.execute(best);
+        }
+    }
+
+    private long rank(Task t, long now) {
+        long cost = 0, lastChange = 0;
+        for (Runner r : t.runners) {
+            PollingStatistics s = statistics.get(r.getTarget().getFullName());
+            if (s!=null) {
+                cost += s.getAverageDuration();
+                lastChange = Math.max(lastChange,s.getLastChange());
+            }
+        }
+        long rank = t.submissionTime + cost/t.runners.size();
+        if (lastChange>0 && now-lastChange<RECENT_CHANGE)
+            rank -= RECENT_CHANGE_BOOST;
+        return rank;
+    }
+
+    private int load(String host) {
+        Integer i = hostLoad.get(host);
+        return i!=null ? i : 0;
+    }
+
+    private void done(Task t) {
+        synchronized (this) {
+            running.remove(t.key);
+            if (t.host!=null) {
+                int n = load(t.host)-1;
+                if (n>0)    hostLoad.put(t.host,n);
+                else        hostLoad.remove(t.host);
+            }
+            dispatch();
+        }
+    }
+
+    private static String keyOf(Runner r) {
+        SCMedItem job = r.getTarget();
+        SCM scm = job.getScm();
+        String key = scm!=null ? scm.getRepositoryKey() : null;
+        return key!=null ? key : "job:"+job.getFullName();
+    }
+
+    private static String hostOf(Runner r) {
+        SCM scm = r.getTarget().getScm();
+        return scm!=null ? scm.getRepositoryHost() : null;
+    }
+
+    /**
+     * Jobs that share a repository, polled one after another.
+     */
+    private final class Task implements Runnable {
+        final String key;
+        final String host;
+        /**
+         * Modified only while the task is pending.
+         */
+        final Set<Runner> runners = new LinkedHashSet<Runner>();
+        final long submissionTime = System.currentTimeMillis();
+        volatile Runner current;
+
+        Task(String key, String host) {
+            this.key = key;
+            this.host = host;
+        }
+
+        public void run() {
+            try {
+                for (Runner r : runners) {
+                    current = r;
+                    try {
+                        r.run();
+                    } catch (Throwable e) {
+                        LOGGER.log(Level.WARNING, "Polling of "+r.getTarget().getFullName()+" failed", e);
+                    }
+                }
+            } finally {
+                current = null;
+                done(this);
+            }
+        }
+    }
+
+    /**
+     * Polling time of one job, with a histogram of how long each polling took.
+     */
+    public static final class PollingStatistics {
+        /**
+         * Upper bounds of the histogram buckets, in milliseconds. The last bucket is open-ended.
+         */
+        private static final long[] BUCKETS = {
+            TimeUnit2.SECONDS.toMillis(1),
+            TimeUnit2.SECONDS.toMillis(5),
+            TimeUnit2.SECONDS.toMillis(30),
+            TimeUnit2.MINUTES.toMillis(1),
+            TimeUnit2.MINUTES.toMillis(5),
+            TimeUnit2.MINUTES.toMillis(30)
+        };
+
+        private final int[] histogram = new int[BUCKETS.length+1];
+        private int count;
+        private long total;
+        private long max;
+        private long lastPoll;
+        private long lastChange;
+
+        /*package*/ synchronized void record(long duration, boolean changed) {
+            int i = 0;
+            while (i<BUCKETS.length && duration>=BUCKETS[i])
+                i++;
+            histogram[i]++;
+            count++;
+            total += duration;
+            max = Math.max(max,duration);
+            lastPoll = System.currentTimeMillis();
+            if (changed)
+                lastChange = lastPoll;
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+
+        public synchronized long getAverageDuration() {
+            return count==0 ? 0 : total/count;
+        }
+
+        public synchronized long getMaxDuration() {
+            return max;
+        }
+
+        /**
+         * When the last polling finished, or 0 if never.
+         */
+        public synchronized long getLastPoll() {
+            return lastPoll;
+        }
+
+        /**
+         * When a polling last found changes, or 0 if never.
+         */
+        public synchronized long getLastChange() {
+            return lastChange;
+        }
+
+        public String getAverageDurationString() {
+            return Util.getTimeSpanString(getAverageDuration());
+        }
+
+        public String getMaxDurationString() {
+            return Util.getTimeSpanString(getMaxDuration());
+        }
+
+        /**
+         * Number of pollings in each bucket, in the order of {@link #getBucketLabels()}.
+         */
+        public synchronized List<Integer> getHistogram() {
+            List<Integer> r = new ArrayList<Integer>(histogram.length);
+            for (int n : histogram)
+                r.add(n);
+            return r;
+        }
+
+        public static List<String> getBucketLabels() {
+            return BUCKET_LABELS;
+        }
+
+        private static final List<String> BUCKET_LABELS;
+
+        static {
+            String[] labels = new String[BUCKETS.length+1];
+            for (int i=0; i<BUCKETS.length; i++)
+                labels[i] = "< "+Util.getTimeSpanString(BUCKETS[i]);
+            labels[BUCKETS.length] = ">= "+Util.getTimeSpanString(BUCKETS[BUCKETS.length-1]);
+            BUCKET_LABELS = Collections.unmodifiableList(Arrays.asList(labels));
+        }
+    }
+
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onDeleted(Item item) {
+            if (!(item instanceof SCMedItem))   return;
+            SCMTrigger.DescriptorImpl d = Hudson.getInstance().getDescriptorByType(SCMTrigger.DescriptorImpl.class);
+            if (d!=null)
+                d.getScheduler().forget(item.getFullName());
+        }
+    }
+
+    /**
+     * A job that found changes within this period is considered active.
+     */
+    private static final long RECENT_CHANGE = TimeUnit2.HOURS.toMillis(1);
+
+    /**
+     * How much active jobs are moved ahead in the queue.
+     */
+    private static final long RECENT_CHANGE_BOOST = TimeUnit2.MINUTES.toMillis(1);
+
+    private static final Logger LOGGER = Logger.getLogger(PollingScheduler.class.getName());
+}
@@ -40,7 +40,6 @@ import hudson.util.FlushProofOutputStream;
 import hudson.util.FormValidation;
 import hudson.util.StreamTaskListener;
 import hudson.util.TimeUnit2;
-import hudson.util.SequentialExecutionQueue;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.jelly.XMLOutput;
 import org.kohsuke.stapler.StaplerRequest;
@@ -56,7 +55,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.text.DateFormat;
@@ -137,8 +135,10 @@ public class SCMTrigger extends Trigger<SCMedItem> {
          * at once, and multiple polling requests to the same job will be combined into one. Note that because executor isn't aware
          * of a potential workspace lock between a build and a polling, we may end up using executor threads unwisely --- they
          * may block.
+         * <p>
+         * See {@link PollingScheduler} for how jobs sharing a repository are polled together.
          */
-        private transient final SequentialExecutionQueue queue = new SequentialExecutionQueue(Executors.newSingleThreadExecutor());
+        private transient final PollingScheduler queue = new PollingScheduler();
 
         /**
          * Whether the projects should be polled all in one go in the order of dependencies. The default behavior is
@@ -153,6 +153,12 @@ public class SCMTrigger extends Trigger<SCMedItem> {
          */
         private int maximumThreads;
 
+        /**
+         * Max number of concurrent polling against one repository host.
+         * 0 for unbounded.
+         */
+        private int maximumPerHost;
+
         public DescriptorImpl() {
             load();
             resizeThreadPool();
@@ -190,7 +196,16 @@ public class SCMTrigger extends Trigger<SCMedItem> {
          * Gets the snapshot of {@link Runner}s that are performing polling.
          */
         public List<Runner> getRunners() {
-            return Util.filter(queue.getInProgress(),Runner.class);
+            return queue.getInProgress();
+        }
+
+        /**
+         * Gets the scheduler of the polling, which also keeps the polling statistics.
+         *
+         * @since 2.2.2
+         */
+        public PollingScheduler getScheduler() {
+            return queue;
         }
 
         /**
@@ -231,12 +246,36 @@ public class SCMTrigger extends Trigger<SCMedItem> {
             resizeThreadPool();
         }
 
+        /**
+         * Gets the number of concurrent polling against one repository host.
+         *
+         * @return
+         *      0 if unlimited.
+         * @since 2.2.2
+         */
+        public int getPollingPerHostCount() {
+            return maximumPerHost;
+        }
+
+        /**
+         * Sets the number of concurrent polling against one repository host.
+         * @param n zero or less means unlimited, maximum is 100
+         * @since 2.2.2
+         */
+        public void setPollingPerHostCount(int n) {
+            if(n<0)     n=0;
+            if(n>100)   n=100;
+
+            maximumPerHost = n;
+
+            resizeThreadPool();
+        }
+
         /**
          * Update the {@link ExecutorService} instance.
          */
         /*package*/ synchronized void resizeThreadPool() {
-            queue.setExecutors(
-                    (maximumThreads==0 ? Executors.newCachedThreadPool() : Executors.newFixedThreadPool(maximumThreads)));
+            queue.setLimits(maximumThreads,maximumPerHost);
         }
 
         @Override
@@ -247,6 +286,12 @@ public class SCMTrigger extends Trigger<SCMedItem> {
             else
                 setPollingThreadCount(Integer.parseInt(t));
 
+            t = json.optString("pollingPerHostCount",null);
+            if(t==null || t.length()==0)
+                setPollingPerHostCount(0);
+            else
+                setPollingPerHostCount(Integer.parseInt(t));
+
             // Save configuration
             save();
 
@@ -258,6 +303,10 @@ public class SCMTrigger extends Trigger<SCMedItem> {
                 return FormValidation.ok();
             return FormValidation.validateNonNegativeInteger(value);
         }
+
+        public FormValidation doCheckPollingPerHostCount(@QueryParameter String value) {
+            return doCheckPollingThreadCount(value);
+        }
     }
 
     @Extension
@@ -456,7 +505,9 @@ public class SCMTrigger extends Trigger<SCMedItem> {
             Thread.currentThread().setName("SCM polling for "+job);
             try {
                 startTime = System.currentTimeMillis();
-                if(runPolling()) {
+                boolean changed = runPolling();
+                getDescriptor().getScheduler().record(job,System.currentTimeMillis()-startTime,changed);
+                if(changed) {
                     AbstractProject p = job.asProject();
                     String name = " #"+p.getNextBuildNumber();
                     SCMTriggerCause cause;
@@ -481,7 +532,7 @@ public class SCMTrigger extends Trigger<SCMedItem> {
             return job;
         }
 
-        // as per the requirement of SequentialExecutionQueue, value equality is necessary
+        // as per the requirement of PollingScheduler, value equality is necessary
         @Override
         public boolean equals(Object that) {
             return that instanceof Runner && job()==((Runner)that).job();
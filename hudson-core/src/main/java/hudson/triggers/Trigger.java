@@ -44,6 +44,7 @@ import hudson.model.TopLevelItem;
 import hudson.model.TopLevelItemDescriptor;
 import hudson.scheduler.CronTab;
 import hudson.scheduler.CronTabList;
+import hudson.scheduler.Hash;
 import hudson.util.DoubleLaunchChecker;
 import java.io.InvalidObjectException;
 import java.io.ObjectStreamException;
@@ -83,6 +84,15 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
      */
     public void start(J project, boolean newInstance) {
         this.job = project;
+        try {
+            // now that we know the job, resolve "H" in the spec
+            tabs = CronTabList.create(spec, Hash.from(project.getFullName()));
+        } catch (ANTLRException e) {
+            // this shouldn't happen since the spec has already been parsed once
+            LOGGER.log(Level.WARNING, "Failed to parse crontab spec "+spec+" of "+project.getFullName(), e);
+        }
+        if (project instanceof AbstractProject)
+            TriggerScheduler.get().markDirty((AbstractProject<?,?>)project);
     }
 
     /**
@@ -194,7 +204,8 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
                 LOGGER.fine("cron checking "+cal.getTime().toLocaleString());
 
                 try {
-                    checkTriggers(cal);
+                    checkSynchronousPolling(Hudson.getInstance());
+                    TriggerScheduler.get().tick(cal);
                 } catch (Throwable e) {
                     LOGGER.log(Level.WARNING,"Cron thread throw an exception",e);
                     // bug in the code. Don't let the thread die.
@@ -208,9 +219,43 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
 
     private static Future previousSynchronousPolling;
 
+    /**
+     * Checks every trigger of every project against the given time.
+     *
+     * <p>
+     * {@link Cron} no longer calls this method, as {@link TriggerScheduler} only visits the
+     * triggers that are due.
+     */
     public static void checkTriggers(final Calendar cal) {
         Hudson inst = Hudson.getInstance();
+        SCMTrigger.DescriptorImpl scmd = checkSynchronousPolling(inst);
+
+        // Process all triggers, except SCMTriggers when synchronousPolling is set
+        for (AbstractProject<?,?> p : inst.getAllItems(AbstractProject.class)) {
+            for (Trigger t : p.getTriggers().values()) {
+                if (! (t instanceof SCMTrigger && scmd.synchronousPolling)) {
+                    LOGGER.fine("cron checking "+p.getName());
+
+                    if (t.tabs.check(cal)) {
+                        LOGGER.config("cron triggered "+p.getName());
+                        try {
+                            t.run();
+                        } catch (Throwable e) {
+                            // t.run() is a plugin, and some of them throw RuntimeException and other things.
+                            // don't let that cancel the polling activity. report and move on.
+                            LOGGER.log(Level.WARNING, t.getClass().getName()+".run() failed for "+p.getName(),e);
+                        }
+                    }
+                }
+            }
+        }
+    }
 
+    /**
+     * If synchronous polling is enabled, submits the global polling of all the projects
+     * unless the previous one is still running.
+     */
+    private static SCMTrigger.DescriptorImpl checkSynchronousPolling(Hudson inst) {
         // Are we using synchronous polling?
         SCMTrigger.DescriptorImpl scmd = inst.getDescriptorByType(SCMTrigger.DescriptorImpl.class);
         if (scmd.synchronousPolling) {
@@ -236,26 +281,7 @@ public abstract class Trigger<J extends Item> implements Describable<Trigger<?>>
                 LOGGER.fine("synchronous polling has detected unfinished jobs, will not trigger additional jobs.");
             }
         }
-
-        // Process all triggers, except SCMTriggers when synchronousPolling is set
-        for (AbstractProject<?,?> p : inst.getAllItems(AbstractProject.class)) {
-            for (Trigger t : p.getTriggers().values()) {
-                if (! (t instanceof SCMTrigger && scmd.synchronousPolling)) {
-                    LOGGER.fine("cron checking "+p.getName());
-
-                    if (t.tabs.check(cal)) {
-                        LOGGER.config("cron triggered "+p.getName());
-                        try {
-                            t.run();
-                        } catch (Throwable e) {
-                            // t.run() is a plugin, and some of them throw RuntimeException and other things.
-                            // don't let that cancel the polling activity. report and move on.
-                            LOGGER.log(Level.WARNING, t.getClass().getName()+".run() failed for "+p.getName(),e);
-                        }
-                    }
-                }
-            }
-        }
+        return scmd;
     }
 
     private static final Logger LOGGER = Logger.getLogger(Trigger.class.getName());
@@ -0,0 +1,404 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.triggers;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.ItemIndex;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the next fire time of every cron-based {@link Trigger} in a priority queue, so that
+ * {@link Trigger.Cron} only visits the triggers that are actually due instead of checking
+ * every trigger of every project each minute.
+ *
+ * <p>
+ * The next fire time is computed with {@link hudson.scheduler.CronTabList#ceil(long)} when a
+ * trigger is {@linkplain Trigger#start(Item, boolean) started}, and again each time it fires.
+ * Projects whose configuration changes are marked dirty, along with the projects that inherit their
+ * triggers through cascading, and rescheduled on the next tick. The whole queue is also rebuilt
+ * periodically as a safety net for triggers that change without notice.
+ *
+ * <p>
+ * Due triggers are run on a small pool of worker threads, so that one slow {@link Trigger#run()}
+ * doesn't hold up the rest.
+ *
+ * @since 2.2.2
+ */
+public final class TriggerScheduler {
+    /**
+     * Number of threads that run the due triggers.
+     */
+    public static final int WORKERS = Integer.getInteger(TriggerScheduler.class.getName()+".workers",4);
+
+    /**
+     * How often the whole schedule is rebuilt from scratch, in minutes.
+     */
+    public static int RESYNC_MINUTES = Integer.getInteger(TriggerScheduler.class.getName()+".resyncMinutes",60);
+
+    private static final TriggerScheduler INSTANCE = new TriggerScheduler();
+
+    public static TriggerScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * One scheduled trigger.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final AbstractProject<?,?> project;
+        final Trigger<?> trigger;
+        /**
+         * Next fire time, truncated to the minute.
+         */
+        long next;
+        boolean cancelled;
+
+        Entry(AbstractProject<?,?> project, Trigger<?> trigger, long next) {
+            this.project = project;
+            this.trigger = trigger;
+            this.next = next;
+        }
+
+        public int compareTo(Entry that) {
+            return next<that.next ? -1 : next==that.next ? 0 : 1;
+        }
+    }
+
+    // all guarded by this
+    private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+    private final Map<AbstractProject<?,?>,List<Entry>> entries = new HashMap<AbstractProject<?,?>,List<Entry>>();
+    private final Set<AbstractProject<?,?>> dirty = new HashSet<AbstractProject<?,?>>();
+    private boolean resyncRequested = true;
+    private long lastResync;
+
+    private final AtomicLong missedTicks = new AtomicLong();
+    private final AtomicLong fired = new AtomicLong();
+
+    private final ExecutorService workers;
+
+    private TriggerScheduler() {
+        this(Executors.newFixedThreadPool(WORKERS, new ExceptionCatchingThreadFactory(new DaemonThreadFactory())));
+    }
+
+    /*package*/ TriggerScheduler(ExecutorService workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Requests the given project to be rescheduled on the next tick.
+     */
+    public synchronized void markDirty(AbstractProject<?,?> project) {
+        dirty.add(project);
+    }
+
+    /**
+     * Requests the given project and its cascading children, direct or indirect, to be rescheduled
+     * on the next tick, since the children inherit the triggers they don't override.
+     */
+    public void markDirtyWithCascadingChildren(AbstractProject<?,?> project) {
+        Hudson h = Hudson.getInstance();
+        ItemIndex.Snapshot items = h!=null ? h.getItemIndex().getSnapshot() : null;
+
+        Set<AbstractProject<?,?>> r = new HashSet<AbstractProject<?,?>>();
+        Stack<AbstractProject<?,?>> q = new Stack<AbstractProject<?,?>>();
+        q.push(project);
+        while (!q.isEmpty()) {
+            AbstractProject<?,?> p = q.pop();
+            if (!r.add(p) || items==null)  continue;
+            Set<String> children = p.getCascadingChildrenNames();
+            if (children!=null)
+                for (String name : children) {
+                    Item i = items.get(name);
+                    if (i instanceof AbstractProject)
+                        q.push((AbstractProject<?,?>)i);
+                }
+        }
+
+        synchronized (this) {
+            dirty.addAll(r);
+        }
+    }
+
+    /**
+     * Requests all the projects to be rescheduled on the next tick.
+     */
+    public synchronized void resync() {
+        resyncRequested = true;
+    }
+
+    /**
+     * Drops all the triggers of the given project.
+     */
+    public synchronized void unschedule(AbstractProject<?,?> project) {
+        dirty.remove(project);
+        List<Entry> l = entries.remove(project);
+        if (l!=null)
+            for (Entry e : l)
+                e.cancelled = true;     // removed from the queue lazily
+    }
+
+    /**
+     * Number of ticks that were processed more than a couple of minutes late, because the cron thread
+     * fell behind or the system clock jumped.
+     */
+    public long getMissedTicks() {
+        return missedTicks.get();
+    }
+
+    /**
+     * Number of times a trigger has been run since the start up.
+     */
+    public long getFiredCount() {
+        return fired.get();
+    }
+
+    /**
+     * Number of triggers currently scheduled.
+     */
+    public synchronized int getScheduledCount() {
+        int n = 0;
+        for (List<Entry> l : entries.values())
+            n += l.size();
+        return n;
+    }
+
+    /**
+     * Gets the next time any trigger of the given project fires, or null if none is scheduled.
+     */
+    public synchronized Calendar getNextFireTime(AbstractProject<?,?> project) {
+        List<Entry> l = entries.get(project);
+        if (l==null)    return null;
+        long min = Long.MAX_VALUE;
+        for (Entry e : l)
+            min = Math.min(min,e.next);
+        if (min==Long.MAX_VALUE)    return null;
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(min);
+        return c;
+    }
+
+    /**
+     * Runs all the triggers that are due at the minute designated by the given calendar.
+     * Called by {@link Trigger.Cron} once for every minute.
+     */
+    public void tick(Calendar cal) {
+        long t = truncate(cal.getTimeInMillis());
+        long lag = System.currentTimeMillis()-t;
+        if (lag>2*MINUTE) {
+            missedTicks.incrementAndGet();
+            LOGGER.warning("Cron tick for "+new Date(t)+" is processed "+lag/1000+" seconds late");
+        }
+
+        List<Entry> due = new ArrayList<Entry>();
+        synchronized (this) {
+            if (resyncRequested || t-lastResync>=RESYNC_MINUTES*MINUTE)
+                resyncAll(t);
+            else
+                resyncDirty(t);
+
+            while (!queue.isEmpty() && queue.peek().next<=t) {
+                Entry e = queue.poll();
+                if (e.cancelled)    continue;
+                due.add(e);
+
+                long n = next(e.trigger,t+MINUTE);
+                if (n>=0) {
+                    e.next = n;
+                    queue.add(e);
+                } else {
+                    List<Entry> l = entries.get(e.project);
+                    if (l!=null)    l.remove(e);
+                }
+            }
+        }
+
+        if (due.isEmpty())  return;
+
+        Hudson h = Hudson.getInstance();
+        SCMTrigger.DescriptorImpl scmd = h!=null ? h.getDescriptorByType(SCMTrigger.DescriptorImpl.class) : null;
+        for (final Entry e : due) {
+            // with synchronous polling, SCMTriggers are run by the global polling instead
+            if (e.trigger instanceof SCMTrigger && scmd!=null && scmd.synchronousPolling)
+                continue;
+            workers.execute(new Runnable() {
+                public void run() {
+                    fire(e);
+                }
+            });
+        }
+    }
+
+    private void fire(Entry e) {
+        // the trigger may have been replaced since it was scheduled
+        if (!isAttached(e)) {
+            markDirty(e.project);
+            return;
+        }
+
+        SecurityContextHolder.getContext().setAuthentication(ACL.SYSTEM);
+        try {
+            LOGGER.config("cron triggered "+e.project.getName());
+            fired.incrementAndGet();
+            e.trigger.run();
+        } catch (Throwable x) {
+            // t.run() is a plugin, and some of them throw RuntimeException and other things.
+            // don't let that cancel the polling activity. report and move on.
+            LOGGER.log(Level.WARNING, e.trigger.getClass().getName()+".run() failed for "+e.project.getName(),x);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static boolean isAttached(Entry e) {
+        for (Trigger<?> t : e.project.getTriggersList())
+            if (t==e.trigger)
+                return true;
+        return false;
+    }
+
+    private void resyncAll(long t) {
+        for (List<Entry> l : entries.values())
+            for (Entry e : l)
+                e.cancelled = true;
+        entries.clear();
+        queue.clear();
+        dirty.clear();
+
+        Hudson h = Hudson.getInstance();
+        if (h!=null)
+            for (AbstractProject<?,?> p : h.getItemIndex().getSnapshot().getAll(AbstractProject.class))
+                schedule(p,t);
+
+        resyncRequested = false;
+        lastResync = t;
+    }
+
+    private void resyncDirty(long t) {
+        if (dirty.isEmpty())    return;
+        List<AbstractProject<?,?>> projects = new ArrayList<AbstractProject<?,?>>(dirty);
+        dirty.clear();
+        for (AbstractProject<?,?> p : projects) {
+            unschedule(p);
+            schedule(p,t);
+        }
+    }
+
+    private void schedule(AbstractProject<?,?> p, long t) {
+        List<Entry> l = new ArrayList<Entry>();
+        for (Trigger<?> trigger : p.getTriggersList()) {
+            long n = next(trigger,t);
+            if (n<0)    continue;
+            Entry e = new Entry(p,trigger,n);
+            l.add(e);
+            queue.add(e);
+        }
+        if (!l.isEmpty())
+            entries.put(p,l);
+    }
+
+    /**
+     * Computes the next time on or after t when the trigger fires, or -1 if it never does.
+     */
+    private static long next(Trigger<?> trigger, long t) {
+        if (trigger.tabs==null)     return -1;
+        try {
+            Calendar c = trigger.tabs.ceil(t);
+            return c!=null ? truncate(c.getTimeInMillis()) : -1;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to compute the next fire time of "+trigger.getSpec(), e);
+            return -1;
+        }
+    }
+
+    private static long truncate(long t) {
+        return t-t%MINUTE;
+    }
+
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            get().resync();
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            if (item instanceof AbstractProject)
+                get().markDirty((AbstractProject<?,?>)item);
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            onCreated(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof AbstractProject)
+                get().unschedule((AbstractProject<?,?>)item);
+        }
+    }
+
+    /**
+     * Reschedules a project, and the projects that cascade from it, whenever its configuration is saved.
+     */
+    @Extension
+    public static final class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof AbstractProject)
+                get().markDirtyWithCascadingChildren((AbstractProject<?,?>)o);
+        }
+    }
+
+    private static final long MINUTE = 60*1000;
+
+    private static final Logger LOGGER = Logger.getLogger(TriggerScheduler.class.getName());
+}
@@ -39,13 +39,42 @@ import java.nio.charset.Charset;
  * The write operation is atomic when used for overwriting;
  * it either leaves the original file intact, or it completely rewrites it with new contents.
  *
+ * <p>
+ * Depending on {@link #SYNC}, the contents are also forced to the disk before the rename, so that
+ * a crash of the machine can't leave an empty file behind in place of the original.
+ *
  * @author Kohsuke Kawaguchi
  */
 public class AtomicFileWriter extends Writer {
 
+    /**
+     * How {@link #commit()} makes the contents durable.
+     *
+     * @since 2.2.2
+     */
+    public enum Sync {
+        /**
+         * Leave it to the operating system, the old behavior.
+         */
+        NONE,
+        /**
+         * Each commit forces its own file to the disk, the default.
+         */
+        FILE
+    }
+
+    /**
+     * Durability of the commits, controlled by the {@code hudson.util.AtomicFileWriter.sync} system property.
+     *
+     * @since 2.2.2
+     */
+    public static Sync SYNC = Sync.valueOf(System.getProperty(AtomicFileWriter.class.getName()+".sync",Sync.FILE.name()));
+
     private final Writer core;
+    private final FileOutputStream out;
     private final File tmpFile;
     private final File destFile;
+    private final Sync sync;
 
     /**
      * Writes with UTF-8 encoding.
@@ -59,6 +88,17 @@ public class AtomicFileWriter extends Writer {
      *      File encoding to write. If null, platform default encoding is chosen.
      */
     public AtomicFileWriter(File f, String encoding) throws IOException {
+        this(f,encoding,SYNC);
+    }
+
+    /**
+     * @param encoding
+     *      File encoding to write. If null, platform default encoding is chosen.
+     * @param sync
+     *      How to make the contents durable, instead of {@link #SYNC}.
+     * @since 2.2.2
+     */
+    public AtomicFileWriter(File f, String encoding, Sync sync) throws IOException {
         File dir = f.getParentFile();
         try {
             dir.mkdirs();
@@ -69,7 +109,9 @@ public class AtomicFileWriter extends Writer {
         destFile = f;
         if (encoding==null)
             encoding = Charset.defaultCharset().name();
-        core = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile),encoding));
+        this.sync = sync;
+        out = new FileOutputStream(tmpFile);
+        core = new BufferedWriter(new OutputStreamWriter(out,encoding));
     }
 
     @Override
@@ -106,6 +148,16 @@ public class AtomicFileWriter extends Writer {
     }
 
     public void commit() throws IOException {
+        core.flush();
+        try {
+            if (sync==Sync.FILE)
+                out.getFD().sync();
+        } catch (IOException e) {
+            abort();
+            throw new IOException2("Failed to sync "+tmpFile,e);
+        }
+        // the directory entry written by the rename below can't be forced to the disk from Java.
+        // most file systems order the rename after the data it points to, which is what matters here.
         close();
         if(destFile.exists() && !destFile.delete()) {
             tmpFile.delete();
@@ -43,6 +43,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import net.sf.json.JSONObject;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -71,6 +72,32 @@ import org.kohsuke.stapler.StaplerRequest;
  */
 public class CascadingUtil {
 
+    /**
+     * Incremented whenever a project property or a cascading link changes.
+     * Resolved cascading values remember the version they were computed at.
+     */
+    private static final AtomicLong CASCADING_VERSION = new AtomicLong();
+
+    /**
+     * Returns the current version of the cascading configuration.
+     *
+     * @return version number.
+     * @since 2.2.2
+     */
+    public static long getCascadingVersion() {
+        return CASCADING_VERSION.get();
+    }
+
+    /**
+     * Discards all memoized cascading values, see {@link BaseProjectProperty#getCascadingValue()}.
+     * Has to be called whenever a project property value or a cascading link changes.
+     *
+     * @since 2.2.2
+     */
+    public static void invalidateCascadingValues() {
+        CASCADING_VERSION.incrementAndGet();
+    }
+
     /**
      * Returns job property by specified key.
      *
@@ -328,6 +355,7 @@ public class CascadingUtil {
     private static boolean unlinkProjectFromCascadingParents(ICascadingJob cascadingProject, Set<String> projectsToUnlink)
         throws IOException {
         if (null != cascadingProject && null != projectsToUnlink) {
+            invalidateCascadingValues();
             for (String toUnlink : projectsToUnlink) {
                 cascadingProject.removeCascadingChild(toUnlink);
             }
@@ -349,6 +377,7 @@ public class CascadingUtil {
      */
     public static void linkCascadingProjectsToChild(ICascadingJob cascadingProject, String childProjectName) throws IOException {
         if (cascadingProject != null) {
+            invalidateCascadingValues();
             cascadingProject.addCascadingChild(childProjectName);
             if (cascadingProject.hasCascadingProject()) {
                 linkCascadingProjectsToChild(cascadingProject.getCascadingProject(), childProjectName);
@@ -369,6 +398,7 @@ public class CascadingUtil {
     public static void renameCascadingChildLinks(ICascadingJob cascadingProject, String oldName, String newName)
         throws IOException {
         if (cascadingProject != null) {
+            invalidateCascadingValues();
             cascadingProject.renameCascadingChildName(oldName, newName);
             if (cascadingProject.hasCascadingProject()) {
                 renameCascadingChildLinks(cascadingProject.getCascadingProject(), oldName, newName);
@@ -387,6 +417,7 @@ public class CascadingUtil {
         if (StringUtils.isBlank(newName) || StringUtils.isBlank(oldName)) {
             return;
         }
+        invalidateCascadingValues();
         for (Job job : Hudson.getInstance().getAllItems(Job.class)) {
             if (oldName.equals(job.getCascadingProjectName())) {
                 job.renameCascadingProjectNameTo(newName);
@@ -2,6 +2,7 @@ package hudson.util;
 
 import hudson.Util;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -17,11 +18,22 @@ public abstract class CyclicGraphDetector<N> {
     private final Set<N> visiting = new HashSet<N>();
     private final Stack<N> path = new Stack<N>();
 
+    private final List<N> topologicalOrder = new ArrayList<N>();
+
     public void run(Iterable<? extends N> allNodes) throws CycleDetectedException {
         for (N n : allNodes)
             visit(n);
     }
 
+    /**
+     * Returns all the nodes visited by {@link #run(Iterable)}, each one after all the nodes its edges point to.
+     *
+     * @since 2.2.2
+     */
+    public List<N> getSorted() {
+        return topologicalOrder;
+    }
+
     /**
      * List up edges from the given node (by listing nodes that those edges point to.)
      *
@@ -43,6 +55,7 @@ public abstract class CyclicGraphDetector<N> {
         }
         visiting.remove(p);
         path.pop();
+        topologicalOrder.add(p);
     }
 
     private void detectedCycle(N q) throws CycleDetectedException {
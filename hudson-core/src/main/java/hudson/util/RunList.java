@@ -38,7 +38,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -90,36 +89,47 @@ public class RunList<R extends Run> extends ArrayList<R> {
      * Filter the list to non-successful builds only.
      */
     public RunList<R> failureOnly() {
-        for (Iterator<R> itr = iterator(); itr.hasNext();) {
-            Run r = itr.next();
-            if(r.getResult()==Result.SUCCESS)
-                itr.remove();
-        }
-        return this;
+        return retain(new Function1<Boolean,R>() {
+            public Boolean call(R r) {
+                return r.getResult()!=Result.SUCCESS;
+            }
+        });
     }
 
     /**
      * Filter the list to builds on a single node only
      */
-    public RunList<R> node(Node node) {
-        for (Iterator<R> itr = iterator(); itr.hasNext();) {
-            Run r = itr.next();
-            if (!(r instanceof AbstractBuild) || ((AbstractBuild)r).getBuiltOn()!=node) {
-                itr.remove();
+    public RunList<R> node(final Node node) {
+        return retain(new Function1<Boolean,R>() {
+            public Boolean call(R r) {
+                return r instanceof AbstractBuild && ((AbstractBuild)r).getBuiltOn()==node;
             }
-        }
-        return this;
+        });
     }
 
     /**
      * Filter the list to regression builds only.
      */
     public RunList<R> regressionOnly() {
-        for (Iterator<R> itr = iterator(); itr.hasNext();) {
-            Run r = itr.next();
-            if(!r.getBuildStatusSummary().isWorse)
-                itr.remove();
+        return retain(new Function1<Boolean,R>() {
+            public Boolean call(R r) {
+                return r.getBuildStatusSummary().isWorse;
+            }
+        });
+    }
+
+    /**
+     * Removes the builds that don't satisfy the given predicate, in a single pass.
+     * Removing through the iterator one by one would shift the rest of the list every time.
+     */
+    private RunList<R> retain(Function1<Boolean,R> predicate) {
+        int j=0;
+        for (int i=0; i<size(); i++) {
+            R r = get(i);
+            if (predicate.call(r))
+                set(j++,r);
         }
+        removeRange(j,size());
         return this;
     }
 
@@ -163,24 +173,23 @@ public class RunList<R extends Run> extends ArrayList<R> {
         GregorianCalendar threshold = new GregorianCalendar();
         threshold.add(Calendar.DAY_OF_YEAR,-7);
 
-        int count=0;
-
-        for (Iterator<R> itr = iterator(); itr.hasNext();) {
-            R r = itr.next();
-            if(r.isBuilding()) {
-                // can't publish on-going builds
-                itr.remove();
-                continue;
+        final long t = threshold.getTimeInMillis();
+
+        return retain(new Function1<Boolean,R>() {
+            private int count=0;
+            public Boolean call(R r) {
+                if(r.isBuilding()) {
+                    // can't publish on-going builds
+                    return false;
+                }
+                // at least put 10 items
+                if(count<10) {
+                    count++;
+                    return true;
+                }
+                // anything older than 7 days will be ignored
+                return r.getTimeInMillis()>=t;
             }
-            // at least put 10 items
-            if(count<10) {
-                count++;
-                continue;
-            }
-            // anything older than 7 days will be ignored
-            if(r.getTimestamp().before(threshold))
-                itr.remove();
-        }
-        return this;
+        });
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache whose entries expire a fixed time after they are put.
+ * When full, the least recently used entry is evicted.
+ *
+ * <p>
+ * The number of hits and misses is kept so that it can be shown to the administrator.
+ *
+ * @param <K> key type
+ * @param <V> value type. Null values aren't cached.
+ * @since 2.2.2
+ */
+public final class TimedCache<K,V> {
+    private final int maxSize;
+    private final long ttl;
+
+    // guarded by this
+    private final LinkedHashMap<K,Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static final class Entry<V> {
+        final V value;
+        final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * @param maxSize
+     *      Maximum number of entries.
+     * @param ttl
+     *      How long an entry stays valid, in milliseconds.
+     */
+    public TimedCache(final int maxSize, long ttl) {
+        if (maxSize<=0 || ttl<=0)
+            throw new IllegalArgumentException("size="+maxSize+" ttl="+ttl);
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<K,Entry<V>>(16,0.75f,true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K,Entry<V>> eldest) {
+                return size()>maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached value, or null if there's none or it has expired.
+     */
+    public V get(K key) {
+        V v = null;
+        synchronized (this) {
+            Entry<V> e = entries.get(key);
+            if (e!=null) {
+                if (e.expires-System.currentTimeMillis()>0)
+                    v = e.value;
+                else
+                    entries.remove(key);
+            }
+        }
+        (v!=null ? hits : misses).incrementAndGet();
+        return v;
+    }
+
+    public void put(K key, V value) {
+        if (value==null)    return;
+        Entry<V> e = new Entry<V>(value,System.currentTimeMillis()+ttl);
+        synchronized (this) {
+            entries.put(key,e);
+        }
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * How long an entry stays valid, in milliseconds.
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Percentage of lookups answered from the cache.
+     */
+    public int getHitRatio() {
+        long h = hits.get(), total = h+misses.get();
+        return total==0 ? 0 : (int)(h*100/total);
+    }
+}
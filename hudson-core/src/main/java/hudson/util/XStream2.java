@@ -41,15 +41,19 @@ import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 import com.thoughtworks.xstream.mapper.CannotResolveClassException;
 import hudson.diagnosis.OldDataMonitor;
+import hudson.model.CauseAction;
 import hudson.model.Hudson;
 import hudson.model.Label;
+import hudson.model.ParametersAction;
 import hudson.model.Result;
 import hudson.model.Saveable;
 import hudson.util.xstream.ImmutableMapConverter;
+import hudson.util.xstream.StreamingConverter;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * {@link XStream} enhanced for additional Java5 support and improved robustness.
@@ -85,6 +89,34 @@ public class XStream2 extends XStream {
         return o;
     }
 
+    // the mappings of XStream aren't meant for concurrent updates, so registrations are serialized here.
+    // they aren't guarded against marshalling, which is why PluginManager loads and starts plugins one at a time.
+
+    @Override
+    public synchronized void alias(String name, Class type) {
+        super.alias(name, type);
+    }
+
+    @Override
+    public synchronized void aliasField(String alias, Class definedIn, String fieldName) {
+        super.aliasField(alias, definedIn, fieldName);
+    }
+
+    @Override
+    public synchronized void registerConverter(Converter converter, int priority) {
+        super.registerConverter(converter, priority);
+    }
+
+    @Override
+    public synchronized void processAnnotations(Class type) {
+        super.processAnnotations(type);
+    }
+
+    @Override
+    public synchronized void processAnnotations(Class[] types) {
+        super.processAnnotations(types);
+    }
+
     @Override
     protected Converter createDefaultConverter() {
         // replace default reflection converter
@@ -102,6 +134,7 @@ public class XStream2 extends XStream {
         registerConverter(new CopyOnWriteMap.Tree.ConverterImpl(getMapper()),10); // needs to override MapConverter
         registerConverter(new DescribableList.ConverterImpl(getMapper()),10); // explicitly added to handle subtypes
         registerConverter(new Label.ConverterImpl(),10);
+        registerConverter(new StreamingConverterLookup(),10);
 
         // this should come after all the XStream's default simpler converters,
         // but before reflection-based one kicks in.
@@ -175,40 +208,12 @@ public class XStream2 extends XStream {
                 if(t==null || t.getClassLoader()==null)
                     return null;
                 Class<?> cl = t.getClassLoader().loadClass(t.getName() + "$ConverterImpl");
-                Constructor<?> c = cl.getConstructors()[0];
-
-                Class<?>[] p = c.getParameterTypes();
-                Object[] args = new Object[p.length];
-                for (int i = 0; i < p.length; i++) {
-                    if(p[i]==XStream.class || p[i]==XStream2.class)
-                        args[i] = xstream;
-                    else if(p[i]== Mapper.class)
-                        args[i] = xstream.getMapper();
-                    else
-                        throw new InstantiationError("Unrecognized constructor parameter: "+p[i]);
-
-                }
-                ConverterMatcher cm = (ConverterMatcher)c.newInstance(args);
-                result = cm instanceof SingleValueConverter
-                        ? new SingleValueConverterWrapper((SingleValueConverter)cm)
-                        : (Converter)cm;
+                result = instantiate(cl, xstream);
                 cache.put(t, result);
                 return result;
             } catch (ClassNotFoundException e) {
                 cache.put(t, this);  // See above.. this object in cache represents null
                 return null;
-            } catch (IllegalAccessException e) {
-                IllegalAccessError x = new IllegalAccessError();
-                x.initCause(e);
-                throw x;
-            } catch (InstantiationException e) {
-                InstantiationError x = new InstantiationError();
-                x.initCause(e);
-                throw x;
-            } catch (InvocationTargetException e) {
-                InstantiationError x = new InstantiationError();
-                x.initCause(e);
-                throw x;
             }
         }
 
@@ -225,6 +230,111 @@ public class XStream2 extends XStream {
         }
     }
 
+    /**
+     * Instantiates a converter class whose constructor may have XStream/XStream2 and/or Mapper parameters (or no params).
+     */
+    private static Converter instantiate(Class<?> cl, XStream xstream) {
+        try {
+            Constructor<?> c = cl.getConstructors()[0];
+
+            Class<?>[] p = c.getParameterTypes();
+            Object[] args = new Object[p.length];
+            for (int i = 0; i < p.length; i++) {
+                if(p[i]==XStream.class || p[i]==XStream2.class)
+                    args[i] = xstream;
+                else if(p[i]== Mapper.class)
+                    args[i] = xstream.getMapper();
+                else
+                    throw new InstantiationError("Unrecognized constructor parameter: "+p[i]);
+
+            }
+            ConverterMatcher cm = (ConverterMatcher)c.newInstance(args);
+            return cm instanceof SingleValueConverter
+                    ? new SingleValueConverterWrapper((SingleValueConverter)cm)
+                    : (Converter)cm;
+        } catch (IllegalAccessException e) {
+            IllegalAccessError x = new IllegalAccessError();
+            x.initCause(e);
+            throw x;
+        } catch (InstantiationException e) {
+            InstantiationError x = new InstantiationError();
+            x.initCause(e);
+            throw x;
+        } catch (InvocationTargetException e) {
+            InstantiationError x = new InstantiationError();
+            x.initCause(e);
+            throw x;
+        }
+    }
+
+    /**
+     * Hand-written converters for the types persisted most often, keyed by the exact type they convert.
+     */
+    private static final ConcurrentMap<Class,Class<? extends Converter>> STREAMING_CONVERTERS =
+            new ConcurrentHashMap<Class,Class<? extends Converter>>();
+
+    /**
+     * Disables the converters registered with {@link #addStreamingConverter(Class, Class)} for the
+     * {@link XStream2} instances created afterward, falling back to {@link RobustReflectionConverter}.
+     *
+     * @since 2.2.2
+     */
+    public static boolean DISABLE_STREAMING_CONVERTERS = Boolean.getBoolean(XStream2.class.getName()+".disableStreamingConverters");
+
+    static {
+        addStreamingConverter(CauseAction.class, CauseAction.StreamingConverterImpl.class);
+        addStreamingConverter(ParametersAction.class, ParametersAction.StreamingConverterImpl.class);
+    }
+
+    /**
+     * Registers a hand-written converter for objects of exactly the given type, to be used instead of the
+     * reflection based one. The converter must produce and accept the same XML as {@link RobustReflectionConverter},
+     * see {@link StreamingConverter}.
+     *
+     * <p>
+     * Each {@link XStream2} instance looks up the converter of a type only once, so this needs to happen
+     * before the type is first persisted.
+     *
+     * @param converter
+     *      Its constructor may have XStream/XStream2 and/or Mapper parameters (or no params).
+     * @since 2.2.2
+     */
+    public static void addStreamingConverter(Class type, Class<? extends Converter> converter) {
+        STREAMING_CONVERTERS.put(type, converter);
+    }
+
+    /**
+     * Dispatches to the converters registered with {@link #addStreamingConverter(Class, Class)}.
+     */
+    private final class StreamingConverterLookup implements Converter {
+        private final boolean disabled = DISABLE_STREAMING_CONVERTERS;
+        private final ConcurrentHashMap<Class,Converter> cache = new ConcurrentHashMap<Class,Converter>();
+
+        private Converter findConverter(Class t) {
+            Converter result = cache.get(t);
+            if (result == null) {
+                Class<? extends Converter> cl = STREAMING_CONVERTERS.get(t);
+                if (cl == null)
+                    return null;
+                result = instantiate(cl, XStream2.this);
+                cache.put(t, result);
+            }
+            return result;
+        }
+
+        public boolean canConvert(Class type) {
+            return !disabled && type != null && STREAMING_CONVERTERS.containsKey(type);
+        }
+
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            findConverter(source.getClass()).marshal(source,writer,context);
+        }
+
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            return findConverter(context.getRequiredType()).unmarshal(reader,context);
+        }
+    }
+
     /**
      * Create a nested {@code ConverterImpl} subclass that extends this class to run some
      * callback code just after a type is unmarshalled by RobustReflectionConverter.
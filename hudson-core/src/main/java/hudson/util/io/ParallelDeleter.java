@@ -0,0 +1,481 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util.io;
+
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.IOException2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes directory trees with a bounded number of threads.
+ *
+ * <p>
+ * {@link Util#deleteRecursive(File)} walks the tree on the calling thread, one file at a time,
+ * which leaves the disk mostly idle for large workspaces and build directories. This class
+ * splits the tree into directory and file-batch units and runs them on a shared pool, so
+ * the total number of threads hitting the disk stays bounded no matter how many deletions
+ * are in progress.
+ *
+ * <p>
+ * Deletions that a caller waits for and deletions in the background run on two separate pools,
+ * so that a caller never waits behind a large tree that is being deleted in the background.
+ * Only the background pool runs at a low priority and is subject to the throttle.
+ *
+ * <p>
+ * {@link #deleteInBackground(File)} additionally renames the target into a hidden sibling
+ * "trash" directory first, so that the original path disappears instantly and the actual
+ * deletion continues in the background. Left-over trash directories (for example after a crash)
+ * can be recognized by {@link #isTrash(String)}.
+ *
+ * <p>
+ * This class is used on both the master and the slaves, through {@link hudson.FilePath}.
+ *
+ * @since 2.2.2
+ */
+public final class ParallelDeleter {
+    /**
+     * Runs the deletions that a caller is waiting for.
+     */
+    private final ExecutorService foreground;
+    /**
+     * Runs the deletions started by {@link #deleteInBackground(File)} and {@link #deleteTrash(File)}.
+     */
+    private final ExecutorService background;
+    private final int concurrency;
+    private final Throttle throttle;
+    private final List<Progress> inProgress = new CopyOnWriteArrayList<Progress>();
+
+    public ParallelDeleter(int concurrency, int maxDeletionsPerSecond) {
+        this.concurrency = Math.max(1,concurrency);
+        this.throttle = maxDeletionsPerSecond>0 ? new Throttle(maxDeletionsPerSecond) : null;
+        this.foreground = newPool(this.concurrency, "Deleter thread", Thread.NORM_PRIORITY);
+        this.background = newPool(this.concurrency, "Background deleter thread", Thread.MIN_PRIORITY);
+    }
+
+    private static ExecutorService newPool(int size, final String name, final int priority) {
+        return Executors.newFixedThreadPool(size, new ThreadFactory() {
+            private final ThreadFactory core = new ExceptionCatchingThreadFactory(new DaemonThreadFactory());
+            private final AtomicInteger n = new AtomicInteger();
+            public Thread newThread(Runnable r) {
+                Thread t = core.newThread(r);
+                t.setName(name+" #"+n.incrementAndGet());
+                t.setPriority(priority);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the JVM-wide instance, configured through system properties.
+     */
+    public static ParallelDeleter get() {
+        return Holder.INSTANCE;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Deletions that are currently running, including those started by
+     * {@link #deleteInBackground(File)}.
+     */
+    public List<Progress> getInProgress() {
+        return new ArrayList<Progress>(inProgress);
+    }
+
+    /**
+     * Deletes the given file or directory, including all its contents recursively,
+     * and waits for the deletion to complete.
+     *
+     * @throws IOException
+     *      if any part of the tree could not be deleted. The rest of the tree is still
+     *      deleted as much as possible.
+     */
+    public void deleteRecursive(File dir) throws IOException, InterruptedException {
+        Progress p = start(dir, false);
+        p.await();
+    }
+
+    /**
+     * Deletes all the contents of the given directory, but not the directory itself,
+     * and waits for the deletion to complete.
+     */
+    public void deleteContentsRecursive(File dir) throws IOException, InterruptedException {
+        File[] children = dir.listFiles();
+        if(children==null)
+            return;     // the directory didn't exist in the first place
+        List<Progress> all = new ArrayList<Progress>(children.length);
+        for (File child : children)
+            all.add(start(child, false));
+        IOException first = null;
+        for (Progress p : all) {
+            try {
+                p.await();
+            } catch (IOException e) {
+                if(first==null) first = e;
+            }
+        }
+        if(first!=null)
+            throw first;
+    }
+
+    /**
+     * Renames the given directory out of the way and deletes it asynchronously.
+     *
+     * <p>
+     * When this method returns, the original path no longer exists. If the rename fails
+     * (for example because the file is in use on Windows), this method falls back to
+     * {@link #deleteRecursive(File)} and deletes the tree synchronously.
+     *
+     * @return
+     *      the handle to monitor the background deletion, or null if there was nothing to delete
+     *      or the deletion was carried out synchronously.
+     */
+    public Progress deleteInBackground(File dir) throws IOException, InterruptedException {
+        if(!dir.exists() && !Util.isSymlink(dir))
+            return null;
+
+        File trash = trashFor(dir);
+        if(!dir.renameTo(trash)) {
+            LOGGER.fine("Unable to rename "+dir+" to "+trash+"; deleting it in place");
+            deleteRecursive(dir);
+            return null;
+        }
+        return deleteTrash(trash);
+    }
+
+    /**
+     * Starts the deletion of a directory that has already been moved out of the way
+     * (for example by {@link hudson.model.Run#delete()}) without waiting for its completion.
+     */
+    public Progress deleteTrash(File trash) {
+        final Progress p = start(trash, true);
+        p.whenDone(new Runnable() {
+            public void run() {
+                if(p.getError()!=null)
+                    LOGGER.log(Level.WARNING, "Failed to delete "+p.getRoot(), p.getError());
+            }
+        });
+        return p;
+    }
+
+    private File trashFor(File dir) {
+        File parent = dir.getAbsoluteFile().getParentFile();
+        String base = '.'+dir.getName()+TRASH_SUFFIX;
+        File trash = new File(parent, base);
+        for (int i=1; trash.exists(); i++)
+            trash = new File(parent, base+i);
+        return trash;
+    }
+
+    /**
+     * Returns true if the given file name is that of a trash directory created by this class,
+     * that is, "." followed by the original name, ".trash", and an optional number.
+     */
+    public static boolean isTrash(String name) {
+        return TRASH_NAME.matcher(name).matches();
+    }
+
+    private Progress start(File root, boolean inBackground) {
+        Progress p = new Progress(root, inBackground ? background : foreground, inBackground ? throttle : null);
+        inProgress.add(p);
+        Unit u = new Unit(p, null, root);
+        p.executor.execute(new DirTask(u));
+        return p;
+    }
+
+    /**
+     * Tracks the deletion of one tree.
+     */
+    public final class Progress {
+        private final File root;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong dirs = new AtomicLong();
+        private final AtomicReference<IOException> error = new AtomicReference<IOException>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<Runnable> callbacks = new CopyOnWriteArrayList<Runnable>();
+        private final ExecutorService executor;
+        private final Throttle throttle;
+
+        private Progress(File root, ExecutorService executor, Throttle throttle) {
+            this.root = root;
+            this.executor = executor;
+            this.throttle = throttle;
+        }
+
+        public File getRoot() {
+            return root;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * Number of files deleted so far.
+         */
+        public long getFileCount() {
+            return files.get();
+        }
+
+        /**
+         * Number of directories deleted so far.
+         */
+        public long getDirectoryCount() {
+            return dirs.get();
+        }
+
+        public boolean isDone() {
+            return done.getCount()==0;
+        }
+
+        /**
+         * The first error encountered, if any.
+         */
+        public IOException getError() {
+            return error.get();
+        }
+
+        /**
+         * Waits for the deletion to complete.
+         *
+         * @throws IOException
+         *      the first error encountered during the deletion.
+         */
+        public void await() throws IOException, InterruptedException {
+            done.await();
+            IOException e = error.get();
+            if(e!=null)
+                throw new IOException2("Failed to delete "+root,e);
+        }
+
+        private void whenDone(Runnable r) {
+            callbacks.add(r);
+            if(isDone() && callbacks.remove(r))
+                r.run();
+        }
+
+        private void failed(IOException e) {
+            error.compareAndSet(null,e);
+        }
+
+        private void completed() {
+            inProgress.remove(this);
+            done.countDown();
+            if(LOGGER.isLoggable(Level.FINE))
+                LOGGER.fine(String.format("Deleted %s: %d files and %d directories in %dms",
+                        root, files.get(), dirs.get(), System.currentTimeMillis()-startTime));
+            for (Runnable r : callbacks)
+                if(callbacks.remove(r))
+                    r.run();
+        }
+
+        @Override
+        public String toString() {
+            return root+" ("+files.get()+" files, "+dirs.get()+" directories deleted)";
+        }
+    }
+
+    /**
+     * A directory whose children are being deleted. The directory itself is deleted
+     * once all the pending units below it are done.
+     */
+    private final class Unit {
+        final Progress progress;
+        final Unit parent;
+        final File dir;
+        /**
+         * Number of outstanding work units below this directory, plus one for the listing itself.
+         */
+        final AtomicInteger pending = new AtomicInteger(1);
+
+        Unit(Progress progress, Unit parent, File dir) {
+            this.progress = progress;
+            this.parent = parent;
+            this.dir = dir;
+        }
+
+        void fork(Runnable task) {
+            pending.incrementAndGet();
+            progress.executor.execute(task);
+        }
+
+        /**
+         * Called when one of the pending units of this directory is done.
+         */
+        void done() {
+            if(pending.decrementAndGet()>0)
+                return;
+            delete(progress, dir, progress.dirs);
+            if(parent!=null)
+                parent.done();
+            else
+                progress.completed();
+        }
+    }
+
+    private void delete(Progress p, File f, AtomicLong counter) {
+        try {
+            if(p.throttle!=null)
+                p.throttle.acquire();
+            Util.deleteFile(f);
+            counter.incrementAndGet();
+        } catch (IOException e) {
+            p.failed(e);
+        } catch (InterruptedException e) {
+            p.failed(new IOException2("Interrupted while deleting "+f,e));
+        }
+    }
+
+    /**
+     * Lists a directory, deletes its plain files in batches, and forks sub-directories.
+     */
+    private final class DirTask implements Runnable {
+        private final Unit unit;
+
+        DirTask(Unit unit) {
+            this.unit = unit;
+        }
+
+        public void run() {
+            try {
+                File[] children = null;
+                if(unit.dir.isDirectory() && !Util.isSymlink(unit.dir))
+                    children = unit.dir.listFiles();
+                if(children!=null) {
+                    List<File> batch = new ArrayList<File>(BATCH_SIZE);
+                    for (File child : children) {
+                        if(child.isDirectory() && !Util.isSymlink(child)) {
+                            unit.fork(new DirTask(new Unit(unit.progress, unit, child)));
+                        } else {
+                            batch.add(child);
+                            if(batch.size()==BATCH_SIZE) {
+                                unit.fork(new FileBatchTask(unit, batch));
+                                batch = new ArrayList<File>(BATCH_SIZE);
+                            }
+                        }
+                    }
+                    // delete the last partial batch on this thread
+                    for (File f : batch)
+                        delete(unit.progress, f, unit.progress.files);
+                }
+            } catch (IOException e) {
+                unit.progress.failed(e);
+            } catch (RuntimeException e) {
+                unit.progress.failed(new IOException2("Failed to list "+unit.dir,e));
+            } finally {
+                unit.done();
+            }
+        }
+    }
+
+    private final class FileBatchTask implements Runnable {
+        private final Unit unit;
+        private final List<File> files;
+
+        FileBatchTask(Unit unit, List<File> files) {
+            this.unit = unit;
+            this.files = files;
+        }
+
+        public void run() {
+            try {
+                for (File f : files)
+                    delete(unit.progress, f, unit.progress.files);
+            } finally {
+                unit.done();
+            }
+        }
+    }
+
+    /**
+     * Limits the number of deletions per second across all the threads.
+     */
+    private static final class Throttle {
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        Throttle(int perSecond) {
+            this.intervalNanos = 1000000000L/perSecond;
+        }
+
+        void acquire() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if(next<now)    next = now;
+                wait = next-now;
+                next += intervalNanos;
+            }
+            if(wait>0)
+                Thread.sleep(wait/1000000, (int)(wait%1000000));
+        }
+    }
+
+    private static final class Holder {
+        static final ParallelDeleter INSTANCE = new ParallelDeleter(CONCURRENCY, MAX_DELETIONS_PER_SECOND);
+    }
+
+    private static final String TRASH_SUFFIX = ".trash";
+
+    private static final Pattern TRASH_NAME = Pattern.compile("\\..+"+Pattern.quote(TRASH_SUFFIX)+"\\d*");
+
+    /**
+     * Number of files deleted per work unit.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Number of threads used by {@link #get()}.
+     */
+    public static int CONCURRENCY = Integer.getInteger(ParallelDeleter.class.getName()+".concurrency",
+            Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors())));
+
+    /**
+     * Upper bound of the files and directories deleted per second in the background by {@link #get()},
+     * or 0 for no limit. Useful to keep a large deletion from saturating a disk shared with running builds.
+     */
+    public static int MAX_DELETIONS_PER_SECOND = Integer.getInteger(ParallelDeleter.class.getName()+".maxDeletionsPerSecond", 0);
+
+    private static final Logger LOGGER = Logger.getLogger(ParallelDeleter.class.getName());
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util.xstream;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.ExtendedHierarchicalStreamWriterHelper;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.CannotResolveClassException;
+import com.thoughtworks.xstream.mapper.Mapper;
+import hudson.util.RobustReflectionConverter;
+import hudson.util.XStream2;
+
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Base class for hand-written converters of frequently persisted types, which read and write
+ * their fields directly instead of discovering them through reflection.
+ *
+ * <p>
+ * The XML has to stay exactly what {@link RobustReflectionConverter} produces for the same object,
+ * so that data written by either one can be read by the other. {@link #writeField} and {@link #readField}
+ * take care of the element and the {@code class} attribute of each field the same way.
+ *
+ * <p>
+ * Only converts the exact type it is written for, since subtypes may have more fields.
+ * Register the implementation with {@link XStream2#addStreamingConverter(Class, Class)}.
+ *
+ * @since 2.2.2
+ */
+public abstract class StreamingConverter<T> implements Converter {
+    protected final Mapper mapper;
+    private final Class<T> type;
+
+    protected StreamingConverter(Mapper mapper, Class<T> type) {
+        this.mapper = mapper;
+        this.type = type;
+    }
+
+    public boolean canConvert(Class type) {
+        return this.type==type;
+    }
+
+    /**
+     * Writes a non-transient field. Null values are omitted.
+     *
+     * @param declaredType
+     *      the declared type of the field, which decides whether the {@code class} attribute is needed.
+     */
+    protected void writeField(HierarchicalStreamWriter writer, MarshallingContext context, String name, Class declaredType, Object value) {
+        if (value==null)    return;
+
+        ExtendedHierarchicalStreamWriterHelper.startNode(writer, name, declaredType);
+        Class actualType = value.getClass();
+        Class defaultType = mapper.defaultImplementationOf(declaredType);
+        if (!actualType.equals(defaultType)) {
+            String serializedClassName = mapper.serializedClass(actualType);
+            if (!serializedClassName.equals(mapper.serializedClass(defaultType)))
+                writer.addAttribute(mapper.aliasForSystemAttribute("class"), serializedClassName);
+        }
+        context.convertAnother(value);
+        writer.endNode();
+    }
+
+    /**
+     * Reads the value of the field the reader is positioned at.
+     *
+     * @return
+     *      null if the type of the value can't be resolved, for example because the plugin that defined it is gone.
+     *      The problem is reported to {@link hudson.diagnosis.OldDataMonitor} the same way the reflection based
+     *      converter does.
+     */
+    protected Object readField(HierarchicalStreamReader reader, UnmarshallingContext context, Object parent, Class declaredType) {
+        try {
+            Class type = mapper.defaultImplementationOf(declaredType);
+            String classAttribute = reader.getAttribute(mapper.aliasForAttribute("class"));
+            if (classAttribute!=null) {
+                Class specifiedType = mapper.realClass(classAttribute);
+                if (declaredType.isAssignableFrom(specifiedType))
+                    type = specifiedType;
+            }
+            return context.convertAnother(parent, type);
+        } catch (CannotResolveClassException e) {
+            LOGGER.log(WARNING, "Skipping a non-existent type " + e.getMessage());
+            RobustReflectionConverter.addErrorInContext(context, e);
+            return null;
+        } catch (LinkageError e) {
+            LOGGER.log(WARNING, "Failed to resolve a type " + e.getMessage());
+            RobustReflectionConverter.addErrorInContext(context, e);
+            return null;
+        }
+    }
+
+    /**
+     * Called for an element that doesn't correspond to any field, typically left by an older version.
+     */
+    protected void skipUnknownField(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        LOGGER.log(WARNING, "Skipping a non-existent field " + reader.getNodeName());
+        RobustReflectionConverter.addErrorInContext(context,
+                new IllegalArgumentException("No field "+reader.getNodeName()+" in "+type.getName()));
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(StreamingConverter.class.getName());
+}
@@ -60,4 +60,18 @@ public abstract class ViewJobFilter implements ExtensionPoint, Describable<ViewJ
      * @return a new list based off of the jobs added so far, and all jobs available.
      */
     abstract public List<TopLevelItem> filter(List<TopLevelItem> added, List<TopLevelItem> all, View filteringView);
+
+    /**
+     * Whether the result of {@link #filter} may be cached, and shared by all users, until an item is created,
+     * renamed, deleted or saved, or a build starts, completes or is deleted.
+     *
+     * <p>
+     * When cached, {@link #filter} is given all the items regardless of the permissions of the current user.
+     * Filters that look at the current user, the time, or anything else must return false, which is the default.
+     *
+     * @since 2.2.2
+     */
+    public boolean isCacheable() {
+        return false;
+    }
 }
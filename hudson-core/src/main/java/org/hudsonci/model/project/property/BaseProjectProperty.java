@@ -23,6 +23,7 @@
  */
 package org.hudsonci.model.project.property;
 
+import hudson.util.CascadingUtil;
 import hudson.util.DeepEquals;
 import org.apache.commons.lang3.ObjectUtils;
 import org.hudsonci.api.model.ICascadingJob;
@@ -32,6 +33,9 @@ import org.hudsonci.api.model.IProjectProperty;
  * Base property implementation for project.
  * Contains common methods for setting and getting cascading and overridden properties.
  * <p/>
+ * The cascading value is resolved through the chain of cascading parents once, and then reused until
+ * {@link CascadingUtil#invalidateCascadingValues()} signals that some property or cascading link has changed.
+ * <p/>
  * Date: 9/22/11
  *
  * @author Nikita Levyankov
@@ -45,6 +49,24 @@ public class BaseProjectProperty<T> implements IProjectProperty<T> {
     private T originalValue;
     private boolean propertyOverridden;
 
+    /**
+     * Memoized result of {@link #getCascadingValue()}.
+     */
+    private transient volatile CascadingValue<T> cascadingValue;
+
+    private static final class CascadingValue<T> {
+        /**
+         * {@link CascadingUtil#getCascadingVersion()} at the time the value was resolved.
+         */
+        final long version;
+        final T value;
+
+        CascadingValue(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
     /**
      * Instantiate new property.
      *
@@ -89,7 +111,10 @@ public class BaseProjectProperty<T> implements IProjectProperty<T> {
      * {@inheritDoc}
      */
     public void setOverridden(boolean overridden) {
-        propertyOverridden = overridden;
+        if (propertyOverridden != overridden) {
+            propertyOverridden = overridden;
+            CascadingUtil.invalidateCascadingValues();
+        }
     }
 
     /**
@@ -100,8 +125,18 @@ public class BaseProjectProperty<T> implements IProjectProperty<T> {
         if (null == getKey()) {
             throw new IllegalArgumentException(INVALID_PROPERTY_KEY_EXCEPTION);
         }
-        return getJob().hasCascadingProject() ?
-            (T) getJob().getCascadingProject().getProperty(propertyKey, this.getClass()).getValue() : getDefaultValue();
+        if (!getJob().hasCascadingProject()) {
+            return getDefaultValue();
+        }
+        // read the version first, so that a change made while resolving makes the result stale
+        long version = CascadingUtil.getCascadingVersion();
+        CascadingValue<T> c = cascadingValue;
+        if (null != c && c.version == version) {
+            return c.value;
+        }
+        T value = (T) getJob().getCascadingProject().getProperty(propertyKey, this.getClass()).getValue();
+        cascadingValue = new CascadingValue<T>(version, value);
+        return value;
     }
 
     /**
@@ -181,8 +216,12 @@ public class BaseProjectProperty<T> implements IProjectProperty<T> {
      * @param overridden true - to mark as overridden.
      */
     protected void setOriginalValue(T originalValue, boolean overridden) {
+        boolean changed = ObjectUtils.notEqual(this.originalValue, originalValue);
         this.originalValue = originalValue;
         setOverridden(overridden);
+        if (changed) {
+            CascadingUtil.invalidateCascadingValues();
+        }
     }
 
     /**
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson;
+
+import hudson.util.TextFile;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ClassicPluginStrategyTest extends TestCase {
+    private File tmp;
+
+    @Override
+    protected void setUp() throws Exception {
+        tmp = Util.createTempDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Util.deleteRecursive(tmp);
+    }
+
+    public void testExplodeIsSkippedWhenTheDigestMatches() throws Exception {
+        File archive = new File(tmp, "test.hpi");
+        File dir = new File(tmp, "test");
+        zip(archive, "one");
+
+        String digest = ClassicPluginStrategy.explode(archive, dir);
+        assertEquals("one", read(new File(dir, "a.txt")));
+        File marker = new File(dir, "marker");
+        assertTrue(marker.createNewFile());
+
+        // same contents, different timestamp
+        assertTrue(archive.setLastModified(archive.lastModified() - 60000));
+        assertEquals(digest, ClassicPluginStrategy.explode(archive, dir));
+        assertTrue("an up-to-date copy should be left alone", marker.exists());
+    }
+
+    public void testExplodeIsRedoneWhenTheContentsChange() throws Exception {
+        File archive = new File(tmp, "test.hpi");
+        File dir = new File(tmp, "test");
+        zip(archive, "one");
+        long timestamp = archive.lastModified();
+
+        String digest = ClassicPluginStrategy.explode(archive, dir);
+        File marker = new File(dir, "marker");
+        assertTrue(marker.createNewFile());
+
+        // different contents, same timestamp
+        zip(archive, "two");
+        assertTrue(archive.setLastModified(timestamp));
+        assertFalse(digest.equals(ClassicPluginStrategy.explode(archive, dir)));
+        assertEquals("two", read(new File(dir, "a.txt")));
+        assertFalse(marker.exists());
+    }
+
+    private static void zip(File archive, String contents) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+        try {
+            out.putNextEntry(new ZipEntry("a.txt"));
+            out.write(contents.getBytes("UTF-8"));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(File f) throws IOException {
+        return new TextFile(f).readTrim();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson;
+
+import hudson.init.InitMilestone;
+import hudson.model.Describable;
+import hudson.model.Descriptor;
+import hudson.model.Hudson;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.easymock.EasyMock.expect;
+import static org.powermock.api.easymock.PowerMock.createMock;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replayAll;
+
+/**
+ * Checks that the lookups of {@link ExtensionList} find what a scan of the list in its order finds.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Hudson.class)
+public class ExtensionListTest {
+    public static class Foo implements Describable<Foo> {
+        public Descriptor<Foo> getDescriptor() {
+            return null;
+        }
+    }
+
+    public static class Bar implements Describable<Bar> {
+        public Descriptor<Bar> getDescriptor() {
+            return null;
+        }
+    }
+
+    private static class FooDescriptor extends Descriptor<Foo> {
+        private final String id;
+
+        FooDescriptor(String id) {
+            super(Foo.class);
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    private static class BarDescriptor extends Descriptor<Bar> {
+        BarDescriptor() {
+            super(Bar.class);
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "bar";
+        }
+    }
+
+    /**
+     * Loads the given components instead of asking the plugins.
+     */
+    private static class TestList extends ExtensionList<Object> {
+        private final List<ExtensionComponent<Object>> loaded;
+
+        TestList(ExtensionComponent<Object>... loaded) {
+            super(null, Object.class);
+            this.loaded = Arrays.asList(loaded);
+        }
+
+        @Override
+        protected List<ExtensionComponent<Object>> load() {
+            return new ArrayList<ExtensionComponent<Object>>(loaded);
+        }
+
+        @Override
+        protected Object getLoadLock() {
+            return this;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Hudson hudson = createMock(Hudson.class);
+        mockStatic(Hudson.class);
+        expect(Hudson.getInstance()).andReturn(hudson).anyTimes();
+        expect(hudson.getInitLevel()).andReturn(InitMilestone.COMPLETED).anyTimes();
+        replayAll();
+    }
+
+    private static ExtensionComponent<Object> c(Object o, double ordinal) {
+        return new ExtensionComponent<Object>(o, ordinal);
+    }
+
+    @Test
+    public void testFirstMatchWins() {
+        FooDescriptor full = new FooDescriptor("x.Foo");
+        FooDescriptor other = new FooDescriptor("y.Foo");
+        FooDescriptor shortId = new FooDescriptor("Foo");
+        FooDescriptor dup = new FooDescriptor("x.Foo");
+        BarDescriptor bar = new BarDescriptor();
+        String plain = "plain";
+
+        // loaded out of order. the ordinals put them in the order full, bar, plain, other, shortId, dup
+        TestList list = new TestList(c(dup, 0), c(plain, 2), c(other, 1), c(full, 4), c(shortId, 1), c(bar, 3));
+        assertEquals(Arrays.<Object>asList(full, bar, plain, other, shortId, dup), new ArrayList<Object>(list));
+
+        assertSameAsScan(list);
+        assertSame(full, list.get(FooDescriptor.class));
+        assertSame(full, list.getDescriptorOf(Foo.class));
+        assertSame(full, list.getDescriptorById("x.Foo", false));
+        assertSame(shortId, list.getDescriptorById("Foo", false));
+        // the short name of "x.Foo" comes before the full ID "Foo"
+        assertSame(full, list.getDescriptorById("Foo", true));
+        assertSame(bar, list.getDescriptorOf(Bar.class));
+        assertSame(plain, list.get(String.class));
+        assertNull(list.get(Object.class));
+        assertNull(list.getDescriptorById("z.Foo", true));
+    }
+
+    @Test
+    public void testAddAndRemoveUpdateTheLookups() {
+        FooDescriptor first = new FooDescriptor("x.Foo");
+        FooDescriptor second = new FooDescriptor("y.Foo");
+        TestList list = new TestList(c(first, 1), c(second, 0));
+        assertSame(first, list.getDescriptorById("Foo", true));
+
+        list.remove(first);
+        assertSameAsScan(list);
+        assertSame(second, list.getDescriptorById("Foo", true));
+        assertSame(second, list.getDescriptorOf(Foo.class));
+        assertNull(list.getDescriptorById("x.Foo", false));
+
+        BarDescriptor bar = new BarDescriptor();
+        assertNull(list.getDescriptorOf(Bar.class));
+        list.add(bar);
+        assertSameAsScan(list);
+        assertSame(bar, list.getDescriptorOf(Bar.class));
+        assertSame(bar, list.get(BarDescriptor.class));
+        assertSame(bar, list.getDynamic(BarDescriptor.class.getName()));
+    }
+
+    /**
+     * Compares all the lookups against a scan of the list, for every key found in it.
+     */
+    private static void assertSameAsScan(ExtensionList<Object> list) {
+        List<Object> all = new ArrayList<Object>(list);
+        for (Object o : all) {
+            assertSame(scanByType(all, o.getClass()), list.get(o.getClass()));
+            assertSame(scanByType(all, o.getClass()), list.getDynamic(o.getClass().getName()));
+            if (o instanceof Descriptor) {
+                Descriptor d = (Descriptor) o;
+                assertSame(scanByDescribable(all, d.clazz), list.getDescriptorOf(d.clazz));
+                String id = d.getId();
+                String shortName = id.substring(id.lastIndexOf('.') + 1);
+                for (String key : Arrays.asList(id, shortName)) {
+                    assertSame(key, scanById(all, key, false), list.getDescriptorById(key, false));
+                    assertSame(key, scanById(all, key, true), list.getDescriptorById(key, true));
+                }
+            }
+        }
+    }
+
+    private static Object scanByType(List<Object> all, Class type) {
+        for (Object o : all)
+            if (o.getClass() == type)
+                return o;
+        return null;
+    }
+
+    private static Object scanByDescribable(List<Object> all, Class type) {
+        for (Object o : all)
+            if (o instanceof Descriptor && ((Descriptor) o).clazz == type)
+                return o;
+        return null;
+    }
+
+    private static Object scanById(List<Object> all, String id, boolean allowShortName) {
+        for (Object o : all) {
+            if (!(o instanceof Descriptor))
+                continue;
+            String name = ((Descriptor) o).getId();
+            if (name.equals(id) || (allowShortName && name.substring(name.lastIndexOf('.') + 1).equals(id)))
+                return o;
+        }
+        return null;
+    }
+}
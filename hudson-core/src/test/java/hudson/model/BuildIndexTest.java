@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class BuildIndexTest extends TestCase {
+    private final BuildIndex index = new BuildIndex();
+
+    private BuildIndex.Entry add(String job, int number, long timestamp, Result result, String node, String... users) {
+        BuildIndex.Entry e = new BuildIndex.Entry(timestamp, job, number, result, node, users);
+        index.add(e);
+        return e;
+    }
+
+    private static List<String> names(Collection<BuildIndex.Entry> entries) {
+        List<String> r = new ArrayList<String>();
+        if (entries!=null)
+            for (BuildIndex.Entry e : entries)
+                r.add(e.toString());
+        return r;
+    }
+
+    public void testTimeRangeIsNewestFirstAndHalfOpen() {
+        add("a", 1, 100, Result.SUCCESS, "");
+        add("b", 1, 200, Result.FAILURE, "");
+        add("a", 2, 300, Result.SUCCESS, "");
+        add("b", 2, 300, Result.SUCCESS, "");
+
+        assertEquals(Arrays.asList("a #2", "b #2", "b #1", "a #1"), names(index.entriesBetween(0, Long.MAX_VALUE)));
+        assertEquals(Arrays.asList("b #1"), names(index.entriesBetween(200, 300)));
+        assertEquals(Arrays.asList("a #2", "b #2", "b #1"), names(index.entriesBetween(200, 301)));
+        assertTrue(index.entriesBetween(300, 300).isEmpty());
+    }
+
+    public void testResultAndNodeQueries() {
+        add("a", 1, 100, Result.FAILURE, "slave1");
+        add("a", 2, 200, Result.SUCCESS, "");
+        add("b", 1, 300, Result.FAILURE, "");
+
+        assertEquals(Arrays.asList("b #1", "a #1"), names(index.entriesByResult(Result.FAILURE)));
+        assertEquals(Arrays.asList("a #1"), names(index.entriesOn("slave1")));
+        assertEquals(Arrays.asList("b #1", "a #2"), names(index.entriesOn("")));
+    }
+
+    public void testReAddingABuildReplacesItsEntry() {
+        add("a", 1, 100, Result.FAILURE, "slave1", "alice");
+        add("a", 1, 150, Result.SUCCESS, "slave2", "bob");
+
+        assertEquals(Arrays.asList("a #1"), names(index.entriesBetween(0, Long.MAX_VALUE)));
+        assertTrue(names(index.entriesByResult(Result.FAILURE)).isEmpty());
+        assertTrue(names(index.entriesOn("slave1")).isEmpty());
+        assertTrue(names(index.entriesByUser("alice")).isEmpty());
+        assertEquals(Arrays.asList("a #1"), names(index.entriesByUser("bob")));
+    }
+
+    public void testRemoval() {
+        add("a", 1, 100, Result.SUCCESS, "", "alice");
+        add("a", 2, 200, Result.SUCCESS, "", "alice");
+        add("b", 1, 300, Result.SUCCESS, "", "alice");
+
+        index.remove("a", 2);
+        assertEquals(Arrays.asList("b #1", "a #1"), names(index.entriesByUser("alice")));
+
+        index.removeJob("a");
+        assertEquals(Arrays.asList("b #1"), names(index.entriesBetween(0, Long.MAX_VALUE)));
+        assertEquals(Arrays.asList("b #1"), names(index.entriesByUser("alice")));
+    }
+
+    public void testUsersCollectedLater() {
+        BuildIndex.Entry e = add("a", 1, 100, Result.SUCCESS, "", (String[])null);
+        assertNull(e.getUsers());
+        assertTrue(names(index.entriesByUser("alice")).isEmpty());
+
+        index.setUsers(e, new String[] {"alice"});
+        assertEquals(Arrays.asList("a #1"), names(index.entriesByUser("alice")));
+
+        // an entry that has been replaced meanwhile isn't indexed
+        BuildIndex.Entry stale = e;
+        add("a", 1, 100, Result.SUCCESS, "", (String[])null);
+        index.setUsers(stale, new String[] {"bob"});
+        assertTrue(names(index.entriesByUser("bob")).isEmpty());
+    }
+}
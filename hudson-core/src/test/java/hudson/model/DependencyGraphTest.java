@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.easymock.EasyMock.expect;
+import static org.powermock.api.easymock.PowerMock.createMock;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replayAll;
+
+/**
+ * Test for {@link DependencyGraph}.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Hudson.class)
+public class DependencyGraphTest {
+    /**
+     * Declares edges to the projects it's given.
+     */
+    private static class TestProject extends FreeStyleProjectMock {
+        final List<AbstractProject> downstream = new ArrayList<AbstractProject>();
+        int declarations;
+
+        TestProject(String name) {
+            super(name);
+        }
+
+        TestProject to(TestProject... projects) {
+            downstream.addAll(Arrays.asList(projects));
+            return this;
+        }
+
+        @Override
+        protected void buildDependencyGraph(DependencyGraph graph) {
+            declarations++;
+            for (AbstractProject p : downstream)
+                graph.addDependency(new DependencyGraph.Dependency(this, p));
+        }
+    }
+
+    private static TestProject[] projects(int n) {
+        TestProject[] r = new TestProject[n];
+        for (int i = 0; i < n; i++)
+            r[i] = new TestProject("p" + i);
+        return r;
+    }
+
+    private static DependencyGraph graph(TestProject... projects) {
+        return graph(new ArrayList<AbstractProject>(Arrays.asList(projects)));
+    }
+
+    /**
+     * Builds the graph of the given projects. Changes to the list are seen by later updates of the graph.
+     */
+    private static DependencyGraph graph(List<AbstractProject> items) {
+        Hudson hudson = createMock(Hudson.class);
+        mockStatic(Hudson.class);
+        expect(Hudson.getInstance()).andReturn(hudson).anyTimes();
+        expect(hudson.getAllItems(AbstractProject.class)).andReturn(items).anyTimes();
+        replayAll();
+        return new DependencyGraph();
+    }
+
+    private static Set<AbstractProject> set(AbstractProject... projects) {
+        return new HashSet<AbstractProject>(Arrays.asList(projects));
+    }
+
+    @Test
+    public void testChain() {
+        TestProject[] p = projects(3);
+        p[0].to(p[1]);
+        p[1].to(p[2]);
+        DependencyGraph g = graph(p);
+
+        assertEquals(set(p[1], p[2]), g.getTransitiveDownstream(p[0]));
+        assertEquals(set(p[0], p[1]), g.getTransitiveUpstream(p[2]));
+        assertTrue(g.getTransitiveDownstream(p[2]).isEmpty());
+        assertTrue(g.isTransitiveDownstream(p[0], p[2]));
+        assertFalse(g.isTransitiveDownstream(p[2], p[0]));
+        assertFalse(g.isTransitiveDownstream(p[0], p[0]));
+    }
+
+    @Test
+    public void testCycleMembersReachEachOtherAndThemselves() {
+        TestProject[] p = projects(5);
+        p[0].to(p[1]);
+        p[1].to(p[2]);
+        p[2].to(p[0], p[3]);
+        p[4].to(p[0]);
+        DependencyGraph g = graph(p);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(set(p[0], p[1], p[2], p[3]), g.getTransitiveDownstream(p[i]));
+            assertEquals(set(p[0], p[1], p[2], p[4]), g.getTransitiveUpstream(p[i]));
+        }
+        assertEquals(set(p[0], p[1], p[2], p[4]), g.getTransitiveUpstream(p[3]));
+        assertFalse(g.isTransitiveDownstream(p[3], p[3]));
+        assertFalse(g.isTransitiveDownstream(p[4], p[4]));
+        assertEquals(0, g.compare(p[0], p[2]));
+        assertEquals(1, g.compare(p[0], p[3]));
+    }
+
+    @Test
+    public void testSelfLoop() {
+        TestProject[] p = projects(2);
+        p[0].to(p[0], p[1]);
+        DependencyGraph g = graph(p);
+
+        assertEquals(set(p[0], p[1]), g.getTransitiveDownstream(p[0]));
+        assertEquals(set(p[0]), g.getTransitiveUpstream(p[0]));
+        assertFalse(g.isTransitiveDownstream(p[1], p[1]));
+    }
+
+    @Test
+    public void testDiamond() {
+        TestProject[] p = projects(4);
+        p[0].to(p[1], p[2]);
+        p[1].to(p[3]);
+        p[2].to(p[3]);
+        DependencyGraph g = graph(p);
+
+        assertEquals(set(p[1], p[2], p[3]), g.getTransitiveDownstream(p[0]));
+        assertEquals(set(p[0], p[1], p[2]), g.getTransitiveUpstream(p[3]));
+        assertTrue(g.hasIndirectDependencies(p[0], p[3]));
+        assertFalse(g.hasIndirectDependencies(p[0], p[1]));
+    }
+
+    @Test
+    public void testFind() {
+        TestProject[] p = projects(4);
+        p[0].to(p[1]);
+        p[1].to(p[2]);
+        DependencyGraph g = graph(p);
+
+        assertSame(p[2], g.findTransitiveDownstream(p[0], Arrays.asList(p[3], p[2])));
+        assertNull(g.findTransitiveDownstream(p[0], Arrays.asList(p[3])));
+        assertSame(p[0], g.findTransitiveUpstream(p[2], Arrays.asList(p[3], p[0])));
+        assertNull(g.findTransitiveUpstream(p[0], Arrays.asList(p[1], p[2])));
+        // not part of the graph
+        assertNull(g.findTransitiveDownstream(p[3], Arrays.asList(p[0])));
+    }
+
+    @Test
+    public void testLongChainDoesNotOverflowTheStack() {
+        TestProject[] p = projects(5000);
+        for (int i = 0; i + 1 < p.length; i++)
+            p[i].to(p[i + 1]);
+        DependencyGraph g = graph(p);
+
+        assertEquals(p.length - 1, g.getTransitiveDownstream(p[0]).size());
+        assertTrue(g.isTransitiveDownstream(p[0], p[p.length - 1]));
+    }
+
+    @Test
+    public void testUpdateOnlyAsksChangedProjects() {
+        TestProject[] p = projects(4);
+        p[0].to(p[1]);
+        p[1].to(p[2]);
+        DependencyGraph g = graph(p);
+
+        p[1].downstream.clear();
+        p[1].to(p[3]);
+        DependencyGraph u = g.update(Arrays.asList(p[1]));
+
+        assertEquals(1, p[0].declarations);
+        assertEquals(2, p[1].declarations);
+        assertEquals(1, p[2].declarations);
+        assertEquals(set(p[1], p[3]), u.getTransitiveDownstream(p[0]));
+        assertEquals(set(p[0], p[1]), u.getTransitiveUpstream(p[3]));
+        assertTrue(u.getTransitiveUpstream(p[2]).isEmpty());
+
+        // the original graph is left as it was
+        assertEquals(set(p[1], p[2]), g.getTransitiveDownstream(p[0]));
+    }
+
+    @Test
+    public void testUpdateDropsDeletedProjects() {
+        TestProject[] p = projects(3);
+        p[0].to(p[1]);
+        p[1].to(p[2]);
+        List<AbstractProject> items = new ArrayList<AbstractProject>(Arrays.asList(p));
+        DependencyGraph g = graph(items);
+
+        items.remove(p[1]);
+        DependencyGraph u = g.update(Arrays.asList(p[1]));
+
+        assertTrue(u.getTransitiveDownstream(p[0]).isEmpty());
+        assertTrue(u.getTransitiveUpstream(p[2]).isEmpty());
+        assertTrue(u.getDownstream(p[0]).isEmpty());
+        assertEquals(1, p[0].declarations);
+    }
+
+    @Test
+    public void testTransitiveSetsAreCopies() {
+        TestProject[] p = projects(3);
+        p[0].to(p[1]);
+        DependencyGraph g = graph(p);
+
+        Set<AbstractProject> s = g.getTransitiveDownstream(p[0]);
+        s.add(p[2]);
+        assertEquals(set(p[1]), g.getTransitiveDownstream(p[0]));
+        g.getTransitiveUpstream(p[1]).clear();
+        assertEquals(set(p[0]), g.getTransitiveUpstream(p[1]));
+    }
+}
@@ -24,6 +24,7 @@
 package hudson.model;
 
 import hudson.security.Permission;
+import hudson.util.CascadingUtil;
 
 /**
  * Mock class for FreeStyleProject
@@ -56,5 +57,6 @@ public class FreeStyleProjectMock extends FreeStyleProject {
     public void setCascadingProject(FreeStyleProject cascadingProject) {
         this.cascadingProject = cascadingProject;
         this.cascadingProjectName = cascadingProject != null ? cascadingProject.getName() : null;
+        CascadingUtil.invalidateCascadingValues();
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ItemIndexTest extends TestCase {
+    /**
+     * Records which version each snapshot was computed at.
+     */
+    private static class TestIndex extends ItemIndex {
+        final Map<Snapshot,Integer> versions = Collections.synchronizedMap(new IdentityHashMap<Snapshot,Integer>());
+        final AtomicInteger computed = new AtomicInteger();
+
+        TestIndex() {
+            super(null);
+        }
+
+        @Override
+        Snapshot compute() {
+            int v = getVersion();
+            computed.incrementAndGet();
+            Snapshot s = new Snapshot(new ArrayList<Item>());
+            versions.put(s,v);
+            return s;
+        }
+    }
+
+    public void testSnapshotIsReusedUntilInvalidated() {
+        TestIndex index = new TestIndex();
+        ItemIndex.Snapshot s = index.getSnapshot();
+        assertSame(s, index.getSnapshot());
+        assertEquals(1, index.computed.get());
+
+        index.invalidate();
+        assertNotSame(s, index.getSnapshot());
+        assertEquals(2, index.computed.get());
+    }
+
+    public void testSnapshotComputedAcrossInvalidationIsNotInstalled() throws Exception {
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final TestIndex index = new TestIndex() {
+            @Override
+            Snapshot compute() {
+                Snapshot s = super.compute();
+                if (computed.get()==1) {
+                    computing.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                return s;
+            }
+        };
+
+        final AtomicReference<ItemIndex.Snapshot> first = new AtomicReference<ItemIndex.Snapshot>();
+        Thread t = new Thread() {
+            public void run() {
+                first.set(index.getSnapshot());
+            }
+        };
+        t.start();
+        computing.await();
+        index.invalidate();
+        proceed.countDown();
+        t.join();
+
+        ItemIndex.Snapshot current = index.getSnapshot();
+        assertNotSame(first.get(), current);
+        assertEquals(index.getVersion(), (int)index.versions.get(current));
+    }
+
+    public void testInstalledSnapshotIsNeverOlderThanLastInvalidation() throws Exception {
+        final TestIndex index = new TestIndex();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i=0; i<threads.length; i++) {
+            final boolean writer = i%2==0;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j=0; j<2000; j++) {
+                        if (writer)     index.invalidate();
+                        else            index.getSnapshot();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(4*2000, index.getVersion());
+        assertEquals(index.getVersion(), (int)index.versions.get(index.getSnapshot()));
+    }
+}
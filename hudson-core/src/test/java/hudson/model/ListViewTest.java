@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import hudson.views.ViewJobFilter;
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.easymock.EasyMock.createNiceMock;
+
+public class ListViewTest extends TestCase {
+    private static ListView.Membership membership(boolean dependsOnConfig, boolean dependsOnBuilds) {
+        return new ListView.Membership(Collections.<TopLevelItem>emptyList(), 1,
+                ListView.CONFIG_VERSION.get(), ListView.BUILD_VERSION.get(), dependsOnConfig, dependsOnBuilds);
+    }
+
+    private static boolean isCurrent(ListView.Membership m, int items) {
+        return m.isCurrent(items, ListView.CONFIG_VERSION.get(), ListView.BUILD_VERSION.get());
+    }
+
+    public void testItemChangesInvalidateAllViews() {
+        ListView.Membership m = membership(false, false);
+        assertTrue(isCurrent(m, 1));
+        assertFalse(isCurrent(m, 2));
+    }
+
+    public void testSavingAnItemInvalidatesViewsThatDependOnConfiguration() {
+        ListView.Membership plain = membership(false, false);
+        ListView.Membership status = membership(true, false);
+
+        new ListView.SaveableListenerImpl().onChange(createNiceMock(Saveable.class), null);
+        assertTrue(isCurrent(status, 1));
+
+        new ListView.SaveableListenerImpl().onChange(createNiceMock(TopLevelItem.class), null);
+        assertTrue(isCurrent(plain, 1));
+        assertFalse(isCurrent(status, 1));
+    }
+
+    public void testBuildsInvalidateViewsThatDependOnBuilds() {
+        ListView.RunListenerImpl listener = new ListView.RunListenerImpl();
+        ListView.Membership status = membership(true, false);
+
+        ListView.Membership filtered = membership(true, true);
+        listener.onStarted(null, null);
+        assertFalse(isCurrent(filtered, 1));
+
+        filtered = membership(true, true);
+        listener.onCompleted(null, null);
+        assertFalse(isCurrent(filtered, 1));
+
+        filtered = membership(true, true);
+        listener.onDeleted(null);
+        assertFalse(isCurrent(filtered, 1));
+
+        assertTrue(isCurrent(status, 1));
+    }
+
+    public void testJobFiltersAreNotCacheableByDefault() {
+        ViewJobFilter filter = new ViewJobFilter() {
+            @Override
+            public List<TopLevelItem> filter(List<TopLevelItem> added, List<TopLevelItem> all, View filteringView) {
+                return added;
+            }
+        };
+        assertFalse(filter.isCacheable());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PersistenceServiceTest extends TestCase {
+    private static class Counter implements Saveable {
+        final AtomicInteger saves = new AtomicInteger();
+
+        public void save() throws IOException {
+            saves.incrementAndGet();
+        }
+    }
+
+    public void testRepeatedSavesAreCoalesced() throws Exception {
+        PersistenceService ps = PersistenceService.get();
+        Counter c = new Counter();
+        for (int i=0; i<10; i++)
+            ps.saveLater(c);
+        assertEquals(0,c.saves.get());
+
+        ps.flush(c);
+        assertEquals(1,c.saves.get());
+        ps.flush(c);
+        assertEquals(1,c.saves.get());
+    }
+
+    /**
+     * Fails until told otherwise.
+     */
+    private static class Failing extends Counter {
+        volatile boolean fail = true;
+
+        @Override
+        public void save() throws IOException {
+            super.save();
+            if (fail)
+                throw new IOException("disk full");
+        }
+    }
+
+    public void testBackgroundFailureIsReportedByFlush() throws Exception {
+        PersistenceService ps = PersistenceService.get();
+        Failing f = new Failing();
+        long failures = ps.getFailureCount();
+        ps.saveLater(f);
+        for (int i=0; i<100 && ps.getFailureCount()==failures; i++)
+            Thread.sleep(PersistenceService.DELAY/10+1);
+        assertEquals(1,f.saves.get());
+
+        // the failed save is retried, and its failure thrown
+        try {
+            ps.flush(f);
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk full",e.getMessage());
+        }
+        assertEquals(2,f.saves.get());
+
+        f.fail = false;
+        ps.flush(f);
+        assertEquals(3,f.saves.get());
+        // saved now, nothing more to do
+        ps.flush(f);
+        assertEquals(3,f.saves.get());
+    }
+
+    public void testFlushOfPendingSaveThrows() throws Exception {
+        PersistenceService ps = PersistenceService.get();
+        Failing f = new Failing();
+        ps.saveLater(f);
+        try {
+            ps.flush(f);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        f.fail = false;
+        ps.flushAll();
+        assertEquals(2,f.saves.get());
+    }
+
+    public void testSavedInBackground() throws Exception {
+        PersistenceService ps = PersistenceService.get();
+        Counter c = new Counter();
+        ps.saveLater(c);
+        for (int i=0; i<100 && c.saves.get()==0; i++)
+            Thread.sleep(PersistenceService.DELAY/10+1);
+        assertEquals(1,c.saves.get());
+    }
+
+    public void testAwaitReportsBackgroundFailure() throws Exception {
+        PersistenceService ps = PersistenceService.get();
+        Failing f = new Failing();
+        ps.saveLater(f);
+        ps.saveLater(f);
+        try {
+            ps.await(f);
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk full",e.getCause().getMessage());
+        }
+        // saved once, in the background
+        assertEquals(1,f.saves.get());
+
+        f.fail = false;
+        ps.saveLater(f);
+        ps.await(f);
+        assertEquals(2,f.saves.get());
+    }
+
+    /**
+     * Fails its first save, after being told to go ahead.
+     */
+    private static class Blocking extends Counter {
+        final CountDownLatch saving = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void save() throws IOException {
+            if (saves.incrementAndGet()==1) {
+                saving.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                throw new IOException("disk full");
+            }
+        }
+    }
+
+    public void testFlushWaitsForBackgroundSaveInProgress() throws Exception {
+        final PersistenceService ps = PersistenceService.get();
+        final Blocking b = new Blocking();
+        ps.saveLater(b);
+        b.saving.await();
+
+        final IOException[] thrown = new IOException[1];
+        Thread flusher = new Thread() {
+            public void run() {
+                try {
+                    ps.flush(b);
+                } catch (IOException e) {
+                    thrown[0] = e;
+                }
+            }
+        };
+        flusher.start();
+        flusher.join(100);
+        assertTrue("flush should wait for the save in progress",flusher.isAlive());
+
+        b.release.countDown();
+        flusher.join();
+        // the failed background save is done again by the flush
+        assertNull(thrown[0]);
+        assertEquals(2,b.saves.get());
+    }
+}
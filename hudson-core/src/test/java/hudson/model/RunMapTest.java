@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.model;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RunMapTest extends TestCase {
+    private static class TestRun extends Run<FreeStyleProject,TestRun> {
+        private volatile boolean building;
+
+        TestRun(int number, long timestamp, Result result) {
+            super(null, timestamp);
+            this.number = number;
+            this.result = result;
+        }
+
+        @Override
+        public boolean isLogUpdated() {
+            return building;
+        }
+
+        @Override
+        public boolean isBuilding() {
+            return building;
+        }
+    }
+
+    public void testOrderAndLinks() {
+        RunMap<TestRun> map = new RunMap<TestRun>();
+        TestRun r1 = new TestRun(1, 100, Result.SUCCESS);
+        TestRun r2 = new TestRun(2, 200, Result.FAILURE);
+        TestRun r3 = new TestRun(3, 300, Result.SUCCESS);
+        map.put(r2);
+        map.put(r1);
+        map.put(r3);
+
+        assertEquals(3, map.size());
+        assertEquals(Arrays.asList(r3, r2, r1), new ArrayList<TestRun>(map.values()));
+        assertSame(r2, map.get(2));
+        assertNull(map.get(4));
+        assertSame(r2, r3.getPreviousBuild());
+        assertSame(r1, r2.getPreviousBuild());
+        assertSame(r3, r2.getNextBuild());
+
+        assertTrue(map.remove(r2));
+        assertEquals(2, map.size());
+        assertSame(r1, r3.getPreviousBuild());
+        assertSame(r3, r1.getNextBuild());
+        assertFalse(map.containsKey(2));
+    }
+
+    public void testSameTimestamp() {
+        RunMap<TestRun> map = new RunMap<TestRun>();
+        map.put(new TestRun(1, 100, Result.SUCCESS));
+        map.put(new TestRun(2, 100, Result.SUCCESS));
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(2), map.firstKey());
+    }
+
+    public void testResultIndex() {
+        RunMap<TestRun> map = new RunMap<TestRun>();
+        TestRun r1 = new TestRun(1, 100, Result.SUCCESS);
+        TestRun r2 = new TestRun(2, 200, Result.FAILURE);
+        TestRun r3 = new TestRun(3, 300, Result.UNSTABLE);
+        TestRun r4 = new TestRun(4, 400, null);
+        r4.building = true;
+        map.put(r1);
+        map.put(r2);
+        map.put(r3);
+        map.put(r4);
+
+        assertEquals(Arrays.asList(r2), new ArrayList<TestRun>(map.getByResult(Result.FAILURE).values()));
+        assertEquals(Arrays.asList(r4, r3, r2), new ArrayList<TestRun>(map.getFailures().values()));
+        assertEquals(Arrays.asList(r4), new ArrayList<TestRun>(map.getInProgress().values()));
+
+        // once the build completes, it moves into the index
+        r4.result = Result.SUCCESS;
+        r4.building = false;
+        assertEquals(Arrays.asList(r4, r1), new ArrayList<TestRun>(map.getByResult(Result.SUCCESS).values()));
+        assertEquals(Arrays.asList(r3, r2), new ArrayList<TestRun>(map.getFailures().values()));
+        assertTrue(map.getInProgress().isEmpty());
+
+        map.remove(r1);
+        List<TestRun> success = new ArrayList<TestRun>(map.getByResult(Result.SUCCESS).values());
+        assertEquals(Arrays.asList(r4), success);
+        assertTrue(map.getByResult(Result.ABORTED).isEmpty());
+    }
+
+    public void testRemoveWhenNumbersAndTimestampsDisagree() {
+        RunMap<TestRun> map = new RunMap<TestRun>();
+        TestRun r1 = new TestRun(1, 300, Result.SUCCESS);
+        TestRun r2 = new TestRun(2, 100, Result.SUCCESS);
+        TestRun r3 = new TestRun(3, 200, Result.SUCCESS);
+        map.put(r1);
+        map.put(r2);
+        map.put(r3);
+
+        assertTrue(map.remove(r2));
+        assertEquals(Arrays.asList(r1, r3), new ArrayList<TestRun>(map.getByResult(Result.SUCCESS).values()));
+        assertEquals(Arrays.asList(r1, r3), new ArrayList<TestRun>(map.values()));
+    }
+
+    public void testReplaceWithDifferentTimestamp() {
+        RunMap<TestRun> map = new RunMap<TestRun>();
+        TestRun r1 = new TestRun(1, 100, Result.SUCCESS);
+        TestRun r2 = new TestRun(2, 200, Result.FAILURE);
+        TestRun r3 = new TestRun(3, 300, Result.SUCCESS);
+        map.put(r1);
+        map.put(r2);
+        map.put(r3);
+
+        TestRun r2b = new TestRun(2, 400, Result.SUCCESS);
+        map.put(r2b);
+        assertEquals(3, map.size());
+        assertEquals(Arrays.asList(r2b, r3, r1), new ArrayList<TestRun>(map.values()));
+        assertTrue(map.getByResult(Result.FAILURE).isEmpty());
+        assertEquals(Arrays.asList(r2b, r3, r1), new ArrayList<TestRun>(map.getByResult(Result.SUCCESS).values()));
+        assertSame(r3, r2b.getPreviousBuild());
+        assertSame(r2b, r3.getNextBuild());
+        assertSame(r1, r3.getPreviousBuild());
+    }
+}
@@ -106,6 +106,51 @@ public class CronTabTest extends TestCase {
         compare(answer,x.floor(c));
     }
 
+    public void testCeilNeverMatches() throws Exception {
+        CronTab x = new CronTab("0 0 30 2 *");
+        try {
+            x.ceil(new GregorianCalendar(2000,2,1,1,10));
+            fail();
+        } catch (IllegalStateException e) {
+            // expected, rather than looping forever
+        }
+    }
+
+    public void testCeilList() throws Exception {
+        CronTabList x = CronTabList.create("0 0 30 2 *\n30 * * * *\n0,45 * * * *");
+        Calendar c = new GregorianCalendar(2000,2,1,1,10);
+        assertEquals(new GregorianCalendar(2000,2,1,1,30).getTimeInMillis(),x.ceil(c.getTimeInMillis()).getTimeInMillis());
+
+        assertNull(CronTabList.create("0 0 30 2 *").ceil(c.getTimeInMillis()));
+    }
+
+    public void testHash() throws Exception {
+        CronTab x = new CronTab("H H(8-9) * * *",1,Hash.from("foo"));
+        CronTab y = new CronTab("H H(8-9) * * *",1,Hash.from("foo"));
+        // stable for the same seed
+        assertEquals(x.bits[0],y.bits[0]);
+        assertEquals(x.bits[1],y.bits[1]);
+        // exactly one minute, in the given range of hours
+        assertEquals(1,Long.bitCount(x.bits[0]));
+        assertEquals(1,Long.bitCount(x.bits[1]));
+        assertEquals(0,x.bits[1]&~((1L<<8)|(1L<<9)));
+
+        CronTab z = new CronTab("H/15 * * * *",1,Hash.from("bar"));
+        assertEquals(4,Long.bitCount(z.bits[0]));
+        assertTrue(Long.numberOfTrailingZeros(z.bits[0])<15);
+
+        // without a seed, H is the lowest value
+        assertEquals(new CronTab("0 0 1 1 *").bits[0],new CronTab("@yearly").bits[0]);
+        compare(new GregorianCalendar(2000,2,1,2,0),new CronTab("@hourly").ceil(new GregorianCalendar(2000,2,1,1,10)));
+    }
+
+    public void testHashSpreadsLoad() throws Exception {
+        long minutes = 0;
+        for (int i=0; i<100; i++)
+            minutes |= new CronTab("@hourly",1,Hash.from("job"+i)).bits[0];
+        assertTrue(Long.bitCount(minutes)>30);
+    }
+
     /**
      * Humans can't easily see difference in two {@link Calendar}s, do help the diagnosis by using {@link DateFormat}. 
      */
@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm;
+
+import hudson.util.StreamTaskListener;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PollingResultCacheTest extends TestCase {
+    private final PollingResultCache cache = PollingResultCache.get();
+    private final StreamTaskListener listener = StreamTaskListener.fromStdout();
+
+    @Override
+    protected void setUp() throws Exception {
+        cache.clear();
+    }
+
+    public void testConcurrentPollingIsCollapsed() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<PollingResult> slow = new Callable<PollingResult>() {
+            public PollingResult call() throws Exception {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return PollingResult.SIGNIFICANT;
+            }
+        };
+
+        final PollingResult[] results = new PollingResult[2];
+        Thread t1 = new Thread() {
+            public void run() {
+                try {
+                    results[0] = cache.poll("repo", listener, slow);
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }
+        };
+        t1.start();
+        started.await();
+
+        Thread t2 = new Thread() {
+            public void run() {
+                try {
+                    results[1] = cache.poll("repo", listener, slow);
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }
+        };
+        t2.start();
+        Thread.sleep(100);
+        release.countDown();
+        t1.join();
+        t2.join();
+
+        assertEquals(1, calls.get());
+        assertSame(PollingResult.SIGNIFICANT, results[0]);
+        assertSame(PollingResult.SIGNIFICANT, results[1]);
+
+        // reused within the TTL
+        assertSame(PollingResult.SIGNIFICANT, cache.poll("repo", listener, slow));
+        assertEquals(1, calls.get());
+    }
+
+    public void testFailureIsNotCached() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<PollingResult> failing = new Callable<PollingResult>() {
+            public PollingResult call() throws Exception {
+                if (calls.incrementAndGet()==1)
+                    throw new IOException("boom");
+                return PollingResult.NO_CHANGES;
+            }
+        };
+
+        try {
+            cache.poll("repo", listener, failing);
+            fail();
+        } catch (IOException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertSame(PollingResult.NO_CHANGES, cache.poll("repo", listener, failing));
+        assertEquals(2, calls.get());
+    }
+
+    public void testWaiterPollsItselfWhenOwnerIsInterrupted() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final Callable<PollingResult> blocking = new Callable<PollingResult>() {
+            public PollingResult call() throws Exception {
+                started.countDown();
+                new CountDownLatch(1).await();
+                return PollingResult.SIGNIFICANT;
+            }
+        };
+        Thread owner = new Thread() {
+            public void run() {
+                try {
+                    cache.poll("repo", listener, blocking);
+                } catch (InterruptedException e) {
+                    // expected
+                } catch (IOException e) {
+                    throw new Error(e);
+                }
+            }
+        };
+        owner.start();
+        started.await();
+
+        final PollingResult[] result = new PollingResult[1];
+        Thread waiter = new Thread() {
+            public void run() {
+                try {
+                    result[0] = cache.poll("repo", listener, new Callable<PollingResult>() {
+                        public PollingResult call() {
+                            return PollingResult.NO_CHANGES;
+                        }
+                    });
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }
+        };
+        waiter.start();
+        Thread.sleep(100);
+        owner.interrupt();
+        owner.join();
+        waiter.join();
+
+        assertSame(PollingResult.NO_CHANGES, result[0]);
+        // the waiter's own result is shared from now on
+        assertSame(PollingResult.NO_CHANGES, cache.poll("repo", listener, blocking));
+    }
+
+    public void testWaitIsBounded() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<PollingResult> slow = new Callable<PollingResult>() {
+            public PollingResult call() throws Exception {
+                started.countDown();
+                release.await();
+                return PollingResult.SIGNIFICANT;
+            }
+        };
+        Thread owner = new Thread() {
+            public void run() {
+                try {
+                    cache.poll("repo", listener, slow);
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }
+        };
+        owner.start();
+        started.await();
+
+        long timeout = PollingResultCache.WAIT_TIMEOUT;
+        PollingResultCache.WAIT_TIMEOUT = 100;
+        try {
+            assertSame(PollingResult.NO_CHANGES, cache.poll("repo", listener, new Callable<PollingResult>() {
+                public PollingResult call() {
+                    return PollingResult.NO_CHANGES;
+                }
+            }));
+        } finally {
+            PollingResultCache.WAIT_TIMEOUT = timeout;
+            release.countDown();
+            owner.join();
+        }
+        // the owner's result is the one that is shared
+        assertSame(PollingResult.SIGNIFICANT, cache.poll("repo", listener, slow));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.search;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link NGramIndex}.
+ */
+public class NGramIndexTest extends TestCase {
+    private static final class Job implements SearchableModelObject {
+        private final String name;
+        private String displayName;
+
+        Job(String name, String displayName) {
+            this.name = name;
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() { return displayName; }
+        public Search getSearch() { return new Search(); }
+        public String getSearchName() { return name; }
+        public String getSearchUrl() { return name; }
+        public SearchIndex getSearchIndex() { return SearchIndex.EMPTY; }
+    }
+
+    private final NGramIndex<Job> index = new NGramIndex<Job>();
+    private final Job core = new Job("hudson-core", "Hudson Core");
+    private final Job war = new Job("hudson-war", "Hudson WAR");
+    private final Job docs = new Job("docs", "Manuals");
+
+    @Override
+    protected void setUp() throws Exception {
+        index.put(core.name, core);
+        index.put(war.name, war);
+        index.put(docs.name, docs);
+    }
+
+    public void testSubstringMatchIgnoresCase() {
+        assertEquals(list(core, war), index.match("HUDSON"));
+        assertEquals(list(war), index.match("on-w"));
+        assertEquals(list(docs), index.match("manual"));
+        assertEquals(list(docs), index.match("ma"));
+        assertTrue(index.match("hudsonx").isEmpty());
+    }
+
+    public void testTrigramsOutOfSequenceDontMatch() {
+        Job foo = new Job("foo-oob", "foo-oob");
+        index.put(foo.name, foo);
+        assertEquals(list(foo), index.match("oob"));
+        assertTrue(index.match("foob").isEmpty());
+    }
+
+    public void testRemoveAndRename() {
+        index.remove(war.name);
+        assertEquals(list(core), index.match("hudson"));
+
+        Job renamed = new Job("core", "Core");
+        index.remove(core.name);
+        index.put(renamed.name, renamed);
+        assertTrue(index.match("hudson").isEmpty());
+        assertEquals(list(renamed), index.match("core"));
+        assertEquals(2, index.size());
+    }
+
+    public void testPutAgainPicksUpNewDisplayName() {
+        docs.displayName = "User Guide";
+        assertEquals(list(docs), index.match("manual"));
+
+        index.put(docs.name, docs);
+        assertTrue(index.match("manual").isEmpty());
+        assertEquals(list(docs), index.match("guide"));
+        assertEquals(3, index.size());
+    }
+
+    public void testSuggestChecksVisibility() {
+        NGramIndex<Job> filtered = new NGramIndex<Job>() {
+            @Override
+            protected boolean isVisible(Job item) {
+                return item != war;
+            }
+        };
+        filtered.put(core.name, core);
+        filtered.put(war.name, war);
+
+        List<SearchItem> r = new ArrayList<SearchItem>();
+        filtered.suggest("hudson", r);
+        assertEquals(list(core), r);
+
+        r.clear();
+        filtered.find("hudson-war", r);
+        assertTrue(r.isEmpty());
+    }
+
+    private static List<Object> list(Object... items) {
+        List<Object> r = new ArrayList<Object>();
+        for (Object o : items)
+            r.add(o);
+        return r;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.security;
+
+import junit.framework.TestCase;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.AuthenticationException;
+import org.acegisecurity.AuthenticationManager;
+import org.acegisecurity.AuthenticationServiceException;
+import org.acegisecurity.BadCredentialsException;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingAuthenticationManagerTest extends TestCase {
+    /**
+     * Accepts the password "secret", optionally after waiting for {@link #release}.
+     */
+    private static class Delegate implements AuthenticationManager {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile CountDownLatch release;
+
+        public Authentication authenticate(Authentication a) throws AuthenticationException {
+            calls.incrementAndGet();
+            if (release!=null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AuthenticationServiceException("interrupted",e);
+                }
+            }
+            if (!"secret".equals(a.getCredentials()))
+                throw new BadCredentialsException("wrong password");
+            return new UsernamePasswordAuthenticationToken(a.getPrincipal(), a.getCredentials());
+        }
+    }
+
+    private final Delegate delegate = new Delegate();
+    private long ttl, timeout;
+
+    @Override
+    protected void setUp() throws Exception {
+        ttl = CachingAuthenticationManager.TTL;
+        timeout = CachingAuthenticationManager.TIMEOUT;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        CachingAuthenticationManager.TTL = ttl;
+        CachingAuthenticationManager.TIMEOUT = timeout;
+        if (delegate.release!=null)
+            delegate.release.countDown();
+    }
+
+    private static Authentication token(String user, String password) {
+        return new UsernamePasswordAuthenticationToken(user, password);
+    }
+
+    public void testSuccessIsCached() {
+        CachingAuthenticationManager m = new CachingAuthenticationManager(delegate);
+        Authentication first = m.authenticate(token("alice", "secret"));
+        assertSame(first, m.authenticate(token("alice", "secret")));
+        assertEquals(1, delegate.calls.get());
+
+        // another user with the same password
+        assertNotSame(first, m.authenticate(token("bob", "secret")));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    public void testFailureIsNotCached() {
+        CachingAuthenticationManager m = new CachingAuthenticationManager(delegate);
+        for (int i=0; i<2; i++) {
+            try {
+                m.authenticate(token("alice", "wrong"));
+                fail();
+            } catch (BadCredentialsException e) {
+                // expected
+            }
+        }
+        assertEquals(2, delegate.calls.get());
+    }
+
+    public void testDifferentPasswordsDontShareAnEntry() {
+        CachingAuthenticationManager m = new CachingAuthenticationManager(delegate);
+        m.authenticate(token("alice", "secret"));
+        try {
+            m.authenticate(token("alice", "wrong"));
+            fail("a wrong password must not be answered from the cache");
+        } catch (BadCredentialsException e) {
+            // expected
+        }
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, m.getCache().size());
+    }
+
+    public void testEntriesExpire() throws Exception {
+        CachingAuthenticationManager.TTL = 50;
+        CachingAuthenticationManager m = new CachingAuthenticationManager(delegate);
+        m.authenticate(token("alice", "secret"));
+        Thread.sleep(100);
+        m.authenticate(token("alice", "secret"));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    public void testCachingCanBeDisabled() {
+        CachingAuthenticationManager.TTL = 0;
+        CachingAuthenticationManager m = new CachingAuthenticationManager(delegate);
+        assertNull(m.getCache());
+        m.authenticate(token("alice", "secret"));
+        m.authenticate(token("alice", "secret"));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    public void testTimeout() {
+        CachingAuthenticationManager.TIMEOUT = 100;
+        delegate.release = new CountDownLatch(1);
+        CachingAuthenticationManager m = new CachingAuthenticationManager(delegate);
+        try {
+            m.authenticate(token("alice", "secret"));
+            fail();
+        } catch (AuthenticationServiceException e) {
+            assertEquals("Authentication timed out", e.getMessage());
+        }
+        assertEquals(0, m.getCache().size());
+    }
+
+    public void testRejectedWhenThePoolIsFull() throws Exception {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1));
+        try {
+            delegate.release = new CountDownLatch(1);
+            final CachingAuthenticationManager m = new CachingAuthenticationManager(delegate, pool);
+
+            // one authentication running and one waiting
+            Thread[] clients = new Thread[2];
+            for (int i=0; i<clients.length; i++) {
+                clients[i] = new Thread() {
+                    public void run() {
+                        m.authenticate(token("alice", "secret"));
+                    }
+                };
+                clients[i].start();
+            }
+            while (pool.getActiveCount()+pool.getQueue().size()<2)
+                Thread.sleep(10);
+
+            try {
+                m.authenticate(token("bob", "secret"));
+                fail();
+            } catch (AuthenticationServiceException e) {
+                assertEquals("Too many authentications in progress", e.getMessage());
+            }
+
+            delegate.release.countDown();
+            for (Thread t : clients)
+                t.join();
+            assertEquals(2, delegate.calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.security;
+
+import hudson.security.LDAPSecurityRealm.AuthoritiesPopulatorImpl;
+import hudson.security.LDAPSecurityRealm.CacheConfiguration;
+import hudson.security.LDAPSecurityRealm.LDAPUserDetailsService;
+import hudson.util.TimedCache;
+import junit.framework.TestCase;
+import org.acegisecurity.GrantedAuthority;
+import org.acegisecurity.GrantedAuthorityImpl;
+import org.acegisecurity.ldap.InitialDirContextFactory;
+import org.acegisecurity.ldap.LdapDataAccessException;
+import org.acegisecurity.ldap.LdapTemplate;
+import org.acegisecurity.ldap.LdapUserSearch;
+import org.acegisecurity.providers.ldap.LdapAuthoritiesPopulator;
+import org.acegisecurity.userdetails.UsernameNotFoundException;
+import org.acegisecurity.userdetails.ldap.LdapUserDetails;
+import org.acegisecurity.userdetails.ldap.LdapUserDetailsImpl;
+import org.springframework.dao.DataAccessException;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchResult;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the caching of the user, group membership and group lookups against stub directories.
+ */
+public class LDAPSecurityRealmTest extends TestCase {
+    /**
+     * Finds every user, unless told to fail.
+     */
+    private static class UserSearch implements LdapUserSearch {
+        int calls;
+        RuntimeException failure;
+
+        public LdapUserDetails searchForUser(String username) {
+            calls++;
+            if (failure!=null) {
+                RuntimeException e = failure;
+                failure = null;
+                throw e;
+            }
+            LdapUserDetailsImpl.Essence user = new LdapUserDetailsImpl.Essence();
+            user.setDn("uid="+username+",ou=people,dc=example,dc=com");
+            user.setUsername(username);
+            user.setPassword("");
+            user.setAttributes(new BasicAttributes("mail", username+"@example.com"));
+            return user.createUserDetails();
+        }
+    }
+
+    /**
+     * Puts everyone in the developers group.
+     */
+    private static class AuthoritiesPopulator implements LdapAuthoritiesPopulator {
+        int calls;
+
+        public GrantedAuthority[] getGrantedAuthorities(LdapUserDetails userDetails) {
+            calls++;
+            return new GrantedAuthority[] {new GrantedAuthorityImpl("ROLE_DEVELOPERS")};
+        }
+    }
+
+    /**
+     * Directory whose searches return the entries of {@link #values} as "cn" attributes, counting the searches.
+     */
+    private static class Directory implements InitialDirContextFactory, InvocationHandler {
+        int searches;
+        List<String> values = Arrays.asList("developers");
+        boolean down;
+
+        public DirContext newInitialDirContext() {
+            return (DirContext)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {DirContext.class}, this);
+        }
+
+        public DirContext newInitialDirContext(String username, String password) {
+            return newInitialDirContext();
+        }
+
+        public String getRootDn() {
+            return "dc=example,dc=com";
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("search"))
+                return null;
+            searches++;
+            if (down)
+                throw new CommunicationException("down");
+            List<SearchResult> results = new ArrayList<SearchResult>();
+            for (String v : values)
+                results.add(new SearchResult("cn="+v, null, new BasicAttributes("cn", v)));
+            return new Results(results.iterator());
+        }
+    }
+
+    private static class Results implements NamingEnumeration<SearchResult> {
+        private final Iterator<SearchResult> itr;
+
+        Results(Iterator<SearchResult> itr) {
+            this.itr = itr;
+        }
+
+        public SearchResult next() {
+            return itr.next();
+        }
+
+        public boolean hasMore() {
+            return itr.hasNext();
+        }
+
+        public void close() {
+        }
+
+        public boolean hasMoreElements() {
+            return itr.hasNext();
+        }
+
+        public SearchResult nextElement() {
+            return itr.next();
+        }
+    }
+
+    private final UserSearch search = new UserSearch();
+    private final AuthoritiesPopulator populator = new AuthoritiesPopulator();
+    private final Directory directory = new Directory();
+
+    public void testUserLookupIsCached() {
+        LDAPUserDetailsService service = new LDAPUserDetailsService(search, populator,
+                new TimedCache<String,LdapUserDetails>(10, 60000));
+
+        LdapUserDetails alice = service.loadUserByUsername("alice");
+        assertEquals("alice", alice.getUsername());
+        assertEquals(Arrays.asList(new GrantedAuthorityImpl("ROLE_DEVELOPERS")), Arrays.asList(alice.getAuthorities()));
+        assertSame(alice, service.loadUserByUsername("alice"));
+        assertEquals(1, search.calls);
+        assertEquals(1, populator.calls);
+
+        service.loadUserByUsername("bob");
+        assertEquals(2, search.calls);
+    }
+
+    public void testUserLookupIsNotCachedWithoutCache() {
+        LDAPUserDetailsService service = new LDAPUserDetailsService(search, populator);
+        service.loadUserByUsername("alice");
+        service.loadUserByUsername("alice");
+        assertEquals(2, search.calls);
+        assertEquals(2, populator.calls);
+    }
+
+    public void testUserLookupExpires() throws Exception {
+        LDAPUserDetailsService service = new LDAPUserDetailsService(search, populator,
+                new TimedCache<String,LdapUserDetails>(10, 1));
+        service.loadUserByUsername("alice");
+        Thread.sleep(20);
+        service.loadUserByUsername("alice");
+        assertEquals(2, search.calls);
+    }
+
+    public void testUserLookupFailureIsNotCached() {
+        LDAPUserDetailsService service = new LDAPUserDetailsService(search, populator,
+                new TimedCache<String,LdapUserDetails>(10, 60000));
+
+        search.failure = new UsernameNotFoundException("alice");
+        try {
+            service.loadUserByUsername("alice");
+            fail();
+        } catch (UsernameNotFoundException e) {
+            // expected
+        }
+
+        search.failure = new LdapDataAccessException("down");
+        try {
+            service.loadUserByUsername("alice");
+            fail();
+        } catch (UserMayOrMayNotExistException e) {
+            // expected
+        }
+
+        assertEquals("alice", service.loadUserByUsername("alice").getUsername());
+        service.loadUserByUsername("alice");
+        assertEquals(3, search.calls);
+    }
+
+    private AuthoritiesPopulatorImpl membership(TimedCache<String,Set> cache) {
+        AuthoritiesPopulatorImpl p = new AuthoritiesPopulatorImpl(directory, "ou=groups");
+        p.setCache(cache);
+        return p;
+    }
+
+    public void testGroupMembershipIsCached() {
+        AuthoritiesPopulatorImpl p = membership(new TimedCache<String,Set>(10, 60000));
+        String dn = "uid=alice,ou=people,dc=example,dc=com";
+
+        assertEquals(Collections.singleton(new GrantedAuthorityImpl("ROLE_DEVELOPERS")), p.getGroupMembershipRoles(dn, "alice"));
+        assertEquals(Collections.singleton(new GrantedAuthorityImpl("ROLE_DEVELOPERS")), p.getGroupMembershipRoles(dn, "alice"));
+        assertEquals(1, directory.searches);
+
+        p.getGroupMembershipRoles("uid=bob,ou=people,dc=example,dc=com", "bob");
+        assertEquals(2, directory.searches);
+    }
+
+    public void testGroupMembershipExpires() throws Exception {
+        AuthoritiesPopulatorImpl p = membership(new TimedCache<String,Set>(10, 1));
+        String dn = "uid=alice,ou=people,dc=example,dc=com";
+        p.getGroupMembershipRoles(dn, "alice");
+        Thread.sleep(20);
+        p.getGroupMembershipRoles(dn, "alice");
+        assertEquals(2, directory.searches);
+    }
+
+    public void testGroupMembershipIsACopy() {
+        AuthoritiesPopulatorImpl p = membership(new TimedCache<String,Set>(10, 60000));
+        String dn = "uid=alice,ou=people,dc=example,dc=com";
+
+        // the authentication adds the automatic roles to the returned set
+        p.getGroupMembershipRoles(dn, "alice").add(new GrantedAuthorityImpl("ROLE_ADMINS"));
+        assertEquals(Collections.singleton(new GrantedAuthorityImpl("ROLE_DEVELOPERS")), p.getGroupMembershipRoles(dn, "alice"));
+        assertEquals(1, directory.searches);
+    }
+
+    public void testGroupMembershipFailureIsNotCached() {
+        AuthoritiesPopulatorImpl p = membership(new TimedCache<String,Set>(10, 60000));
+        String dn = "uid=alice,ou=people,dc=example,dc=com";
+
+        directory.down = true;
+        try {
+            p.getGroupMembershipRoles(dn, "alice");
+            fail();
+        } catch (DataAccessException e) {
+            // expected
+        }
+
+        directory.down = false;
+        assertEquals(Collections.singleton(new GrantedAuthorityImpl("ROLE_DEVELOPERS")), p.getGroupMembershipRoles(dn, "alice"));
+        p.getGroupMembershipRoles(dn, "alice");
+        assertEquals(2, directory.searches);
+    }
+
+    private LDAPSecurityRealm realm(CacheConfiguration cache) {
+        LDAPSecurityRealm realm = new LDAPSecurityRealm("ldap.example.com", "dc=example,dc=com", null, null, "ou=groups", null, null, cache) {
+            // stands in for the Groovy wiring, which needs a running Hudson
+            @Override
+            public SecurityComponents createSecurityComponents() {
+                return new SecurityComponents(new AuthenticationManagerProxy(),
+                        new LDAPUserDetailsService(search, new AuthoritiesPopulatorImpl(directory, "ou=groups")),
+                        new TokenBasedRememberMeServices2());
+            }
+        };
+        realm.initialize(new LdapTemplate(directory));
+        return realm;
+    }
+
+    public void testGroupLookupIsCached() {
+        LDAPSecurityRealm realm = realm(new CacheConfiguration(10, 60));
+
+        assertEquals("developers", realm.loadGroupByGroupname("ROLE_DEVELOPERS").getName());
+        assertEquals("developers", realm.loadGroupByGroupname("ROLE_DEVELOPERS").getName());
+        assertEquals(1, directory.searches);
+    }
+
+    public void testGroupLookupIsNotCachedWithoutCache() {
+        LDAPSecurityRealm realm = realm(null);
+
+        realm.loadGroupByGroupname("ROLE_DEVELOPERS");
+        realm.loadGroupByGroupname("ROLE_DEVELOPERS");
+        assertEquals(2, directory.searches);
+    }
+
+    public void testMissingGroupIsNotCached() {
+        LDAPSecurityRealm realm = realm(new CacheConfiguration(10, 60));
+        directory.values = Collections.emptyList();
+
+        for (int i=0; i<2; i++) {
+            try {
+                realm.loadGroupByGroupname("ROLE_NOBODY");
+                fail();
+            } catch (UsernameNotFoundException e) {
+                // expected
+            }
+        }
+        assertEquals(2, directory.searches);
+
+        directory.values = Arrays.asList("nobody");
+        assertEquals("nobody", realm.loadGroupByGroupname("ROLE_NOBODY").getName());
+    }
+}
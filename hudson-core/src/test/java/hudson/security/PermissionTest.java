@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.security;
+
+import hudson.model.Item;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PermissionTest extends TestCase {
+    private static final PermissionGroup GROUP = new PermissionGroup(PermissionTest.class, null);
+    private static final Permission ROOT = new Permission(GROUP, "Root", null, null);
+    private static final Permission MIDDLE = new Permission(GROUP, "Middle", null, ROOT);
+    private static final Permission LEAF = new Permission(GROUP, "Leaf", null, MIDDLE);
+
+    public void testImpliedByClosure() {
+        assertEquals(Arrays.asList(ROOT), ROOT.getImpliedByClosure());
+        assertEquals(Arrays.asList(LEAF, MIDDLE, ROOT), LEAF.getImpliedByClosure());
+    }
+
+    public void testImpliedByClosureMatchesImpliedBy() {
+        assertNotNull(Item.CONFIGURE);  // defines the permissions of the core
+        for (Permission p : Permission.getAll()) {
+            List<Permission> walk = new ArrayList<Permission>();
+            for (Permission q = p; q!=null; q = q.impliedBy)
+                walk.add(q);
+            assertEquals(p.getId(), walk, p.getImpliedByClosure());
+        }
+    }
+
+    public void testImpliedByClosureIsReadOnly() {
+        try {
+            LEAF.getImpliedByClosure().add(ROOT);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
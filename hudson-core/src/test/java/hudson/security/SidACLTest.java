@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.security;
+
+import junit.framework.TestCase;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.GrantedAuthority;
+import org.acegisecurity.GrantedAuthorityImpl;
+import org.acegisecurity.acls.sid.Sid;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class SidACLTest extends TestCase {
+    private static final PermissionGroup GROUP = new PermissionGroup(SidACLTest.class, null);
+    private static final Permission ROOT = new Permission(GROUP, "Root", null, null);
+    private static final Permission LEAF = new Permission(GROUP, "Leaf", null, ROOT);
+
+    /**
+     * Grants permissions to SIDs, and counts how often it is asked.
+     */
+    private static class CountingACL extends SidACL {
+        private final Map<String,Set<Permission>> granted = new HashMap<String,Set<Permission>>();
+        private final boolean cacheable;
+        int calls;
+
+        CountingACL(boolean cacheable) {
+            this.cacheable = cacheable;
+        }
+
+        void grant(String sid, Permission p) {
+            Set<Permission> s = granted.get(sid);
+            if (s==null)
+                granted.put(sid, s=new HashSet<Permission>());
+            s.add(p);
+            invalidateDecisions();
+        }
+
+        protected Boolean hasPermission(Sid sid, Permission p) {
+            calls++;
+            Set<Permission> s = granted.get(toString(sid));
+            return s!=null && s.contains(p) ? Boolean.TRUE : null;
+        }
+
+        @Override
+        protected boolean isDecisionCacheable() {
+            return cacheable;
+        }
+    }
+
+    private static Authentication auth(String user, String... authorities) {
+        GrantedAuthority[] a = new GrantedAuthority[authorities.length];
+        for (int i=0; i<a.length; i++)
+            a[i] = new GrantedAuthorityImpl(authorities[i]);
+        return new UsernamePasswordAuthenticationToken(user, "", a);
+    }
+
+    public void testDecisionsAreCached() {
+        CountingACL acl = new CountingACL(true);
+        acl.grant("alice", LEAF);
+
+        assertTrue(acl.hasPermission(auth("alice"), LEAF));
+        assertFalse(acl.hasPermission(auth("alice"), ROOT));
+        int calls = acl.calls;
+
+        // other authentications of the same user, as made by other requests
+        assertTrue(acl.hasPermission(auth("alice"), LEAF));
+        assertFalse(acl.hasPermission(auth("alice"), ROOT));
+        assertEquals(calls, acl.calls);
+    }
+
+    public void testDecisionsAreNotCachedUnlessCacheable() {
+        CountingACL acl = new CountingACL(false);
+        acl.grant("alice", LEAF);
+
+        assertTrue(acl.hasPermission(auth("alice"), LEAF));
+        int calls = acl.calls;
+        assertTrue(acl.hasPermission(auth("alice"), LEAF));
+        assertEquals(2*calls, acl.calls);
+    }
+
+    public void testDecisionsAreNotSharedAcrossAuthorities() {
+        CountingACL acl = new CountingACL(true);
+        acl.grant("admins", LEAF);
+
+        assertTrue(acl.hasPermission(auth("alice", "admins"), LEAF));
+        assertFalse(acl.hasPermission(auth("alice"), LEAF));
+        assertFalse(acl.hasPermission(auth("alice", "users"), LEAF));
+        assertTrue(acl.hasPermission(auth("alice", "admins"), LEAF));
+    }
+
+    public void testGlobalMatrixAddInvalidates() {
+        GlobalMatrixAuthorizationStrategy strategy = new GlobalMatrixAuthorizationStrategy();
+        SidACL acl = strategy.getRootACL();
+        assertFalse(acl.hasPermission(auth("bob"), LEAF));
+
+        strategy.add(ROOT, "bob");
+        assertTrue(acl.hasPermission(auth("bob"), LEAF));
+        assertTrue(acl.hasPermission(auth("bob"), ROOT));
+    }
+
+    public void testMatrixPropertyAddInvalidates() {
+        AuthorizationMatrixProperty property = new AuthorizationMatrixProperty(new HashMap<Permission,Set<String>>());
+        SidACL acl = property.getACL();
+        assertFalse(acl.hasPermission(auth("bob", "developers"), LEAF));
+
+        property.add(LEAF, "developers");
+        assertTrue(acl.hasPermission(auth("bob", "developers"), LEAF));
+        assertFalse(acl.hasPermission(auth("bob", "developers"), ROOT));
+    }
+
+    public void testSetEnabledInvalidates() {
+        GlobalMatrixAuthorizationStrategy strategy = new GlobalMatrixAuthorizationStrategy();
+        strategy.add(ROOT, "carol");
+        SidACL acl = strategy.getRootACL();
+        assertTrue(acl.hasPermission(auth("carol"), LEAF));
+
+        ROOT.setEnabled(false);
+        try {
+            assertFalse(acl.hasPermission(auth("carol"), LEAF));
+        } finally {
+            ROOT.setEnabled(true);
+        }
+        assertTrue(acl.hasPermission(auth("carol"), LEAF));
+    }
+}
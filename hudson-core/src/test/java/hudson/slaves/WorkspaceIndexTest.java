@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.slaves;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.util.io.ParallelDeleter;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class WorkspaceIndexTest extends TestCase {
+    private File tmp;
+    private FilePath root;
+    private FilePath custom;
+    private FilePath nested;
+    private final WorkspaceList wsl = new WorkspaceList();
+
+    @Override
+    protected void setUp() throws Exception {
+        tmp = Util.createTempDir();
+        root = new FilePath(new File(tmp, "workspace"));
+        root.child("build").mkdirs();
+        nested = root.child("job/label/linux");
+        nested.mkdirs();
+        custom = new FilePath(new File(tmp, "data/build"));
+        custom.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // let the background deletions finish first
+        for (ParallelDeleter.Progress p : ParallelDeleter.get().getInProgress())
+            p.await();
+        Util.deleteRecursive(tmp);
+    }
+
+    public void testRecordsAreKeyedRelativeToTheRoot() throws Exception {
+        wsl.acquire(custom).release();
+        wsl.acquire(nested).release();
+        WorkspaceIndex index = wsl.getIndex();
+        index.seed(root);
+
+        Map<String,WorkspaceIndex.Record> records = index.getRecords(root);
+        assertEquals(Arrays.asList("build", "job", "job/label/linux"), Arrays.asList(records.keySet().toArray()));
+        // the custom workspace is known, but not as a child of the root
+        assertNotNull(index.get(custom));
+        assertEquals(4, index.getRecords().size());
+    }
+
+    public void testDeletingNestedWorkspaceLeavesNamesakesAlone() throws Exception {
+        wsl.acquire(custom).release();
+        wsl.acquire(nested).release();
+        WorkspaceIndex index = wsl.getIndex();
+        index.seed(root);
+
+        assertTrue(index.delete(root, Collections.singletonList("job/label/linux")).isEmpty());
+        assertFalse(nested.exists());
+        assertTrue(root.child("job").exists());
+        assertTrue(root.child("build").exists());
+        assertTrue(custom.exists());
+        assertNull(index.get(nested));
+    }
+
+    public void testDeletingParentDropsNestedRecords() throws Exception {
+        wsl.acquire(nested).release();
+        WorkspaceIndex index = wsl.getIndex();
+        index.seed(root);
+
+        assertTrue(index.delete(root, Collections.singletonList("job")).isEmpty());
+        assertFalse(root.child("job").exists());
+        assertEquals(Collections.singleton("build"), index.getRecords(root).keySet());
+    }
+
+    public void testInUseWithin() throws Exception {
+        WorkspaceList.Lease lease = wsl.acquire(nested);
+        assertTrue(wsl.isInUseWithin(root.child("job")));
+        assertTrue(wsl.isInUseWithin(nested.child("sub")));
+        assertFalse(wsl.isInUseWithin(root.child("build")));
+        assertFalse(wsl.isInUseWithin(root.child("jo")));
+        lease.release();
+        assertFalse(wsl.isInUseWithin(root.child("job")));
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.triggers;
+
+import hudson.model.SCMedItem;
+import hudson.scm.NullSCM;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+public class PollingSchedulerTest extends TestCase {
+    /**
+     * SCM of the given repository, whose host is that of the URL.
+     */
+    private static class RepositorySCM extends NullSCM {
+        private final String repository;
+
+        RepositorySCM(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public String getRepositoryKey() {
+            return repository;
+        }
+    }
+
+    /**
+     * Records the order of the polls, optionally waiting for {@link #release} before finishing.
+     */
+    private class PollRunner extends SCMTrigger.Runner {
+        final String name;
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile CountDownLatch release;
+        volatile Thread thread;
+
+        PollRunner(SCMTrigger trigger, String name) {
+            trigger.super();
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            polled.add(name);
+            started.countDown();
+            if (release!=null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+
+        PollRunner blocking() {
+            release = new CountDownLatch(1);
+            return this;
+        }
+
+        void finish() {
+            release.countDown();
+        }
+
+        boolean hasStarted(long timeout) throws InterruptedException {
+            return started.await(timeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final PollingScheduler scheduler = new PollingScheduler();
+    private final List<String> polled = Collections.synchronizedList(new ArrayList<String>());
+    private final List<PollRunner> runners = new ArrayList<PollRunner>();
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (PollRunner r : runners)
+            if (r.release!=null)
+                r.release.countDown();
+        scheduler.getExecutors().shutdown();
+    }
+
+    private PollRunner runner(String name, String repository) throws Exception {
+        SCMedItem job = createNiceMock(SCMedItem.class);
+        expect(job.getFullName()).andReturn(name).anyTimes();
+        expect(job.getScm()).andReturn(new RepositorySCM(repository)).anyTimes();
+        replay(job);
+        return runner(job);
+    }
+
+    /**
+     * Another request to poll the same job.
+     */
+    private PollRunner runner(SCMedItem job) throws Exception {
+        SCMTrigger trigger = new SCMTrigger("");
+        trigger.job = job;
+        PollRunner r = new PollRunner(trigger, job.getFullName());
+        runners.add(r);
+        return r;
+    }
+
+    private void awaitPolled(String... expected) throws InterruptedException {
+        long end = System.currentTimeMillis()+5000;
+        while (polled.size()<expected.length) {
+            assertTrue("polling didn't finish", System.currentTimeMillis()<end);
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(expected), polled);
+    }
+
+    public void testJobsOfARepositoryArePolledTogether() throws Exception {
+        scheduler.setLimits(1, 0);
+        PollRunner busy = runner("busy", "http://host/busy").blocking();
+        scheduler.execute(busy);
+        assertTrue(busy.hasStarted(5000));
+
+        PollRunner a = runner("a", "http://host/shared");
+        PollRunner b = runner("b", "http://host/shared");
+        scheduler.execute(a);
+        scheduler.execute(b);
+        scheduler.execute(runner(a.getTarget()));   // merged with the pending request
+        assertEquals(2, scheduler.getPendingCount());
+
+        busy.finish();
+        awaitPolled("busy", "a", "b");
+        assertSame(a.thread, b.thread);
+    }
+
+    public void testPerHostLimit() throws Exception {
+        scheduler.setLimits(0, 1);
+        PollRunner first = runner("first", "http://host/one").blocking();
+        PollRunner second = runner("second", "http://host/two");
+        PollRunner other = runner("other", "http://other/one");
+        scheduler.execute(first);
+        assertTrue(first.hasStarted(5000));
+        scheduler.execute(second);
+        scheduler.execute(other);
+
+        assertTrue(other.hasStarted(5000));
+        assertFalse("second repository on the same host must wait", second.hasStarted(200));
+
+        first.finish();
+        assertTrue(second.hasStarted(5000));
+    }
+
+    public void testRepositoryIsNotPolledConcurrently() throws Exception {
+        PollRunner first = runner("first", "http://host/shared").blocking();
+        PollRunner second = runner("second", "http://host/shared");
+        scheduler.execute(first);
+        assertTrue(first.hasStarted(5000));
+        scheduler.execute(second);
+
+        assertFalse("the repository is being polled", second.hasStarted(200));
+        assertEquals(1, scheduler.getPendingCount());
+
+        first.finish();
+        assertTrue(second.hasStarted(5000));
+        awaitPolled("first", "second");
+    }
+
+    public void testCheapPollsGoFirst() throws Exception {
+        scheduler.setLimits(1, 0);
+        PollRunner busy = runner("busy", "http://host/busy").blocking();
+        scheduler.execute(busy);
+        assertTrue(busy.hasStarted(5000));
+
+        PollRunner slow = runner("slow", "http://host/slow");
+        PollRunner cheap = runner("cheap", "http://host/cheap");
+        scheduler.record(slow.getTarget(), TimeUnit.MINUTES.toMillis(10), false);
+        scheduler.record(cheap.getTarget(), 10, false);
+        scheduler.execute(slow);
+        Thread.sleep(10);
+        scheduler.execute(cheap);
+
+        busy.finish();
+        awaitPolled("busy", "cheap", "slow");
+    }
+
+    public void testRecentChangesGoFirst() throws Exception {
+        scheduler.setLimits(1, 0);
+        PollRunner busy = runner("busy", "http://host/busy").blocking();
+        scheduler.execute(busy);
+        assertTrue(busy.hasStarted(5000));
+
+        PollRunner quiet = runner("quiet", "http://host/quiet");
+        PollRunner active = runner("active", "http://host/active");
+        scheduler.record(quiet.getTarget(), 10, false);
+        scheduler.record(active.getTarget(), 10, true);
+        scheduler.execute(quiet);
+        Thread.sleep(10);
+        scheduler.execute(active);
+
+        busy.finish();
+        awaitPolled("busy", "active", "quiet");
+    }
+
+    public void testSetLimitsWhileRunning() throws Exception {
+        scheduler.setLimits(1, 0);
+        PollRunner first = runner("first", "http://host/one").blocking();
+        PollRunner second = runner("second", "http://other/two");
+        scheduler.execute(first);
+        assertTrue(first.hasStarted(5000));
+        scheduler.execute(second);
+        assertFalse("only one thread", second.hasStarted(200));
+
+        scheduler.setLimits(2, 0);
+        assertTrue(second.hasStarted(5000));
+
+        // and the per-host limit
+        scheduler.setLimits(0, 1);
+        PollRunner third = runner("third", "http://host/three");
+        scheduler.execute(third);
+        assertFalse("host limit", third.hasStarted(200));
+        scheduler.setLimits(0, 0);
+        assertTrue(third.hasStarted(5000));
+        first.finish();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.triggers;
+
+import antlr.ANTLRException;
+import hudson.model.AbstractProject;
+import hudson.model.FreeStyleProjectMock;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.ItemIndex;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.easymock.EasyMock.expect;
+import static org.powermock.api.easymock.PowerMock.createNiceMock;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replayAll;
+
+/**
+ * Test for {@link TriggerScheduler}.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Hudson.class, ItemIndex.class, ItemIndex.Snapshot.class})
+public class TriggerSchedulerTest {
+    private static final long MINUTE = 60 * 1000;
+
+    /**
+     * Runs the due triggers on the ticking thread.
+     */
+    private static class DirectExecutor extends AbstractExecutorService {
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        public void shutdown() {
+        }
+
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        public boolean isShutdown() {
+            return false;
+        }
+
+        public boolean isTerminated() {
+            return false;
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    private class TestTrigger extends Trigger<Item> {
+        private final String name;
+
+        TestTrigger(String name, String spec) throws ANTLRException {
+            super(spec);
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            fired.add(name);
+        }
+    }
+
+    private static class TestProject extends FreeStyleProjectMock {
+        private volatile List<Trigger<?>> triggers = new ArrayList<Trigger<?>>();
+
+        TestProject(String name) {
+            super(name);
+        }
+
+        @Override
+        public List<Trigger<?>> getTriggersList() {
+            return triggers;
+        }
+
+        void setTriggers(Trigger<?>... triggers) {
+            this.triggers = Arrays.asList(triggers);
+        }
+    }
+
+    private final List<String> fired = Collections.synchronizedList(new ArrayList<String>());
+    private final TriggerScheduler scheduler = new TriggerScheduler(new DirectExecutor());
+    private final TestProject a = new TestProject("a");
+    private final TestProject b = new TestProject("b");
+
+    /**
+     * The start of the next hour, so that the ticks of the tests are never late.
+     */
+    private long base;
+
+    @Before
+    public void setUp() throws Exception {
+        Calendar c = Calendar.getInstance();
+        c.set(Calendar.MINUTE, 0);
+        c.set(Calendar.SECOND, 0);
+        c.set(Calendar.MILLISECOND, 0);
+        c.add(Calendar.HOUR_OF_DAY, 1);
+        base = c.getTimeInMillis();
+
+        Hudson hudson = createNiceMock(Hudson.class);
+        ItemIndex index = createNiceMock(ItemIndex.class);
+        ItemIndex.Snapshot snapshot = createNiceMock(ItemIndex.Snapshot.class);
+        mockStatic(Hudson.class);
+        expect(Hudson.getInstance()).andReturn(hudson).anyTimes();
+        expect(hudson.getItemIndex()).andReturn(index).anyTimes();
+        expect(index.getSnapshot()).andReturn(snapshot).anyTimes();
+        expect(snapshot.getAll(AbstractProject.class)).andReturn(Arrays.<AbstractProject>asList(a, b)).anyTimes();
+        expect(snapshot.get("b")).andReturn(b).anyTimes();
+        replayAll();
+    }
+
+    private void tick(long t) {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(t);
+        scheduler.tick(c);
+    }
+
+    private long next(AbstractProject<?,?> p) {
+        return scheduler.getNextFireTime(p).getTimeInMillis();
+    }
+
+    @Test
+    public void testDueTriggersFireInOrderOfTheirTime() throws Exception {
+        a.setTriggers(new TestTrigger("a", "10 * * * *"));
+        b.setTriggers(new TestTrigger("b", "5 * * * *"));
+
+        tick(base);
+        assertTrue(fired.isEmpty());
+        assertEquals(2, scheduler.getScheduledCount());
+        assertEquals(base + 5 * MINUTE, next(b));
+
+        tick(base + 4 * MINUTE);
+        assertTrue(fired.isEmpty());
+
+        // the cron thread skipped a few minutes; both come due at once
+        tick(base + 12 * MINUTE);
+        assertEquals(Arrays.asList("b", "a"), fired);
+        assertEquals(base + 65 * MINUTE, next(b));
+        assertEquals(base + 70 * MINUTE, next(a));
+        assertEquals(2, scheduler.getFiredCount());
+        assertEquals(0, scheduler.getMissedTicks());
+    }
+
+    @Test
+    public void testDirtyProjectIsRescheduled() throws Exception {
+        a.setTriggers(new TestTrigger("a", "5 * * * *"));
+        tick(base);
+        assertEquals(base + 5 * MINUTE, next(a));
+
+        a.setTriggers(new TestTrigger("a2", "7 * * * *"));
+        scheduler.markDirty(a);
+        tick(base + 5 * MINUTE);
+        assertTrue(fired.isEmpty());
+        assertEquals(base + 7 * MINUTE, next(a));
+
+        tick(base + 7 * MINUTE);
+        assertEquals(Arrays.asList("a2"), fired);
+    }
+
+    @Test
+    public void testReplacedTriggerIsNotRunAndRescheduled() throws Exception {
+        a.setTriggers(new TestTrigger("a", "5 * * * *"));
+        tick(base);
+
+        // replaced without notice
+        a.setTriggers(new TestTrigger("a2", "6 * * * *"));
+        tick(base + 5 * MINUTE);
+        assertTrue(fired.isEmpty());
+
+        tick(base + 6 * MINUTE);
+        assertEquals(Arrays.asList("a2"), fired);
+    }
+
+    @Test
+    public void testSavingAProjectReschedulesItsCascadingChildren() throws Exception {
+        a.setTriggers(new TestTrigger("a", "5 * * * *"));
+        b.setTriggers(new TestTrigger("b", "5 * * * *"));
+        a.addCascadingChild("b");
+        tick(base);
+
+        b.setTriggers(new TestTrigger("b2", "8 * * * *"));
+        // what SaveableListenerImpl does when the parent is saved
+        scheduler.markDirtyWithCascadingChildren(a);
+        tick(base + MINUTE);
+        assertEquals(base + 8 * MINUTE, next(b));
+    }
+
+    @Test
+    public void testLateTicksAreCountedAndCatchUp() throws Exception {
+        long t = base - 2 * 60 * MINUTE;
+        a.setTriggers(new TestTrigger("a", "* * * * *"));
+
+        tick(t);
+        assertEquals(Arrays.asList("a"), fired);
+        assertEquals(1, scheduler.getMissedTicks());
+
+        // minutes in between were never ticked; the trigger fires once, not once per missed minute
+        tick(t + 5 * MINUTE);
+        assertEquals(Arrays.asList("a", "a"), fired);
+        assertEquals(2, scheduler.getMissedTicks());
+        assertEquals(t + 6 * MINUTE, next(a));
+    }
+}
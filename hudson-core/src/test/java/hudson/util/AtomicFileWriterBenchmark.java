@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util;
+
+import hudson.Util;
+import hudson.util.AtomicFileWriter.Sync;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the cost of the {@link Sync} modes for many small XML files written concurrently,
+ * the way builds and jobs save their records.
+ *
+ * <p>
+ * Not a unit test, since the numbers depend on the disk; run it with {@link #main(String[])}.
+ */
+public class AtomicFileWriterBenchmark {
+    private static final int THREADS = 8;
+    private static final int FILES_PER_THREAD = 50;
+    private static final String XML = "<?xml version='1.0' encoding='UTF-8'?>\n<build><number>1</number><result>SUCCESS</result></build>\n";
+
+    private final File dir;
+
+    private AtomicFileWriterBenchmark(File dir) {
+        this.dir = dir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File dir = Util.createTempDir();
+        try {
+            AtomicFileWriterBenchmark b = new AtomicFileWriterBenchmark(dir);
+            b.run(Sync.NONE);     // warm up
+            System.out.println("mode\tfiles/s");
+            for (Sync sync : Sync.values())
+                System.out.println(sync+"\t"+b.run(sync));
+        } finally {
+            Util.deleteRecursive(dir);
+        }
+    }
+
+    private static void write(File f, Sync sync, String contents) throws IOException {
+        AtomicFileWriter w = new AtomicFileWriter(f,"UTF-8",sync);
+        try {
+            w.write(contents);
+            w.commit();
+        } finally {
+            w.abort();
+        }
+    }
+
+    /**
+     * @return number of files written per second.
+     */
+    private long run(final Sync sync) throws Exception {
+        ExecutorService es = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            long start = System.nanoTime();
+            for (int t=0; t<THREADS; t++) {
+                final File d = new File(dir,sync+"-"+t+"-"+start);
+                futures.add(es.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        for (int i=0; i<FILES_PER_THREAD; i++)
+                            write(new File(d,i+".xml"),sync,XML);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+            long elapsed = Math.max(1,System.nanoTime()-start);
+            return THREADS*FILES_PER_THREAD*1000000000L/elapsed;
+        } finally {
+            es.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util;
+
+import hudson.Util;
+import hudson.util.AtomicFileWriter.Sync;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class AtomicFileWriterTest extends TestCase {
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Util.createTempDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Util.deleteRecursive(dir);
+    }
+
+    public void testDefaultSyncsEachFile() {
+        assertEquals(Sync.FILE, AtomicFileWriter.SYNC);
+    }
+
+    public void testCommitReplacesContents() throws Exception {
+        for (Sync sync : Sync.values()) {
+            File f = new File(dir,sync+".xml");
+            write(f,sync,"old");
+            write(f,sync,"new");
+            assertEquals("new",Util.loadFile(f,"UTF-8"));
+        }
+        // no temporary files left behind
+        assertEquals(Sync.values().length,dir.list().length);
+    }
+
+    public void testAbortLeavesOriginal() throws Exception {
+        File f = new File(dir,"config.xml");
+        write(f,Sync.FILE,"old");
+
+        AtomicFileWriter w = new AtomicFileWriter(f,"UTF-8",Sync.FILE);
+        w.write("new");
+        w.abort();
+        assertEquals("old",Util.loadFile(f,"UTF-8"));
+        assertFalse(w.getTemporaryFile().exists());
+    }
+
+    private static void write(File f, Sync sync, String contents) throws IOException {
+        AtomicFileWriter w = new AtomicFileWriter(f,"UTF-8",sync);
+        try {
+            w.write(contents);
+            w.commit();
+        } finally {
+            w.abort();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import junit.framework.TestCase;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -48,12 +49,21 @@ public class CyclicGraphDetectorTest extends TestCase {
         /**
          * Performs a cycle check. 
          */
-        void check() throws Exception {
-            new CyclicGraphDetector<String>() {
+        List<String> check() throws Exception {
+            CyclicGraphDetector<String> d = new CyclicGraphDetector<String>() {
                 protected Set<String> getEdges(String s) {
                     return edges(s);
                 }
-            }.run(nodes());
+            };
+            d.run(nodes());
+            return d.getSorted();
+        }
+
+        void mustBeSorted() throws Exception {
+            List<String> sorted = check();
+            assertEquals(nodes().size(), sorted.size());
+            for (Edge e : this)
+                assertTrue(e.src+" must come after "+e.dst+" in "+sorted, sorted.indexOf(e.src)>sorted.indexOf(e.dst));
         }
 
         void mustContainCycle(String... members) throws Exception {
@@ -80,4 +90,8 @@ public class CyclicGraphDetectorTest extends TestCase {
         new Graph().e("A","B").e("B","C").e("C","D").e("B","E").e("E","D").e("E","A").mustContainCycle("A","B","E");
     }
 
+    public void testSorted() throws Exception {
+        new Graph().e("A","B").e("B","C").e("A","C").e("D","B").e("E","A").e("E","D").mustBeSorted();
+    }
+
 }
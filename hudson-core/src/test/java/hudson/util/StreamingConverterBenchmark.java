@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static hudson.util.StreamingConverterTest.CORPUS;
+import static hudson.util.StreamingConverterTest.createReflectionXStream;
+import static hudson.util.StreamingConverterTest.load;
+
+/**
+ * Compares the converters registered with {@link XStream2#addStreamingConverter(Class, Class)} with the reflection
+ * based converter on a corpus of persisted actions, reporting operations per second and bytes allocated per operation.
+ *
+ * <p>
+ * Not a unit test, since the numbers depend on the machine; run it with {@link #main(String[])}.
+ */
+public class StreamingConverterBenchmark {
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        XStream2 streaming = new XStream2();
+        XStream2 reflection = createReflectionXStream();
+
+        System.out.println("converter\tfile\tloads/s\tsaves/s\tbytes/load\tbytes/save");
+        for (String name : CORPUS) {
+            String xml = load(name);
+            run("reflection", reflection, name, xml);   // warm up
+            run("streaming", streaming, name, xml);
+            run("reflection", reflection, name, xml);
+            run("streaming", streaming, name, xml);
+        }
+    }
+
+    private static void run(String label, XStream2 xs, String name, String xml) {
+        Object o = null;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            o = xs.fromXML(xml);
+        long loadNanos = System.nanoTime()-start;
+        long loadBytes = allocatedBytes()-bytes;
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            xs.toXML(o);
+        long saveNanos = System.nanoTime()-start;
+        long saveBytes = allocatedBytes()-bytes;
+
+        System.out.println(label+"\t"+name+"\t"+perSecond(loadNanos)+"\t"+perSecond(saveNanos)
+                +"\t"+perOperation(loadBytes)+"\t"+perOperation(saveBytes));
+    }
+
+    private static long perSecond(long nanos) {
+        return ITERATIONS*1000000000L/Math.max(1,nanos);
+    }
+
+    private static String perOperation(long bytes) {
+        return allocatedBytes()<0 ? "n/a" : String.valueOf(bytes/ITERATIONS);
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM doesn't tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+            if (b.isThreadAllocatedMemorySupported() && b.isThreadAllocatedMemoryEnabled())
+                return b.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
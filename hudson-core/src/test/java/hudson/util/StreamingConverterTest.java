@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util;
+
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Checks that the converters registered with {@link XStream2#addStreamingConverter(Class, Class)} read and write
+ * the same XML as the reflection based converter, on a corpus of persisted actions.
+ */
+public class StreamingConverterTest extends TestCase {
+    static final String[] CORPUS = {"actions.xml", "legacyCauseAction.xml"};
+
+    private XStream2 streaming;
+    private XStream2 reflection;
+
+    @Override
+    protected void setUp() throws Exception {
+        streaming = new XStream2();
+        reflection = createReflectionXStream();
+    }
+
+    /**
+     * Creates an {@link XStream2} which uses the reflection based converters only.
+     */
+    static XStream2 createReflectionXStream() {
+        XStream2.DISABLE_STREAMING_CONVERTERS = true;
+        try {
+            return new XStream2();
+        } finally {
+            XStream2.DISABLE_STREAMING_CONVERTERS = false;
+        }
+    }
+
+    static String load(String name) throws IOException {
+        InputStream in = StreamingConverterTest.class.getResourceAsStream("streaming/"+name);
+        try {
+            return IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testSameXml() throws Exception {
+        for (String name : CORPUS) {
+            String xml = load(name);
+            String expected = reflection.toXML(reflection.fromXML(xml));
+            assertEquals(name, expected, streaming.toXML(streaming.fromXML(xml)));
+            // data written by one can be read by the other
+            assertEquals(name, expected, reflection.toXML(streaming.fromXML(expected)));
+            assertEquals(name, expected, streaming.toXML(reflection.fromXML(expected)));
+        }
+    }
+
+    public void testLegacyCause() throws Exception {
+        List<?> actions = (List<?>) streaming.fromXML(load("legacyCauseAction.xml"));
+        List<Cause> causes = ((CauseAction) actions.get(0)).getCauses();
+        assertEquals(1, causes.size());
+        assertTrue(causes.get(0) instanceof Cause.RemoteCause);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util;
+
+import junit.framework.TestCase;
+
+public class TimedCacheTest extends TestCase {
+    public void testHitAndMiss() {
+        TimedCache<String,String> c = new TimedCache<String,String>(10,60000);
+        assertNull(c.get("a"));
+        c.put("a","1");
+        assertEquals("1",c.get("a"));
+        assertEquals(1,c.getHits());
+        assertEquals(1,c.getMisses());
+        assertEquals(50,c.getHitRatio());
+    }
+
+    public void testExpiry() throws Exception {
+        TimedCache<String,String> c = new TimedCache<String,String>(10,50);
+        c.put("a","1");
+        Thread.sleep(100);
+        assertNull(c.get("a"));
+        assertEquals(0,c.size());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        TimedCache<String,String> c = new TimedCache<String,String>(2,60000);
+        c.put("a","1");
+        c.put("b","2");
+        c.get("a");
+        c.put("c","3");
+        assertEquals("1",c.get("a"));
+        assertNull(c.get("b"));
+        assertEquals("3",c.get("c"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.util.io;
+
+import hudson.Util;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ParallelDeleterTest extends TestCase {
+    private File tmp;
+
+    @Override
+    protected void setUp() throws Exception {
+        tmp = Util.createTempDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Util.deleteRecursive(tmp);
+    }
+
+    public void testDeleteRecursive() throws Exception {
+        File root = new File(tmp, "ws");
+        populate(root, 3);
+
+        new ParallelDeleter(4, 0).deleteRecursive(root);
+        assertFalse(root.exists());
+    }
+
+    public void testDeleteContentsRecursive() throws Exception {
+        File root = new File(tmp, "ws");
+        populate(root, 2);
+
+        new ParallelDeleter(2, 0).deleteContentsRecursive(root);
+        assertTrue(root.exists());
+        assertEquals(0, root.list().length);
+    }
+
+    public void testDeleteInBackground() throws Exception {
+        File root = new File(tmp, "ws");
+        populate(root, 2);
+
+        ParallelDeleter.Progress p = new ParallelDeleter(2, 0).deleteInBackground(root);
+        assertFalse("the original path should be gone immediately", root.exists());
+        assertNotNull(p);
+        assertTrue(ParallelDeleter.isTrash(p.getRoot().getName()));
+
+        p.await();
+        assertTrue(p.isDone());
+        assertFalse(p.getRoot().exists());
+        // 300 files per directory, 1+3+9 directories below and including the root
+        assertEquals(300*13, p.getFileCount());
+        assertEquals(13, p.getDirectoryCount());
+    }
+
+    public void testDeleteRecursiveDoesNotWaitForBackground() throws Exception {
+        File big = new File(tmp, "big");
+        assertTrue(big.mkdirs());
+        for (int i=0; i<10; i++)
+            assertTrue(new File(big, "file"+i).createNewFile());
+        File small = new File(tmp, "small");
+        assertTrue(small.mkdirs());
+
+        // one thread per pool, and the throttle keeps the background one busy for about 2 seconds
+        ParallelDeleter d = new ParallelDeleter(1, 5);
+        ParallelDeleter.Progress p = d.deleteInBackground(big);
+        d.deleteRecursive(small);
+        assertFalse(small.exists());
+        assertFalse(p.isDone());
+
+        p.await();
+        assertFalse(p.getRoot().exists());
+    }
+
+    public void testIsTrash() {
+        assertTrue(ParallelDeleter.isTrash(".ws.trash"));
+        assertTrue(ParallelDeleter.isTrash(".ws.trash2"));
+        assertTrue(ParallelDeleter.isTrash(".my.ws.trash12"));
+        assertFalse(ParallelDeleter.isTrash(".trash"));
+        assertFalse(ParallelDeleter.isTrash("ws.trash"));
+        assertFalse(ParallelDeleter.isTrash(".foo.trashy"));
+        assertFalse(ParallelDeleter.isTrash(".foo.trash.bak"));
+    }
+
+    public void testDeleteNonExistent() throws Exception {
+        ParallelDeleter d = new ParallelDeleter(1, 0);
+        assertNull(d.deleteInBackground(new File(tmp, "nosuchdir")));
+        d.deleteRecursive(new File(tmp, "nosuchdir"));
+    }
+
+    /**
+     * Creates a tree with more files per directory than a single work unit handles.
+     */
+    private void populate(File dir, int depth) throws IOException {
+        assertTrue(dir.mkdirs());
+        for (int i=0; i<300; i++)
+            assertTrue(new File(dir, "file"+i).createNewFile());
+        if(depth>0)
+            for (int i=0; i<3; i++)
+                populate(new File(dir, "dir"+i), depth-1);
+    }
+}
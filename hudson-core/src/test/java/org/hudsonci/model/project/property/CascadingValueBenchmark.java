@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.model.project.property;
+
+import hudson.model.FreeStyleProjectMock;
+import hudson.util.CascadingUtil;
+
+import static org.hudsonci.model.project.property.CascadingValueTest.createChain;
+import static org.hudsonci.model.project.property.CascadingValueTest.leaf;
+
+/**
+ * Reports the cost of {@link BaseProjectProperty#getCascadingValue()} against the depth of the cascading chain,
+ * with and without memoized values.
+ *
+ * <p>
+ * Not a unit test, since the numbers depend on the machine; run it with {@link #main(String[])}.
+ */
+public class CascadingValueBenchmark {
+    private static final int LOOKUPS = 10000;
+
+    public static void main(String[] args) {
+        System.out.println("depth\tmemoized ns/lookup\tresolved ns/lookup");
+        for (int depth = 1; depth <= 64; depth *= 2) {
+            FreeStyleProjectMock[] chain = createChain(depth);
+            StringProjectProperty leaf = leaf(chain);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                leaf.getValue();
+            }
+            long memoized = (System.nanoTime() - start) / LOOKUPS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                CascadingUtil.invalidateCascadingValues();
+                leaf.getValue();
+            }
+            long resolved = (System.nanoTime() - start) / LOOKUPS;
+
+            System.out.println(depth + "\t" + memoized + "\t" + resolved);
+        }
+    }
+}
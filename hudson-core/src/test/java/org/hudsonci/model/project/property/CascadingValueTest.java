@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.model.project.property;
+
+import hudson.model.FreeStyleProjectMock;
+import hudson.util.CascadingUtil;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Verifies that the memoized {@link BaseProjectProperty#getCascadingValue()} follows changes to the cascading chain.
+ */
+public class CascadingValueTest {
+    private static final String KEY = "key";
+
+    /**
+     * Creates a chain of the given depth, the root holding the value and every descendant inheriting it.
+     *
+     * @return chain, the root first.
+     */
+    static FreeStyleProjectMock[] createChain(int depth) {
+        FreeStyleProjectMock[] chain = new FreeStyleProjectMock[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            chain[i] = new FreeStyleProjectMock("project" + i);
+            if (i > 0) {
+                chain[i].setCascadingProject(chain[i - 1]);
+            }
+        }
+        CascadingUtil.getStringProjectProperty(chain[0], KEY).setValue("root");
+        return chain;
+    }
+
+    static StringProjectProperty leaf(FreeStyleProjectMock[] chain) {
+        return CascadingUtil.getStringProjectProperty(chain[chain.length - 1], KEY);
+    }
+
+    @Test
+    public void testAncestorChangeIsVisible() {
+        FreeStyleProjectMock[] chain = createChain(5);
+        assertEquals("root", leaf(chain).getValue());
+
+        CascadingUtil.getStringProjectProperty(chain[0], KEY).setValue("changed");
+        assertEquals("changed", leaf(chain).getValue());
+
+        CascadingUtil.getStringProjectProperty(chain[2], KEY).setValue("middle");
+        assertEquals("middle", leaf(chain).getValue());
+    }
+
+    @Test
+    public void testRelinkIsVisible() {
+        FreeStyleProjectMock[] chain = createChain(3);
+        assertEquals("root", leaf(chain).getValue());
+
+        FreeStyleProjectMock other = new FreeStyleProjectMock("other");
+        CascadingUtil.getStringProjectProperty(other, KEY).setValue("other");
+        chain[1].setCascadingProject(other);
+        assertEquals("other", leaf(chain).getValue());
+    }
+}
@@ -39,6 +39,9 @@ import org.hudsonci.inject.internal.plugin.PluginClassLoader;
 import org.hudsonci.inject.internal.plugin.SmoothiePluginStrategy;
 import hudson.PluginStrategy;
 import hudson.PluginWrapper;
+import hudson.PluginWrapper.Dependency;
+import hudson.Util;
+import hudson.model.Hudson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.guice.bean.binders.WireModule;
@@ -48,10 +51,15 @@ import org.sonatype.guice.bean.reflect.ClassSpace;
 import org.sonatype.guice.bean.reflect.URLClassSpace;
 import org.sonatype.inject.BeanEntry;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
-import java.util.HashMap;
+import java.net.URISyntaxException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link SmoothieContainer} implementation.
@@ -68,10 +76,33 @@ public class SmoothieContainerImpl
 
     private final Injector root;
 
-    private final Map<PluginWrapper,Injector> injectors = new HashMap<PluginWrapper,Injector>();
+    /**
+     * Plugins are registered from the plugin loading tasks on the reactor threads, while others look up injectors.
+     */
+    private final ConcurrentMap<PluginWrapper,Injector> injectors = new ConcurrentHashMap<PluginWrapper,Injector>();
+
+    private final long bootstrapTime;
+
+    private final int bootstrapLoadedClassCount;
+
+    private final AtomicLong registrationTime = new AtomicLong();
+
+    private final AtomicLong registrationLoadedClassCount = new AtomicLong();
 
     public SmoothieContainerImpl(final Module... modules) {
+        long start = System.currentTimeMillis();
         this.root = createInjector(new BootModule(modules));
+        this.bootstrapTime = System.currentTimeMillis() - start;
+
+        int loaded = 0;
+        for (Module module : modules) {
+            if (module instanceof ExtensionModule) {
+                loaded += ((ExtensionModule) module).getLoadedClassCount();
+            }
+        }
+        this.bootstrapLoadedClassCount = loaded;
+
+        log.info("Container bootstrapped in {}ms; {} classes loaded to bind extensions", bootstrapTime, bootstrapLoadedClassCount);
     }
 
     private Injector createInjector(final Module... modules) {
@@ -97,6 +128,44 @@ public class SmoothieContainerImpl
         return root;
     }
 
+    /**
+     * Time it took to create the root injector, in milliseconds.
+     *
+     * @since 2.2.2
+     */
+    public long getBootstrapTime() {
+        return bootstrapTime;
+    }
+
+    /**
+     * Number of classes loaded up front to bind the extensions of the root injector.
+     *
+     * @since 2.2.2
+     */
+    public int getBootstrapLoadedClassCount() {
+        return bootstrapLoadedClassCount;
+    }
+
+    /**
+     * Total time it took to create the injectors of the registered plugins, in milliseconds.
+     *
+     * @since 2.2.2
+     */
+    public long getRegistrationTime() {
+        return registrationTime.get();
+    }
+
+    /**
+     * Number of classes loaded up front to bind the extensions of the registered plugins.
+     * With {@link org.hudsonci.inject.internal.extension.ExtensionIndex} this leaves out the classes of method and
+     * field extensions, which are loaded on first use.
+     *
+     * @since 2.2.2
+     */
+    public long getRegistrationLoadedClassCount() {
+        return registrationLoadedClassCount.get();
+    }
+
     /**
      * Common bindings.
      */
@@ -155,6 +224,8 @@ public class SmoothieContainerImpl
     {
         private final PluginWrapper plugin;
 
+        private ExtensionModule extensions;
+
         private PluginModule(final PluginWrapper plugin) {
             assert plugin != null;
             this.plugin = plugin;
@@ -163,10 +234,56 @@ public class SmoothieContainerImpl
         @Override
         protected void configure() {
             ClassSpace space = createClassSpace();
-            install(new ExtensionModule(space, false));
+            File dir = getExpandedDir();
+            extensions = dir != null
+                ? new ExtensionModule(space, false, new File(dir, ".extensions.index"), computeDigest())
+                : new ExtensionModule(space, false);
+            install(extensions);
             super.configure();
         }
 
+        /**
+         * Where the plugin archive is expanded to, null if the plugin doesn't come from an archive.
+         */
+        private File getExpandedDir() {
+            if (plugin.getArchiveDigest() == null || !"file".equals(plugin.baseResourceURL.getProtocol())) {
+                return null;
+            }
+            try {
+                return new File(plugin.baseResourceURL.toURI());
+            }
+            catch (URISyntaxException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Identifies what the bindings of the plugin depend on; the archive, the core, and the plugins it can see.
+         * Optional dependencies count whether they are present or not, since an optional extension binds only if its
+         * dependency is there.
+         */
+        private String computeDigest() {
+            StringBuilder buf = new StringBuilder();
+            buf.append(plugin.getArchiveDigest()).append(';').append(Hudson.VERSION);
+            appendDigest(buf, plugin.getDependencies());
+            buf.append(";optional");
+            appendDigest(buf, plugin.getOptionalDependencies());
+            return Util.getDigestOf(buf.toString());
+        }
+
+        private void appendDigest(final StringBuilder buf, final List<Dependency> dependencies) {
+            for (Dependency d : dependencies) {
+                PluginWrapper p = plugin.getParent().getPlugin(d.shortName);
+                buf.append(';').append(d.shortName).append('=');
+                if (p == null) {
+                    buf.append('-');
+                }
+                else {
+                    buf.append(p.getArchiveDigest() != null ? p.getArchiveDigest() : p.getVersion());
+                }
+            }
+        }
+
         private ClassSpace createClassSpace() {
             URLClassSpace space;
             if (plugin.classLoader instanceof PluginClassLoader) {
@@ -194,9 +311,23 @@ public class SmoothieContainerImpl
             throw new IllegalStateException("Plugin already registered");
         }
 
-        Injector injector = createInjector(new PluginModule(plugin));
+        long start = System.currentTimeMillis();
+        PluginModule module = new PluginModule(plugin);
+        Injector injector = createInjector(module);
+        long time = System.currentTimeMillis() - start;
 
-        injectors.put(plugin, injector);
+        if (injectors.putIfAbsent(plugin, injector) != null) {
+            throw new IllegalStateException("Plugin already registered");
+        }
+
+        registrationTime.addAndGet(time);
+        registrationLoadedClassCount.addAndGet(module.extensions.getLoadedClassCount());
+        if (log.isDebugEnabled()) {
+            log.debug("Registered plugin: {} in {}ms; {} classes loaded to bind extensions{}", new Object[] {
+                plugin.getShortName(), time, module.extensions.getLoadedClassCount(),
+                module.extensions.isIndexed() ? " (indexed)" : ""
+            });
+        }
     }
 
     public Injector injector(final PluginWrapper plugin) {
@@ -0,0 +1,249 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.hudsonci.inject.internal.extension;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.annotation.ElementType;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Precomputed bindings of the @{@link hudson.Extension} components of a class space.
+ *
+ * <p>
+ * Records what {@link SezPozExtensionModule} found and the types it bound each component as, so that
+ * {@link IndexedExtensionModule} can bind the same components on the next start without reading the SezPoz index
+ * and without loading the component classes until they are first looked up.
+ *
+ * <p>
+ * A plugin can carry its index as the {@link #RESOURCE} resource. Otherwise the index is written to the
+ * directory the plugin is expanded into on the first start, and used as long as the plugin archive is the same.
+ *
+ * @since 2.2.2
+ */
+public final class ExtensionIndex
+    implements Serializable
+{
+    private static final Logger log = LoggerFactory.getLogger(ExtensionIndex.class);
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Location of a packaged index within a class space.
+     */
+    public static final String RESOURCE = "META-INF/hudson/extensions.index";
+
+    /**
+     * Whether indexes are used and written. Set the system property to false to always bind through SezPoz.
+     */
+    public static boolean ENABLED = !"false".equals(System.getProperty(ExtensionIndex.class.getName() + ".enabled"));
+
+    /**
+     * Identifies the contents the index was computed from, null for a packaged index.
+     */
+    private final String digest;
+
+    private final List<Entry> entries;
+
+    public ExtensionIndex(final String digest, final List<Entry> entries) {
+        this.digest = digest;
+        this.entries = Collections.unmodifiableList(new ArrayList<Entry>(entries));
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * One bound component.
+     */
+    public static final class Entry
+        implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ElementType kind;
+
+        private final String className;
+
+        private final String memberName;
+
+        private final double ordinal;
+
+        private final boolean optional;
+
+        private final List<String> boundTypes;
+
+        public Entry(final ElementType kind, final String className, final String memberName,
+                     final double ordinal, final boolean optional, final List<String> boundTypes) {
+            this.kind = kind;
+            this.className = className;
+            this.memberName = memberName;
+            this.ordinal = ordinal;
+            this.optional = optional;
+            this.boundTypes = Collections.unmodifiableList(new ArrayList<String>(boundTypes));
+        }
+
+        /**
+         * One of {@link ElementType#TYPE}, {@link ElementType#METHOD} or {@link ElementType#FIELD}.
+         */
+        public ElementType getKind() {
+            return kind;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Name of the annotated method or field, null for a type.
+         */
+        public String getMemberName() {
+            return memberName;
+        }
+
+        public double getOrdinal() {
+            return ordinal;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        /**
+         * Names of the types the component is bound as, like its extension points and {@link hudson.model.Descriptor}.
+         * For a method or field, the first one is the declared type.
+         */
+        public List<String> getBoundTypes() {
+            return boundTypes;
+        }
+
+        /**
+         * Name of the element as used for the binding qualifier.
+         */
+        public String getElementName() {
+            return memberName == null ? className : className + '.' + memberName;
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + getElementName() + boundTypes;
+        }
+    }
+
+    /**
+     * Finds the index for the class space.
+     *
+     * @param cache
+     *      file the index is cached in, null if there's no place for one.
+     * @param digest
+     *      identifies the contents of the class space; a cached index computed from different contents is ignored.
+     * @return
+     *      null if there's no usable index.
+     */
+    public static ExtensionIndex load(final ClassSpace space, final File cache, final String digest) {
+        if (!ENABLED) {
+            return null;
+        }
+
+        try {
+            Enumeration<URL> packaged = space.findEntries("META-INF/hudson/", "extensions.index", false);
+            if (packaged.hasMoreElements()) {
+                URL url = packaged.nextElement();
+                log.debug("Using packaged extension index: {}", url);
+                return read(url.openStream());
+            }
+
+            if (cache != null && digest != null && cache.exists()) {
+                ExtensionIndex index = read(new FileInputStream(cache));
+                if (digest.equals(index.digest)) {
+                    log.debug("Using cached extension index: {}", cache);
+                    return index;
+                }
+                log.debug("Ignoring stale extension index: {}", cache);
+            }
+        }
+        catch (Exception e) {
+            // worst case the components are bound through SezPoz, and the index is rewritten
+            log.warn("Failed to read extension index of: {}", space, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the index to the file, quietly giving up on failure.
+     */
+    public void save(final File cache) {
+        if (!ENABLED) {
+            return;
+        }
+
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(cache)));
+            try {
+                out.writeObject(this);
+            }
+            finally {
+                out.close();
+            }
+            log.debug("Saved extension index: {}", cache);
+        }
+        catch (IOException e) {
+            log.warn("Failed to save extension index: {}", cache, e);
+            cache.delete();
+        }
+    }
+
+    private static ExtensionIndex read(final InputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
+        try {
+            return (ExtensionIndex) ois.readObject();
+        }
+        finally {
+            ois.close();
+        }
+    }
+}
@@ -30,6 +30,8 @@ import org.sonatype.guice.bean.binders.SpaceModule;
 import org.sonatype.guice.bean.reflect.ClassSpace;
 import org.sonatype.inject.BeanScanning;
 
+import java.io.File;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -45,9 +47,31 @@ public final class ExtensionModule
 
     private final boolean globalIndex;
 
+    private final File indexFile;
+
+    private final String digest;
+
+    private int loadedClassCount;
+
+    private boolean indexed;
+
     public ExtensionModule(final ClassSpace space, final boolean globalIndex) {
+        this(space, globalIndex, null, null);
+    }
+
+    /**
+     * @param indexFile
+     *      where the {@link ExtensionIndex} of the space is cached, null to not cache it.
+     * @param digest
+     *      identifies the contents of the space, which the cached index has to match.
+     *
+     * @since 2.2.2
+     */
+    public ExtensionModule(final ClassSpace space, final boolean globalIndex, final File indexFile, final String digest) {
         this.space = checkNotNull(space);
         this.globalIndex = globalIndex;
+        this.indexFile = indexFile;
+        this.digest = digest;
     }
 
     public void configure(final Binder binder) {
@@ -56,7 +80,41 @@ public final class ExtensionModule
          // Scan for @Named components using the bean index
         binder.install(new SpaceModule(space, globalIndex ? BeanScanning.GLOBAL_INDEX : BeanScanning.INDEX));
 
-        // Scan for @Extension components via SezPoz index
-        binder.install(new SezPozExtensionModule(space, globalIndex));
+        // Bind @Extension components from the precomputed index if there is one, else via SezPoz index
+        ExtensionIndex index = ExtensionIndex.load(space, indexFile, digest);
+        if (index != null) {
+            IndexedExtensionModule module = new IndexedExtensionModule(space, index);
+            binder.install(module);
+            loadedClassCount = module.getLoadedClassCount();
+            indexed = true;
+        }
+        else {
+            boolean record = indexFile != null && digest != null && ExtensionIndex.ENABLED;
+            SezPozExtensionModule module = new SezPozExtensionModule(space, globalIndex, record);
+            binder.install(module);
+            loadedClassCount = module.getLoadedClassCount();
+            ExtensionIndex recorded = record ? module.getIndex(digest) : null;
+            if (recorded != null) {
+                recorded.save(indexFile);
+            }
+        }
+    }
+
+    /**
+     * Number of classes looked up to bind the @Extension components, once the module has been configured.
+     *
+     * @since 2.2.2
+     */
+    public int getLoadedClassCount() {
+        return loadedClassCount;
+    }
+
+    /**
+     * Whether the components were bound from an {@link ExtensionIndex}.
+     *
+     * @since 2.2.2
+     */
+    public boolean isIndexed() {
+        return indexed;
     }
 }
@@ -0,0 +1,222 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.hudsonci.inject.internal.extension;
+
+import com.google.inject.Binder;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+import com.google.inject.Scopes;
+import com.google.inject.name.Names;
+import hudson.Extension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Guice {@link Module} that binds the components recorded in an {@link ExtensionIndex}.
+ *
+ * <p>
+ * Makes the same bindings as {@link SezPozExtensionModule} without scanning the space. The classes of method and field
+ * components are only loaded when the component is first provided. Type components are bound as singletons under
+ * their own class too, like SezPoz does, so their classes are loaded up front; that way injecting the class, or
+ * looking it up, gets the same instance as the extension point bindings.
+ *
+ * @since 2.2.2
+ */
+@SuppressWarnings( { "unchecked", "rawtypes" } )
+public final class IndexedExtensionModule
+    implements Module
+{
+    private static final Logger log = LoggerFactory.getLogger(IndexedExtensionModule.class);
+
+    private final ClassSpace space;
+
+    private final ExtensionIndex index;
+
+    private final Set<String> loadedClasses = new HashSet<String>();
+
+    public IndexedExtensionModule(final ClassSpace space, final ExtensionIndex index) {
+        this.space = checkNotNull(space);
+        this.index = checkNotNull(index);
+    }
+
+    public void configure(final Binder binder) {
+        for (ExtensionIndex.Entry entry : index.getEntries()) {
+            try {
+                bindEntry(binder, entry);
+            }
+            catch (Throwable e) {
+                if (entry.isOptional()) {
+                    log.debug("Failed to bind optional extension: {}", entry, e);
+                } else {
+                    log.warn("Failed to bind extension: {}", entry, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of classes loaded to bind the components, which doesn't include method and field components.
+     */
+    public int getLoadedClassCount() {
+        return loadedClasses.size();
+    }
+
+    private Class loadClass(final String name) throws ClassNotFoundException {
+        Class type = space.loadClass(name);
+        loadedClasses.add(name);
+        return type;
+    }
+
+    private void bindEntry(final Binder binder, final ExtensionIndex.Entry entry) throws ClassNotFoundException {
+        Set<String> types = new LinkedHashSet<String>(entry.getBoundTypes());
+
+        if (entry.getKind() == ElementType.TYPE) {
+            Class impl = loadClass(entry.getClassName());
+            binder.bind(impl).in(Scopes.SINGLETON);
+            Annotation qualifier = Names.named(entry.getClassName());
+            for (String type : types) {
+                binder.bind(Key.get(loadClass(type), qualifier)).to(impl);
+            }
+            return;
+        }
+
+        // one instance behind all the keys, like the linked bindings of SezPozExtensionModule
+        Annotation qualifier = new ExtensionQualifierImpl(new ExtensionImpl(entry), entry.getElementName());
+        Provider provider = new LazyComponent(space, entry);
+        for (String type : types) {
+            binder.bind(Key.get(loadClass(type), qualifier)).toProvider(provider);
+        }
+    }
+
+    /**
+     * Loads and gets a method or field component on first use.
+     */
+    private static final class LazyComponent
+        implements Provider
+    {
+        private final ClassSpace space;
+
+        private final ExtensionIndex.Entry entry;
+
+        private Object instance;
+
+        private LazyComponent(final ClassSpace space, final ExtensionIndex.Entry entry) {
+            this.space = space;
+            this.entry = entry;
+        }
+
+        public synchronized Object get() {
+            if (instance == null) {
+                try {
+                    instance = create();
+                }
+                catch (ProvisionException e) {
+                    throw e;
+                }
+                catch (Exception e) {
+                    throw new ProvisionException("Failed to create extension: " + entry, e);
+                }
+                catch (LinkageError e) {
+                    throw new ProvisionException("Failed to create extension: " + entry, e);
+                }
+                log.trace("Created extension: {}", entry);
+            }
+            return instance;
+        }
+
+        private Object create() throws Exception {
+            Class<?> type = space.loadClass(entry.getClassName());
+            switch (entry.getKind()) {
+                case METHOD:
+                    return type.getMethod(entry.getMemberName()).invoke(null);
+                case FIELD:
+                    return type.getField(entry.getMemberName()).get(null);
+                default:
+                    throw new IllegalStateException("Unexpected extension kind: " + entry);
+            }
+        }
+    }
+
+    /**
+     * The @{@link Extension} of a method or field component, for its {@link ExtensionQualifier}.
+     */
+    private static final class ExtensionImpl
+        implements Extension
+    {
+        private final double ordinal;
+
+        private final boolean optional;
+
+        private ExtensionImpl(final ExtensionIndex.Entry entry) {
+            this.ordinal = entry.getOrdinal();
+            this.optional = entry.isOptional();
+        }
+
+        public double ordinal() {
+            return ordinal;
+        }
+
+        public boolean optional() {
+            return optional;
+        }
+
+        public Class<? extends Annotation> annotationType() {
+            return Extension.class;
+        }
+
+        // equals and hashCode as specified by Annotation, so that qualifiers compare equal to the ones made from SezPoz
+
+        @Override
+        public boolean equals(final Object rhs) {
+            if (!(rhs instanceof Extension)) {
+                return false;
+            }
+            Extension that = (Extension) rhs;
+            return Double.valueOf(ordinal).equals(that.ordinal()) && optional == that.optional();
+        }
+
+        @Override
+        public int hashCode() {
+            return (127 * "ordinal".hashCode() ^ Double.valueOf(ordinal).hashCode())
+                + (127 * "optional".hashCode() ^ Boolean.valueOf(optional).hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("@%s(ordinal=%s, optional=%s)", Extension.class.getName(), ordinal, optional);
+        }
+    }
+}
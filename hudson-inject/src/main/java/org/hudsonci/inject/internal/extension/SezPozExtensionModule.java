@@ -44,6 +44,10 @@ import org.sonatype.guice.bean.reflect.ClassSpace;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -66,14 +70,30 @@ public final class SezPozExtensionModule
 
     private final boolean globalIndex;
 
+    private final List<ExtensionIndex.Entry> entries;
+
+    private final Set<String> loadedClasses = new HashSet<String>();
+
+    private boolean failed;
+
     // ----------------------------------------------------------------------
     // Constructors
     // ----------------------------------------------------------------------
 
-    public SezPozExtensionModule( final ClassSpace space, final boolean globalIndex )
+    /**
+     * @param record
+     *      remember the bindings for {@link #getIndex(String)}.
+     */
+    public SezPozExtensionModule( final ClassSpace space, final boolean globalIndex, final boolean record )
     {
         this.space = checkNotNull(space);
         this.globalIndex = globalIndex;
+        this.entries = record ? new ArrayList<ExtensionIndex.Entry>() : null;
+    }
+
+    public SezPozExtensionModule( final ClassSpace space, final boolean globalIndex )
+    {
+        this( space, globalIndex, false );
     }
 
     // ----------------------------------------------------------------------
@@ -87,36 +107,72 @@ public final class SezPozExtensionModule
             try
             {
                 // ignore the legacy SezPoz ExtensionFinder
-                if ( !Sezpoz.class.equals( item.element() ) )
+                final boolean legacy = Sezpoz.class.equals( item.element() );
+                loadedClasses.add( item.className() );
+                if ( !legacy )
                 {
-                    bindItem( binder, item );
+                    final List<String> boundTypes = bindItem( binder, item );
+                    if ( entries != null )
+                    {
+                        entries.add( new ExtensionIndex.Entry( item.kind(), item.className(), item.memberName(),
+                                                               item.annotation().ordinal(),
+                                                               item.annotation().optional(), boundTypes ) );
+                    }
                 }
             }
             catch ( final Throwable e )
             {
                 if (item.annotation().optional()) {
+                    // optional items fail when a dependency is missing, which the digest of the index covers
                     log.debug("Failed to bind optional extension: {}", item, e);
                 } else {
+                    // an index without the item would keep it unbound even once it could bind
+                    failed = true;
                     log.warn("Failed to bind extension: {}", item, e);
                 }
             }
         }
     }
 
+    /**
+     * Number of component classes loaded to bind them.
+     */
+    public int getLoadedClassCount()
+    {
+        return loadedClasses.size();
+    }
+
+    /**
+     * Gets the bindings made so far, if they were recorded.
+     *
+     * @param digest
+     *      identifies the contents of the class space.
+     * @return
+     *      null if the bindings weren't recorded, or if some item failed to bind so the space has to be scanned again.
+     */
+    public ExtensionIndex getIndex( final String digest )
+    {
+        return entries != null && !failed ? new ExtensionIndex( digest, entries ) : null;
+    }
+
     // ----------------------------------------------------------------------
     // Implementation methods
     // ----------------------------------------------------------------------
 
-    private void bindItem( final Binder binder, final SpaceIndexItem<Extension, ?> item )
+    /**
+     * @return names of the types bound to the item, other than the implementation itself.
+     */
+    private List<String> bindItem( final Binder binder, final SpaceIndexItem<Extension, ?> item )
         throws InstantiationException
     {
+        final List<String> boundTypes = new ArrayList<String>();
         switch ( item.kind() )
         {
             case TYPE:
             {
                 final Class impl = (Class) item.element();
                 binder.bind( impl ).in( Scopes.SINGLETON );
-                bindHierarchy( binder, Key.get( impl ) );
+                bindHierarchy( binder, Key.get( impl ), boundTypes );
                 break;
             }
             case METHOD:
@@ -124,7 +180,8 @@ public final class SezPozExtensionModule
                 final Method method = (Method) item.element();
                 final String name = method.getDeclaringClass().getName() + '.' + method.getName();
                 final ExtensionQualifier qualifier = new ExtensionQualifierImpl( item.annotation(), name );
-                bindProvider( binder, item, Key.get( method.getReturnType(), qualifier ) );
+                boundTypes.add( method.getReturnType().getName() );
+                bindProvider( binder, item, Key.get( method.getReturnType(), qualifier ), boundTypes );
                 break;
             }
             case FIELD:
@@ -132,15 +189,17 @@ public final class SezPozExtensionModule
                 final Field field = (Field) item.element();
                 final String name = field.getDeclaringClass().getName() + '.' + field.getName();
                 final ExtensionQualifier qualifier = new ExtensionQualifierImpl( item.annotation(), name );
-                bindProvider( binder, item, Key.get( field.getType(), qualifier ) );
+                boundTypes.add( field.getType().getName() );
+                bindProvider( binder, item, Key.get( field.getType(), qualifier ), boundTypes );
                 break;
             }
             default:
                 break;
         }
+        return boundTypes;
     }
 
-    private void bindProvider(final Binder binder, final SpaceIndexItem item, final Key key) {
+    private void bindProvider(final Binder binder, final SpaceIndexItem item, final Key key, final List<String> boundTypes) {
         binder.bind(key).toProvider(new Provider() {
             public Object get() {
                 try {
@@ -150,10 +209,10 @@ public final class SezPozExtensionModule
                 }
             }
         }).in(Scopes.SINGLETON);
-        bindHierarchy(binder, key);
+        bindHierarchy(binder, key, boundTypes);
     }
 
-    private static void bindHierarchy( final Binder binder, final Key rootKey )
+    private static void bindHierarchy( final Binder binder, final Key rootKey, final List<String> boundTypes )
     {
         final Class root = rootKey.getTypeLiteral().getRawType();
 
@@ -168,11 +227,13 @@ public final class SezPozExtensionModule
             if ( clazz != root && ExtensionPoint.class.isAssignableFrom( clazz ) )
             {
                 binder.bind( clazz ).annotatedWith( qualifier ).to( rootKey );
+                boundTypes.add( clazz.getName() );
             }
 
             if ( Descriptor.class.isAssignableFrom( clazz ) )
             {
                 binder.bind( Descriptor.class ).annotatedWith( qualifier ).to( rootKey );
+                boundTypes.add( Descriptor.class.getName() );
             }
 
             for ( final Class<?> iface : clazz.getInterfaces() )
@@ -180,6 +241,7 @@ public final class SezPozExtensionModule
                 if ( ExtensionPoint.class.isAssignableFrom( iface ) )
                 {
                     binder.bind( iface ).annotatedWith( qualifier ).to( rootKey );
+                    boundTypes.add( iface.getName() );
                 }
             }
         }
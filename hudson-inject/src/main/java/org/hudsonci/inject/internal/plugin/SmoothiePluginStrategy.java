@@ -171,7 +171,9 @@ public class SmoothiePluginStrategy
             log.debug("Configuring plugin: {}", plugin.getShortName());
         }
 
+        long start = System.currentTimeMillis();
         container.register(plugin);
+        plugin.getStartupTimes().injection = System.currentTimeMillis() - start;
 
         ClassLoader old = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(plugin.classLoader);
@@ -185,8 +187,13 @@ public class SmoothiePluginStrategy
             else {
                 try {
                     // Ask the container to construct the instance
+                    start = System.currentTimeMillis();
                     Class<? extends Plugin> type = loadPluginClass(plugin);
+                    plugin.getStartupTimes().classLoading += System.currentTimeMillis() - start;
+
+                    start = System.currentTimeMillis();
                     instance = container.injector(plugin).getInstance(type);
+                    plugin.getStartupTimes().injection += System.currentTimeMillis() - start;
                     log.trace("Plugin instance: {}", instance);
                 }
                 catch (Throwable e) {
@@ -229,7 +236,9 @@ public class SmoothiePluginStrategy
 
         Plugin instance = plugin.getPlugin();
         instance.setServletContext(Hudson.getInstance().servletContext);
+        long start = System.currentTimeMillis();
         instance.start();
+        plugin.getStartupTimes().start = System.currentTimeMillis() - start;
     }
 
     /**
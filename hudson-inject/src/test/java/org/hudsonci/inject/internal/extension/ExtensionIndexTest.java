@@ -0,0 +1,156 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.hudsonci.inject.internal.extension;
+
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+import hudson.ExtensionPoint;
+import org.junit.Test;
+import org.sonatype.guice.bean.binders.WireModule;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+
+import java.io.File;
+import java.lang.annotation.ElementType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ExtensionIndex} and {@link IndexedExtensionModule}.
+ */
+public class ExtensionIndexTest
+{
+    public interface Point
+        extends ExtensionPoint
+    {
+    }
+
+    public static abstract class AbstractPoint
+        implements ExtensionPoint
+    {
+    }
+
+    public static class Component
+        extends AbstractPoint
+        implements Point
+    {
+        static int created;
+
+        public Component() {
+            created++;
+        }
+    }
+
+    public static class Holder
+    {
+        public static Point create() {
+            return new Component();
+        }
+    }
+
+    private final ClassSpace space = new URLClassSpace(getClass().getClassLoader());
+
+    private ExtensionIndex.Entry typeEntry() {
+        return new ExtensionIndex.Entry(ElementType.TYPE, Component.class.getName(), null, 0, false,
+            Arrays.asList(AbstractPoint.class.getName(), Point.class.getName(), Point.class.getName()));
+    }
+
+    private ExtensionIndex.Entry methodEntry() {
+        return new ExtensionIndex.Entry(ElementType.METHOD, Holder.class.getName(), "create", 10, false,
+            Arrays.asList(Point.class.getName()));
+    }
+
+    @Test
+    public void testTypeComponentIsOneInstanceUnderAllKeys() {
+        ExtensionIndex index = new ExtensionIndex(null, Collections.singletonList(typeEntry()));
+        IndexedExtensionModule module = new IndexedExtensionModule(space, index);
+        Component.created = 0;
+        Injector injector = Guice.createInjector(new WireModule(module));
+        assertEquals(3, module.getLoadedClassCount());
+        assertEquals(0, Component.created);
+
+        Point point = injector.getInstance(Key.get(Point.class, Names.named(Component.class.getName())));
+        AbstractPoint abstractPoint = injector.getInstance(Key.get(AbstractPoint.class, Names.named(Component.class.getName())));
+        Component component = injector.getInstance(Component.class);
+        assertEquals(1, Component.created);
+        assertSame(point, abstractPoint);
+        assertSame(point, component);
+    }
+
+    @Test
+    public void testMethodComponentIsCreatedOnFirstUse() {
+        ExtensionIndex index = new ExtensionIndex(null, Collections.singletonList(methodEntry()));
+        IndexedExtensionModule module = new IndexedExtensionModule(space, index);
+        Component.created = 0;
+        Injector injector = Guice.createInjector(new WireModule(module));
+        assertEquals(1, module.getLoadedClassCount());
+        assertEquals(0, Component.created);
+
+        List<Binding<Point>> bindings = injector.findBindingsByType(TypeLiteral.get(Point.class));
+        Object first = bindings.get(0).getProvider().get();
+        assertSame(first, bindings.get(0).getProvider().get());
+        assertEquals(1, Component.created);
+    }
+
+    @Test
+    public void testMethodComponent() {
+        ExtensionIndex index = new ExtensionIndex(null, Collections.singletonList(methodEntry()));
+        Injector injector = Guice.createInjector(new WireModule(new IndexedExtensionModule(space, index)));
+
+        List<Binding<Point>> bindings = injector.findBindingsByType(TypeLiteral.get(Point.class));
+        assertEquals(1, bindings.size());
+        ExtensionQualifier qualifier = (ExtensionQualifier) bindings.get(0).getKey().getAnnotation();
+        assertEquals(Holder.class.getName() + ".create", qualifier.elementName());
+        assertEquals(10, qualifier.extension().ordinal(), 0);
+        assertTrue(bindings.get(0).getProvider().get() instanceof Component);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File file = File.createTempFile("extensions", ".index");
+        try {
+            new ExtensionIndex("abc", Arrays.asList(typeEntry(), methodEntry())).save(file);
+
+            ExtensionIndex index = ExtensionIndex.load(space, file, "abc");
+            assertNotNull(index);
+            assertEquals(2, index.getEntries().size());
+            assertEquals("create", index.getEntries().get(1).getMemberName());
+            assertEquals(Holder.class.getName() + ".create", index.getEntries().get(1).getElementName());
+
+            // computed from different contents
+            assertNull(ExtensionIndex.load(space, file, "def"));
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
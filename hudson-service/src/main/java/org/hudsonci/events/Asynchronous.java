@@ -0,0 +1,91 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.hudsonci.events;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks an {@link EventConsumer} to be called asynchronously, so that a slow consumer doesn't hold up the thread
+ * that publishes the event.
+ *
+ * <p>
+ * Events are queued for the consumer and delivered by background threads. Events with the same source are delivered
+ * in the order they were published. Consumers without this annotation are still called on the publishing thread.
+ *
+ * @since 2.2.2
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface Asynchronous
+{
+    /**
+     * Maximum number of events waiting for the consumer.
+     */
+    int queueSize() default 1000;
+
+    /**
+     * What happens to an event published while the queue is full.
+     */
+    Overflow overflow() default Overflow.BLOCK;
+
+    /**
+     * How long the publisher waits for room in the queue with {@link Overflow#BLOCK}, in milliseconds,
+     * before the event is dropped.
+     */
+    long blockTimeout() default 10000;
+
+    /**
+     * Number of events the consumer may be handed at the same time. Events of the same source are still delivered
+     * one at a time.
+     */
+    int parallelism() default 1;
+
+    /**
+     * Policies for a full queue.
+     */
+    enum Overflow
+    {
+        /**
+         * The publisher waits for room, up to {@link Asynchronous#blockTimeout()}.
+         */
+        BLOCK,
+
+        /**
+         * The published event is dropped.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The oldest queued event is dropped to make room.
+         */
+        DROP_OLDEST
+    }
+}
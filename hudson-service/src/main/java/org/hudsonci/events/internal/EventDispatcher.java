@@ -0,0 +1,359 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.hudsonci.events.internal;
+
+import org.hudsonci.events.Asynchronous;
+import org.hudsonci.events.ConsumesEvents;
+import org.hudsonci.events.EventConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EventObject;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delivers events to one {@link EventConsumer} and keeps track of how that goes.
+ *
+ * @since 2.2.2
+ */
+public abstract class EventDispatcher
+{
+    private static final Logger log = LoggerFactory.getLogger(EventDispatcher.class);
+
+    protected final EventConsumer consumer;
+
+    private final Class<?>[] eventTypes;
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    protected EventDispatcher(final EventConsumer consumer) {
+        this.consumer = checkNotNull(consumer);
+
+        ConsumesEvents types = consumer.getClass().getAnnotation(ConsumesEvents.class);
+        this.eventTypes = types != null ? types.value() : new Class<?>[] { EventObject.class };
+    }
+
+    /**
+     * Creates the dispatcher the consumer asks for.
+     *
+     * @param executor
+     *      runs the deliveries of asynchronous consumers.
+     */
+    public static EventDispatcher create(final EventConsumer consumer, final Executor executor) {
+        Asynchronous async = consumer.getClass().getAnnotation(Asynchronous.class);
+        return async != null ? new AsyncDispatcher(consumer, async, executor) : new SyncDispatcher(consumer);
+    }
+
+    public EventConsumer getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * Returns true if the consumer handles events of the given type, as declared by {@link ConsumesEvents}.
+     */
+    public boolean accepts(final Class<?> type) {
+        for (Class<?> eventType : eventTypes) {
+            if (eventType.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public abstract boolean isAsynchronous();
+
+    /**
+     * Hands the event over to the consumer, or queues it.
+     */
+    public abstract void dispatch(EventObject event);
+
+    /**
+     * Number of events waiting for the consumer.
+     */
+    public abstract int getQueueDepth();
+
+    /**
+     * Number of events the consumer has been called with.
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Number of events the consumer raised an exception for.
+     */
+    public long getFailureCount() {
+        return failed.get();
+    }
+
+    /**
+     * Number of events never delivered because the queue was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Average time the consumer took for an event, in milliseconds.
+     */
+    public double getAverageLatency() {
+        long n = delivered.get();
+        return n == 0 ? 0 : totalLatency.get() / 1000000.0 / n;
+    }
+
+    /**
+     * Longest time the consumer took for an event, in milliseconds.
+     */
+    public double getMaxLatency() {
+        return maxLatency.get() / 1000000.0;
+    }
+
+    protected void drop(final EventObject event) {
+        dropped.incrementAndGet();
+        log.warn("Dropped event ({}) for consumer: {}", event, consumer);
+    }
+
+    /**
+     * Calls the consumer on the current thread, with the consumer's class loader as the context class loader.
+     */
+    protected void deliver(final EventObject event) {
+        log.trace("Firing event ({}) to consumer: {}", event, consumer);
+
+        Thread thread = Thread.currentThread();
+        ClassLoader cl = thread.getContextClassLoader();
+        thread.setContextClassLoader(consumer.getClass().getClassLoader());
+
+        long start = System.nanoTime();
+        try {
+            consumer.consume(event);
+        }
+        catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("Consumer raised an exception", e);
+        }
+        finally {
+            thread.setContextClassLoader(cl);
+
+            long latency = System.nanoTime() - start;
+            delivered.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            for (long max = maxLatency.get(); latency > max && !maxLatency.compareAndSet(max, latency); max = maxLatency.get()) {
+                // retry
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "consumer=" + consumer +
+            ", queueDepth=" + getQueueDepth() +
+            ", delivered=" + getDeliveredCount() +
+            ", failed=" + getFailureCount() +
+            ", dropped=" + getDroppedCount() +
+            ", averageLatency=" + getAverageLatency() +
+            '}';
+    }
+
+    /**
+     * Calls the consumer on the publishing thread.
+     */
+    private static final class SyncDispatcher
+        extends EventDispatcher
+    {
+        private SyncDispatcher(final EventConsumer consumer) {
+            super(consumer);
+        }
+
+        public boolean isAsynchronous() {
+            return false;
+        }
+
+        public void dispatch(final EventObject event) {
+            deliver(event);
+        }
+
+        public int getQueueDepth() {
+            return 0;
+        }
+    }
+
+    /**
+     * Queues the events and calls the consumer from the executor.
+     *
+     * <p>
+     * Events are spread over {@link Asynchronous#parallelism()} lanes by their source, and each lane is drained
+     * by at most one thread at a time, which keeps the events of a source in order.
+     */
+    private static final class AsyncDispatcher
+        extends EventDispatcher
+    {
+        private final Asynchronous config;
+
+        private final Executor executor;
+
+        private final Lane[] lanes;
+
+        private AsyncDispatcher(final EventConsumer consumer, final Asynchronous config, final Executor executor) {
+            super(consumer);
+            this.config = config;
+            this.executor = checkNotNull(executor);
+
+            int parallelism = Math.max(1, config.parallelism());
+            int capacity = Math.max(1, config.queueSize() / parallelism);
+            lanes = new Lane[parallelism];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane(capacity);
+            }
+        }
+
+        public boolean isAsynchronous() {
+            return true;
+        }
+
+        public void dispatch(final EventObject event) {
+            Lane lane = lanes[(System.identityHashCode(event.getSource()) & 0x7fffffff) % lanes.length];
+            if (lane.offer(event)) {
+                lane.schedule();
+            }
+        }
+
+        public int getQueueDepth() {
+            int depth = 0;
+            for (Lane lane : lanes) {
+                depth += lane.queue.size();
+            }
+            return depth;
+        }
+
+        private final class Lane
+            implements Runnable
+        {
+            private final BlockingQueue<EventObject> queue;
+
+            private final AtomicBoolean scheduled = new AtomicBoolean();
+
+            private Lane(final int capacity) {
+                this.queue = new ArrayBlockingQueue<EventObject>(capacity);
+            }
+
+            /**
+             * Queues the event according to the overflow policy.
+             *
+             * @return false if the event was dropped.
+             */
+            private boolean offer(final EventObject event) {
+                switch (config.overflow()) {
+                    case DROP_NEWEST:
+                        if (queue.offer(event)) {
+                            return true;
+                        }
+                        break;
+
+                    case DROP_OLDEST:
+                        while (!queue.offer(event)) {
+                            EventObject oldest = queue.poll();
+                            if (oldest != null) {
+                                drop(oldest);
+                            }
+                        }
+                        return true;
+
+                    default:
+                        try {
+                            if (queue.offer(event, config.blockTimeout(), TimeUnit.MILLISECONDS)) {
+                                return true;
+                            }
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        break;
+                }
+                drop(event);
+                return false;
+            }
+
+            /**
+             * Makes sure a thread is draining the lane.
+             */
+            private void schedule() {
+                if (scheduled.compareAndSet(false, true)) {
+                    try {
+                        executor.execute(this);
+                    }
+                    catch (RuntimeException e) {
+                        scheduled.set(false);
+                        throw e;
+                    }
+                }
+            }
+
+            public void run() {
+                Thread thread = Thread.currentThread();
+                String name = thread.getName();
+                thread.setName("Event dispatch to " + consumer);
+                try {
+                    while (true) {
+                        EventObject event = queue.poll();
+                        if (event != null) {
+                            deliver(event);
+                            continue;
+                        }
+
+                        scheduled.set(false);
+                        // an event may have been queued after the poll but before the flag was cleared
+                        if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                    }
+                }
+                catch (Error e) {
+                    // let the next event start another thread
+                    scheduled.set(false);
+                    throw e;
+                }
+                finally {
+                    thread.setName(name);
+                }
+            }
+        }
+    }
+}
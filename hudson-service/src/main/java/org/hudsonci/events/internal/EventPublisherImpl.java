@@ -24,22 +24,47 @@
 
 package org.hudsonci.events.internal;
 
+import com.google.inject.Key;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
 import org.hudsonci.events.EventConsumer;
 import org.hudsonci.events.EventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonatype.guice.bean.locators.BeanLocator;
+import org.sonatype.inject.BeanEntry;
+import org.sonatype.inject.Mediator;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EventObject;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Default {@link EventPublisher} implementation.
  *
+ * <p>
+ * Consumers are called on the publishing thread, except for the ones marked {@link org.hudsonci.events.Asynchronous},
+ * which get the events queued and delivered by background threads.
+ *
+ * <p>
+ * Events are only routed to the consumers which handle their type, see {@link org.hudsonci.events.ConsumesEvents}.
+ * The consumers of each event type are worked out once and cached until the consumers change.
+ *
  * @author <a href="mailto:jason@planet57.com">Jason Dillon</a>
  * @since 2.1.0
  */
@@ -52,13 +77,111 @@ public class EventPublisherImpl
 
     private final List<EventConsumer> consumers;
 
+    /**
+     * Dispatchers by consumer, created as the consumers show up.
+     */
+    private final ConcurrentMap<EventConsumer,EventDispatcher> dispatchers = new ConcurrentHashMap<EventConsumer,EventDispatcher>();
+
+    /**
+     * Runs the deliveries to asynchronous consumers. Each queue is drained by at most one thread at a time,
+     * so the number of threads is bounded by the number of queues.
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+        new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+
+    /**
+     * Bumped whenever consumers come or go, the routes are rebuilt when it no longer matches theirs.
+     */
+    private final AtomicInteger modCount = new AtomicInteger();
+
+    private volatile Routes routes = new Routes(-1, Collections.<EventDispatcher>emptyList());
+
     @Inject
+    public EventPublisherImpl(final List<EventConsumer> consumers, final BeanLocator locator) {
+        this(consumers);
+        // the locator holds on to the watcher weakly, which is fine for a singleton
+        checkNotNull(locator).watch(Key.get(EventConsumer.class), new ConsumerMediator(), this);
+    }
+
+    /**
+     * Creates a publisher which isn't told about consumer changes, {@link #consumersChanged()} must be called
+     * whenever the given list is modified.
+     */
     public EventPublisherImpl(final List<EventConsumer> consumers) {
         this.consumers = checkNotNull(consumers);
     }
 
-    private EventConsumer[] getConsumers() {
-        return consumers.toArray(new EventConsumer[consumers.size()]);
+    /**
+     * Marks the routes as stale, so that the next event rebuilds them from the current consumers.
+     *
+     * @since 2.2.2
+     */
+    public void consumersChanged() {
+        modCount.incrementAndGet();
+    }
+
+    private EventDispatcher getDispatcher(final EventConsumer consumer) {
+        EventDispatcher dispatcher = dispatchers.get(consumer);
+        if (dispatcher == null) {
+            dispatcher = EventDispatcher.create(consumer, executor);
+            EventDispatcher existing = dispatchers.putIfAbsent(consumer, dispatcher);
+            if (existing != null) {
+                dispatcher = existing;
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Gets the dispatchers of the consumers seen so far, with their statistics.
+     *
+     * @since 2.2.2
+     */
+    public List<EventDispatcher> getDispatchers() {
+        return new ArrayList<EventDispatcher>(dispatchers.values());
+    }
+
+    /**
+     * Gets the routing table, rebuilding it if consumers have come, gone or been replaced since it was built.
+     *
+     * <p>
+     * The injected list changes as plugins get started and stopped, but looking at it resolves the beans.
+     * Publishing only compares the modification count, the list is read again once it has changed.
+     */
+    private Routes getRoutes() {
+        Routes current = routes;
+        if (current.modCount != modCount.get()) {
+            synchronized (this) {
+                current = routes;
+                // read the count before the consumers, so a change while rebuilding forces another rebuild
+                int count = modCount.get();
+                if (current.modCount != count) {
+                    current = rebuildRoutes(count);
+                    routes = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Routes rebuildRoutes(final int count) {
+        List<EventConsumer> snapshot = new ArrayList<EventConsumer>(consumers);
+        List<EventDispatcher> list = new ArrayList<EventDispatcher>(snapshot.size());
+        for (EventConsumer consumer : snapshot) {
+            list.add(getDispatcher(consumer));
+        }
+
+        // drop the dispatchers of departed consumers, which would otherwise keep their plugin class loaders around
+        Set<EventConsumer> live = Collections.newSetFromMap(new IdentityHashMap<EventConsumer,Boolean>());
+        live.addAll(snapshot);
+        for (Iterator<EventConsumer> itr = dispatchers.keySet().iterator(); itr.hasNext();) {
+            if (!live.contains(itr.next())) {
+                itr.remove();
+            }
+        }
+
+        log.debug("Rebuilt event routes for {} consumers", list.size());
+        return new Routes(count, list);
     }
 
     public void publish(final EventObject event) {
@@ -66,22 +189,55 @@ public class EventPublisherImpl
 
         log.trace("Publishing event: {}", event);
 
-        final ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        for (EventDispatcher target : getRoutes().get(event.getClass())) {
+            target.dispatch(event);
+        }
+    }
+
+    /**
+     * Tells the publisher about consumers being added and removed, as plugins get started and stopped.
+     */
+    private static final class ConsumerMediator
+        implements Mediator<Annotation,EventConsumer,EventPublisherImpl>
+    {
+        public void add(final BeanEntry<Annotation,EventConsumer> entry, final EventPublisherImpl publisher) {
+            publisher.consumersChanged();
+        }
 
-        for (EventConsumer target : getConsumers()) {
-            log.trace("Firing event ({}) to consumer: {}", event, target);
+        public void remove(final BeanEntry<Annotation,EventConsumer> entry, final EventPublisherImpl publisher) {
+            publisher.consumersChanged();
+        }
+    }
 
-            Thread.currentThread().setContextClassLoader(target.getClass().getClassLoader());
+    /**
+     * The dispatchers of a snapshot of the consumers, and which of them each event type goes to.
+     */
+    private static final class Routes
+    {
+        private final int modCount;
 
-            try {
-                target.consume(event);
-            }
-            catch (Exception e) {
-                log.error("Consumer raised an exception", e);
-            }
-            finally {
-                Thread.currentThread().setContextClassLoader(cl);
+        private final List<EventDispatcher> dispatchers;
+
+        private final ConcurrentMap<Class<?>,List<EventDispatcher>> byType = new ConcurrentHashMap<Class<?>,List<EventDispatcher>>();
+
+        private Routes(final int modCount, final List<EventDispatcher> dispatchers) {
+            this.modCount = modCount;
+            this.dispatchers = dispatchers;
+        }
+
+        private List<EventDispatcher> get(final Class<?> type) {
+            List<EventDispatcher> targets = byType.get(type);
+            if (targets == null) {
+                targets = new ArrayList<EventDispatcher>();
+                for (EventDispatcher dispatcher : dispatchers) {
+                    if (dispatcher.accepts(type)) {
+                        targets.add(dispatcher);
+                    }
+                }
+                // racing threads compute the same list, so whichever lands is fine
+                byType.put(type, targets);
             }
+            return targets;
         }
     }
 }
@@ -0,0 +1,241 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2011, Oracle Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.hudsonci.events.internal;
+
+import org.hudsonci.events.Asynchronous;
+import org.hudsonci.events.ConsumesEvents;
+import org.hudsonci.events.EventConsumer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link EventPublisherImpl}.
+ */
+public class EventPublisherImplTest
+{
+    private static class NumberedEvent
+        extends EventObject
+    {
+        private final int number;
+
+        private NumberedEvent(final Object source, final int number) {
+            super(source);
+            this.number = number;
+        }
+    }
+
+    private static class SyncConsumer
+        implements EventConsumer
+    {
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        public void consume(final EventObject event) throws Exception {
+            threads.add(Thread.currentThread());
+        }
+    }
+
+    @ConsumesEvents(NumberedEvent.class)
+    private static class NumberedConsumer
+        extends SyncConsumer
+    {
+    }
+
+    @Asynchronous(parallelism = 4)
+    private static class OrderedConsumer
+        implements EventConsumer
+    {
+        final List<NumberedEvent> received = Collections.synchronizedList(new ArrayList<NumberedEvent>());
+
+        final CountDownLatch done;
+
+        private OrderedConsumer(final int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        public void consume(final EventObject event) throws Exception {
+            received.add((NumberedEvent) event);
+            done.countDown();
+        }
+    }
+
+    @Asynchronous(queueSize = 2, overflow = Asynchronous.Overflow.DROP_NEWEST)
+    private static class BlockedConsumer
+        implements EventConsumer
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        public void consume(final EventObject event) throws Exception {
+            started.countDown();
+            release.await();
+        }
+    }
+
+    @Test
+    public void testSynchronousConsumerRunsOnPublishingThread() {
+        SyncConsumer consumer = new SyncConsumer();
+        EventPublisherImpl publisher = new EventPublisherImpl(Arrays.<EventConsumer>asList(consumer));
+
+        publisher.publish(new EventObject(this));
+        assertEquals(Arrays.asList(Thread.currentThread()), consumer.threads);
+        assertFalse(publisher.getDispatchers().get(0).isAsynchronous());
+        assertEquals(1, publisher.getDispatchers().get(0).getDeliveredCount());
+    }
+
+    @Test
+    public void testOrderIsKeptPerSource() throws Exception {
+        Object[] sources = { "a", "b", "c", "d", "e" };
+        int perSource = 200;
+        OrderedConsumer consumer = new OrderedConsumer(sources.length * perSource);
+        EventPublisherImpl publisher = new EventPublisherImpl(Arrays.<EventConsumer>asList(consumer));
+
+        for (int i = 0; i < perSource; i++) {
+            for (Object source : sources) {
+                publisher.publish(new NumberedEvent(source, i));
+            }
+        }
+        assertTrue(consumer.done.await(10, TimeUnit.SECONDS));
+
+        for (Object source : sources) {
+            int last = -1;
+            for (NumberedEvent event : consumer.received) {
+                if (event.getSource() == source) {
+                    assertEquals(last + 1, event.number);
+                    last = event.number;
+                }
+            }
+            assertEquals(perSource - 1, last);
+        }
+        assertEquals(0, publisher.getDispatchers().get(0).getQueueDepth());
+    }
+
+    @Test
+    public void testFullQueueDropsEvents() throws Exception {
+        BlockedConsumer consumer = new BlockedConsumer();
+        EventPublisherImpl publisher = new EventPublisherImpl(Arrays.<EventConsumer>asList(consumer));
+
+        publisher.publish(new EventObject(this));
+        assertTrue(consumer.started.await(10, TimeUnit.SECONDS));
+
+        // the consumer is busy with the first one, so two fit in the queue
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(new EventObject(this));
+        }
+
+        EventDispatcher dispatcher = publisher.getDispatchers().get(0);
+        assertTrue(dispatcher.isAsynchronous());
+        assertEquals(2, dispatcher.getQueueDepth());
+        assertEquals(3, dispatcher.getDroppedCount());
+        consumer.release.countDown();
+    }
+
+    @Test
+    public void testEventsAreRoutedByType() {
+        SyncConsumer all = new SyncConsumer();
+        NumberedConsumer numbered = new NumberedConsumer();
+        List<EventConsumer> consumers = new CopyOnWriteArrayList<EventConsumer>(Arrays.<EventConsumer>asList(all));
+        EventPublisherImpl publisher = new EventPublisherImpl(consumers);
+
+        publisher.publish(new EventObject(this));
+        publisher.publish(new NumberedEvent(this, 0));
+        assertEquals(2, all.threads.size());
+
+        // a consumer showing up invalidates the routes
+        consumers.add(numbered);
+        publisher.consumersChanged();
+        publisher.publish(new EventObject(this));
+        publisher.publish(new NumberedEvent(this, 1));
+        assertEquals(4, all.threads.size());
+        assertEquals(1, numbered.threads.size());
+    }
+
+    @Test
+    public void testReplacedConsumerIsRouted() {
+        SyncConsumer before = new SyncConsumer();
+        SyncConsumer after = new SyncConsumer();
+        List<EventConsumer> consumers = new CopyOnWriteArrayList<EventConsumer>(Arrays.<EventConsumer>asList(before));
+        EventPublisherImpl publisher = new EventPublisherImpl(consumers);
+
+        publisher.publish(new EventObject(this));
+        assertEquals(1, before.threads.size());
+
+        // same number of consumers, different ones
+        consumers.set(0, after);
+        publisher.consumersChanged();
+        publisher.publish(new EventObject(this));
+        assertEquals(1, before.threads.size());
+        assertEquals(1, after.threads.size());
+    }
+
+    @Test
+    public void testDispatchersOfDepartedConsumersAreDropped() {
+        SyncConsumer staying = new SyncConsumer();
+        SyncConsumer leaving = new SyncConsumer();
+        List<EventConsumer> consumers = new CopyOnWriteArrayList<EventConsumer>(Arrays.<EventConsumer>asList(staying, leaving));
+        EventPublisherImpl publisher = new EventPublisherImpl(consumers);
+
+        publisher.publish(new EventObject(this));
+        assertEquals(2, publisher.getDispatchers().size());
+
+        consumers.remove(leaving);
+        publisher.consumersChanged();
+        publisher.publish(new EventObject(this));
+        List<EventDispatcher> dispatchers = publisher.getDispatchers();
+        assertEquals(1, dispatchers.size());
+        assertSame(staying, dispatchers.get(0).getConsumer());
+        assertEquals(2, staying.threads.size());
+        assertEquals(1, leaving.threads.size());
+    }
+
+    @Test
+    public void testConsumersAreOnlyReadAgainOnceChanged() {
+        SyncConsumer first = new SyncConsumer();
+        SyncConsumer second = new SyncConsumer();
+        List<EventConsumer> consumers = new CopyOnWriteArrayList<EventConsumer>(Arrays.<EventConsumer>asList(first));
+        EventPublisherImpl publisher = new EventPublisherImpl(consumers);
+
+        publisher.publish(new EventObject(this));
+        consumers.add(second);
+        publisher.publish(new EventObject(this));
+        assertEquals(2, first.threads.size());
+        assertEquals(0, second.threads.size());
+
+        publisher.consumersChanged();
+        publisher.publish(new EventObject(this));
+        assertEquals(3, first.threads.size());
+        assertEquals(1, second.threads.size());
+    }
+}
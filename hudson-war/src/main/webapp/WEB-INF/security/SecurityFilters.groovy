@@ -29,6 +29,7 @@
 import hudson.security.AccessDeniedHandlerImpl
 import hudson.security.AuthenticationProcessingFilter2
 import hudson.security.BasicAuthenticationFilter
+import hudson.security.CachingAuthenticationManager
 import hudson.security.ChainedServletFilter
 import hudson.security.UnwrapSecurityExceptionFilter
 import hudson.security.HudsonAuthenticationEntryPoint
@@ -64,7 +65,9 @@ filter(ChainedServletFilter) {
         },
         // allow clients to submit basic authentication credential
         bean(BasicProcessingFilter) {
-            authenticationManager = securityComponents.manager
+            // scripted clients send the same credentials with every request, so remember them briefly,
+            // and don't let a slow realm tie up the request threads
+            authenticationManager = new CachingAuthenticationManager(securityComponents.manager)
             // if basic authentication fails (which only happens incorrect basic auth credential is sent),
             // respond with 401 with basic auth request, instead of redirecting the user to the login page,
             // since users of basic auth tends to be a program and won't see the redirection to the form